@@ -35,6 +35,8 @@ public class CollectResult
 
     private DependencyNode root;
 
+    private CollectStatistics statistics;
+
     /**
      * Creates a new result for the specified request.
      * 
@@ -107,4 +109,27 @@ public class CollectResult
         return this;
     }
 
+    /**
+     * Gets the statistics about the collection. Statistics are only gathered if the configuration property
+     * {@code aether.dependencyCollector.statistics} is set to {@code true}.
+     * 
+     * @return The statistics about the collection or {@code null} if none were gathered.
+     */
+    public CollectStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Sets the statistics about the collection.
+     * 
+     * @param statistics The statistics about the collection, may be {@code null}.
+     * @return This result for chaining, never {@code null}.
+     */
+    public CollectResult setStatistics( CollectStatistics statistics )
+    {
+        this.statistics = statistics;
+        return this;
+    }
+
 }
@@ -0,0 +1,400 @@
+package org.sonatype.aether.collection;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Statistics about a dependency collection, i.e. where the time was spent and how effective the caching of
+ * intermediate data was. All times are given in nanoseconds. <em>Note:</em> Instances of this class are not
+ * thread-safe.
+ * 
+ * @see CollectResult#getStatistics()
+ */
+public class CollectStatistics
+{
+
+    private long versionRangeResolutionTime;
+
+    private long descriptorReadingTime;
+
+    private long derivationTime;
+
+    private long repositoryAggregationTime;
+
+    private long graphTransformationTime;
+
+    private final Map<String, Long> transformerTimes = new LinkedHashMap<String, Long>();
+
+    private int constraintHits;
+
+    private int constraintMisses;
+
+    private int descriptorHits;
+
+    private int descriptorMisses;
+
+    private long descriptorEvictions;
+
+    private int descriptorCacheSize;
+
+    private long descriptorCacheWeight;
+
+    private int nodeHits;
+
+    private int nodeMisses;
+
+    /**
+     * Gets the time spent resolving version ranges, including lookups in the cache.
+     * 
+     * @return The time in nanoseconds.
+     */
+    public long getVersionRangeResolutionTime()
+    {
+        return versionRangeResolutionTime;
+    }
+
+    /**
+     * Adds the specified time to the time spent resolving version ranges.
+     * 
+     * @param nanos The time in nanoseconds.
+     * @return These statistics for chaining, never {@code null}.
+     */
+    public CollectStatistics addVersionRangeResolutionTime( long nanos )
+    {
+        versionRangeResolutionTime += nanos;
+        return this;
+    }
+
+    /**
+     * Gets the time spent reading artifact descriptors, including lookups in the cache.
+     * 
+     * @return The time in nanoseconds.
+     */
+    public long getDescriptorReadingTime()
+    {
+        return descriptorReadingTime;
+    }
+
+    /**
+     * Adds the specified time to the time spent reading artifact descriptors.
+     * 
+     * @param nanos The time in nanoseconds.
+     * @return These statistics for chaining, never {@code null}.
+     */
+    public CollectStatistics addDescriptorReadingTime( long nanos )
+    {
+        descriptorReadingTime += nanos;
+        return this;
+    }
+
+    /**
+     * Gets the time spent deriving the dependency selectors, managers and traversers for child dependencies.
+     * 
+     * @return The time in nanoseconds.
+     */
+    public long getDerivationTime()
+    {
+        return derivationTime;
+    }
+
+    /**
+     * Adds the specified time to the time spent deriving selectors, managers and traversers.
+     * 
+     * @param nanos The time in nanoseconds.
+     * @return These statistics for chaining, never {@code null}.
+     */
+    public CollectStatistics addDerivationTime( long nanos )
+    {
+        derivationTime += nanos;
+        return this;
+    }
+
+    /**
+     * Gets the time spent aggregating the remote repositories of dependencies.
+     * 
+     * @return The time in nanoseconds.
+     */
+    public long getRepositoryAggregationTime()
+    {
+        return repositoryAggregationTime;
+    }
+
+    /**
+     * Adds the specified time to the time spent aggregating remote repositories.
+     * 
+     * @param nanos The time in nanoseconds.
+     * @return These statistics for chaining, never {@code null}.
+     */
+    public CollectStatistics addRepositoryAggregationTime( long nanos )
+    {
+        repositoryAggregationTime += nanos;
+        return this;
+    }
+
+    /**
+     * Gets the total time spent transforming the dependency graph.
+     * 
+     * @return The time in nanoseconds.
+     */
+    public long getGraphTransformationTime()
+    {
+        return graphTransformationTime;
+    }
+
+    /**
+     * Adds the specified time to the total time spent transforming the dependency graph.
+     * 
+     * @param nanos The time in nanoseconds.
+     * @return These statistics for chaining, never {@code null}.
+     */
+    public CollectStatistics addGraphTransformationTime( long nanos )
+    {
+        graphTransformationTime += nanos;
+        return this;
+    }
+
+    /**
+     * Gets the times spent in the individual graph transformers. These times are only available if the transformers
+     * are invoked by a transformer that records them, like a chain of transformers.
+     * 
+     * @return The times in nanoseconds keyed by the class name of the transformer, never {@code null}.
+     */
+    public Map<String, Long> getTransformerTimes()
+    {
+        return Collections.unmodifiableMap( transformerTimes );
+    }
+
+    /**
+     * Adds the specified time to the time spent in the given graph transformer.
+     * 
+     * @param transformer The graph transformer, must not be {@code null}.
+     * @param nanos The time in nanoseconds.
+     * @return These statistics for chaining, never {@code null}.
+     */
+    public CollectStatistics addTransformerTime( DependencyGraphTransformer transformer, long nanos )
+    {
+        String key = transformer.getClass().getName();
+        Long time = transformerTimes.get( key );
+        transformerTimes.put( key, Long.valueOf( ( time != null ) ? time.longValue() + nanos : nanos ) );
+        return this;
+    }
+
+    /**
+     * Gets the number of version range lookups that were served from the cache.
+     * 
+     * @return The number of cache hits.
+     */
+    public int getConstraintHits()
+    {
+        return constraintHits;
+    }
+
+    /**
+     * Gets the number of version range lookups that were not served from the cache.
+     * 
+     * @return The number of cache misses.
+     */
+    public int getConstraintMisses()
+    {
+        return constraintMisses;
+    }
+
+    /**
+     * Records a version range lookup.
+     * 
+     * @param hit {@code true} if the lookup was served from the cache, {@code false} otherwise.
+     * @return These statistics for chaining, never {@code null}.
+     */
+    public CollectStatistics addConstraintLookup( boolean hit )
+    {
+        if ( hit )
+        {
+            constraintHits++;
+        }
+        else
+        {
+            constraintMisses++;
+        }
+        return this;
+    }
+
+    /**
+     * Gets the number of artifact descriptor lookups that were served from the cache.
+     * 
+     * @return The number of cache hits.
+     */
+    public int getDescriptorHits()
+    {
+        return descriptorHits;
+    }
+
+    /**
+     * Gets the number of artifact descriptor lookups that were not served from the cache.
+     * 
+     * @return The number of cache misses.
+     */
+    public int getDescriptorMisses()
+    {
+        return descriptorMisses;
+    }
+
+    /**
+     * Records an artifact descriptor lookup.
+     * 
+     * @param hit {@code true} if the lookup was served from the cache, {@code false} otherwise.
+     * @return These statistics for chaining, never {@code null}.
+     */
+    public CollectStatistics addDescriptorLookup( boolean hit )
+    {
+        if ( hit )
+        {
+            descriptorHits++;
+        }
+        else
+        {
+            descriptorMisses++;
+        }
+        return this;
+    }
+
+    /**
+     * Gets the number of descriptors that were evicted from the session-wide descriptor cache while the collection ran.
+     * As the cache is shared, this includes evictions caused by concurrent collections of the same session.
+     * 
+     * @return The number of evicted descriptors.
+     */
+    public long getDescriptorEvictions()
+    {
+        return descriptorEvictions;
+    }
+
+    /**
+     * Adds the specified number of descriptors evicted from the descriptor cache.
+     * 
+     * @param evictions The number of evicted descriptors.
+     * @return These statistics for chaining, never {@code null}.
+     */
+    public CollectStatistics addDescriptorEvictions( long evictions )
+    {
+        descriptorEvictions += evictions;
+        return this;
+    }
+
+    /**
+     * Gets the number of descriptors held by the session-wide descriptor cache at the end of the collection.
+     * 
+     * @return The number of cached descriptors.
+     */
+    public int getDescriptorCacheSize()
+    {
+        return descriptorCacheSize;
+    }
+
+    /**
+     * Sets the number of descriptors held by the descriptor cache.
+     * 
+     * @param size The number of cached descriptors.
+     * @return These statistics for chaining, never {@code null}.
+     */
+    public CollectStatistics setDescriptorCacheSize( int size )
+    {
+        descriptorCacheSize = size;
+        return this;
+    }
+
+    /**
+     * Gets the total weight of the descriptors held by the session-wide descriptor cache at the end of the collection.
+     * The weight of a descriptor is one plus the number of its dependencies and managed dependencies.
+     * 
+     * @return The total weight of the cached descriptors.
+     */
+    public long getDescriptorCacheWeight()
+    {
+        return descriptorCacheWeight;
+    }
+
+    /**
+     * Sets the total weight of the descriptors held by the descriptor cache.
+     * 
+     * @param weight The total weight of the cached descriptors.
+     * @return These statistics for chaining, never {@code null}.
+     */
+    public CollectStatistics setDescriptorCacheWeight( long weight )
+    {
+        descriptorCacheWeight = weight;
+        return this;
+    }
+
+    /**
+     * Gets the number of graph node lookups that found an existing node whose subgraph could be shared.
+     * 
+     * @return The number of cache hits.
+     */
+    public int getNodeHits()
+    {
+        return nodeHits;
+    }
+
+    /**
+     * Gets the number of graph node lookups that required the creation of a new node.
+     * 
+     * @return The number of cache misses.
+     */
+    public int getNodeMisses()
+    {
+        return nodeMisses;
+    }
+
+    /**
+     * Records a graph node lookup.
+     * 
+     * @param hit {@code true} if an existing node was found, {@code false} otherwise.
+     * @return These statistics for chaining, never {@code null}.
+     */
+    public CollectStatistics addNodeLookup( boolean hit )
+    {
+        if ( hit )
+        {
+            nodeHits++;
+        }
+        else
+        {
+            nodeMisses++;
+        }
+        return this;
+    }
+
+    @Override
+    public String toString()
+    {
+        long nanosPerMilli = 1000 * 1000;
+        StringBuilder buffer = new StringBuilder( 256 );
+        buffer.append( "rangeTime=" ).append( versionRangeResolutionTime / nanosPerMilli ).append( "ms" );
+        buffer.append( ", descriptorTime=" ).append( descriptorReadingTime / nanosPerMilli ).append( "ms" );
+        buffer.append( ", derivationTime=" ).append( derivationTime / nanosPerMilli ).append( "ms" );
+        buffer.append( ", repositoryTime=" ).append( repositoryAggregationTime / nanosPerMilli ).append( "ms" );
+        buffer.append( ", transformationTime=" ).append( graphTransformationTime / nanosPerMilli ).append( "ms" );
+        buffer.append( ", constraintHits=" ).append( constraintHits ).append( '/' ).append( constraintMisses );
+        buffer.append( ", descriptorHits=" ).append( descriptorHits ).append( '/' ).append( descriptorMisses );
+        buffer.append( ", descriptorEvictions=" ).append( descriptorEvictions );
+        buffer.append( ", descriptorCache=" ).append( descriptorCacheSize ).append( '/' );
+        buffer.append( descriptorCacheWeight );
+        buffer.append( ", nodeHits=" ).append( nodeHits ).append( '/' ).append( nodeMisses );
+        return buffer.toString();
+    }
+
+}
@@ -0,0 +1,81 @@
+package org.sonatype.aether.collection;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import org.sonatype.aether.RepositoryException;
+import org.sonatype.aether.graph.Dependency;
+
+/**
+ * Thrown in case the dependency graph exceeds one of the configured limits of the collection. The affected branch of
+ * the graph has been cut off and the collection result carries the partial graph.
+ * 
+ * @see CollectResult#getExceptions()
+ */
+public class CollectionLimitException
+    extends RepositoryException
+{
+
+    private final Dependency dependency;
+
+    private final String limit;
+
+    private final int value;
+
+    /**
+     * Creates a new exception for the specified limit.
+     * 
+     * @param dependency The dependency at which the limit was exceeded, may be {@code null}.
+     * @param limit The name of the exceeded limit, may be {@code null}.
+     * @param value The value of the exceeded limit.
+     */
+    public CollectionLimitException( Dependency dependency, String limit, int value )
+    {
+        super( "Dependency collection exceeded the limit " + limit + "=" + value
+            + ( ( dependency != null ) ? " at " + dependency : "" ) );
+        this.dependency = dependency;
+        this.limit = ( limit != null ) ? limit : "";
+        this.value = value;
+    }
+
+    /**
+     * Gets the dependency at which the limit was exceeded.
+     * 
+     * @return The dependency or {@code null} if unknown.
+     */
+    public Dependency getDependency()
+    {
+        return dependency;
+    }
+
+    /**
+     * Gets the name of the exceeded limit, i.e. the configuration property that defines it.
+     * 
+     * @return The name of the limit, never {@code null}.
+     */
+    public String getLimit()
+    {
+        return limit;
+    }
+
+    /**
+     * Gets the value of the exceeded limit.
+     * 
+     * @return The value of the limit.
+     */
+    public int getValue()
+    {
+        return value;
+    }
+
+}
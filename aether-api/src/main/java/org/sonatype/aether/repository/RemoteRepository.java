@@ -13,13 +13,15 @@ package org.sonatype.aether.repository;
  * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
  */
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * A repository on a remote server.
+ * A repository on a remote server. A repository can be {@link #freeze() frozen} to safely share it, e.g. among cached
+ * data, in which case any attempt to modify it fails.
  * 
  * @author Benjamin Bentmann
  */
@@ -47,6 +49,10 @@ public class RemoteRepository
 
     private boolean repositoryManager;
 
+    private boolean frozen;
+
+    private int hashCode;
+
     /**
      * Creates a new repository using the default release/snapshot policies.
      */
@@ -57,7 +63,8 @@ public class RemoteRepository
     }
 
     /**
-     * Creates a shallow copy of the specified repository.
+     * Creates a shallow copy of the specified repository. The copy is never frozen, even if the specified repository
+     * is.
      * 
      * @param repository The repository to copy, must not be {@code null}.
      */
@@ -100,9 +107,12 @@ public class RemoteRepository
      * 
      * @param id The identifier of this repository, may be {@code null}.
      * @return This repository for chaining, never {@code null}.
+     * @throws IllegalStateException If this repository is frozen.
      */
     public RemoteRepository setId( String id )
     {
+        checkMutable();
+
         this.id = ( id != null ) ? id : "";
 
         return this;
@@ -118,9 +128,12 @@ public class RemoteRepository
      * 
      * @param type The type of this repository, may be {@code null}.
      * @return This repository for chaining, never {@code null}.
+     * @throws IllegalStateException If this repository is frozen.
      */
     public RemoteRepository setContentType( String type )
     {
+        checkMutable();
+
         this.type = ( type != null ) ? type : "";
 
         return this;
@@ -141,9 +154,12 @@ public class RemoteRepository
      * 
      * @param url The URL of this repository, may be {@code null}.
      * @return This repository for chaining, never {@code null}.
+     * @throws IllegalStateException If this repository is frozen.
      */
     public RemoteRepository setUrl( String url )
     {
+        checkMutable();
+
         this.url = ( url != null ) ? url : "";
 
         return this;
@@ -202,9 +218,12 @@ public class RemoteRepository
      * @param snapshot {@code true} to set the snapshot policy, {@code false} to set the release policy.
      * @param policy The repository policy to set, may be {@code null} to use a default policy.
      * @return This repository for chaining, never {@code null}.
+     * @throws IllegalStateException If this repository is frozen.
      */
     public RemoteRepository setPolicy( boolean snapshot, RepositoryPolicy policy )
     {
+        checkMutable();
+
         if ( policy == null )
         {
             policy = new RepositoryPolicy();
@@ -237,9 +256,12 @@ public class RemoteRepository
      * 
      * @param proxy The proxy to use, may be {@code null}.
      * @return This repository for chaining, never {@code null}.
+     * @throws IllegalStateException If this repository is frozen.
      */
     public RemoteRepository setProxy( Proxy proxy )
     {
+        checkMutable();
+
         this.proxy = proxy;
 
         return this;
@@ -260,9 +282,12 @@ public class RemoteRepository
      * 
      * @param authentication The authentication to use, may be {@code null}.
      * @return This repository for chaining, never {@code null}.
+     * @throws IllegalStateException If this repository is frozen.
      */
     public RemoteRepository setAuthentication( Authentication authentication )
     {
+        checkMutable();
+
         this.authentication = authentication;
 
         return this;
@@ -283,9 +308,12 @@ public class RemoteRepository
      * 
      * @param mirroredRepositories The repositories being mirrored by this repository, may be {@code null}.
      * @return This repository for chaining, never {@code null}.
+     * @throws IllegalStateException If this repository is frozen.
      */
     public RemoteRepository setMirroredRepositories( List<RemoteRepository> mirroredRepositories )
     {
+        checkMutable();
+
         if ( mirroredRepositories == null || mirroredRepositories.isEmpty() )
         {
             this.mirroredRepositories = Collections.emptyList();
@@ -313,13 +341,78 @@ public class RemoteRepository
      * @param repositoryManager {@code true} if this repository points at a repository manager, {@code false} if the
      *            repository is just serving static contents.
      * @return This repository for chaining, never {@code null}.
+     * @throws IllegalStateException If this repository is frozen.
      */
     public RemoteRepository setRepositoryManager( boolean repositoryManager )
     {
+        checkMutable();
+
         this.repositoryManager = repositoryManager;
         return this;
     }
 
+    /**
+     * Indicates whether this repository has been frozen and hence can no longer be modified.
+     * 
+     * @return {@code true} if this repository is frozen, {@code false} otherwise.
+     */
+    public boolean isFrozen()
+    {
+        return frozen;
+    }
+
+    /**
+     * Gets a frozen copy of this repository, i.e. a copy that can no longer be modified. The mirrored repositories of
+     * the copy are frozen as well. The policies, proxy and authentication are shared with this repository, which is
+     * safe as these are immutable values. Unlike a regular repository, a frozen repository can be shared without
+     * copying it and computes its hash code only once. Clients that need to adjust a frozen repository have to create
+     * a modifiable copy via {@link #RemoteRepository(RemoteRepository)}.
+     * 
+     * @return The frozen repository, never {@code null}. This repository if it is already frozen.
+     */
+    public RemoteRepository freeze()
+    {
+        if ( frozen )
+        {
+            return this;
+        }
+
+        RemoteRepository repository = new RemoteRepository( this );
+        repository.setMirroredRepositories( freeze( mirroredRepositories ) );
+        repository.hashCode = repository.computeHashCode();
+        repository.frozen = true;
+        return repository;
+    }
+
+    /**
+     * Gets an unmodifiable list of frozen copies of the specified repositories.
+     * 
+     * @param repositories The repositories to freeze, may be {@code null}.
+     * @return The unmodifiable list of frozen repositories, never {@code null}.
+     */
+    public static List<RemoteRepository> freeze( List<RemoteRepository> repositories )
+    {
+        if ( repositories == null || repositories.isEmpty() )
+        {
+            return Collections.emptyList();
+        }
+        List<RemoteRepository> frozen = new ArrayList<RemoteRepository>( repositories.size() );
+        for ( RemoteRepository repository : repositories )
+        {
+            frozen.add( repository.freeze() );
+        }
+        return Collections.unmodifiableList( frozen );
+    }
+
+    private void checkMutable()
+    {
+        if ( frozen )
+        {
+            throw new IllegalStateException( "repository " + id + " is frozen and cannot be modified,"
+                + " use new RemoteRepository(RemoteRepository) to create a modifiable copy" );
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -360,6 +453,15 @@ public class RemoteRepository
 
     @Override
     public int hashCode()
+    {
+        if ( frozen )
+        {
+            return hashCode;
+        }
+        return computeHashCode();
+    }
+
+    private int computeHashCode()
     {
         int hash = 17;
         hash = hash * 31 + hash( url );
@@ -0,0 +1,127 @@
+package org.sonatype.aether.repository;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class RemoteRepositoryTest
+{
+
+    private RemoteRepository newRepository()
+    {
+        RemoteRepository repository = new RemoteRepository( "id", "default", "http://localhost/repo" );
+        repository.setMirroredRepositories( Arrays.asList( new RemoteRepository( "central", "default",
+                                                                                 "http://localhost/central" ) ) );
+        return repository;
+    }
+
+    @Test
+    public void testFreeze()
+    {
+        RemoteRepository repository = newRepository();
+        RemoteRepository frozen = repository.freeze();
+
+        assertNotSame( repository, frozen );
+        assertFalse( repository.isFrozen() );
+        assertTrue( frozen.isFrozen() );
+        assertTrue( frozen.getMirroredRepositories().get( 0 ).isFrozen() );
+        assertSame( frozen, frozen.freeze() );
+
+        assertEquals( repository, frozen );
+        assertEquals( frozen, repository );
+        assertEquals( repository.hashCode(), frozen.hashCode() );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testFrozenRepositoryCannotBeModified()
+    {
+        newRepository().freeze().setUrl( "http://localhost/other" );
+    }
+
+    @Test
+    public void testFrozenRepositoryExceptionNamesCopyConstructor()
+    {
+        try
+        {
+            newRepository().freeze().setProxy( null );
+            fail( "frozen repository modified" );
+        }
+        catch ( IllegalStateException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "new RemoteRepository(RemoteRepository)" ) );
+        }
+    }
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void testFrozenMirroredRepositoriesCannotBeModified()
+    {
+        newRepository().freeze().getMirroredRepositories().clear();
+    }
+
+    @Test
+    public void testCopyOfFrozenRepositoryIsModifiable()
+    {
+        RemoteRepository copy = new RemoteRepository( newRepository().freeze() );
+        assertFalse( copy.isFrozen() );
+        copy.setUrl( "http://localhost/other" );
+        assertEquals( "http://localhost/other", copy.getUrl() );
+    }
+
+    private RemoteRepository newSecuredRepository()
+    {
+        RemoteRepository repository = newRepository();
+        repository.setPolicy( false, new RepositoryPolicy( true, RepositoryPolicy.UPDATE_POLICY_DAILY, null ) );
+        repository.setProxy( new Proxy( Proxy.TYPE_HTTP, "proxy", 8080, new Authentication( "user", "pass" ) ) );
+        repository.setAuthentication( new Authentication( "user", "pass" ) );
+        return repository;
+    }
+
+    @Test
+    public void testFrozenRepositoryUnaffectedByChangesOfOriginal()
+    {
+        RemoteRepository repository = newSecuredRepository();
+        RemoteRepository frozen = repository.freeze();
+        int hashCode = frozen.hashCode();
+
+        // the policies, proxy and authentication are immutable, their setters only yield modified copies
+        repository.getPolicy( false ).setUpdatePolicy( RepositoryPolicy.UPDATE_POLICY_ALWAYS );
+        repository.getProxy().setHost( "other" ).setAuthentication( null );
+        repository.getAuthentication().setPassword( "other" );
+        repository.setUrl( "http://localhost/other" );
+        repository.getMirroredRepositories().get( 0 ).setUrl( "http://localhost/other" );
+
+        assertEquals( hashCode, frozen.hashCode() );
+        assertEquals( RepositoryPolicy.UPDATE_POLICY_DAILY, frozen.getPolicy( false ).getUpdatePolicy() );
+        assertEquals( "proxy", frozen.getProxy().getHost() );
+        assertEquals( "pass", frozen.getAuthentication().getPassword() );
+        assertEquals( "http://localhost/central", frozen.getMirroredRepositories().get( 0 ).getUrl() );
+        assertEquals( newSecuredRepository().freeze(), frozen );
+    }
+
+    @Test
+    public void testFreezeList()
+    {
+        List<RemoteRepository> frozen = RemoteRepository.freeze( Arrays.asList( newRepository(), newRepository() ) );
+        assertEquals( 2, frozen.size() );
+        assertTrue( frozen.get( 0 ).isFrozen() );
+        assertTrue( frozen.get( 1 ).isFrozen() );
+        assertTrue( RemoteRepository.freeze( null ).isEmpty() );
+    }
+
+}
@@ -0,0 +1,53 @@
+package org.sonatype.aether.benchmarks;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.collection.DependencyGraphTransformationContext;
+
+/**
+ * A plain transformation context for running graph transformers outside of the collector.
+ */
+class BenchmarkTransformationContext
+    implements DependencyGraphTransformationContext
+{
+
+    private final RepositorySystemSession session;
+
+    private final Map<Object, Object> map = new HashMap<Object, Object>();
+
+    public BenchmarkTransformationContext( RepositorySystemSession session )
+    {
+        this.session = session;
+    }
+
+    public RepositorySystemSession getSession()
+    {
+        return session;
+    }
+
+    public Object get( Object key )
+    {
+        return map.get( key );
+    }
+
+    public Object put( Object key, Object value )
+    {
+        return map.put( key, value );
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.sonatype.aether.benchmarks;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonatype.aether.RepositoryException;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.graph.DependencyNode;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+import org.sonatype.aether.test.util.NodeBuilder;
+import org.sonatype.aether.test.util.impl.StubArtifact;
+import org.sonatype.aether.test.util.impl.TestDependencyNode;
+import org.sonatype.aether.util.graph.transformer.ConflictMarker;
+import org.sonatype.aether.util.graph.transformer.TransformationContextKeys;
+
+/**
+ * Measures the {@link ConflictMarker} on a flat graph where many nodes carry relocations or aliases to other artifacts,
+ * chaining up large conflict groups. Unlike {@link GraphTransformerBenchmark}, which works on collected graphs with few
+ * aliases, this stresses the merging of conflict groups. The marker does not modify the graph, so all invocations share
+ * one graph.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ConflictMarkerBenchmark
+{
+
+    /**
+     * The maximum number of relocations and aliases per node.
+     */
+    @Param( { "0", "4" } )
+    public int aliases;
+
+    private RepositorySystemSession session;
+
+    private DependencyNode graph;
+
+    @Setup
+    public void setup()
+    {
+        session = new TestRepositorySystemSession();
+        Random random = new Random( 4711 );
+        int artifacts = 3000;
+        NodeBuilder builder = new NodeBuilder();
+        graph = builder.build();
+        for ( int i = 0; i < 4000; i++ )
+        {
+            TestDependencyNode node =
+                new TestDependencyNode( builder.artifactId( "a" + random.nextInt( artifacts ) ).build() );
+
+            List<Artifact> relocations = new ArrayList<Artifact>();
+            List<Artifact> aliasList = new ArrayList<Artifact>();
+            for ( int j = random.nextInt( aliases + 1 ); j > 0; j-- )
+            {
+                Artifact artifact = new StubArtifact( "test", "a" + random.nextInt( artifacts ), "", "jar", "1" );
+                if ( random.nextBoolean() )
+                {
+                    relocations.add( artifact );
+                }
+                else
+                {
+                    aliasList.add( artifact );
+                }
+            }
+            node.setRelocations( relocations );
+            node.setAliases( aliasList );
+
+            graph.getChildren().add( node );
+        }
+    }
+
+    @Benchmark
+    public Object markConflicts()
+        throws RepositoryException
+    {
+        BenchmarkTransformationContext context = new BenchmarkTransformationContext( session );
+        new ConflictMarker().transformGraph( graph, context );
+        return context.get( TransformationContextKeys.CONFLICT_IDS );
+    }
+
+}
@@ -0,0 +1,104 @@
+package org.sonatype.aether.benchmarks;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.collection.CollectRequest;
+import org.sonatype.aether.collection.CollectResult;
+import org.sonatype.aether.collection.DependencyCollectionException;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.impl.internal.DefaultDependencyCollector;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+
+/**
+ * Measures the {@link DefaultDependencyCollector} on synthetic repositories of different sizes. Each invocation starts
+ * with a fresh session so that no cached descriptors survive from a previous invocation.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class DependencyCollectorBenchmark
+{
+
+    /**
+     * The number of artifacts in the synthetic repository, all of which are reachable from the root.
+     */
+    @Param( { "1000", "10000", "50000" } )
+    public int size;
+
+    private DefaultDependencyCollector collector;
+
+    private CollectRequest request;
+
+    @Setup
+    public void setup()
+    {
+        collector = newCollector( size );
+        request = newRequest();
+    }
+
+    static DefaultDependencyCollector newCollector( int size )
+    {
+        DefaultDependencyCollector collector = new DefaultDependencyCollector();
+        collector.setArtifactDescriptorReader( new SyntheticArtifactDescriptorReader( size ) );
+        collector.setVersionRangeResolver( new SyntheticVersionRangeResolver() );
+        collector.setRemoteRepositoryManager( new SyntheticRemoteRepositoryManager() );
+        return collector;
+    }
+
+    static CollectRequest newRequest()
+    {
+        Dependency root = new Dependency( SyntheticArtifactDescriptorReader.newArtifact( 0, "1" ), "compile" );
+        RemoteRepository repository = new RemoteRepository( "synthetic", "default", "file:///synthetic" );
+        return new CollectRequest( root, Collections.singletonList( repository ) );
+    }
+
+    static CollectResult collect( DefaultDependencyCollector collector, RepositorySystemSession session,
+                                  CollectRequest request )
+        throws DependencyCollectionException
+    {
+        CollectResult result = collector.collectDependencies( session, request );
+        if ( !result.getExceptions().isEmpty() )
+        {
+            throw new IllegalStateException( "collection failed", result.getExceptions().get( 0 ) );
+        }
+        return result;
+    }
+
+    @Benchmark
+    public CollectResult collectDependencies()
+        throws DependencyCollectionException
+    {
+        return collect( collector, new TestRepositorySystemSession(), request );
+    }
+
+}
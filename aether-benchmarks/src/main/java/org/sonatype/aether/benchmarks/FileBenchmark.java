@@ -0,0 +1,102 @@
+package org.sonatype.aether.benchmarks;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonatype.aether.impl.internal.DefaultFileProcessor;
+import org.sonatype.aether.test.util.TestFileUtils;
+import org.sonatype.aether.util.ChecksumUtils;
+
+/**
+ * Measures the file operations performed for every transferred artifact, i.e. the calculation of its checksums via
+ * {@link ChecksumUtils#calc(File, java.util.Collection)} and copying it via {@link DefaultFileProcessor#copy(File, File,
+ * org.sonatype.aether.spi.io.FileProcessor.ProgressListener)}.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class FileBenchmark
+{
+
+    private static final List<String> ALGOS = Arrays.asList( "SHA-1", "MD5" );
+
+    /**
+     * The size of the file in KiB.
+     */
+    @Param( { "1", "64", "4096" } )
+    public int size;
+
+    private File source;
+
+    private File target;
+
+    private DefaultFileProcessor fileProcessor;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        byte[] pattern = new byte[1024];
+        for ( int i = 0; i < pattern.length; i++ )
+        {
+            pattern[i] = (byte) ( i * 31 );
+        }
+        source = TestFileUtils.createTempFile( pattern, size );
+        target = File.createTempFile( "benchmark-", ".tmp" );
+        fileProcessor = new DefaultFileProcessor();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        source.delete();
+        target.delete();
+    }
+
+    @Benchmark
+    public Map<String, Object> calcChecksums()
+        throws IOException
+    {
+        return ChecksumUtils.calc( source, ALGOS );
+    }
+
+    @Benchmark
+    public long copy()
+        throws IOException
+    {
+        return fileProcessor.copy( source, target, null );
+    }
+
+}
@@ -0,0 +1,118 @@
+package org.sonatype.aether.benchmarks;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonatype.aether.util.version.GenericVersionScheme;
+import org.sonatype.aether.version.InvalidVersionSpecificationException;
+import org.sonatype.aether.version.Version;
+
+/**
+ * Measures parsing and comparison of versions with the {@link GenericVersionScheme}. The versions mimic the mix found
+ * in a typical repository, including qualifiers and snapshots.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class GenericVersionSchemeBenchmark
+{
+
+    private static final String[] QUALIFIERS = { "", "", "", "-SNAPSHOT", "-alpha-1", "-beta-2", "-rc1", "-GA",
+        "-jdk15", ".Final" };
+
+    private GenericVersionScheme scheme;
+
+    private String[] strings;
+
+    private Version[] versions;
+
+    @Setup
+    public void setup()
+        throws InvalidVersionSpecificationException
+    {
+        scheme = new GenericVersionScheme();
+
+        Random random = new Random( 0 );
+        strings = new String[1000];
+        versions = new Version[strings.length];
+        for ( int i = 0; i < strings.length; i++ )
+        {
+            StringBuilder buffer = new StringBuilder( 32 );
+            buffer.append( random.nextInt( 5 ) ).append( '.' ).append( random.nextInt( 20 ) );
+            if ( random.nextBoolean() )
+            {
+                buffer.append( '.' ).append( random.nextInt( 10 ) );
+            }
+            buffer.append( QUALIFIERS[random.nextInt( QUALIFIERS.length )] );
+            strings[i] = buffer.toString();
+            versions[i] = scheme.parseVersion( strings[i] );
+        }
+    }
+
+    /**
+     * Parses all the version strings, i.e. the score is per 1000 versions.
+     */
+    @Benchmark
+    public void parseVersion( Blackhole blackhole )
+        throws InvalidVersionSpecificationException
+    {
+        for ( String string : strings )
+        {
+            blackhole.consume( scheme.parseVersion( string ) );
+        }
+    }
+
+    /**
+     * Compares each version with its successor, i.e. the score is per 1000 comparisons.
+     */
+    @Benchmark
+    public int compareVersions()
+    {
+        int result = 0;
+        for ( int i = 1; i < versions.length; i++ )
+        {
+            result += versions[i - 1].compareTo( versions[i] );
+        }
+        return result + versions[versions.length - 1].compareTo( versions[0] );
+    }
+
+    /**
+     * Sorts a copy of the versions, i.e. the score is per sorting of 1000 versions (including the copy).
+     */
+    @Benchmark
+    public Version[] sortVersions()
+    {
+        Version[] copy = versions.clone();
+        Arrays.sort( copy );
+        return copy;
+    }
+
+}
@@ -0,0 +1,151 @@
+package org.sonatype.aether.benchmarks;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonatype.aether.RepositoryException;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.collection.CollectRequest;
+import org.sonatype.aether.collection.DependencyGraphTransformationContext;
+import org.sonatype.aether.collection.DependencyGraphTransformer;
+import org.sonatype.aether.graph.DependencyNode;
+import org.sonatype.aether.impl.internal.DefaultDependencyCollector;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+import org.sonatype.aether.util.graph.transformer.ChainedDependencyGraphTransformer;
+import org.sonatype.aether.util.graph.transformer.ConflictIdSorter;
+import org.sonatype.aether.util.graph.transformer.ConflictMarker;
+import org.sonatype.aether.util.graph.transformer.JavaDependencyContextRefiner;
+import org.sonatype.aether.util.graph.transformer.JavaEffectiveScopeCalculator;
+import org.sonatype.aether.util.graph.transformer.NearestVersionConflictResolver;
+
+/**
+ * Measures the graph transformers on dependency graphs collected from the synthetic repository. The transformers
+ * modify the graph, so every invocation works on a freshly collected graph. Transformers that depend on the results
+ * of other transformers get these computed during the setup, i.e. only the transformer itself is measured. The
+ * transformer {@code chain} denotes the chain used by Maven.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class GraphTransformerBenchmark
+{
+
+    @Param( { "ConflictMarker", "ConflictIdSorter", "JavaEffectiveScopeCalculator", "NearestVersionConflictResolver",
+        "JavaDependencyContextRefiner", "chain" } )
+    public String transformer;
+
+    /**
+     * The number of artifacts in the synthetic repository.
+     */
+    @Param( { "1000", "10000" } )
+    public int size;
+
+    private DefaultDependencyCollector collector;
+
+    private CollectRequest request;
+
+    private DependencyGraphTransformer graphTransformer;
+
+    private DependencyGraphTransformer[] prerequisites;
+
+    private DependencyNode graph;
+
+    private DependencyGraphTransformationContext context;
+
+    @Setup
+    public void setupTrial()
+    {
+        collector = DependencyCollectorBenchmark.newCollector( size );
+        request = DependencyCollectorBenchmark.newRequest();
+
+        if ( "ConflictMarker".equals( transformer ) )
+        {
+            graphTransformer = new ConflictMarker();
+            prerequisites = new DependencyGraphTransformer[0];
+        }
+        else if ( "ConflictIdSorter".equals( transformer ) )
+        {
+            graphTransformer = new ConflictIdSorter();
+            prerequisites = new DependencyGraphTransformer[] { new ConflictMarker() };
+        }
+        else if ( "JavaEffectiveScopeCalculator".equals( transformer ) )
+        {
+            graphTransformer = new JavaEffectiveScopeCalculator();
+            prerequisites = new DependencyGraphTransformer[] { new ConflictMarker(), new ConflictIdSorter() };
+        }
+        else if ( "NearestVersionConflictResolver".equals( transformer ) )
+        {
+            graphTransformer = new NearestVersionConflictResolver();
+            prerequisites =
+                new DependencyGraphTransformer[] { new ConflictMarker(), new ConflictIdSorter(),
+                    new JavaEffectiveScopeCalculator() };
+        }
+        else if ( "JavaDependencyContextRefiner".equals( transformer ) )
+        {
+            graphTransformer = new JavaDependencyContextRefiner();
+            prerequisites =
+                new DependencyGraphTransformer[] { new ConflictMarker(), new JavaEffectiveScopeCalculator(),
+                    new NearestVersionConflictResolver() };
+        }
+        else if ( "chain".equals( transformer ) )
+        {
+            graphTransformer =
+                new ChainedDependencyGraphTransformer( new ConflictMarker(), new JavaEffectiveScopeCalculator(),
+                                                       new NearestVersionConflictResolver(),
+                                                       new JavaDependencyContextRefiner() );
+            prerequisites = new DependencyGraphTransformer[0];
+        }
+        else
+        {
+            throw new IllegalArgumentException( "unknown transformer " + transformer );
+        }
+    }
+
+    @Setup( Level.Invocation )
+    public void setupInvocation()
+        throws RepositoryException
+    {
+        RepositorySystemSession session = new TestRepositorySystemSession();
+        graph = DependencyCollectorBenchmark.collect( collector, session, request ).getRoot();
+        context = new BenchmarkTransformationContext( session );
+        for ( DependencyGraphTransformer prerequisite : prerequisites )
+        {
+            graph = prerequisite.transformGraph( graph, context );
+        }
+    }
+
+    @Benchmark
+    public DependencyNode transformGraph()
+        throws RepositoryException
+    {
+        return graphTransformer.transformGraph( graph, context );
+    }
+
+}
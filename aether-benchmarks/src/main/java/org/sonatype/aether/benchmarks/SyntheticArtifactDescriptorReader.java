@@ -0,0 +1,99 @@
+package org.sonatype.aether.benchmarks;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.impl.ArtifactDescriptorReader;
+import org.sonatype.aether.resolution.ArtifactDescriptorException;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+/**
+ * An artifact descriptor reader that serves a synthetic repository of artifacts {@code bench:a<i>} for
+ * {@code 0 <= i < size}. Artifact {@code i} depends on the artifacts {@code 4i + 1} to {@code 4i + 4}, which makes
+ * every artifact reachable from {@code a0} while keeping the graph shallow, and on some of the artifacts
+ * {@code 4i + 5} to {@code 4i + 8}, which makes other artifacts reachable via several paths. A few dependencies refer
+ * to a second version or a different scope so that the graph transformers have conflicts to resolve. The descriptors are derived from a fixed seed, i.e. the repository is the same for every run.
+ */
+public class SyntheticArtifactDescriptorReader
+    implements ArtifactDescriptorReader
+{
+
+    static final String GROUP_ID = "bench";
+
+    private static final String[] SCOPES = { "compile", "compile", "compile", "runtime", "test", "provided" };
+
+    private final int size;
+
+    private final List<List<Dependency>> dependencies;
+
+    public SyntheticArtifactDescriptorReader( int size )
+    {
+        this.size = size;
+        this.dependencies = new ArrayList<List<Dependency>>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            dependencies.add( newDependencies( i ) );
+        }
+    }
+
+    private List<Dependency> newDependencies( int index )
+    {
+        Random random = new Random( index );
+        List<Dependency> result = new ArrayList<Dependency>( 8 );
+        for ( int k = 0; k < 8; k++ )
+        {
+            int child = 4 * index + 1 + k;
+            if ( child >= size || ( k >= 4 && random.nextInt( 4 ) != 0 ) )
+            {
+                continue;
+            }
+            String version = ( random.nextInt( 10 ) == 0 ) ? "2" : "1";
+            String scope = SCOPES[random.nextInt( 10 ) < 8 ? 0 : random.nextInt( SCOPES.length )];
+            result.add( new Dependency( newArtifact( child, version ), scope ) );
+        }
+        return result;
+    }
+
+    static Artifact newArtifact( int index, String version )
+    {
+        return new DefaultArtifact( GROUP_ID, "a" + index, "jar", version );
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public ArtifactDescriptorResult readArtifactDescriptor( RepositorySystemSession session,
+                                                            ArtifactDescriptorRequest request )
+        throws ArtifactDescriptorException
+    {
+        Artifact artifact = request.getArtifact();
+        int index = Integer.parseInt( artifact.getArtifactId().substring( 1 ) );
+
+        ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+        result.setArtifact( artifact );
+        result.setDependencies( dependencies.get( index ) );
+        return result;
+    }
+
+}
@@ -0,0 +1,53 @@
+package org.sonatype.aether.benchmarks;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.List;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.impl.RemoteRepositoryManager;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.repository.RepositoryPolicy;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.transfer.NoRepositoryConnectorException;
+
+/**
+ * A remote repository manager for the synthetic repository, which never needs to connect to anything.
+ */
+class SyntheticRemoteRepositoryManager
+    implements RemoteRepositoryManager
+{
+
+    public List<RemoteRepository> aggregateRepositories( RepositorySystemSession session,
+                                                         List<RemoteRepository> dominantRepositories,
+                                                         List<RemoteRepository> recessiveRepositories,
+                                                         boolean recessiveIsRaw )
+    {
+        return dominantRepositories;
+    }
+
+    public RepositoryPolicy getPolicy( RepositorySystemSession session, RemoteRepository repository,
+                                       boolean releases, boolean snapshots )
+    {
+        return new RepositoryPolicy( true, RepositoryPolicy.UPDATE_POLICY_NEVER,
+                                     RepositoryPolicy.CHECKSUM_POLICY_IGNORE );
+    }
+
+    public RepositoryConnector getRepositoryConnector( RepositorySystemSession session, RemoteRepository repository )
+        throws NoRepositoryConnectorException
+    {
+        throw new NoRepositoryConnectorException( repository );
+    }
+
+}
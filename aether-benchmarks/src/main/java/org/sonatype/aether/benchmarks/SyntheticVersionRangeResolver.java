@@ -0,0 +1,53 @@
+package org.sonatype.aether.benchmarks;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.Collections;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.impl.VersionRangeResolver;
+import org.sonatype.aether.resolution.VersionRangeRequest;
+import org.sonatype.aether.resolution.VersionRangeResolutionException;
+import org.sonatype.aether.resolution.VersionRangeResult;
+import org.sonatype.aether.test.util.impl.TestVersionScheme;
+import org.sonatype.aether.version.InvalidVersionSpecificationException;
+import org.sonatype.aether.version.VersionScheme;
+
+/**
+ * A version range resolver for the synthetic repository that takes every version literally.
+ */
+class SyntheticVersionRangeResolver
+    implements VersionRangeResolver
+{
+
+    private final VersionScheme scheme = new TestVersionScheme();
+
+    public VersionRangeResult resolveVersionRange( RepositorySystemSession session, VersionRangeRequest request )
+        throws VersionRangeResolutionException
+    {
+        VersionRangeResult result = new VersionRangeResult( request );
+        try
+        {
+            String version = request.getArtifact().getVersion();
+            result.setVersionConstraint( scheme.parseVersionConstraint( version ) );
+            result.setVersions( Collections.singletonList( scheme.parseVersion( version ) ) );
+        }
+        catch ( InvalidVersionSpecificationException e )
+        {
+            throw new VersionRangeResolutionException( result, e.getMessage() );
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,96 @@
+package org.sonatype.aether.benchmarks;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonatype.aether.util.version.GenericVersionScheme;
+import org.sonatype.aether.util.version.VersionRangeUtils;
+import org.sonatype.aether.version.InvalidVersionSpecificationException;
+import org.sonatype.aether.version.Version;
+import org.sonatype.aether.version.VersionConstraint;
+
+/**
+ * Measures the filtering of a long, sorted version list by a version constraint, comparing the binary search of
+ * {@link VersionRangeUtils} with checking each version against the constraint.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class VersionRangeFilterBenchmark
+{
+
+    private List<Version> versions;
+
+    private VersionConstraint constraint;
+
+    @Setup
+    public void setup()
+        throws InvalidVersionSpecificationException
+    {
+        GenericVersionScheme scheme = new GenericVersionScheme();
+
+        versions = new ArrayList<Version>();
+        for ( int i = 0; i < 5000; i++ )
+        {
+            versions.add( scheme.parseVersion( ( i / 100 ) + "." + ( i % 100 ) ) );
+        }
+        Collections.sort( versions );
+
+        constraint = scheme.parseVersionConstraint( "[10.0,11.0),[42.50,43.0]" );
+    }
+
+    /**
+     * Filters the versions by locating the range bounds via binary search, i.e. the score is per 5000 versions.
+     */
+    @Benchmark
+    public List<Version> filterBinarySearch()
+    {
+        return VersionRangeUtils.filterVersions( versions, constraint );
+    }
+
+    /**
+     * Filters the versions by checking each one against the constraint, i.e. the score is per 5000 versions.
+     */
+    @Benchmark
+    public List<Version> filterOneByOne()
+    {
+        List<Version> result = new ArrayList<Version>();
+        for ( Version version : versions )
+        {
+            if ( constraint.containsVersion( version ) )
+            {
+                result.add( version );
+            }
+        }
+        return result;
+    }
+
+}
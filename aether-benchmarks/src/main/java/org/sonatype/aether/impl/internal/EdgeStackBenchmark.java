@@ -0,0 +1,119 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+/**
+ * Measures the cycle check of the dependency collectors on a deep path where (like in real graphs) most candidates are
+ * not part of the path, comparing the hashed ancestor multiset of the {@link EdgeStack} against a linear scan over the
+ * path. This benchmark lives in the package of the collector to access its internals.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class EdgeStackBenchmark
+{
+
+    @Param( { "10", "40", "160" } )
+    public int depth;
+
+    private EdgeStack stack;
+
+    private List<GraphEdge> path;
+
+    private Artifact[] candidates;
+
+    @Setup
+    public void setup()
+    {
+        stack = new EdgeStack();
+        path = new ArrayList<GraphEdge>();
+        candidates = new Artifact[depth * 2];
+        for ( int i = 0; i < depth; i++ )
+        {
+            GraphEdge edge = new GraphEdge( null, new GraphNode() );
+            edge.setDependency( new Dependency( new DefaultArtifact( "org.example.group" + i + ":artifact" + i
+                + ":1.0" ), "compile" ) );
+            stack.push( edge );
+            path.add( edge );
+            candidates[2 * i] = new DefaultArtifact( "org.example.group" + i + ":artifact" + i + ":1.0" );
+            candidates[2 * i + 1] = new DefaultArtifact( "org.example.group" + i + ":artifact" + i + ":2.0" );
+        }
+    }
+
+    /**
+     * Checks all candidates against the stack, i.e. the score is per {@code 2 * depth} checks.
+     */
+    @Benchmark
+    public int containsHashed()
+    {
+        int hits = 0;
+        for ( Artifact candidate : candidates )
+        {
+            if ( stack.contains( candidate ) )
+            {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Checks all candidates by scanning the path, i.e. the score is per {@code 2 * depth} checks.
+     */
+    @Benchmark
+    public int containsLinear()
+    {
+        int hits = 0;
+        for ( Artifact candidate : candidates )
+        {
+            for ( int i = path.size() - 1; i >= 0; i-- )
+            {
+                Artifact a = path.get( i ).getDependency().getArtifact();
+                if ( a.getArtifactId().equals( candidate.getArtifactId() )
+                    && a.getGroupId().equals( candidate.getGroupId() )
+                    && a.getBaseVersion().equals( candidate.getBaseVersion() )
+                    && a.getExtension().equals( candidate.getExtension() )
+                    && a.getClassifier().equals( candidate.getClassifier() ) )
+                {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+}
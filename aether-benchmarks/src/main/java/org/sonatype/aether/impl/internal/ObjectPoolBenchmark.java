@@ -0,0 +1,130 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the intern throughput of the {@link ObjectPool} against the synchronized weak hash map used formerly, with
+ * several threads interning overlapping objects like concurrent collections sharing one repository cache. The pooled
+ * instances are strongly held by the benchmark, just like a dependency graph holds them. Naturally, the gain depends on
+ * the number of available processors. This benchmark lives in the package of the pool to access it.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@Threads( 8 )
+public class ObjectPoolBenchmark
+{
+
+    private String[] objects;
+
+    private String[] canonical;
+
+    private ObjectPool<String> pool;
+
+    private SynchronizedPool<String> synchronizedPool;
+
+    @Setup
+    public void setup()
+    {
+        objects = new String[5000];
+        canonical = new String[objects.length];
+        pool = new ObjectPool<String>();
+        synchronizedPool = new SynchronizedPool<String>();
+        for ( int i = 0; i < objects.length; i++ )
+        {
+            objects[i] = "org.example.group" + ( i % 50 ) + ":artifact" + i + ":1.0";
+            canonical[i] = new String( objects[i] );
+            pool.intern( canonical[i] );
+            synchronizedPool.intern( canonical[i] );
+        }
+    }
+
+    /**
+     * Interns a copy of each object, i.e. the score is per {@code 5000} interns.
+     */
+    @Benchmark
+    public int internConcurrent()
+    {
+        int hits = 0;
+        for ( int i = 0; i < objects.length; i++ )
+        {
+            if ( pool.intern( new String( objects[i] ) ) == canonical[i] )
+            {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Interns a copy of each object, i.e. the score is per {@code 5000} interns.
+     */
+    @Benchmark
+    public int internSynchronized()
+    {
+        int hits = 0;
+        for ( int i = 0; i < objects.length; i++ )
+        {
+            if ( synchronizedPool.intern( new String( objects[i] ) ) == canonical[i] )
+            {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private static class SynchronizedPool<T>
+    {
+
+        private final Map<Object, WeakReference<T>> objects = new WeakHashMap<Object, WeakReference<T>>( 256 );
+
+        public synchronized T intern( T object )
+        {
+            WeakReference<T> pooledRef = objects.get( object );
+            if ( pooledRef != null )
+            {
+                T pooled = pooledRef.get();
+                if ( pooled != null )
+                {
+                    return pooled;
+                }
+            }
+
+            objects.put( object, new WeakReference<T>( object ) );
+            return object;
+        }
+
+    }
+
+}
@@ -0,0 +1,48 @@
+package org.sonatype.aether.impl;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.collection.CollectRequest;
+import org.sonatype.aether.collection.CollectResult;
+import org.sonatype.aether.collection.DependencyCollectionException;
+
+/**
+ * An optional extension of a {@link DependencyCollector} that can reuse the graph of a previous collection. Clients
+ * should check for this interface via {@code instanceof} and fall back to the regular collection otherwise.
+ */
+public interface IncrementalDependencyCollector
+    extends DependencyCollector
+{
+
+    /**
+     * Collects the transitive dependencies of an artifact and builds a dependency graph, reusing the subgraphs of a
+     * previous collection that are not affected by changes to the request. A subgraph is reused if its artifact, the
+     * remote repositories and the dependency selector, manager and traverser it was built with are unchanged. This is
+     * meant for clients that repeatedly collect slightly different requests, e.g. after the edit of a project's
+     * dependencies.
+     * 
+     * @param session The repository session, must not be {@code null}.
+     * @param request The collection request, must not be {@code null}
+     * @param previous The result of a previous invocation of this method, may be {@code null} to build the graph from
+     *            scratch. Results that were not returned by this method are ignored.
+     * @return The collection result, never {@code null}. The result can be passed to a subsequent invocation of this
+     *         method.
+     * @throws DependencyCollectionException If the dependency tree could not be built.
+     * @see DependencyCollector#collectDependencies(RepositorySystemSession, CollectRequest)
+     */
+    CollectResult collectDependencies( RepositorySystemSession session, CollectRequest request, CollectResult previous )
+        throws DependencyCollectionException;
+
+}
@@ -0,0 +1,219 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.plexus.component.annotations.Component;
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.collection.DependencyCollectionException;
+import org.sonatype.aether.collection.DependencyManager;
+import org.sonatype.aether.collection.DependencySelector;
+import org.sonatype.aether.collection.DependencyTraverser;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.impl.ArtifactDescriptorReader;
+import org.sonatype.aether.impl.DependencyCollector;
+import org.sonatype.aether.impl.RemoteRepositoryManager;
+import org.sonatype.aether.impl.VersionRangeResolver;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.spi.log.Logger;
+
+/**
+ * A dependency collector that expands the dependency graph one depth level at a time. Before a level is processed, the
+ * version ranges and artifact descriptors of all its dependencies are requested at once, using the number of threads
+ * given by the configuration property {@code aether.dependencyCollector.threads} (default: 4). Compared to the
+ * depth-first collection, this keeps more requests in flight and hence better hides the latency of remote
+ * repositories.
+ * <p>
+ * <strong>Note:</strong> The produced graph matches the one of the {@link DefaultDependencyCollector} except for
+ * shared subgraphs that are part of a dependency cycle. Those get their cycle broken at the occurrence encountered
+ * first in breadth-first order rather than depth-first order.
+ * <p>
+ * As dependencies are discovered in order of increasing depth, this collector can optionally apply the nearest-wins
+ * strategy already during collection: If the configuration property {@code aether.dependencyCollector.conflictPruning}
+ * is {@code true}, the children of a dependency are not collected when a dependency with the same conflict key has
+ * already been found at a smaller depth. Such a dependency is removed by a nearest-wins conflict resolution anyway.
+ * Should version constraints nevertheless make a pruned dependency win the conflict, the graph is collected again
+ * without pruning so the transformed graph always matches the one of a full collection. Errors in the descriptors of
+ * pruned subgraphs are not reported. Pruning is not applied to incremental collections.
+ */
+@Component( role = DependencyCollector.class, hint = "breadthfirst" )
+public class BreadthFirstDependencyCollector
+    extends DefaultDependencyCollector
+{
+
+    /**
+     * A flag whether the children of dependencies that lose a version conflict against a nearer dependency shall not be
+     * collected, defaults to {@code false}.
+     */
+    static final String CONFIG_PROP_CONFLICT_PRUNING = "aether.dependencyCollector.conflictPruning";
+
+    private static final int DEFAULT_THREADS = 4;
+
+    public BreadthFirstDependencyCollector()
+    {
+        // enables default constructor
+    }
+
+    public BreadthFirstDependencyCollector( Logger logger, RemoteRepositoryManager remoteRepositoryManager,
+                                            ArtifactDescriptorReader artifactDescriptorReader,
+                                            VersionRangeResolver versionRangeResolver )
+    {
+        super( logger, remoteRepositoryManager, artifactDescriptorReader, versionRangeResolver );
+    }
+
+    @Override
+    int getThreads( RepositorySystemSession session )
+    {
+        return ConfigurationProperties.get( session, CONFIG_PROP_THREADS, DEFAULT_THREADS );
+    }
+
+    @Override
+    boolean isConflictPruning( RepositorySystemSession session )
+    {
+        return ConfigurationProperties.get( session, CONFIG_PROP_CONFLICT_PRUNING, false );
+    }
+
+    @Override
+    boolean isPruned( Args args, EdgeStack edges, Dependency dependency )
+    {
+        if ( !args.pruning )
+        {
+            return false;
+        }
+
+        Map<String, Integer> depths = ( (LevelArgs) args ).conflictDepths;
+
+        Artifact artifact = dependency.getArtifact();
+        String key =
+            artifact.getGroupId() + ':' + artifact.getArtifactId() + ':' + artifact.getClassifier() + ':'
+                + artifact.getExtension();
+
+        int depth = edges.size();
+
+        Integer nearest = depths.get( key );
+        if ( nearest == null )
+        {
+            depths.put( key, Integer.valueOf( depth ) );
+            return false;
+        }
+
+        return nearest.intValue() < depth;
+    }
+
+    @Override
+    void processRoot( Args args, GraphEdge root, List<Dependency> dependencies, List<RemoteRepository> repositories,
+                      DependencySelector depSelector, DependencyManager depManager, DependencyTraverser depTraverser )
+        throws DependencyCollectionException
+    {
+        LevelArgs levelArgs = new LevelArgs( args );
+
+        levelArgs.nextLevel.add( new Pending( null, root, dependencies, repositories, depSelector, depManager,
+                                              depTraverser ) );
+
+        EdgeStack edges = new EdgeStack();
+
+        while ( !levelArgs.nextLevel.isEmpty() && !levelArgs.aborted )
+        {
+            List<Pending> level = levelArgs.nextLevel;
+            levelArgs.nextLevel = new ArrayList<Pending>();
+
+            if ( args.prefetcher != null )
+            {
+                for ( Pending pending : level )
+                {
+                    args.prefetcher.prefetch( pending.dependencies, pending.repositories, pending.depSelector,
+                                              pending.depManager );
+                }
+            }
+
+            for ( Pending pending : level )
+            {
+                edges.setPath( pending.path );
+                edges.push( pending.edge );
+
+                levelArgs.frames.add( new Frame( pending.dependencies, pending.repositories, pending.depSelector,
+                                                 pending.depManager, pending.depTraverser ) );
+
+                process( levelArgs, edges, Integer.MAX_VALUE );
+            }
+        }
+    }
+
+    @Override
+    void processChildren( Args args, EdgeStack edges, GraphEdge edge, List<Dependency> dependencies,
+                          List<RemoteRepository> repositories, DependencySelector depSelector,
+                          DependencyManager depManager, DependencyTraverser depTraverser )
+    {
+        ( (LevelArgs) args ).nextLevel.add( new Pending( edges.getPath(), edge, dependencies, repositories,
+                                                         depSelector, depManager, depTraverser ) );
+    }
+
+    static class LevelArgs
+        extends Args
+    {
+
+        List<Pending> nextLevel = new ArrayList<Pending>();
+
+        final Map<String, Integer> conflictDepths = new HashMap<String, Integer>();
+
+        public LevelArgs( Args args )
+        {
+            super( args );
+        }
+
+    }
+
+    static class Pending
+    {
+
+        /**
+         * The ancestors of the edge, {@code null} for the root edge. The paths of siblings share their elements, so
+         * queued nodes do not each hold a copy of their ancestors.
+         */
+        final EdgeStack.Path path;
+
+        final GraphEdge edge;
+
+        final List<Dependency> dependencies;
+
+        final List<RemoteRepository> repositories;
+
+        final DependencySelector depSelector;
+
+        final DependencyManager depManager;
+
+        final DependencyTraverser depTraverser;
+
+        public Pending( EdgeStack.Path path, GraphEdge edge, List<Dependency> dependencies,
+                        List<RemoteRepository> repositories, DependencySelector depSelector,
+                        DependencyManager depManager, DependencyTraverser depTraverser )
+        {
+            this.path = path;
+            this.edge = edge;
+            this.dependencies = dependencies;
+            this.repositories = repositories;
+            this.depSelector = depSelector;
+            this.depManager = depManager;
+            this.depTraverser = depTraverser;
+        }
+
+    }
+
+}
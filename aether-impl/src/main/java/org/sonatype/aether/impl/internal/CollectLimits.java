@@ -0,0 +1,150 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.List;
+
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.collection.CollectResult;
+import org.sonatype.aether.collection.CollectionLimitException;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.version.Version;
+
+/**
+ * The limits that protect the dependency collection from pathological graphs. Each exceeded limit is reported once per
+ * collection via a {@link CollectionLimitException} on the collection result.
+ */
+final class CollectLimits
+{
+
+    /**
+     * The maximum number of nodes in the dependency graph. Unlike the other limits, this one is global: once reached,
+     * the whole collection is aborted rather than just the current branch, i.e. no further dependency of any branch is
+     * visited and the graph built so far is reported as the (incomplete) result.
+     */
+    static final String CONFIG_PROP_MAX_NODES = "aether.dependencyCollector.maxNodes";
+
+    /**
+     * The maximum depth of the dependency graph, with the direct dependencies at depth 1. The children of nodes at this
+     * depth are not collected.
+     */
+    static final String CONFIG_PROP_MAX_DEPTH = "aether.dependencyCollector.maxDepth";
+
+    /**
+     * The maximum number of versions a version range of a dependency may expand to. Only the highest versions of a
+     * range are collected.
+     */
+    static final String CONFIG_PROP_MAX_VERSIONS = "aether.dependencyCollector.maxVersions";
+
+    private final int maxNodes;
+
+    private final int maxDepth;
+
+    private final int maxVersions;
+
+    private int nodes;
+
+    private boolean nodesExceeded;
+
+    private boolean depthExceeded;
+
+    private boolean versionsExceeded;
+
+    /**
+     * Creates the limits configured for the specified session.
+     * 
+     * @return The limits or {@code null} if the collection is unlimited.
+     */
+    public static CollectLimits newInstance( RepositorySystemSession session )
+    {
+        int maxNodes = ConfigurationProperties.get( session, CONFIG_PROP_MAX_NODES, 0 );
+        int maxDepth = ConfigurationProperties.get( session, CONFIG_PROP_MAX_DEPTH, 0 );
+        int maxVersions = ConfigurationProperties.get( session, CONFIG_PROP_MAX_VERSIONS, 0 );
+        if ( maxNodes <= 0 && maxDepth <= 0 && maxVersions <= 0 )
+        {
+            return null;
+        }
+        return new CollectLimits( maxNodes, maxDepth, maxVersions );
+    }
+
+    private CollectLimits( int maxNodes, int maxDepth, int maxVersions )
+    {
+        this.maxNodes = ( maxNodes > 0 ) ? maxNodes : Integer.MAX_VALUE;
+        this.maxDepth = ( maxDepth > 0 ) ? maxDepth : Integer.MAX_VALUE;
+        this.maxVersions = ( maxVersions > 0 ) ? maxVersions : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Accounts for a new node in the graph. Once this method returned {@code false}, it will do so for any further
+     * node, so callers are expected to abort the entire collection.
+     * 
+     * @return {@code true} if the node may be added, {@code false} if the graph is full.
+     */
+    public boolean addNode( CollectResult result, Dependency dependency )
+    {
+        if ( nodes >= maxNodes )
+        {
+            if ( !nodesExceeded )
+            {
+                nodesExceeded = true;
+                result.addException( new CollectionLimitException( dependency, CONFIG_PROP_MAX_NODES, maxNodes ) );
+            }
+            return false;
+        }
+        nodes++;
+        return true;
+    }
+
+    /**
+     * Determines whether the children of the specified dependency may be collected.
+     * 
+     * @param depth The depth of the dependency in the graph.
+     * @return {@code true} if the children may be collected, {@code false} otherwise.
+     */
+    public boolean isExpandable( CollectResult result, Dependency dependency, int depth )
+    {
+        if ( depth >= maxDepth )
+        {
+            if ( !depthExceeded )
+            {
+                depthExceeded = true;
+                result.addException( new CollectionLimitException( dependency, CONFIG_PROP_MAX_DEPTH, maxDepth ) );
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Restricts the versions a dependency expands to, retaining the highest versions.
+     * 
+     * @param versions The versions of the dependency in ascending order.
+     * @return The versions to collect, never {@code null}.
+     */
+    public List<Version> limitVersions( CollectResult result, Dependency dependency, List<Version> versions )
+    {
+        if ( versions.size() > maxVersions )
+        {
+            if ( !versionsExceeded )
+            {
+                versionsExceeded = true;
+                result.addException( new CollectionLimitException( dependency, CONFIG_PROP_MAX_VERSIONS, maxVersions ) );
+            }
+            return versions.subList( versions.size() - maxVersions, versions.size() );
+        }
+        return versions;
+    }
+
+}
@@ -0,0 +1,165 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.sonatype.aether.graph.DependencyNode;
+
+/**
+ * The state of a completed dependency collection that allows a subsequent collection to reuse the unchanged parts of
+ * the graph. It consists of the graph nodes as they were built by the collector, i.e. before any graph transformation,
+ * keyed by the {@link DataPool} keys that describe the inputs each node was built from.
+ */
+final class CollectState
+{
+
+    private final Map<Object, GraphNode> nodes;
+
+    private CollectState( Map<Object, GraphNode> nodes )
+    {
+        this.nodes = nodes;
+    }
+
+    /**
+     * Creates the state for the specified graph, retaining only those pooled nodes that are still part of the graph.
+     * 
+     * @param root The root of the untransformed graph, must not be {@code null}.
+     * @param nodes The pooled nodes of the collection, must not be {@code null}.
+     * @return The collection state, never {@code null}.
+     */
+    public static CollectState newInstance( GraphEdge root, Map<Object, GraphNode> nodes )
+    {
+        Map<GraphNode, Object> reachable = new IdentityHashMap<GraphNode, Object>( nodes.size() * 2 );
+
+        List<GraphNode> pending = new ArrayList<GraphNode>();
+        pending.add( root.getTarget() );
+        while ( !pending.isEmpty() )
+        {
+            GraphNode node = pending.remove( pending.size() - 1 );
+            if ( reachable.put( node, Boolean.TRUE ) == null )
+            {
+                for ( DependencyNode child : node.getOutgoingEdges() )
+                {
+                    pending.add( ( (GraphEdge) child ).getTarget() );
+                }
+            }
+        }
+
+        Map<Object, GraphNode> retained = new HashMap<Object, GraphNode>( nodes );
+        for ( Iterator<GraphNode> it = retained.values().iterator(); it.hasNext(); )
+        {
+            if ( !reachable.containsKey( it.next() ) )
+            {
+                it.remove();
+            }
+        }
+
+        return new CollectState( retained );
+    }
+
+    /**
+     * Gets the pooled nodes of the collection. The nodes must not be modified.
+     * 
+     * @return The pooled nodes, never {@code null}.
+     */
+    public Map<Object, GraphNode> getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * Creates a deep copy of the specified graph. Nodes shared within the original graph are shared within the copy as
+     * well. The copy can be handed to graph transformers without affecting the original graph.
+     * 
+     * @param root The root of the graph to copy, must not be {@code null}.
+     * @return The root of the copied graph, never {@code null}.
+     */
+    public static GraphEdge copy( GraphEdge root )
+    {
+        Map<GraphNode, GraphNode> copies = new IdentityHashMap<GraphNode, GraphNode>( 256 );
+
+        GraphEdge rootCopy = copy( root, null, copy( root.getTarget(), copies ) );
+
+        List<GraphNode> pending = new ArrayList<GraphNode>();
+        pending.add( root.getTarget() );
+        while ( !pending.isEmpty() )
+        {
+            GraphNode node = pending.remove( pending.size() - 1 );
+            GraphNode nodeCopy = copies.get( node );
+            for ( DependencyNode child : node.getOutgoingEdges() )
+            {
+                GraphEdge edge = (GraphEdge) child;
+                GraphNode target = edge.getTarget();
+                GraphNode targetCopy = copies.get( target );
+                if ( targetCopy == null )
+                {
+                    targetCopy = copy( target, copies );
+                    pending.add( target );
+                }
+                nodeCopy.getOutgoingEdges().add( copy( edge, nodeCopy, targetCopy ) );
+            }
+        }
+
+        return rootCopy;
+    }
+
+    /**
+     * Creates a shallow copy of the specified node. The outgoing edges of the copy point at the targets of the original
+     * edges, i.e. the subgraph below the node is shared.
+     * 
+     * @param node The node to copy, must not be {@code null}.
+     * @return The copied node, never {@code null}.
+     */
+    public static GraphNode copy( GraphNode node )
+    {
+        GraphNode copy = new GraphNode();
+        copy.setAliases( node.getAliases() );
+        copy.setRepositories( node.getRepositories() );
+        for ( DependencyNode child : node.getOutgoingEdges() )
+        {
+            GraphEdge edge = (GraphEdge) child;
+            copy.getOutgoingEdges().add( copy( edge, copy, edge.getTarget() ) );
+        }
+        return copy;
+    }
+
+    private static GraphNode copy( GraphNode node, Map<GraphNode, GraphNode> copies )
+    {
+        GraphNode copy = new GraphNode();
+        copy.setAliases( node.getAliases() );
+        copy.setRepositories( node.getRepositories() );
+        copies.put( node, copy );
+        return copy;
+    }
+
+    private static GraphEdge copy( GraphEdge edge, GraphNode source, GraphNode target )
+    {
+        GraphEdge copy = new GraphEdge( source, target );
+        copy.setDependency( edge.getDependency() );
+        copy.setPremanagedScope( edge.getPremanagedScope() );
+        copy.setPremanagedVersion( edge.getPremanagedVersion() );
+        copy.setRelocations( edge.getRelocations() );
+        copy.setVersionConstraint( edge.getVersionConstraint() );
+        copy.setVersion( edge.getVersion() );
+        copy.setRequestContext( edge.getRequestContext() );
+        return copy;
+    }
+
+}
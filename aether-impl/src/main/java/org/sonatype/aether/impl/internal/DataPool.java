@@ -13,25 +13,26 @@ package org.sonatype.aether.impl.internal;
  * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
  */
 
-import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
 
+import org.sonatype.aether.ConfigurationProperties;
 import org.sonatype.aether.RepositoryCache;
 import org.sonatype.aether.RepositorySystemSession;
 import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.collection.CollectStatistics;
 import org.sonatype.aether.collection.DependencyManager;
 import org.sonatype.aether.collection.DependencySelector;
 import org.sonatype.aether.collection.DependencyTraverser;
 import org.sonatype.aether.graph.Dependency;
 import org.sonatype.aether.repository.ArtifactRepository;
 import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.repository.RepositoryPolicy;
 import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
 import org.sonatype.aether.resolution.ArtifactDescriptorResult;
 import org.sonatype.aether.resolution.VersionRangeRequest;
@@ -51,14 +52,76 @@ final class DataPool
 
     private static final String DESCRIPTORS = DataPool.class.getName() + "$Descriptors";
 
+    private static final String CONSTRAINTS = DataPool.class.getName() + "$Constraints";
+
+    private static final String REPOSITORIES = DataPool.class.getName() + "$Repositories";
+
+    private static final String DERIVATIONS = DataPool.class.getName() + "$Derivations";
+
+    /**
+     * The number of seconds a version range result is shared with later collections of the same session, defaults to
+     * a negative value. A negative value lets the update policies of the repositories decide, e.g. a range resolved
+     * from repositories with the policy {@code daily} is reused until midnight.
+     */
+    static final String CONFIG_PROP_CONSTRAINT_TTL = "aether.versionRangeCache.ttl";
+
+    /**
+     * The maximum total weight of the artifact descriptors cached by the session, defaults to
+     * {@value #DEFAULT_DESCRIPTOR_MAX_WEIGHT}. The weight of a descriptor is one plus the number of its dependencies
+     * and managed dependencies.
+     */
+    static final String CONFIG_PROP_DESCRIPTOR_MAX_WEIGHT = "aether.descriptorCache.maxWeight";
+
+    static final int DEFAULT_DESCRIPTOR_MAX_WEIGHT = 200000;
+
+    /**
+     * The maximum total weight of the version range results shared by the collections of the session, defaults to
+     * {@value #DEFAULT_CONSTRAINT_MAX_WEIGHT}. The weight of a result is one plus the number of its versions.
+     */
+    static final String CONFIG_PROP_CONSTRAINT_MAX_WEIGHT = "aether.versionRangeCache.maxWeight";
+
+    static final int DEFAULT_CONSTRAINT_MAX_WEIGHT = 100000;
+
+    static final WeightedCache.Weigher<Descriptor> DESCRIPTOR_WEIGHER = new WeightedCache.Weigher<Descriptor>()
+    {
+        public int weigh( Descriptor descriptor )
+        {
+            return 1 + descriptor.dependencies.size() + descriptor.managedDependencies.size();
+        }
+    };
+
+    static final WeightedCache.Weigher<Constraint> CONSTRAINT_WEIGHER = new WeightedCache.Weigher<Constraint>()
+    {
+        public int weigh( Constraint constraint )
+        {
+            return 1 + constraint.repositories.size();
+        }
+    };
+
     private ObjectPool<Artifact> artifacts;
 
     private ObjectPool<Dependency> dependencies;
 
-    private Map<Object, Descriptor> descriptors;
+    private WeightedCache<Descriptor> descriptors;
+
+    private RepositoryList.Pool repositories;
+
+    private ObjectPool<Object> derivations;
+
+    private DescriptorStore descriptorStore;
+
+    private CollectStatistics stats;
+
+    private long evictions;
 
     private Map<Object, Constraint> constraints = new WeakHashMap<Object, Constraint>();
 
+    private WeightedCache<Constraint> sharedConstraints;
+
+    private final String updatePolicy;
+
+    private final long constraintTtl;
+
     private Map<Object, GraphNode> nodes = new HashMap<Object, GraphNode>();
 
     @SuppressWarnings( "unchecked" )
@@ -70,7 +133,10 @@ final class DataPool
         {
             artifacts = (ObjectPool<Artifact>) cache.get( session, ARTIFACT_POOL );
             dependencies = (ObjectPool<Dependency>) cache.get( session, DEPENDENCY_POOL );
-            descriptors = (Map<Object, Descriptor>) cache.get( session, DESCRIPTORS );
+            descriptors = (WeightedCache<Descriptor>) cache.get( session, DESCRIPTORS );
+            sharedConstraints = (WeightedCache<Constraint>) cache.get( session, CONSTRAINTS );
+            repositories = (RepositoryList.Pool) cache.get( session, REPOSITORIES );
+            derivations = (ObjectPool<Object>) cache.get( session, DERIVATIONS );
         }
 
         if ( artifacts == null )
@@ -93,12 +159,73 @@ final class DataPool
 
         if ( descriptors == null )
         {
-            descriptors = Collections.synchronizedMap( new WeakHashMap<Object, Descriptor>( 256 ) );
+            int maxWeight =
+                ConfigurationProperties.get( session, CONFIG_PROP_DESCRIPTOR_MAX_WEIGHT,
+                                             DEFAULT_DESCRIPTOR_MAX_WEIGHT );
+            descriptors = new WeightedCache<Descriptor>( maxWeight, DESCRIPTOR_WEIGHER );
             if ( cache != null )
             {
                 cache.put( session, DESCRIPTORS, descriptors );
             }
         }
+
+        if ( repositories == null )
+        {
+            repositories = new RepositoryList.Pool();
+            if ( cache != null )
+            {
+                cache.put( session, REPOSITORIES, repositories );
+            }
+        }
+
+        if ( derivations == null )
+        {
+            derivations = new ObjectPool<Object>();
+            if ( cache != null )
+            {
+                cache.put( session, DERIVATIONS, derivations );
+            }
+        }
+
+        if ( sharedConstraints == null && cache != null )
+        {
+            int maxWeight =
+                ConfigurationProperties.get( session, CONFIG_PROP_CONSTRAINT_MAX_WEIGHT,
+                                             DEFAULT_CONSTRAINT_MAX_WEIGHT );
+            sharedConstraints = new WeightedCache<Constraint>( maxWeight, CONSTRAINT_WEIGHER );
+            cache.put( session, CONSTRAINTS, sharedConstraints );
+        }
+
+        updatePolicy = session.getUpdatePolicy();
+        constraintTtl = ConfigurationProperties.get( session, CONFIG_PROP_CONSTRAINT_TTL, -1 ) * 1000L;
+
+        descriptorStore = DescriptorStore.newInstance( session );
+    }
+
+    /**
+     * Sets the statistics that record the hits and misses of the lookups via this pool.
+     * 
+     * @param stats The statistics to update, may be {@code null} to not record any lookups.
+     */
+    public void setStatistics( CollectStatistics stats )
+    {
+        this.stats = stats;
+        evictions = descriptors.getEvictions();
+    }
+
+    /**
+     * Records the evictions from and the current occupancy of the session-wide descriptor cache in the statistics.
+     * Meant to be called once the graph has been built.
+     */
+    public void recordCacheStatistics()
+    {
+        if ( stats != null )
+        {
+            stats.addDescriptorEvictions( descriptors.getEvictions() - evictions );
+            stats.setDescriptorCacheSize( descriptors.getSize() );
+            stats.setDescriptorCacheWeight( descriptors.getWeight() );
+            evictions = descriptors.getEvictions();
+        }
     }
 
     public Artifact intern( Artifact artifact )
@@ -111,24 +238,97 @@ final class DataPool
         return dependencies.intern( dependency );
     }
 
+    /**
+     * Gets the canonical instance of the specified repository list. Keys built from canonical lists hash and compare in
+     * constant time.
+     * 
+     * @param repositories The repositories to intern, must not be {@code null}.
+     * @return The canonical and unmodifiable list of the frozen repositories, never {@code null}.
+     */
+    public List<RemoteRepository> intern( List<RemoteRepository> repositories )
+    {
+        return this.repositories.intern( repositories );
+    }
+
+    /**
+     * Gets the canonical instance of the specified selector. Equal selectors derived for different nodes thus end up as
+     * the identical instance, which lets the keys of the graph nodes compare by identity.
+     * 
+     * @param selector The selector to intern, must not be {@code null}.
+     * @return The canonical instance of the selector, never {@code null}.
+     */
+    public DependencySelector intern( DependencySelector selector )
+    {
+        return (DependencySelector) derivations.intern( selector );
+    }
+
+    /**
+     * Gets the canonical instance of the specified manager, like {@link #intern(DependencySelector)}.
+     * 
+     * @param manager The manager to intern, must not be {@code null}.
+     * @return The canonical instance of the manager, never {@code null}.
+     */
+    public DependencyManager intern( DependencyManager manager )
+    {
+        return (DependencyManager) derivations.intern( manager );
+    }
+
+    /**
+     * Gets the canonical instance of the specified traverser, like {@link #intern(DependencySelector)}.
+     * 
+     * @param traverser The traverser to intern, must not be {@code null}.
+     * @return The canonical instance of the traverser, never {@code null}.
+     */
+    public DependencyTraverser intern( DependencyTraverser traverser )
+    {
+        return (DependencyTraverser) derivations.intern( traverser );
+    }
+
     public Object toKey( ArtifactDescriptorRequest request )
     {
         return request.getArtifact();
     }
 
     public ArtifactDescriptorResult getDescriptor( Object key, ArtifactDescriptorRequest request )
+    {
+        ArtifactDescriptorResult result = findDescriptor( key, request );
+        if ( stats != null )
+        {
+            stats.addDescriptorLookup( result != null );
+        }
+        return result;
+    }
+
+    /**
+     * Looks up the specified descriptor like {@link #getDescriptor(Object, ArtifactDescriptorRequest)} but without
+     * recording the lookup in the statistics, for use by background threads.
+     */
+    public ArtifactDescriptorResult findDescriptor( Object key, ArtifactDescriptorRequest request )
     {
         Descriptor descriptor = descriptors.get( key );
         if ( descriptor != null )
         {
             return descriptor.toResult( request );
         }
+        if ( descriptorStore != null )
+        {
+            ArtifactDescriptorResult result = descriptorStore.get( request );
+            if ( result != null )
+            {
+                descriptors.put( key, new Descriptor( result ) );
+                return result;
+            }
+        }
         return null;
     }
 
     public void putDescriptor( Object key, ArtifactDescriptorResult result )
     {
         descriptors.put( key, new Descriptor( result ) );
+        if ( descriptorStore != null )
+        {
+            descriptorStore.put( result );
+        }
     }
 
     public Object toKey( VersionRangeRequest request )
@@ -139,6 +339,33 @@ final class DataPool
     public VersionRangeResult getConstraint( Object key, VersionRangeRequest request )
     {
         Constraint constraint = constraints.get( key );
+        if ( constraint == null )
+        {
+            constraint = getSharedConstraint( key, request );
+            if ( constraint != null )
+            {
+                constraints.put( key, constraint );
+            }
+        }
+        if ( stats != null )
+        {
+            stats.addConstraintLookup( constraint != null );
+        }
+        if ( constraint != null )
+        {
+            return constraint.toResult( request );
+        }
+        return null;
+    }
+
+    /**
+     * Looks up the specified version range result among those shared by the collections of the session, for use by
+     * background threads. Unlike {@link #getConstraint(Object, VersionRangeRequest)}, this neither records the lookup
+     * in the statistics nor remembers the result for the current collection.
+     */
+    public VersionRangeResult findConstraint( Object key, VersionRangeRequest request )
+    {
+        Constraint constraint = getSharedConstraint( key, request );
         if ( constraint != null )
         {
             return constraint.toResult( request );
@@ -146,9 +373,108 @@ final class DataPool
         return null;
     }
 
+    private Constraint getSharedConstraint( Object key, VersionRangeRequest request )
+    {
+        if ( sharedConstraints == null )
+        {
+            return null;
+        }
+        Constraint constraint = sharedConstraints.get( key );
+        if ( constraint != null && isExpired( constraint, request.getRepositories() ) )
+        {
+            sharedConstraints.remove( key, constraint );
+            constraint = null;
+        }
+        return constraint;
+    }
+
     public void putConstraint( Object key, VersionRangeResult result )
     {
-        constraints.put( key, new Constraint( result ) );
+        Constraint constraint = new Constraint( result );
+        constraints.put( key, constraint );
+        if ( sharedConstraints != null && !result.getVersions().isEmpty()
+            && !isExpired( constraint, result.getRequest().getRepositories() ) )
+        {
+            sharedConstraints.put( key, constraint );
+        }
+    }
+
+    private boolean isExpired( Constraint constraint, List<RemoteRepository> repositories )
+    {
+        if ( constraintTtl >= 0 )
+        {
+            return System.currentTimeMillis() - constraint.timestamp >= constraintTtl;
+        }
+        for ( RemoteRepository repository : repositories )
+        {
+            if ( isExpired( constraint, repository.getPolicy( false ) )
+                || isExpired( constraint, repository.getPolicy( true ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isExpired( Constraint constraint, RepositoryPolicy policy )
+    {
+        if ( !policy.isEnabled() )
+        {
+            return false;
+        }
+
+        String updatePolicy = ( this.updatePolicy != null ) ? this.updatePolicy : policy.getUpdatePolicy();
+
+        if ( updatePolicy != null && updatePolicy.startsWith( RepositoryPolicy.UPDATE_POLICY_INTERVAL ) )
+        {
+            int minutes = getIntervalMinutes( updatePolicy );
+            if ( minutes >= 0 )
+            {
+                return System.currentTimeMillis() - minutes * 60L * 1000L > constraint.timestamp;
+            }
+            // malformed interval, fall back to the default policy
+            updatePolicy = RepositoryPolicy.UPDATE_POLICY_DAILY;
+        }
+
+        if ( RepositoryPolicy.UPDATE_POLICY_ALWAYS.equals( updatePolicy ) )
+        {
+            return true;
+        }
+        else if ( RepositoryPolicy.UPDATE_POLICY_DAILY.equals( updatePolicy ) )
+        {
+            Calendar cal = Calendar.getInstance();
+            cal.set( Calendar.HOUR_OF_DAY, 0 );
+            cal.set( Calendar.MINUTE, 0 );
+            cal.set( Calendar.SECOND, 0 );
+            cal.set( Calendar.MILLISECOND, 0 );
+
+            return cal.getTimeInMillis() > constraint.timestamp;
+        }
+
+        // assume "never"
+        return false;
+    }
+
+    /**
+     * Parses the minutes of an update policy like {@code interval:30}.
+     * 
+     * @return The minutes of the interval or {@code -1} if the policy is malformed.
+     */
+    static int getIntervalMinutes( String updatePolicy )
+    {
+        int index = RepositoryPolicy.UPDATE_POLICY_INTERVAL.length() + 1;
+        if ( updatePolicy.length() <= index )
+        {
+            return -1;
+        }
+        try
+        {
+            return Math.max( -1, Integer.parseInt( updatePolicy.substring( index ).trim() ) );
+        }
+        catch ( NumberFormatException e )
+        {
+            return -1;
+        }
     }
 
     public Object toKey( Artifact artifact, List<RemoteRepository> repositories )
@@ -164,7 +490,12 @@ final class DataPool
 
     public GraphNode getNode( Object key )
     {
-        return nodes.get( key );
+        GraphNode node = nodes.get( key );
+        if ( stats != null )
+        {
+            stats.addNodeLookup( node != null );
+        }
+        return node;
     }
 
     public void putNode( Object key, GraphNode node )
@@ -172,6 +503,16 @@ final class DataPool
         nodes.put( key, node );
     }
 
+    public Map<Object, GraphNode> getNodes()
+    {
+        return nodes;
+    }
+
+    public void putNodes( Map<Object, GraphNode> nodes )
+    {
+        this.nodes.putAll( nodes );
+    }
+
     static class Descriptor
     {
 
@@ -181,6 +522,10 @@ final class DataPool
 
         final List<Artifact> relocations;
 
+        final Collection<Artifact> aliases;
+
+        final ArtifactRepository repository;
+
         final List<RemoteRepository> repositories;
 
         final List<Dependency> dependencies;
@@ -192,9 +537,11 @@ final class DataPool
             artifact = result.getArtifact();
             properties = result.getProperties();
             relocations = result.getRelocations();
+            aliases = result.getAliases();
+            repository = result.getRepository();
             dependencies = result.getDependencies();
             managedDependencies = result.getManagedDependencies();
-            repositories = clone( result.getRepositories() );
+            repositories = RemoteRepository.freeze( result.getRepositories() );
         }
 
         public ArtifactDescriptorResult toResult( ArtifactDescriptorRequest request )
@@ -203,24 +550,14 @@ final class DataPool
             result.setArtifact( artifact );
             result.setProperties( properties );
             result.setRelocations( relocations );
+            result.setAliases( aliases );
+            result.setRepository( repository );
             result.setDependencies( dependencies );
-            result.setManagedDependencies( dependencies );
-            result.setRepositories( clone( repositories ) );
+            result.setManagedDependencies( managedDependencies );
+            result.setRepositories( repositories );
             return result;
         }
 
-        private static List<RemoteRepository> clone( List<RemoteRepository> repositories )
-        {
-            List<RemoteRepository> clones = new ArrayList<RemoteRepository>( repositories.size() );
-            for ( RemoteRepository repository : repositories )
-            {
-                RemoteRepository clone = new RemoteRepository( repository );
-                clone.setMirroredRepositories( new ArrayList<RemoteRepository>( repository.getMirroredRepositories() ) );
-                clones.add( clone );
-            }
-            return clones;
-        }
-
     }
 
     static class Constraint
@@ -230,8 +567,11 @@ final class DataPool
 
         final VersionConstraint versionConstraint;
 
+        final long timestamp;
+
         public Constraint( VersionRangeResult result )
         {
+            timestamp = System.currentTimeMillis();
             versionConstraint = result.getVersionConstraint();
             repositories = new LinkedHashMap<Version, ArtifactRepository>();
             for ( Version version : result.getVersions() )
@@ -259,15 +599,15 @@ final class DataPool
 
         private final Artifact artifact;
 
-        private final List<RemoteRepository> repositories;
+        private final Object repositories;
 
         private final int hashCode;
 
         public ConstraintKey( VersionRangeRequest request )
         {
             artifact = request.getArtifact();
-            repositories = request.getRepositories();
-            hashCode = artifact.hashCode();
+            repositories = RepositoryList.toContentKey( request.getRepositories() );
+            hashCode = artifact.hashCode() * 31 + repositories.hashCode();
         }
 
         @Override
@@ -282,44 +622,8 @@ final class DataPool
                 return false;
             }
             ConstraintKey that = (ConstraintKey) obj;
-            return artifact.equals( that.artifact ) && equals( repositories, that.repositories );
-        }
-
-        private static boolean equals( Collection<RemoteRepository> repos1, Collection<RemoteRepository> repos2 )
-        {
-            if ( repos1.size() != repos2.size() )
-            {
-                return false;
-            }
-            for ( Iterator<RemoteRepository> it1 = repos1.iterator(), it2 = repos2.iterator(); it1.hasNext(); )
-            {
-                RemoteRepository repo1 = it1.next();
-                RemoteRepository repo2 = it2.next();
-                if ( repo1.isRepositoryManager() != repo2.isRepositoryManager() )
-                {
-                    return false;
-                }
-                if ( repo1.isRepositoryManager() )
-                {
-                    if ( !equals( repo1.getMirroredRepositories(), repo2.getMirroredRepositories() ) )
-                    {
-                        return false;
-                    }
-                }
-                else if ( !repo1.getUrl().equals( repo2.getUrl() ) )
-                {
-                    return false;
-                }
-                else if ( repo1.getPolicy( true ).isEnabled() != repo2.getPolicy( true ).isEnabled() )
-                {
-                    return false;
-                }
-                else if ( repo1.getPolicy( false ).isEnabled() != repo2.getPolicy( false ).isEnabled() )
-                {
-                    return false;
-                }
-            }
-            return true;
+            return hashCode == that.hashCode && repositories.equals( that.repositories )
+                && artifact.equals( that.artifact );
         }
 
         @Override
@@ -418,9 +722,9 @@ final class DataPool
                 return false;
             }
             GraphKey that = (GraphKey) obj;
-            return artifact.equals( that.artifact ) && repositories.equals( that.repositories )
-                && selector.equals( that.selector ) && manager.equals( that.manager )
-                && traverser.equals( that.traverser );
+            return hashCode == that.hashCode && eq( artifact, that.artifact )
+                && eq( repositories, that.repositories ) && eq( selector, that.selector )
+                && eq( manager, that.manager ) && eq( traverser, that.traverser );
         }
 
         @Override
@@ -429,6 +733,12 @@ final class DataPool
             return hashCode;
         }
 
+        private static boolean eq( Object o1, Object o2 )
+        {
+            // the components are mostly shared between equal keys, so check for identity before deep equality
+            return o1 == o2 || o1.equals( o2 );
+        }
+
     }
 
 }
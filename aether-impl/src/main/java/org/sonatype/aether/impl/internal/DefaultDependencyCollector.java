@@ -17,16 +17,22 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
+import org.sonatype.aether.ConfigurationProperties;
 import org.sonatype.aether.RepositoryException;
 import org.sonatype.aether.RepositorySystemSession;
 import org.sonatype.aether.artifact.Artifact;
 import org.sonatype.aether.collection.CollectRequest;
 import org.sonatype.aether.collection.CollectResult;
+import org.sonatype.aether.collection.CollectStatistics;
+import org.sonatype.aether.collection.DependencyCollectionContext;
 import org.sonatype.aether.collection.DependencyCollectionException;
 import org.sonatype.aether.collection.DependencyGraphTransformer;
 import org.sonatype.aether.collection.DependencyManagement;
@@ -34,8 +40,10 @@ import org.sonatype.aether.collection.DependencyManager;
 import org.sonatype.aether.collection.DependencySelector;
 import org.sonatype.aether.collection.DependencyTraverser;
 import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.DependencyNode;
 import org.sonatype.aether.impl.ArtifactDescriptorReader;
 import org.sonatype.aether.impl.DependencyCollector;
+import org.sonatype.aether.impl.IncrementalDependencyCollector;
 import org.sonatype.aether.impl.RemoteRepositoryManager;
 import org.sonatype.aether.impl.VersionRangeResolver;
 import org.sonatype.aether.repository.ArtifactRepository;
@@ -52,6 +60,7 @@ import org.sonatype.aether.spi.log.Logger;
 import org.sonatype.aether.spi.log.NullLogger;
 import org.sonatype.aether.util.DefaultRepositorySystemSession;
 import org.sonatype.aether.util.artifact.ArtifactProperties;
+import org.sonatype.aether.util.graph.transformer.TransformationContextKeys;
 import org.sonatype.aether.version.Version;
 
 /**
@@ -59,9 +68,21 @@ import org.sonatype.aether.version.Version;
  */
 @Component( role = DependencyCollector.class )
 public class DefaultDependencyCollector
-    implements DependencyCollector, Service
+    implements IncrementalDependencyCollector, Service
 {
 
+    /**
+     * The number of threads used to concurrently resolve the version ranges and descriptors of sibling dependencies.
+     * Values less than 2 select the serial collection.
+     */
+    static final String CONFIG_PROP_THREADS = "aether.dependencyCollector.threads";
+
+    /**
+     * A flag whether statistics about the collection should be gathered and made available via
+     * {@link CollectResult#getStatistics()}, defaults to {@code false}.
+     */
+    static final String CONFIG_PROP_STATISTICS = "aether.dependencyCollector.statistics";
+
     @Requirement
     private Logger logger = NullLogger.INSTANCE;
 
@@ -74,6 +95,9 @@ public class DefaultDependencyCollector
     @Requirement
     private VersionRangeResolver versionRangeResolver;
 
+    private final Map<CollectResult, CollectState> states =
+        Collections.synchronizedMap( new WeakHashMap<CollectResult, CollectState>() );
+
     public DefaultDependencyCollector()
     {
         // enables default constructor
@@ -136,10 +160,44 @@ public class DefaultDependencyCollector
     public CollectResult collectDependencies( RepositorySystemSession session, CollectRequest request )
         throws DependencyCollectionException
     {
+        return collectDependencies( session, request, null, false, null, true );
+    }
+
+    public CollectResult collectDependencies( RepositorySystemSession session, CollectRequest request,
+                                              CollectResult previous )
+        throws DependencyCollectionException
+    {
+        return collectDependencies( session, request, previous, true, null, true );
+    }
+
+    /**
+     * Collects the dependencies and schedules the resolution of each discovered artifact with the specified resolver.
+     */
+    CollectResult collectAndResolveDependencies( RepositorySystemSession session, CollectRequest request,
+                                                 SpeculativeArtifactResolver artifactResolver )
+        throws DependencyCollectionException
+    {
+        return collectDependencies( session, request, null, false, artifactResolver, true );
+    }
+
+    private CollectResult collectDependencies( RepositorySystemSession session, CollectRequest request,
+                                               CollectResult previous, boolean incremental,
+                                               SpeculativeArtifactResolver artifactResolver, boolean pruning )
+        throws DependencyCollectionException
+    {
+        RepositorySystemSession originalSession = session;
+
         session = optimizeSession( session );
 
         CollectResult result = new CollectResult( request );
 
+        CollectStatistics stats = null;
+        if ( ConfigurationProperties.get( session, CONFIG_PROP_STATISTICS, false ) )
+        {
+            stats = new CollectStatistics();
+            result.setStatistics( stats );
+        }
+
         DependencySelector depSelector = session.getDependencySelector();
         DependencyManager depManager = session.getDependencyManager();
         DependencyTraverser depTraverser = session.getDependencyTraverser();
@@ -152,6 +210,8 @@ public class DefaultDependencyCollector
         GraphEdge edge = null;
         if ( root != null )
         {
+            long start = ( stats != null ) ? System.nanoTime() : 0;
+
             VersionRangeResult rangeResult;
             try
             {
@@ -170,6 +230,14 @@ public class DefaultDependencyCollector
                 result.addException( e );
                 throw new DependencyCollectionException( result );
             }
+            finally
+            {
+                if ( stats != null )
+                {
+                    stats.addVersionRangeResolutionTime( System.nanoTime() - start );
+                    start = System.nanoTime();
+                }
+            }
 
             Version version = rangeResult.getVersions().get( rangeResult.getVersions().size() - 1 );
             root = root.setArtifact( root.getArtifact().setVersion( version.toString() ) );
@@ -195,12 +263,25 @@ public class DefaultDependencyCollector
                 result.addException( e );
                 throw new DependencyCollectionException( result );
             }
+            finally
+            {
+                if ( stats != null )
+                {
+                    stats.addDescriptorReadingTime( System.nanoTime() - start );
+                    start = System.nanoTime();
+                }
+            }
 
             root = root.setArtifact( descriptorResult.getArtifact() );
 
             repositories =
                 remoteRepositoryManager.aggregateRepositories( session, repositories,
                                                                descriptorResult.getRepositories(), true );
+
+            if ( stats != null )
+            {
+                stats.addRepositoryAggregationTime( System.nanoTime() - start );
+            }
             dependencies = mergeDeps( dependencies, descriptorResult.getDependencies() );
             managedDependencies = mergeDeps( managedDependencies, descriptorResult.getManagedDependencies() );
 
@@ -224,37 +305,119 @@ public class DefaultDependencyCollector
 
         boolean traverse = ( root == null ) || depTraverser.traverseDependency( root );
 
+        DataPool pool = new DataPool( session );
+        pool.setStatistics( stats );
+
+        Map<GraphNode, Object> previousNodes = Collections.emptyMap();
+        if ( incremental && previous != null )
+        {
+            CollectState state = states.get( previous );
+            if ( state != null )
+            {
+                pool.putNodes( state.getNodes() );
+                previousNodes = new IdentityHashMap<GraphNode, Object>( state.getNodes().size() * 2 );
+                for ( GraphNode node : state.getNodes().values() )
+                {
+                    previousNodes.put( node, Boolean.TRUE );
+                }
+            }
+        }
+
+        List<GraphEdge> prunedEdges = Collections.emptyList();
+
         if ( traverse && !dependencies.isEmpty() )
         {
-            DataPool pool = new DataPool( session );
+            DependencyPrefetcher prefetcher = null;
+            int threads = getThreads( session );
+            if ( threads > 1 )
+            {
+                prefetcher =
+                    new DependencyPrefetcher( session, versionRangeResolver, descriptorReader, pool,
+                                              request.getRequestContext(), threads );
+            }
+
+            Args args = new Args( session, result, pool, prefetcher );
+            args.artifactResolver = artifactResolver;
+            args.stats = stats;
+            args.limits = CollectLimits.newInstance( session );
+            args.previousNodes = previousNodes;
+            args.pruning = pruning && !incremental && isConflictPruning( session );
+            prunedEdges = args.prunedEdges;
 
-            LinkedList<GraphEdge> edges = new LinkedList<GraphEdge>();
-            edges.addFirst( edge );
+            long start = ( stats != null ) ? System.nanoTime() : 0;
 
             DefaultDependencyCollectionContext context =
                 new DefaultDependencyCollectionContext( session, root, managedDependencies );
 
-            process( session, result, edges, dependencies, repositories, depSelector.deriveChildSelector( context ),
-                     depManager.deriveChildManager( context ), depTraverser.deriveChildTraverser( context ), pool );
+            DependencySelector childSelector = derive( pool, depSelector, context );
+            DependencyManager childManager = derive( pool, depManager, context );
+            DependencyTraverser childTraverser = derive( pool, depTraverser, context );
+
+            if ( stats != null )
+            {
+                stats.addDerivationTime( System.nanoTime() - start );
+            }
+
+            try
+            {
+                processRoot( args, edge, dependencies, pool.intern( repositories ), childSelector, childManager,
+                             childTraverser );
+            }
+            finally
+            {
+                if ( prefetcher != null )
+                {
+                    prefetcher.shutdown();
+                }
+            }
         }
 
+        pool.recordCacheStatistics();
+
+        GraphEdge graph = incremental ? CollectState.copy( edge ) : edge;
+        result.setRoot( graph );
+
+        long start = ( stats != null ) ? System.nanoTime() : 0;
+
         DependencyGraphTransformer transformer = session.getDependencyGraphTransformer();
         try
         {
             DefaultDependencyGraphTransformationContext context =
                 new DefaultDependencyGraphTransformationContext( session );
-            result.setRoot( transformer.transformGraph( edge, context ) );
+            if ( stats != null )
+            {
+                context.put( TransformationContextKeys.STATISTICS, stats );
+            }
+            result.setRoot( transformer.transformGraph( graph, context ) );
         }
         catch ( RepositoryException e )
         {
             result.addException( e );
         }
+        finally
+        {
+            if ( stats != null )
+            {
+                stats.addGraphTransformationTime( System.nanoTime() - start );
+            }
+        }
 
         if ( !result.getExceptions().isEmpty() )
         {
             throw new DependencyCollectionException( result );
         }
 
+        if ( !prunedEdges.isEmpty() && containsAny( result.getRoot(), prunedEdges ) )
+        {
+            logger.debug( "Early conflict pruning skipped the children of a conflict winner, collecting again" );
+            return collectDependencies( originalSession, request, previous, incremental, artifactResolver, false );
+        }
+
+        if ( incremental )
+        {
+            states.put( result, CollectState.newInstance( edge, pool.getNodes() ) );
+        }
+
         return result;
     }
 
@@ -301,272 +464,600 @@ public class DefaultDependencyCollector
         return a.getGroupId() + ':' + a.getArtifactId() + ':' + a.getClassifier() + ':' + a.getExtension();
     }
 
-    private void process( RepositorySystemSession session, CollectResult result, LinkedList<GraphEdge> edges,
-                          List<Dependency> dependencies, List<RemoteRepository> repositories,
-                          DependencySelector depSelector, DependencyManager depManager,
-                          DependencyTraverser depTraverser, DataPool pool )
-        throws DependencyCollectionException
+    /**
+     * Derives the selector for the children of a dependency. Derived instances are interned so that equal derivations
+     * along different paths yield the identical instance, unless the selector is reused unchanged anyway.
+     */
+    private static DependencySelector derive( DataPool pool, DependencySelector selector,
+                                              DependencyCollectionContext context )
     {
-        nextDependency: for ( Dependency dependency : dependencies )
-        {
-            boolean disableVersionManagement = false;
+        DependencySelector child = selector.deriveChildSelector( context );
+        return ( child == selector ) ? child : pool.intern( child );
+    }
+
+    private static DependencyManager derive( DataPool pool, DependencyManager manager,
+                                             DependencyCollectionContext context )
+    {
+        DependencyManager child = manager.deriveChildManager( context );
+        return ( child == manager ) ? child : pool.intern( child );
+    }
+
+    private static DependencyTraverser derive( DataPool pool, DependencyTraverser traverser,
+                                               DependencyCollectionContext context )
+    {
+        DependencyTraverser child = traverser.deriveChildTraverser( context );
+        return ( child == traverser ) ? child : pool.intern( child );
+    }
+
+    /**
+     * Gets the number of threads to use for the concurrent resolution of sibling dependencies.
+     */
+    int getThreads( RepositorySystemSession session )
+    {
+        return ConfigurationProperties.get( session, CONFIG_PROP_THREADS, 1 );
+    }
+
+    /**
+     * Determines whether the children of dependencies that lose a version conflict against a nearer dependency shall
+     * not be collected. The default implementation discovers dependencies in depth-first order and hence cannot tell
+     * nearer dependencies apart and never prunes.
+     */
+    boolean isConflictPruning( RepositorySystemSession session )
+    {
+        return false;
+    }
 
-            List<Artifact> relocations = Collections.emptyList();
+    /**
+     * Determines whether the children of the specified dependency which is about to be added to the graph shall not be
+     * collected. This method is invoked for each dependency added to the graph, in the order of discovery.
+     * 
+     * @param edges The ancestors of the dependency, with the parent on top.
+     * @return {@code true} if the children of the dependency shall be skipped, {@code false} otherwise.
+     */
+    boolean isPruned( Args args, EdgeStack edges, Dependency dependency )
+    {
+        return false;
+    }
 
-            thisDependency: while ( true )
+    private static boolean containsAny( DependencyNode root, Collection<GraphEdge> edges )
+    {
+        Map<DependencyNode, Object> candidates = new IdentityHashMap<DependencyNode, Object>( edges.size() * 2 );
+        for ( GraphEdge edge : edges )
+        {
+            candidates.put( edge, Boolean.TRUE );
+        }
+
+        Map<DependencyNode, Object> visited = new IdentityHashMap<DependencyNode, Object>( 256 );
+        List<DependencyNode> pending = new ArrayList<DependencyNode>();
+        pending.add( root );
+        while ( !pending.isEmpty() )
+        {
+            DependencyNode node = pending.remove( pending.size() - 1 );
+            if ( visited.put( node, Boolean.TRUE ) == null )
             {
-                if ( !depSelector.selectDependency( dependency ) )
+                if ( candidates.containsKey( node ) )
                 {
-                    continue nextDependency;
+                    return true;
                 }
+                pending.addAll( node.getChildren() );
+            }
+        }
+        return false;
+    }
 
-                DependencyManagement depMngt = depManager.manageDependency( dependency );
-                String premanagedVersion = null;
-                String premanagedScope = null;
+    /**
+     * Builds the graph below the specified root edge.
+     */
+    void processRoot( Args args, GraphEdge root, List<Dependency> dependencies, List<RemoteRepository> repositories,
+                      DependencySelector depSelector, DependencyManager depManager, DependencyTraverser depTraverser )
+        throws DependencyCollectionException
+    {
+        EdgeStack edges = new EdgeStack();
 
-                if ( depMngt != null )
-                {
-                    if ( depMngt.getVersion() != null && !disableVersionManagement )
-                    {
-                        Artifact artifact = dependency.getArtifact();
-                        premanagedVersion = artifact.getVersion();
-                        dependency = dependency.setArtifact( artifact.setVersion( depMngt.getVersion() ) );
-                    }
-                    if ( depMngt.getProperties() != null )
-                    {
-                        Artifact artifact = dependency.getArtifact();
-                        dependency = dependency.setArtifact( artifact.setProperties( depMngt.getProperties() ) );
-                    }
-                    if ( depMngt.getScope() != null )
-                    {
-                        premanagedScope = dependency.getScope();
-                        dependency = dependency.setScope( depMngt.getScope() );
-                    }
-                    if ( depMngt.getExclusions() != null )
-                    {
-                        dependency = dependency.setExclusions( depMngt.getExclusions() );
-                    }
-                }
-                disableVersionManagement = false;
+        processChildren( args, edges, root, dependencies, repositories, depSelector, depManager, depTraverser );
 
-                boolean noDescriptor = isLackingDescriptor( dependency.getArtifact() );
+        process( args, edges, Integer.MAX_VALUE );
+    }
 
-                boolean traverse = !noDescriptor && depTraverser.traverseDependency( dependency );
+    /**
+     * Schedules the processing of the children of the specified edge which has just been added to the graph. The
+     * default implementation pushes a new frame onto the work stack such that the graph is built depth-first.
+     * 
+     * @param edges The ancestors of the edge, with the nearest ancestor on top.
+     */
+    void processChildren( Args args, EdgeStack edges, GraphEdge edge, List<Dependency> dependencies,
+                          List<RemoteRepository> repositories, DependencySelector depSelector,
+                          DependencyManager depManager, DependencyTraverser depTraverser )
+    {
+        if ( args.prefetcher != null )
+        {
+            args.prefetcher.prefetch( dependencies, repositories, depSelector, depManager );
+        }
 
-                VersionRangeResult rangeResult;
-                try
-                {
-                    VersionRangeRequest rangeRequest = new VersionRangeRequest();
-                    rangeRequest.setArtifact( dependency.getArtifact() );
-                    rangeRequest.setRepositories( repositories );
-                    rangeRequest.setRequestContext( result.getRequest().getRequestContext() );
-
-                    Object key = pool.toKey( rangeRequest );
-                    rangeResult = pool.getConstraint( key, rangeRequest );
-                    if ( rangeResult == null )
-                    {
-                        rangeResult = versionRangeResolver.resolveVersionRange( session, rangeRequest );
-                        pool.putConstraint( key, rangeResult );
-                    }
+        edges.push( edge );
 
-                    if ( rangeResult.getVersions().isEmpty() )
-                    {
-                        throw new VersionRangeResolutionException( rangeResult, "No versions available for "
-                            + dependency.getArtifact() + " within specified range" );
-                    }
-                }
-                catch ( VersionRangeResolutionException e )
-                {
-                    result.addException( e );
-                    continue nextDependency;
-                }
+        args.frames.add( new Frame( dependencies, repositories, depSelector, depManager, depTraverser ) );
+    }
 
-                List<Version> versions = rangeResult.getVersions();
-                for ( Version version : versions )
-                {
-                    Artifact originalArtifact = dependency.getArtifact().setVersion( version.toString() );
-                    Dependency d = dependency.setArtifact( originalArtifact );
+    /**
+     * Processes the frames on the work stack until the stack is empty or the specified number of steps has been
+     * performed. A step consists of processing either the next dependency of a frame or the next version of such a
+     * dependency. As the entire state of the collection is kept in the work stack and the ancestor stack, a suspended
+     * collection can be resumed by simply invoking this method again. If a limit of the collection has been exceeded,
+     * the work stack is discarded.
+     * 
+     * @param args The arguments of the collection, must not be {@code null}.
+     * @param edges The path to the edge whose frame is on top of the work stack, must not be {@code null}.
+     * @param maxSteps The maximum number of steps to perform.
+     * @return {@code true} if the work stack has been fully processed, {@code false} if the collection was suspended.
+     */
+    final boolean process( Args args, EdgeStack edges, int maxSteps )
+    {
+        List<Frame> frames = args.frames;
 
-                    List<RemoteRepository> repos;
-                    ArtifactRepository repo = rangeResult.getRepository( version );
-                    if ( repo instanceof RemoteRepository )
-                    {
-                        repos = Collections.singletonList( (RemoteRepository) repo );
-                    }
-                    else if ( repo == null )
-                    {
-                        repos = repositories;
-                    }
-                    else
-                    {
-                        repos = Collections.emptyList();
-                    }
+        for ( int steps = 0; !frames.isEmpty(); steps++ )
+        {
+            if ( args.aborted )
+            {
+                frames.clear();
+                break;
+            }
+            if ( steps >= maxSteps )
+            {
+                return false;
+            }
 
-                    ArtifactDescriptorResult descriptorResult;
-                    try
-                    {
-                        ArtifactDescriptorRequest descriptorRequest = new ArtifactDescriptorRequest();
-                        descriptorRequest.setArtifact( d.getArtifact() );
-                        descriptorRequest.setRepositories( repos );
-                        descriptorRequest.setRequestContext( result.getRequest().getRequestContext() );
-
-                        if ( noDescriptor )
-                        {
-                            descriptorResult = new ArtifactDescriptorResult( descriptorRequest );
-                        }
-                        else
-                        {
-                            Object key = pool.toKey( descriptorRequest );
-                            descriptorResult = pool.getDescriptor( key, descriptorRequest );
-                            if ( descriptorResult == null )
-                            {
-                                descriptorResult = descriptorReader.readArtifactDescriptor( session, descriptorRequest );
-                                pool.putDescriptor( key, descriptorResult );
-                            }
-                        }
-                    }
-                    catch ( ArtifactDescriptorException e )
-                    {
-                        result.addException( e );
-                        continue;
-                    }
+            Frame frame = frames.get( frames.size() - 1 );
 
-                    d = d.setArtifact( descriptorResult.getArtifact() );
+            if ( frame.versions != null && frame.versions.hasNext() )
+            {
+                processVersion( args, edges, frame, frame.versions.next() );
+            }
+            else if ( frame.index < frame.dependencies.size() )
+            {
+                frame.disableVersionManagement = false;
+                frame.relocations = Collections.emptyList();
+                processDependency( args, frame, frame.dependencies.get( frame.index++ ) );
+            }
+            else
+            {
+                frames.remove( frames.size() - 1 );
+                edges.pop();
+            }
+        }
 
-                    if ( findDuplicate( edges, d.getArtifact() ) != null )
-                    {
-                        continue;
-                    }
+        return true;
+    }
 
-                    if ( !descriptorResult.getRelocations().isEmpty() )
-                    {
-                        relocations = descriptorResult.getRelocations();
+    /**
+     * Applies the selection and management to the specified dependency and resolves its version range. If the
+     * dependency is eligible, its versions are stored in the frame for subsequent processing.
+     */
+    private void processDependency( Args args, Frame frame, Dependency dependency )
+    {
+        RepositorySystemSession session = args.session;
+        CollectResult result = args.result;
+        DataPool pool = args.pool;
+        DependencyPrefetcher prefetcher = args.prefetcher;
 
-                        disableVersionManagement =
-                            originalArtifact.getGroupId().equals( d.getArtifact().getGroupId() )
-                                && originalArtifact.getArtifactId().equals( d.getArtifact().getArtifactId() );
+        frame.versions = null;
 
-                        dependency = d;
-                        continue thisDependency;
-                    }
+        if ( !frame.depSelector.selectDependency( dependency ) )
+        {
+            return;
+        }
 
-                    d = pool.intern( d.setArtifact( pool.intern( d.getArtifact() ) ) );
+        DependencyManagement depMngt = frame.depManager.manageDependency( dependency );
+        String premanagedVersion = null;
+        String premanagedScope = null;
 
-                    DependencySelector childSelector = null;
-                    DependencyManager childManager = null;
-                    DependencyTraverser childTraverser = null;
-                    List<RemoteRepository> childRepos = null;
-                    Object key = null;
+        if ( depMngt != null )
+        {
+            if ( depMngt.getVersion() != null && !frame.disableVersionManagement )
+            {
+                Artifact artifact = dependency.getArtifact();
+                premanagedVersion = artifact.getVersion();
+                dependency = dependency.setArtifact( artifact.setVersion( depMngt.getVersion() ) );
+            }
+            if ( depMngt.getProperties() != null )
+            {
+                Artifact artifact = dependency.getArtifact();
+                dependency = dependency.setArtifact( artifact.setProperties( depMngt.getProperties() ) );
+            }
+            if ( depMngt.getScope() != null )
+            {
+                premanagedScope = dependency.getScope();
+                dependency = dependency.setScope( depMngt.getScope() );
+            }
+            if ( depMngt.getExclusions() != null )
+            {
+                dependency = dependency.setExclusions( depMngt.getExclusions() );
+            }
+        }
+        frame.disableVersionManagement = false;
 
-                    boolean recurse = traverse && !descriptorResult.getDependencies().isEmpty();
-                    if ( recurse )
-                    {
-                        DefaultDependencyCollectionContext context =
-                            new DefaultDependencyCollectionContext( session, d,
-                                                                    descriptorResult.getManagedDependencies() );
+        boolean noDescriptor = isLackingDescriptor( dependency.getArtifact() );
 
-                        childSelector = depSelector.deriveChildSelector( context );
-                        childManager = depManager.deriveChildManager( context );
-                        childTraverser = depTraverser.deriveChildTraverser( context );
+        boolean traverse = !noDescriptor && frame.depTraverser.traverseDependency( dependency );
 
-                        childRepos =
-                            remoteRepositoryManager.aggregateRepositories( session, repositories,
-                                                                           descriptorResult.getRepositories(), true );
+        long start = ( args.stats != null ) ? System.nanoTime() : 0;
 
-                        key = pool.toKey( d.getArtifact(), childRepos, childSelector, childManager, childTraverser );
-                    }
-                    else
-                    {
-                        key = pool.toKey( d.getArtifact(), repositories );
-                    }
+        VersionRangeResult rangeResult;
+        try
+        {
+            VersionRangeRequest rangeRequest = new VersionRangeRequest();
+            rangeRequest.setArtifact( dependency.getArtifact() );
+            rangeRequest.setRepositories( frame.repositories );
+            rangeRequest.setRequestContext( result.getRequest().getRequestContext() );
+
+            Object key = pool.toKey( rangeRequest );
+            rangeResult = pool.getConstraint( key, rangeRequest );
+            if ( rangeResult == null )
+            {
+                if ( prefetcher != null )
+                {
+                    rangeResult = prefetcher.resolveVersionRange( key, rangeRequest );
+                }
+                else
+                {
+                    rangeResult = versionRangeResolver.resolveVersionRange( session, rangeRequest );
+                }
+                pool.putConstraint( key, rangeResult );
+            }
+
+            if ( rangeResult.getVersions().isEmpty() )
+            {
+                throw new VersionRangeResolutionException( rangeResult, "No versions available for "
+                    + dependency.getArtifact() + " within specified range" );
+            }
+        }
+        catch ( VersionRangeResolutionException e )
+        {
+            result.addException( e );
+            return;
+        }
+        finally
+        {
+            if ( args.stats != null )
+            {
+                args.stats.addVersionRangeResolutionTime( System.nanoTime() - start );
+            }
+        }
+
+        frame.dependency = dependency;
+        frame.premanagedVersion = premanagedVersion;
+        frame.premanagedScope = premanagedScope;
+        frame.noDescriptor = noDescriptor;
+        frame.traverse = traverse;
+        frame.rangeResult = rangeResult;
+        if ( args.limits != null )
+        {
+            frame.versions = args.limits.limitVersions( result, dependency, rangeResult.getVersions() ).iterator();
+        }
+        else
+        {
+            frame.versions = rangeResult.getVersions().iterator();
+        }
+    }
+
+    /**
+     * Processes the specified version of the dependency currently being processed by the frame.
+     */
+    private void processVersion( Args args, EdgeStack edges, Frame frame, Version version )
+    {
+        RepositorySystemSession session = args.session;
+        CollectResult result = args.result;
+        DataPool pool = args.pool;
+        DependencyPrefetcher prefetcher = args.prefetcher;
+
+        Dependency dependency = frame.dependency;
+        VersionRangeResult rangeResult = frame.rangeResult;
+
+        Artifact originalArtifact = dependency.getArtifact().setVersion( version.toString() );
+        Dependency d = dependency.setArtifact( originalArtifact );
+
+        List<RemoteRepository> repos = getRepositories( rangeResult, version, frame.repositories );
+
+        long start = ( args.stats != null ) ? System.nanoTime() : 0;
+
+        ArtifactDescriptorResult descriptorResult;
+        try
+        {
+            ArtifactDescriptorRequest descriptorRequest = new ArtifactDescriptorRequest();
+            descriptorRequest.setArtifact( d.getArtifact() );
+            descriptorRequest.setRepositories( repos );
+            descriptorRequest.setRequestContext( result.getRequest().getRequestContext() );
 
-                    GraphNode child = pool.getNode( key );
-                    if ( child == null )
+            if ( frame.noDescriptor )
+            {
+                descriptorResult = new ArtifactDescriptorResult( descriptorRequest );
+            }
+            else
+            {
+                Object key = pool.toKey( descriptorRequest );
+                descriptorResult = pool.getDescriptor( key, descriptorRequest );
+                if ( descriptorResult == null )
+                {
+                    if ( prefetcher != null )
                     {
-                        child = new GraphNode();
-                        child.setAliases( descriptorResult.getAliases() );
-                        child.setRepositories( repos );
-                        pool.putNode( key, child );
+                        descriptorResult = prefetcher.readArtifactDescriptor( key, descriptorRequest );
                     }
                     else
                     {
-                        recurse = false;
-
-                        if ( repos.size() < child.getRepositories().size() )
-                        {
-                            child.setRepositories( repos );
-                        }
+                        descriptorResult = descriptorReader.readArtifactDescriptor( session, descriptorRequest );
                     }
+                    pool.putDescriptor( key, descriptorResult );
+                }
+            }
+        }
+        catch ( ArtifactDescriptorException e )
+        {
+            result.addException( e );
+            return;
+        }
+        finally
+        {
+            if ( args.stats != null )
+            {
+                args.stats.addDescriptorReadingTime( System.nanoTime() - start );
+            }
+        }
 
-                    GraphNode node = edges.getFirst().getTarget();
+        d = d.setArtifact( descriptorResult.getArtifact() );
 
-                    GraphEdge edge = new GraphEdge( node, child );
-                    edge.setDependency( d );
-                    edge.setScope( d.getScope() );
-                    edge.setPremanagedScope( premanagedScope );
-                    edge.setPremanagedVersion( premanagedVersion );
-                    edge.setRelocations( relocations );
-                    edge.setVersionConstraint( rangeResult.getVersionConstraint() );
-                    edge.setVersion( version );
-                    edge.setRequestContext( result.getRequest().getRequestContext() );
+        if ( edges.contains( d.getArtifact() ) )
+        {
+            return;
+        }
 
-                    node.getOutgoingEdges().add( edge );
+        if ( !descriptorResult.getRelocations().isEmpty() )
+        {
+            frame.relocations = descriptorResult.getRelocations();
 
-                    if ( recurse )
-                    {
-                        edges.addFirst( edge );
+            frame.disableVersionManagement =
+                originalArtifact.getGroupId().equals( d.getArtifact().getGroupId() )
+                    && originalArtifact.getArtifactId().equals( d.getArtifact().getArtifactId() );
 
-                        process( session, result, edges, descriptorResult.getDependencies(), childRepos, childSelector,
-                                 childManager, childTraverser, pool );
+            processDependency( args, frame, d );
+            return;
+        }
 
-                        edges.removeFirst();
-                    }
-                }
+        if ( args.limits != null && !args.limits.addNode( result, d ) )
+        {
+            // the node budget is shared by all branches, so rather than pruning this branch, stop the collection
+            args.aborted = true;
+            return;
+        }
 
-                break;
-            }
+        d = pool.intern( d.setArtifact( pool.intern( d.getArtifact() ) ) );
+
+        DependencySelector childSelector = null;
+        DependencyManager childManager = null;
+        DependencyTraverser childTraverser = null;
+        List<RemoteRepository> childRepos = null;
+        Object key = null;
+
+        boolean recurse = frame.traverse && !descriptorResult.getDependencies().isEmpty();
+
+        boolean pruned = isPruned( args, edges, d ) && recurse;
+        if ( pruned )
+        {
+            recurse = false;
+        }
+        else if ( recurse && args.limits != null && !args.limits.isExpandable( result, d, edges.size() ) )
+        {
+            recurse = false;
         }
-    }
 
-    private GraphEdge findDuplicate( List<GraphEdge> edges, Artifact artifact )
-    {
-        for ( GraphEdge edge : edges )
+        if ( recurse )
         {
-            Dependency dependency = edge.getDependency();
-            if ( dependency == null )
+            if ( args.stats != null )
             {
-                break;
+                start = System.nanoTime();
             }
 
-            Artifact a = dependency.getArtifact();
-            if ( !a.getArtifactId().equals( artifact.getArtifactId() ) )
-            {
-                continue;
-            }
-            if ( !a.getGroupId().equals( artifact.getGroupId() ) )
-            {
-                continue;
-            }
-            if ( !a.getBaseVersion().equals( artifact.getBaseVersion() ) )
+            DefaultDependencyCollectionContext context =
+                new DefaultDependencyCollectionContext( session, d, descriptorResult.getManagedDependencies() );
+
+            childSelector = derive( pool, frame.depSelector, context );
+            childManager = derive( pool, frame.depManager, context );
+            childTraverser = derive( pool, frame.depTraverser, context );
+
+            if ( args.stats != null )
             {
-                continue;
+                long now = System.nanoTime();
+                args.stats.addDerivationTime( now - start );
+                start = now;
             }
-            if ( !a.getExtension().equals( artifact.getExtension() ) )
+
+            childRepos =
+                pool.intern( remoteRepositoryManager.aggregateRepositories( session, frame.repositories,
+                                                                            descriptorResult.getRepositories(),
+                                                                            true ) );
+
+            if ( args.stats != null )
             {
-                continue;
+                args.stats.addRepositoryAggregationTime( System.nanoTime() - start );
             }
-            if ( !a.getClassifier().equals( artifact.getClassifier() ) )
+
+            key = pool.toKey( d.getArtifact(), childRepos, childSelector, childManager, childTraverser );
+        }
+        else
+        {
+            key = pool.toKey( d.getArtifact(), frame.repositories );
+        }
+
+        GraphNode child = pool.getNode( key );
+        if ( child == null )
+        {
+            child = new GraphNode();
+            child.setAliases( descriptorResult.getAliases() );
+            child.setRepositories( repos );
+            pool.putNode( key, child );
+        }
+        else
+        {
+            recurse = false;
+
+            if ( repos.size() < child.getRepositories().size() )
             {
-                continue;
+                if ( args.previousNodes.containsKey( child ) )
+                {
+                    // the node still belongs to the graph of the previous result which must not change
+                    child = CollectState.copy( child );
+                    pool.putNode( key, child );
+                }
+                child.setRepositories( repos );
             }
+        }
+
+        GraphNode node = edges.top().getTarget();
+
+        GraphEdge edge = new GraphEdge( node, child );
+        edge.setDependency( d );
+        edge.setScope( d.getScope() );
+        edge.setPremanagedScope( frame.premanagedScope );
+        edge.setPremanagedVersion( frame.premanagedVersion );
+        edge.setRelocations( frame.relocations );
+        edge.setVersionConstraint( rangeResult.getVersionConstraint() );
+        edge.setVersion( version );
+        edge.setRequestContext( result.getRequest().getRequestContext() );
+
+        node.getOutgoingEdges().add( edge );
 
-            return edge;
+        if ( pruned )
+        {
+            args.prunedEdges.add( edge );
+        }
+
+        if ( args.artifactResolver != null )
+        {
+            args.artifactResolver.resolve( d.getArtifact(), repos, edge.getRequestContext() );
+        }
+
+        if ( recurse )
+        {
+            processChildren( args, edges, edge, descriptorResult.getDependencies(), childRepos, childSelector,
+                             childManager, childTraverser );
         }
+    }
+
+    static class Args
+    {
+
+        final RepositorySystemSession session;
+
+        final CollectResult result;
+
+        final DataPool pool;
+
+        final DependencyPrefetcher prefetcher;
+
+        final List<Frame> frames = new ArrayList<Frame>( 64 );
+
+        SpeculativeArtifactResolver artifactResolver;
+
+        CollectStatistics stats;
+
+        boolean pruning;
+
+        List<GraphEdge> prunedEdges = new ArrayList<GraphEdge>( 0 );
+
+        CollectLimits limits;
 
-        return null;
+        Map<GraphNode, Object> previousNodes = Collections.emptyMap();
+
+        boolean aborted;
+
+        public Args( RepositorySystemSession session, CollectResult result, DataPool pool,
+                     DependencyPrefetcher prefetcher )
+        {
+            this.session = session;
+            this.result = result;
+            this.pool = pool;
+            this.prefetcher = prefetcher;
+        }
+
+        Args( Args args )
+        {
+            this( args.session, args.result, args.pool, args.prefetcher );
+            artifactResolver = args.artifactResolver;
+            stats = args.stats;
+            pruning = args.pruning;
+            prunedEdges = args.prunedEdges;
+            limits = args.limits;
+            previousNodes = args.previousNodes;
+        }
+
+    }
+
+    /**
+     * An entry of the work stack, i.e. the state of processing the dependencies of some node.
+     */
+    static final class Frame
+    {
+
+        final List<Dependency> dependencies;
+
+        final List<RemoteRepository> repositories;
+
+        final DependencySelector depSelector;
+
+        final DependencyManager depManager;
+
+        final DependencyTraverser depTraverser;
+
+        int index;
+
+        boolean disableVersionManagement;
+
+        List<Artifact> relocations;
+
+        Dependency dependency;
+
+        String premanagedVersion;
+
+        String premanagedScope;
+
+        boolean noDescriptor;
+
+        boolean traverse;
+
+        VersionRangeResult rangeResult;
+
+        Iterator<Version> versions;
+
+        public Frame( List<Dependency> dependencies, List<RemoteRepository> repositories,
+                      DependencySelector depSelector, DependencyManager depManager, DependencyTraverser depTraverser )
+        {
+            this.dependencies = dependencies;
+            this.repositories = repositories;
+            this.depSelector = depSelector;
+            this.depManager = depManager;
+            this.depTraverser = depTraverser;
+        }
+
+    }
+
+    static List<RemoteRepository> getRepositories( VersionRangeResult rangeResult, Version version,
+                                                   List<RemoteRepository> repositories )
+    {
+        ArtifactRepository repo = rangeResult.getRepository( version );
+        if ( repo instanceof RemoteRepository )
+        {
+            return Collections.singletonList( (RemoteRepository) repo );
+        }
+        else if ( repo == null )
+        {
+            return repositories;
+        }
+        else
+        {
+            return Collections.emptyList();
+        }
     }
 
-    private boolean isLackingDescriptor( Artifact artifact )
+    static boolean isLackingDescriptor( Artifact artifact )
     {
         return artifact.getProperty( ArtifactProperties.LOCAL_PATH, null ) != null;
     }
@@ -210,6 +210,8 @@ public class DefaultRemoteRepositoryManager
 
             if ( recessiveIsRaw )
             {
+                // the repositories may be shared, e.g. by cached artifact descriptors, so leave them unmodified
+                repository = new RemoteRepository( repository );
                 repository.setAuthentication( authSelector.getAuthentication( repository ) );
                 repository.setProxy( proxySelector.getProxy( repository ) );
             }
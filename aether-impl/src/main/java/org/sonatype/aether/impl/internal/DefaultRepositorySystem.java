@@ -34,6 +34,7 @@ import org.sonatype.aether.graph.DependencyVisitor;
 import org.sonatype.aether.impl.ArtifactDescriptorReader;
 import org.sonatype.aether.impl.ArtifactResolver;
 import org.sonatype.aether.impl.DependencyCollector;
+import org.sonatype.aether.impl.IncrementalDependencyCollector;
 import org.sonatype.aether.impl.Deployer;
 import org.sonatype.aether.impl.Installer;
 import org.sonatype.aether.impl.MetadataResolver;
@@ -272,6 +273,25 @@ public class DefaultRepositorySystem
         return dependencyCollector.collectDependencies( session, request );
     }
 
+    /**
+     * Collects the dependencies like {@link #collectDependencies(RepositorySystemSession, CollectRequest)} but reuses
+     * the unchanged parts of the previous result if the configured dependency collector supports this.
+     * 
+     * @see IncrementalDependencyCollector
+     */
+    public CollectResult collectDependencies( RepositorySystemSession session, CollectRequest request,
+                                              CollectResult previous )
+        throws DependencyCollectionException
+    {
+        validateSession( session );
+        if ( dependencyCollector instanceof IncrementalDependencyCollector )
+        {
+            return ( (IncrementalDependencyCollector) dependencyCollector ).collectDependencies( session, request,
+                                                                                                previous );
+        }
+        return dependencyCollector.collectDependencies( session, request );
+    }
+
     public List<ArtifactResult> resolveDependencies( RepositorySystemSession session, DependencyNode node,
                                                      DependencyFilter filter )
         throws ArtifactResolutionException
@@ -316,7 +336,28 @@ public class DefaultRepositorySystem
         throws DependencyCollectionException, ArtifactResolutionException
     {
         validateSession( session );
-        CollectResult result = collectDependencies( session, request );
+
+        CollectResult result;
+
+        SpeculativeArtifactResolver speculativeResolver =
+            SpeculativeArtifactResolver.newInstance( session, artifactResolver );
+        if ( speculativeResolver != null && dependencyCollector instanceof DefaultDependencyCollector )
+        {
+            try
+            {
+                DefaultDependencyCollector collector = (DefaultDependencyCollector) dependencyCollector;
+                result = collector.collectAndResolveDependencies( session, request, speculativeResolver );
+            }
+            finally
+            {
+                speculativeResolver.finish();
+            }
+        }
+        else
+        {
+            result = collectDependencies( session, request );
+        }
+
         return resolveDependencies( session, result.getRoot(), filter );
     }
 
@@ -0,0 +1,340 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.collection.DependencyManagement;
+import org.sonatype.aether.collection.DependencyManager;
+import org.sonatype.aether.collection.DependencySelector;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.impl.ArtifactDescriptorReader;
+import org.sonatype.aether.impl.VersionRangeResolver;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.resolution.ArtifactDescriptorException;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.resolution.VersionRangeRequest;
+import org.sonatype.aether.resolution.VersionRangeResolutionException;
+import org.sonatype.aether.resolution.VersionRangeResult;
+import org.sonatype.aether.version.Version;
+
+/**
+ * Resolves the version ranges and artifact descriptors of sibling dependencies concurrently on a thread pool. The
+ * dependency collector still assembles the graph in its usual depth-first order on the calling thread and merely
+ * picks up the results computed ahead of time, so the resulting graph is identical to that of a serial collection.
+ */
+class DependencyPrefetcher
+{
+
+    private final RepositorySystemSession session;
+
+    private final VersionRangeResolver versionRangeResolver;
+
+    private final ArtifactDescriptorReader descriptorReader;
+
+    private final DataPool pool;
+
+    private final String requestContext;
+
+    private final ExecutorService executor;
+
+    private final ConcurrentMap<Object, Future<VersionRangeResult>> constraints =
+        new ConcurrentHashMap<Object, Future<VersionRangeResult>>( 256 );
+
+    private final ConcurrentMap<Object, Future<ArtifactDescriptorResult>> descriptors =
+        new ConcurrentHashMap<Object, Future<ArtifactDescriptorResult>>( 256 );
+
+    public DependencyPrefetcher( RepositorySystemSession session, VersionRangeResolver versionRangeResolver,
+                                 ArtifactDescriptorReader descriptorReader, DataPool pool, String requestContext,
+                                 int threads )
+    {
+        this.session = session;
+        this.versionRangeResolver = versionRangeResolver;
+        this.descriptorReader = descriptorReader;
+        this.pool = pool;
+        this.requestContext = requestContext;
+        this.executor =
+            new ThreadPoolExecutor( threads, threads, 3, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                                    new WorkerThreadFactory( "aether-collector" ) );
+    }
+
+    /**
+     * Schedules the resolution of the specified sibling dependencies. The selector and manager must be the ones the
+     * collector will later apply to the dependencies, otherwise the prefetched data is simply not used.
+     */
+    public void prefetch( List<Dependency> dependencies, final List<RemoteRepository> repositories,
+                          DependencySelector depSelector, DependencyManager depManager )
+    {
+        for ( Dependency dependency : dependencies )
+        {
+            if ( !depSelector.selectDependency( dependency ) )
+            {
+                continue;
+            }
+
+            Artifact artifact = dependency.getArtifact();
+
+            DependencyManagement depMngt = depManager.manageDependency( dependency );
+            if ( depMngt != null )
+            {
+                if ( depMngt.getVersion() != null )
+                {
+                    artifact = artifact.setVersion( depMngt.getVersion() );
+                }
+                if ( depMngt.getProperties() != null )
+                {
+                    artifact = artifact.setProperties( depMngt.getProperties() );
+                }
+            }
+
+            if ( DefaultDependencyCollector.isLackingDescriptor( artifact ) )
+            {
+                continue;
+            }
+
+            final VersionRangeRequest rangeRequest = new VersionRangeRequest();
+            rangeRequest.setArtifact( artifact );
+            rangeRequest.setRepositories( repositories );
+            rangeRequest.setRequestContext( requestContext );
+
+            final Object key = pool.toKey( rangeRequest );
+
+            submit( constraints, key, new Callable<VersionRangeResult>()
+            {
+                public VersionRangeResult call()
+                    throws Exception
+                {
+                    VersionRangeResult rangeResult = pool.findConstraint( key, rangeRequest );
+                    if ( rangeResult == null )
+                    {
+                        rangeResult = versionRangeResolver.resolveVersionRange( session, rangeRequest );
+                    }
+                    prefetch( rangeResult, repositories );
+                    return rangeResult;
+                }
+            } );
+        }
+    }
+
+    private void prefetch( VersionRangeResult rangeResult, List<RemoteRepository> repositories )
+    {
+        Artifact artifact = rangeResult.getRequest().getArtifact();
+
+        for ( Version version : rangeResult.getVersions() )
+        {
+            final ArtifactDescriptorRequest descriptorRequest = new ArtifactDescriptorRequest();
+            descriptorRequest.setArtifact( artifact.setVersion( version.toString() ) );
+            descriptorRequest.setRepositories( DefaultDependencyCollector.getRepositories( rangeResult, version,
+                                                                                            repositories ) );
+            descriptorRequest.setRequestContext( requestContext );
+
+            final Object key = pool.toKey( descriptorRequest );
+
+            submit( descriptors, key, new Callable<ArtifactDescriptorResult>()
+            {
+                public ArtifactDescriptorResult call()
+                    throws Exception
+                {
+                    ArtifactDescriptorResult descriptorResult = pool.findDescriptor( key, descriptorRequest );
+                    if ( descriptorResult == null )
+                    {
+                        descriptorResult = descriptorReader.readArtifactDescriptor( session, descriptorRequest );
+                    }
+                    return descriptorResult;
+                }
+            } );
+        }
+    }
+
+    private <T> void submit( ConcurrentMap<Object, Future<T>> futures, Object key, Callable<T> callable )
+    {
+        if ( futures.containsKey( key ) )
+        {
+            return;
+        }
+
+        FutureTask<T> future = new FutureTask<T>( callable );
+        if ( futures.putIfAbsent( key, future ) == null )
+        {
+            try
+            {
+                executor.execute( future );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                futures.remove( key, future );
+            }
+        }
+    }
+
+    /**
+     * Gets the version range result for the specified request, either from a previously scheduled resolution or by
+     * resolving the range directly. If the calling thread is interrupted while waiting for a scheduled resolution, the
+     * interruption is reported as a resolution failure rather than resolving the range anyway.
+     */
+    public VersionRangeResult resolveVersionRange( Object key, VersionRangeRequest request )
+        throws VersionRangeResolutionException
+    {
+        Future<VersionRangeResult> future = constraints.get( key );
+        if ( future != null )
+        {
+            try
+            {
+                return get( future );
+            }
+            catch ( VersionRangeResolutionException e )
+            {
+                throw e;
+            }
+            catch ( RuntimeException e )
+            {
+                throw e;
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                VersionRangeResult result = new VersionRangeResult( request );
+                result.addException( e );
+                throw new VersionRangeResolutionException( result );
+            }
+            catch ( Exception e )
+            {
+                throw new IllegalStateException( e );
+            }
+        }
+
+        return versionRangeResolver.resolveVersionRange( session, request );
+    }
+
+    /**
+     * Gets the artifact descriptor for the specified request, either from a previously scheduled read or by reading
+     * the descriptor directly. If the calling thread is interrupted while waiting for a scheduled read, the
+     * interruption is reported as a read failure rather than reading the descriptor anyway.
+     */
+    public ArtifactDescriptorResult readArtifactDescriptor( Object key, ArtifactDescriptorRequest request )
+        throws ArtifactDescriptorException
+    {
+        Future<ArtifactDescriptorResult> future = descriptors.get( key );
+        if ( future != null )
+        {
+            try
+            {
+                return get( future );
+            }
+            catch ( ArtifactDescriptorException e )
+            {
+                throw e;
+            }
+            catch ( RuntimeException e )
+            {
+                throw e;
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+                result.addException( e );
+                throw new ArtifactDescriptorException( result );
+            }
+            catch ( Exception e )
+            {
+                throw new IllegalStateException( e );
+            }
+        }
+
+        return descriptorReader.readArtifactDescriptor( session, request );
+    }
+
+    private static <T> T get( Future<T> future )
+        throws Exception
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof Exception )
+            {
+                throw (Exception) cause;
+            }
+            else if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops all prefetching. Scheduled resolutions that have not yet completed are cancelled, such that a finished or
+     * aborted collection does not keep on resolving data nobody is going to use.
+     */
+    public void shutdown()
+    {
+        executor.shutdownNow();
+        cancel( constraints );
+        cancel( descriptors );
+    }
+
+    private static void cancel( ConcurrentMap<Object, ? extends Future<?>> futures )
+    {
+        for ( Future<?> future : futures.values() )
+        {
+            future.cancel( true );
+        }
+    }
+
+    static class WorkerThreadFactory
+        implements ThreadFactory
+    {
+
+        private static final AtomicInteger POOL_INDEX = new AtomicInteger();
+
+        private final AtomicInteger threadIndex = new AtomicInteger();
+
+        private final String namePrefix;
+
+        public WorkerThreadFactory( String name )
+        {
+            namePrefix = name + '-' + POOL_INDEX.getAndIncrement() + "-thread-";
+        }
+
+        public Thread newThread( Runnable r )
+        {
+            Thread thread = new Thread( r, namePrefix + threadIndex.getAndIncrement() );
+            thread.setDaemon( true );
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,682 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.Exclusion;
+import org.sonatype.aether.repository.LocalArtifactRequest;
+import org.sonatype.aether.repository.LocalArtifactResult;
+import org.sonatype.aether.repository.LocalRepository;
+import org.sonatype.aether.repository.LocalRepositoryManager;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.repository.RepositoryPolicy;
+import org.sonatype.aether.repository.WorkspaceReader;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+/**
+ * A persistent store for artifact descriptors that lives in the local repository and survives the session. Each entry
+ * is saved in a compact binary form next to the file the descriptor was read from (e.g. the POM) and records the
+ * timestamp and size of that file, a fingerprint of the system and user properties of the session, the repository the
+ * descriptor originates from (if known) and a checksum of the entry. An entry is only used if the descriptor file is
+ * still available from one of the requested repositories and unchanged since the entry was written and if the session
+ * properties, which can affect interpolation and profile activation, are the same. Corrupt entries are deleted.
+ * <p>
+ * The effective descriptor also depends on parent descriptors and imported dependency management which this store
+ * cannot see. Hence only descriptors of released artifacts downloaded from a remote repository are stored, relying on
+ * released descriptors to only refer to other released and thus immutable descriptors. A descriptor that was read from
+ * the local repository is considered downloaded if the local repository manager tracks it as cached from one of the
+ * requested repositories, i.e. it is available for these repositories but not without any remote repository. Local
+ * repository managers that do not track the origin of artifacts consider any file available, so with these only
+ * descriptors downloaded during the session are stored. Snapshots, artifacts installed into the local repository and
+ * artifacts provided by the workspace are never looked up from or saved to this store.
+ */
+final class DescriptorStore
+{
+
+    /**
+     * A flag whether the persistent descriptor store is enabled, defaults to {@code false}.
+     */
+    static final String CONFIG_PROP_ENABLED = "aether.descriptorStore.enabled";
+
+    /**
+     * The file extension of the artifact that backs the descriptor of an artifact, defaults to {@code pom}.
+     */
+    static final String CONFIG_PROP_EXTENSION = "aether.descriptorStore.extension";
+
+    private static final int MAGIC = 0x41455444;
+
+    private static final int FORMAT = 3;
+
+    /**
+     * The size of the entry header, i.e. the magic number, the format version and the checksum of the remaining bytes.
+     */
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * The maximum size of an entry, larger files are considered corrupt.
+     */
+    private static final int MAX_ENTRY_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * The maximum number of elements in a list or map of an entry, larger counts are considered corrupt.
+     */
+    private static final int MAX_COUNT = 64 * 1024;
+
+    private final RepositorySystemSession session;
+
+    private final String extension;
+
+    private final byte[] fingerprint;
+
+    public static DescriptorStore newInstance( RepositorySystemSession session )
+    {
+        if ( !ConfigurationProperties.get( session, CONFIG_PROP_ENABLED, false )
+            || session.getLocalRepositoryManager() == null )
+        {
+            return null;
+        }
+        return new DescriptorStore( session, ConfigurationProperties.get( session, CONFIG_PROP_EXTENSION, "pom" ) );
+    }
+
+    private DescriptorStore( RepositorySystemSession session, String extension )
+    {
+        this.session = session;
+        this.extension = extension;
+        this.fingerprint = getFingerprint( session );
+    }
+
+    /**
+     * Calculates a digest of the system and user properties of the session.
+     */
+    private static byte[] getFingerprint( RepositorySystemSession session )
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance( "SHA-1" );
+            update( digest, session.getSystemProperties() );
+            update( digest, session.getUserProperties() );
+            return digest.digest();
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static void update( MessageDigest digest, Map<String, String> properties )
+    {
+        Map<String, String> sorted = new TreeMap<String, String>( properties );
+        try
+        {
+            digest.update( String.valueOf( sorted.size() ).getBytes( "UTF-8" ) );
+            for ( Map.Entry<String, String> entry : sorted.entrySet() )
+            {
+                digest.update( ( '\n' + entry.getKey() + '=' + entry.getValue() ).getBytes( "UTF-8" ) );
+            }
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * Gets the stored descriptor for the specified request.
+     * 
+     * @return The descriptor or {@code null} if no valid entry exists.
+     */
+    public ArtifactDescriptorResult get( ArtifactDescriptorRequest request )
+    {
+        if ( request.getArtifact().isSnapshot() )
+        {
+            return null;
+        }
+
+        Artifact descriptor = getDescriptorArtifact( request.getArtifact() );
+        File descriptorFile = getDescriptorFile( descriptor, request.getRepositories(), request.getRequestContext() );
+        if ( descriptorFile == null )
+        {
+            return null;
+        }
+
+        File file = getStoreFile( request.getArtifact(), descriptorFile );
+
+        try
+        {
+            long length = file.length();
+            if ( length <= HEADER_SIZE || length > MAX_ENTRY_SIZE )
+            {
+                if ( length > 0 || file.isFile() )
+                {
+                    file.delete();
+                }
+                return null;
+            }
+
+            byte[] bytes = new byte[(int) length];
+            InputStream is = new FileInputStream( file );
+            try
+            {
+                new DataInputStream( is ).readFully( bytes );
+            }
+            finally
+            {
+                is.close();
+            }
+
+            DataInputStream in = new DataInputStream( new ByteArrayInputStream( bytes ) );
+            if ( in.readInt() != MAGIC || in.readInt() != FORMAT || in.readLong() != getChecksum( bytes ) )
+            {
+                file.delete();
+                return null;
+            }
+            if ( in.readLong() != descriptorFile.lastModified() || in.readLong() != descriptorFile.length() )
+            {
+                return null;
+            }
+            byte[] entryFingerprint = new byte[fingerprint.length];
+            in.readFully( entryFingerprint );
+            if ( !Arrays.equals( fingerprint, entryFingerprint ) )
+            {
+                return null;
+            }
+
+            ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+            if ( in.readBoolean() )
+            {
+                RemoteRepository repository = readRemoteRepository( in );
+                if ( !isAcceptable( repository, request.getRepositories() ) )
+                {
+                    return null;
+                }
+                result.setRepository( repository );
+            }
+            else
+            {
+                if ( !isDownloaded( descriptor, request.getRequestContext() ) )
+                {
+                    return null;
+                }
+                result.setRepository( session.getLocalRepositoryManager().getRepository() );
+            }
+            result.setArtifact( readArtifact( in ) );
+            result.setRelocations( readArtifacts( in ) );
+            result.setAliases( readArtifacts( in ) );
+            result.setDependencies( readDependencies( in ) );
+            result.setManagedDependencies( readDependencies( in ) );
+            result.setRepositories( readRepositories( in ) );
+            result.setProperties( new LinkedHashMap<String, Object>( readMap( in ) ) );
+            return result;
+        }
+        catch ( IOException e )
+        {
+            // missing or corrupt entry, just ignore it
+            file.delete();
+            return null;
+        }
+        catch ( RuntimeException e )
+        {
+            // corrupt entry, just ignore it
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Calculates the checksum of the bytes of an entry that follow its header.
+     */
+    private static long getChecksum( byte[] bytes )
+    {
+        CRC32 crc = new CRC32();
+        crc.update( bytes, HEADER_SIZE, bytes.length - HEADER_SIZE );
+        return crc.getValue();
+    }
+
+    /**
+     * Saves the specified descriptor if it was read from a file in the local repository that was downloaded from one of
+     * the requested repositories, either during this session or earlier.
+     */
+    public void put( ArtifactDescriptorResult result )
+    {
+        ArtifactDescriptorRequest request = result.getRequest();
+
+        if ( !result.getExceptions().isEmpty() || !isStorable( result ) )
+        {
+            return;
+        }
+
+        Artifact descriptor = getDescriptorArtifact( request.getArtifact() );
+        File descriptorFile = getDescriptorFile( descriptor, request.getRepositories(), request.getRequestContext() );
+        if ( descriptorFile == null )
+        {
+            return;
+        }
+
+        RemoteRepository origin = null;
+        if ( result.getRepository() instanceof RemoteRepository )
+        {
+            origin = (RemoteRepository) result.getRepository();
+        }
+        else if ( !( result.getRepository() instanceof LocalRepository )
+            || !isDownloaded( descriptor, request.getRequestContext() ) )
+        {
+            return;
+        }
+
+        File file = getStoreFile( request.getArtifact(), descriptorFile );
+        File tmp = new File( file.getPath() + ".tmp" + Long.toHexString( System.nanoTime() ) );
+
+        try
+        {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream( 4 * 1024 );
+            DataOutputStream out = new DataOutputStream( buffer );
+            out.writeInt( MAGIC );
+            out.writeInt( FORMAT );
+            out.writeLong( 0 ); // checksum, filled in below
+            out.writeLong( descriptorFile.lastModified() );
+            out.writeLong( descriptorFile.length() );
+            out.write( fingerprint );
+            out.writeBoolean( origin != null );
+            if ( origin != null )
+            {
+                writeRemoteRepository( out, origin );
+            }
+            writeArtifact( out, result.getArtifact() );
+            writeArtifacts( out, result.getRelocations() );
+            writeArtifacts( out, result.getAliases() );
+            writeDependencies( out, result.getDependencies() );
+            writeDependencies( out, result.getManagedDependencies() );
+            writeRepositories( out, result.getRepositories() );
+            writeMap( out, toStrings( result.getProperties() ) );
+            out.flush();
+
+            byte[] bytes = buffer.toByteArray();
+            long checksum = getChecksum( bytes );
+            for ( int i = HEADER_SIZE - 1; i >= HEADER_SIZE - 8; i-- )
+            {
+                bytes[i] = (byte) checksum;
+                checksum >>>= 8;
+            }
+
+            OutputStream os = new FileOutputStream( tmp );
+            try
+            {
+                os.write( bytes );
+            }
+            finally
+            {
+                os.close();
+            }
+
+            if ( !tmp.renameTo( file ) )
+            {
+                file.delete();
+                tmp.renameTo( file );
+            }
+        }
+        catch ( IOException e )
+        {
+            // the store is merely an optimization, just skip the entry
+        }
+        finally
+        {
+            tmp.delete();
+        }
+    }
+
+    private Artifact getDescriptorArtifact( Artifact artifact )
+    {
+        return new DefaultArtifact( artifact.getGroupId(), artifact.getArtifactId(), "", extension,
+                                    artifact.getVersion() );
+    }
+
+    private File getDescriptorFile( Artifact descriptor, List<RemoteRepository> repositories, String context )
+    {
+        WorkspaceReader workspace = session.getWorkspaceReader();
+        if ( workspace != null && workspace.findArtifact( descriptor ) != null )
+        {
+            return null;
+        }
+
+        LocalRepositoryManager lrm = session.getLocalRepositoryManager();
+        LocalArtifactResult local = lrm.find( session, new LocalArtifactRequest( descriptor, repositories, context ) );
+        if ( !local.isAvailable() || local.getFile() == null || !local.getFile().isFile() )
+        {
+            return null;
+        }
+        return local.getFile();
+    }
+
+    /**
+     * Determines whether the local repository manager tracks the specified descriptor as cached from a remote
+     * repository. Such a descriptor is not available without any remote repository, unlike an installed one.
+     */
+    private boolean isDownloaded( Artifact descriptor, String context )
+    {
+        LocalRepositoryManager lrm = session.getLocalRepositoryManager();
+        List<RemoteRepository> none = Collections.emptyList();
+        return !lrm.find( session, new LocalArtifactRequest( descriptor, none, context ) ).isAvailable();
+    }
+
+    private static File getStoreFile( Artifact artifact, File descriptorFile )
+    {
+        StringBuilder buffer = new StringBuilder( 128 );
+        buffer.append( "_descriptor-" ).append( artifact.getArtifactId() ).append( '-' );
+        buffer.append( artifact.getVersion() );
+        if ( artifact.getClassifier().length() > 0 )
+        {
+            buffer.append( '-' ).append( artifact.getClassifier() );
+        }
+        buffer.append( '.' ).append( artifact.getExtension() ).append( ".bin" );
+        return new File( descriptorFile.getParentFile(), buffer.toString() );
+    }
+
+    private static boolean isAcceptable( RemoteRepository remote, List<RemoteRepository> repositories )
+    {
+        for ( RemoteRepository repo : repositories )
+        {
+            if ( isSame( remote, repo ) )
+            {
+                return true;
+            }
+            for ( RemoteRepository mirrored : repo.getMirroredRepositories() )
+            {
+                if ( isSame( remote, mirrored ) )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSame( RemoteRepository repo1, RemoteRepository repo2 )
+    {
+        return repo1.getId().equals( repo2.getId() ) && repo1.getUrl().equals( repo2.getUrl() );
+    }
+
+    private static boolean isStorable( ArtifactDescriptorResult result )
+    {
+        if ( result.getArtifact() == null || result.getArtifact().isSnapshot()
+            || result.getRequest().getArtifact().isSnapshot() )
+        {
+            return false;
+        }
+        if ( toStrings( result.getProperties() ) == null )
+        {
+            return false;
+        }
+        for ( RemoteRepository repo : result.getRepositories() )
+        {
+            if ( repo.getProxy() != null || repo.getAuthentication() != null )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, String> toStrings( Map<String, Object> properties )
+    {
+        Map<String, String> strings = new LinkedHashMap<String, String>();
+        for ( Map.Entry<String, Object> entry : properties.entrySet() )
+        {
+            if ( !( entry.getValue() instanceof String ) )
+            {
+                return null;
+            }
+            strings.put( entry.getKey(), (String) entry.getValue() );
+        }
+        return strings;
+    }
+
+    private static void writeRepositories( DataOutputStream out, List<RemoteRepository> repositories )
+        throws IOException
+    {
+        out.writeInt( repositories.size() );
+        for ( RemoteRepository repository : repositories )
+        {
+            writeRemoteRepository( out, repository );
+        }
+    }
+
+    private static List<RemoteRepository> readRepositories( DataInputStream in )
+        throws IOException
+    {
+        int size = readCount( in );
+        List<RemoteRepository> repositories = new ArrayList<RemoteRepository>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            repositories.add( readRemoteRepository( in ) );
+        }
+        return repositories;
+    }
+
+    private static void writeRemoteRepository( DataOutputStream out, RemoteRepository repository )
+        throws IOException
+    {
+        writeString( out, repository.getId() );
+        writeString( out, repository.getContentType() );
+        writeString( out, repository.getUrl() );
+        writePolicy( out, repository.getPolicy( false ) );
+        writePolicy( out, repository.getPolicy( true ) );
+        out.writeBoolean( repository.isRepositoryManager() );
+        writeRepositories( out, repository.getMirroredRepositories() );
+    }
+
+    private static RemoteRepository readRemoteRepository( DataInputStream in )
+        throws IOException
+    {
+        RemoteRepository repository = new RemoteRepository( readString( in ), readString( in ), readString( in ) );
+        repository.setPolicy( false, readPolicy( in ) );
+        repository.setPolicy( true, readPolicy( in ) );
+        repository.setRepositoryManager( in.readBoolean() );
+        repository.setMirroredRepositories( readRepositories( in ) );
+        return repository;
+    }
+
+    private static void writePolicy( DataOutputStream out, RepositoryPolicy policy )
+        throws IOException
+    {
+        out.writeBoolean( policy.isEnabled() );
+        writeString( out, policy.getUpdatePolicy() );
+        writeString( out, policy.getChecksumPolicy() );
+    }
+
+    private static RepositoryPolicy readPolicy( DataInputStream in )
+        throws IOException
+    {
+        return new RepositoryPolicy( in.readBoolean(), readString( in ), readString( in ) );
+    }
+
+    private static void writeDependencies( DataOutputStream out, List<Dependency> dependencies )
+        throws IOException
+    {
+        out.writeInt( dependencies.size() );
+        for ( Dependency dependency : dependencies )
+        {
+            writeArtifact( out, dependency.getArtifact() );
+            writeString( out, dependency.getScope() );
+            out.writeBoolean( dependency.isOptional() );
+            Collection<Exclusion> exclusions = dependency.getExclusions();
+            out.writeInt( exclusions.size() );
+            for ( Exclusion exclusion : exclusions )
+            {
+                writeString( out, exclusion.getGroupId() );
+                writeString( out, exclusion.getArtifactId() );
+                writeString( out, exclusion.getClassifier() );
+                writeString( out, exclusion.getExtension() );
+            }
+        }
+    }
+
+    private static List<Dependency> readDependencies( DataInputStream in )
+        throws IOException
+    {
+        int size = readCount( in );
+        List<Dependency> dependencies = new ArrayList<Dependency>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            Artifact artifact = readArtifact( in );
+            String scope = readString( in );
+            boolean optional = in.readBoolean();
+            int count = readCount( in );
+            List<Exclusion> exclusions = new ArrayList<Exclusion>( count );
+            for ( int j = 0; j < count; j++ )
+            {
+                String groupId = readString( in );
+                String artifactId = readString( in );
+                exclusions.add( new Exclusion( groupId, artifactId, readString( in ), readString( in ) ) );
+            }
+            dependencies.add( new Dependency( artifact, scope, optional, exclusions ) );
+        }
+        return dependencies;
+    }
+
+    private static void writeArtifacts( DataOutputStream out, Collection<Artifact> artifacts )
+        throws IOException
+    {
+        out.writeInt( artifacts.size() );
+        for ( Artifact artifact : artifacts )
+        {
+            writeArtifact( out, artifact );
+        }
+    }
+
+    private static List<Artifact> readArtifacts( DataInputStream in )
+        throws IOException
+    {
+        int size = readCount( in );
+        List<Artifact> artifacts = new ArrayList<Artifact>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            artifacts.add( readArtifact( in ) );
+        }
+        return artifacts;
+    }
+
+    private static void writeArtifact( DataOutputStream out, Artifact artifact )
+        throws IOException
+    {
+        writeString( out, artifact.getGroupId() );
+        writeString( out, artifact.getArtifactId() );
+        writeString( out, artifact.getClassifier() );
+        writeString( out, artifact.getExtension() );
+        writeString( out, artifact.getVersion() );
+        writeMap( out, artifact.getProperties() );
+        writeString( out, ( artifact.getFile() != null ) ? artifact.getFile().getPath() : null );
+    }
+
+    private static Artifact readArtifact( DataInputStream in )
+        throws IOException
+    {
+        String groupId = readString( in );
+        String artifactId = readString( in );
+        String classifier = readString( in );
+        String extension = readString( in );
+        String version = readString( in );
+        Map<String, String> properties = readMap( in );
+        String file = readString( in );
+        return new DefaultArtifact( groupId, artifactId, classifier, extension, version, properties,
+                                    ( file != null ) ? new File( file ) : null );
+    }
+
+    private static void writeMap( DataOutputStream out, Map<String, String> map )
+        throws IOException
+    {
+        out.writeInt( map.size() );
+        for ( Map.Entry<String, String> entry : map.entrySet() )
+        {
+            writeString( out, entry.getKey() );
+            writeString( out, entry.getValue() );
+        }
+    }
+
+    private static Map<String, String> readMap( DataInputStream in )
+        throws IOException
+    {
+        int size = readCount( in );
+        if ( size <= 0 )
+        {
+            return Collections.emptyMap();
+        }
+        Map<String, String> map = new HashMap<String, String>( size * 2 );
+        for ( int i = 0; i < size; i++ )
+        {
+            map.put( readString( in ), readString( in ) );
+        }
+        return map;
+    }
+
+    /**
+     * Reads the number of elements of a list or map. As each element occupies at least one byte, a count exceeding the
+     * remaining bytes of the entry indicates a corrupt entry.
+     */
+    private static int readCount( DataInputStream in )
+        throws IOException
+    {
+        int count = in.readInt();
+        if ( count < 0 || count > MAX_COUNT || count > in.available() )
+        {
+            throw new IOException( "Invalid element count " + count );
+        }
+        return count;
+    }
+
+    private static void writeString( DataOutputStream out, String string )
+        throws IOException
+    {
+        out.writeBoolean( string != null );
+        if ( string != null )
+        {
+            out.writeUTF( string );
+        }
+    }
+
+    private static String readString( DataInputStream in )
+        throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+}
@@ -0,0 +1,277 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.graph.Dependency;
+
+/**
+ * The path of graph edges from the root to the edge currently being processed. Besides the edges themselves, the stack
+ * keeps a multiset of the coordinates of their artifacts such that cycles can be detected in constant time regardless
+ * of the depth of the graph.
+ */
+final class EdgeStack
+{
+
+    private GraphEdge[] edges;
+
+    private Path[] paths;
+
+    /**
+     * The number of leading entries in {@link #paths} that denote the current edges on the stack.
+     */
+    private int validPaths;
+
+    private int size;
+
+    private final Map<Coordinates, Integer> coordinates;
+
+    public EdgeStack()
+    {
+        edges = new GraphEdge[64];
+        paths = new Path[64];
+        coordinates = new HashMap<Coordinates, Integer>( 128 );
+    }
+
+    public void push( GraphEdge edge )
+    {
+        if ( size >= edges.length )
+        {
+            GraphEdge[] tmp = new GraphEdge[size * 2];
+            System.arraycopy( edges, 0, tmp, 0, size );
+            edges = tmp;
+            Path[] tmpPaths = new Path[size * 2];
+            System.arraycopy( paths, 0, tmpPaths, 0, validPaths );
+            paths = tmpPaths;
+        }
+        edges[size++] = edge;
+
+        Coordinates key = toKey( edge );
+        if ( key != null )
+        {
+            Integer count = coordinates.get( key );
+            coordinates.put( key, Integer.valueOf( ( count != null ) ? count.intValue() + 1 : 1 ) );
+        }
+    }
+
+    public GraphEdge pop()
+    {
+        if ( size <= 0 )
+        {
+            throw new IllegalStateException( "stack empty" );
+        }
+        GraphEdge edge = edges[--size];
+        edges[size] = null;
+        if ( validPaths > size )
+        {
+            paths[--validPaths] = null;
+        }
+
+        Coordinates key = toKey( edge );
+        if ( key != null )
+        {
+            Integer count = coordinates.get( key );
+            if ( count == null || count.intValue() <= 1 )
+            {
+                coordinates.remove( key );
+            }
+            else
+            {
+                coordinates.put( key, Integer.valueOf( count.intValue() - 1 ) );
+            }
+        }
+
+        return edge;
+    }
+
+    public GraphEdge top()
+    {
+        if ( size <= 0 )
+        {
+            throw new IllegalStateException( "stack empty" );
+        }
+        return edges[size - 1];
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Determines whether any edge on the stack refers to an artifact with the same coordinates as the specified one,
+     * i.e. whether adding the artifact would introduce a cycle.
+     */
+    public boolean contains( Artifact artifact )
+    {
+        return coordinates.containsKey( new Coordinates( artifact ) );
+    }
+
+    /**
+     * Gets an immutable snapshot of the edges currently on the stack. Snapshots of stacks that share a common bottom
+     * share the corresponding path elements, so taking a snapshot costs constant time and memory when done repeatedly
+     * for the same stack.
+     * 
+     * @return The snapshot or {@code null} if the stack is empty.
+     */
+    public Path getPath()
+    {
+        for ( ; validPaths < size; validPaths++ )
+        {
+            paths[validPaths] = new Path( ( validPaths > 0 ) ? paths[validPaths - 1] : null, edges[validPaths] );
+        }
+        return ( size > 0 ) ? paths[size - 1] : null;
+    }
+
+    /**
+     * Changes the contents of the stack to the edges of the specified snapshot. Only the edges below the nearest common
+     * ancestor of the current and the new contents are popped and pushed, so moving between the paths of nearby nodes
+     * is cheap.
+     * 
+     * @param path The snapshot to restore, may be {@code null} to clear the stack.
+     */
+    public void setPath( Path path )
+    {
+        Path common = path;
+        while ( common != null && ( common.size > validPaths || paths[common.size - 1] != common ) )
+        {
+            common = common.parent;
+        }
+
+        int base = ( common != null ) ? common.size : 0;
+        while ( size > base )
+        {
+            pop();
+        }
+
+        if ( path != null && path.size > base )
+        {
+            Path[] missing = new Path[path.size - base];
+            for ( Path p = path; p != common; p = p.parent )
+            {
+                missing[p.size - base - 1] = p;
+            }
+            for ( Path p : missing )
+            {
+                push( p.edge );
+                paths[validPaths++] = p;
+            }
+        }
+    }
+
+    private static Coordinates toKey( GraphEdge edge )
+    {
+        Dependency dependency = edge.getDependency();
+        return ( dependency != null ) ? new Coordinates( dependency.getArtifact() ) : null;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder buffer = new StringBuilder( 256 );
+        buffer.append( '[' );
+        for ( int i = size - 1; i >= 0; i-- )
+        {
+            buffer.append( edges[i] );
+            if ( i > 0 )
+            {
+                buffer.append( ", " );
+            }
+        }
+        buffer.append( ']' );
+        return buffer.toString();
+    }
+
+    /**
+     * An immutable path of edges from the root, linked to the path of the parent edge.
+     */
+    static final class Path
+    {
+
+        final Path parent;
+
+        final GraphEdge edge;
+
+        final int size;
+
+        Path( Path parent, GraphEdge edge )
+        {
+            this.parent = parent;
+            this.edge = edge;
+            this.size = ( parent != null ) ? parent.size + 1 : 1;
+        }
+
+    }
+
+    static final class Coordinates
+    {
+
+        private final String groupId;
+
+        private final String artifactId;
+
+        private final String baseVersion;
+
+        private final String extension;
+
+        private final String classifier;
+
+        private final int hashCode;
+
+        public Coordinates( Artifact artifact )
+        {
+            groupId = artifact.getGroupId();
+            artifactId = artifact.getArtifactId();
+            baseVersion = artifact.getBaseVersion();
+            extension = artifact.getExtension();
+            classifier = artifact.getClassifier();
+
+            int hash = 17;
+            hash = hash * 31 + artifactId.hashCode();
+            hash = hash * 31 + groupId.hashCode();
+            hash = hash * 31 + baseVersion.hashCode();
+            hash = hash * 31 + extension.hashCode();
+            hash = hash * 31 + classifier.hashCode();
+            hashCode = hash;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( obj == this )
+            {
+                return true;
+            }
+            else if ( !( obj instanceof Coordinates ) )
+            {
+                return false;
+            }
+            Coordinates that = (Coordinates) obj;
+            return hashCode == that.hashCode && artifactId.equals( that.artifactId )
+                && groupId.equals( that.groupId ) && baseVersion.equals( that.baseVersion )
+                && extension.equals( that.extension ) && classifier.equals( that.classifier );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+    }
+
+}
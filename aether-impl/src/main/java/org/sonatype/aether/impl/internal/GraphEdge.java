@@ -88,7 +88,7 @@ class GraphEdge
 
     public List<RemoteRepository> getRepositories()
     {
-        return getTarget().getRepositories();
+        return getTarget().getRepositoryCopies();
     }
 
     public void setScope( String scope )
@@ -34,11 +34,17 @@ class GraphNode
 
     private List<RemoteRepository> repositories = Collections.emptyList();
 
+    private List<RemoteRepository> repositoryCopies;
+
     public List<DependencyNode> getOutgoingEdges()
     {
         return outgoingEdges;
     }
 
+    /**
+     * Gets the repositories of this node as shared by the collector, i.e. the list and its repositories, which are
+     * usually frozen, must not be handed out to clients.
+     */
     public List<RemoteRepository> getRepositories()
     {
         return repositories;
@@ -54,6 +60,36 @@ class GraphNode
         {
             this.repositories = repositories;
         }
+        repositoryCopies = null;
+    }
+
+    /**
+     * Gets the repositories of this node for use by clients. Frozen repositories are replaced with modifiable copies,
+     * which are created once per node on first access.
+     */
+    public synchronized List<RemoteRepository> getRepositoryCopies()
+    {
+        if ( repositoryCopies == null )
+        {
+            repositoryCopies = thaw( repositories );
+        }
+        return repositoryCopies;
+    }
+
+    private static List<RemoteRepository> thaw( List<RemoteRepository> repositories )
+    {
+        List<RemoteRepository> copies = new ArrayList<RemoteRepository>( repositories.size() );
+        for ( RemoteRepository repository : repositories )
+        {
+            if ( repository.isFrozen() )
+            {
+                RemoteRepository copy = new RemoteRepository( repository );
+                copy.setMirroredRepositories( thaw( repository.getMirroredRepositories() ) );
+                repository = copy;
+            }
+            copies.add( repository );
+        }
+        return copies;
     }
 
     public Collection<Artifact> getAliases()
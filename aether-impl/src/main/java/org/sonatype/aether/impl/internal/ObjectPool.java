@@ -13,23 +13,31 @@ package org.sonatype.aether.impl.internal;
  * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
  */
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Pool of immutable object instances, used to avoid excessive memory consumption of dependency graph.
+ * Pool of immutable object instances, used to avoid excessive memory consumption of dependency graph. The pool is safe
+ * for concurrent use and only weakly references the pooled objects. Lookups do not block, entries whose objects have
+ * been garbage collected are purged on subsequent calls to {@link #intern(Object)}.
  * 
  * @author Benjamin Bentmann
  */
 class ObjectPool<T>
 {
 
-    private final Map<Object, WeakReference<T>> objects = new WeakHashMap<Object, WeakReference<T>>( 256 );
+    private final ConcurrentMap<Object, Entry<T>> objects = new ConcurrentHashMap<Object, Entry<T>>( 256 );
 
-    public synchronized T intern( T object )
+    private final ReferenceQueue<T> queue = new ReferenceQueue<T>();
+
+    public T intern( T object )
     {
-        WeakReference<T> pooledRef = objects.get( object );
+        purge();
+
+        Entry<T> pooledRef = objects.get( new Key( object ) );
         if ( pooledRef != null )
         {
             T pooled = pooledRef.get();
@@ -39,8 +47,120 @@ class ObjectPool<T>
             }
         }
 
-        objects.put( object, new WeakReference<T>( object ) );
-        return object;
+        Entry<T> ref = new Entry<T>( object, queue );
+        while ( true )
+        {
+            pooledRef = objects.putIfAbsent( ref, ref );
+            if ( pooledRef == null )
+            {
+                return object;
+            }
+            T pooled = pooledRef.get();
+            if ( pooled != null )
+            {
+                return pooled;
+            }
+            objects.remove( pooledRef, pooledRef );
+        }
+    }
+
+    /**
+     * Gets the pooled object that equals the specified object. Unlike {@link #intern(Object)}, the specified object is
+     * not added to the pool, so it may be of a different type than the pooled objects.
+     * 
+     * @param object The object to look up, must not be {@code null}.
+     * @return The pooled object or {@code null} if none.
+     */
+    public T find( Object object )
+    {
+        Entry<T> pooledRef = objects.get( new Key( object ) );
+        return ( pooledRef != null ) ? pooledRef.get() : null;
+    }
+
+    private void purge()
+    {
+        for ( Reference<? extends T> ref = queue.poll(); ref != null; ref = queue.poll() )
+        {
+            objects.remove( ref, ref );
+        }
+    }
+
+    /**
+     * The weak reference to a pooled object, serving as both key and value of the pool. A cleared entry is only equal
+     * to itself.
+     */
+    static final class Entry<T>
+        extends WeakReference<T>
+    {
+
+        private final int hashCode;
+
+        public Entry( T object, ReferenceQueue<T> queue )
+        {
+            super( object, queue );
+            hashCode = object.hashCode();
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( obj == this )
+            {
+                return true;
+            }
+            else if ( !( obj instanceof Entry<?> ) )
+            {
+                return false;
+            }
+            Object object = get();
+            return object != null && object.equals( ( (Entry<?>) obj ).get() );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+    }
+
+    /**
+     * The transient key to look up the entry of an object without creating a reference.
+     */
+    static final class Key
+    {
+
+        private final Object object;
+
+        public Key( Object object )
+        {
+            this.object = object;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( obj == this )
+            {
+                return true;
+            }
+            else if ( obj instanceof Entry<?> )
+            {
+                return object.equals( ( (Entry<?>) obj ).get() );
+            }
+            else if ( obj instanceof Key )
+            {
+                return object.equals( ( (Key) obj ).object );
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return object.hashCode();
+        }
+
     }
 
 }
@@ -0,0 +1,226 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.sonatype.aether.repository.RemoteRepository;
+
+/**
+ * A canonical list of frozen remote repositories as obtained from {@link Pool#intern(List)}. Equal lists interned via
+ * the same pool are represented by the same instance, so the keys of the data pool can compare them by identity and
+ * use their precomputed hash code. The list is unmodifiable and still equals any other list with the same repositories.
+ */
+final class RepositoryList
+    extends AbstractList<RemoteRepository>
+    implements RandomAccess
+{
+
+    private final RemoteRepository[] repositories;
+
+    private final int hashCode;
+
+    private final ContentKey contentKey;
+
+    private RepositoryList( List<RemoteRepository> repositories, ContentKey contentKey )
+    {
+        this.repositories = repositories.toArray( new RemoteRepository[repositories.size()] );
+        this.hashCode = repositories.hashCode();
+        this.contentKey = contentKey;
+    }
+
+    @Override
+    public RemoteRepository get( int index )
+    {
+        return repositories[index];
+    }
+
+    @Override
+    public int size()
+    {
+        return repositories.length;
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( obj == this )
+        {
+            return true;
+        }
+        else if ( obj instanceof RepositoryList && ( (RepositoryList) obj ).hashCode != hashCode )
+        {
+            return false;
+        }
+        return super.equals( obj );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+
+    /**
+     * Gets the key that identifies the content provided by the specified repositories, i.e. disregarding properties
+     * like the repository identifiers or authentication.
+     * 
+     * @param repositories The repositories to get the key for, must not be {@code null}.
+     * @return The content key, never {@code null}.
+     */
+    public static Object toContentKey( List<RemoteRepository> repositories )
+    {
+        if ( repositories instanceof RepositoryList )
+        {
+            return ( (RepositoryList) repositories ).contentKey;
+        }
+        return new ContentKey( repositories );
+    }
+
+    /**
+     * Interns repository lists. The pool is safe for concurrent use and, like the other pools of the session, only
+     * weakly references the lists and their content keys, so lists no longer used by any graph or key can be garbage
+     * collected.
+     */
+    static final class Pool
+    {
+
+        private final ObjectPool<RepositoryList> lists = new ObjectPool<RepositoryList>();
+
+        private final ObjectPool<ContentKey> contentKeys = new ObjectPool<ContentKey>();
+
+        public RepositoryList intern( List<RemoteRepository> repositories )
+        {
+            if ( repositories instanceof RepositoryList )
+            {
+                return (RepositoryList) repositories;
+            }
+
+            RepositoryList list = lists.find( repositories );
+            if ( list == null )
+            {
+                List<RemoteRepository> frozen = RemoteRepository.freeze( repositories );
+                ContentKey contentKey = contentKeys.intern( new ContentKey( frozen ) );
+                list = lists.intern( new RepositoryList( frozen, contentKey ) );
+            }
+            return list;
+        }
+
+    }
+
+    /**
+     * Identifies the content provided by a list of repositories, considering only the URLs (or the mirrored repositories
+     * in case of repository managers) and the enabled flags of the repository policies.
+     */
+    static final class ContentKey
+    {
+
+        private final List<RemoteRepository> repositories;
+
+        private final int hashCode;
+
+        public ContentKey( List<RemoteRepository> repositories )
+        {
+            this.repositories = repositories;
+            this.hashCode = hash( repositories );
+        }
+
+        private static int hash( Collection<RemoteRepository> repositories )
+        {
+            int hash = 17;
+            for ( RemoteRepository repository : repositories )
+            {
+                if ( repository.isRepositoryManager() )
+                {
+                    hash = hash * 31 + hash( repository.getMirroredRepositories() );
+                }
+                else
+                {
+                    hash = hash * 31 + repository.getUrl().hashCode();
+                    hash = hash * 31 + ( repository.getPolicy( false ).isEnabled() ? 1 : 0 );
+                    hash = hash * 31 + ( repository.getPolicy( true ).isEnabled() ? 1 : 0 );
+                }
+            }
+            return hash;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( obj == this )
+            {
+                return true;
+            }
+            else if ( !( obj instanceof ContentKey ) )
+            {
+                return false;
+            }
+            ContentKey that = (ContentKey) obj;
+            return hashCode == that.hashCode && equals( repositories, that.repositories );
+        }
+
+        private static boolean equals( Collection<RemoteRepository> repos1, Collection<RemoteRepository> repos2 )
+        {
+            if ( repos1.size() != repos2.size() )
+            {
+                return false;
+            }
+            for ( Iterator<RemoteRepository> it1 = repos1.iterator(), it2 = repos2.iterator(); it1.hasNext(); )
+            {
+                RemoteRepository repo1 = it1.next();
+                RemoteRepository repo2 = it2.next();
+                if ( repo1 == repo2 )
+                {
+                    continue;
+                }
+                if ( repo1.isRepositoryManager() != repo2.isRepositoryManager() )
+                {
+                    return false;
+                }
+                if ( repo1.isRepositoryManager() )
+                {
+                    if ( !equals( repo1.getMirroredRepositories(), repo2.getMirroredRepositories() ) )
+                    {
+                        return false;
+                    }
+                }
+                else if ( !repo1.getUrl().equals( repo2.getUrl() ) )
+                {
+                    return false;
+                }
+                else if ( repo1.getPolicy( true ).isEnabled() != repo2.getPolicy( true ).isEnabled() )
+                {
+                    return false;
+                }
+                else if ( repo1.getPolicy( false ).isEnabled() != repo2.getPolicy( false ).isEnabled() )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+    }
+
+}
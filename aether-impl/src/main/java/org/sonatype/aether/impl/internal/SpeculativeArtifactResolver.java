@@ -0,0 +1,132 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.impl.ArtifactResolver;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.resolution.ArtifactRequest;
+import org.sonatype.aether.resolution.ArtifactResolutionException;
+
+/**
+ * Starts the resolution of artifacts in the background while the dependency graph is still being collected. The
+ * results are not used directly, the downloads merely populate the local repository such that the subsequent
+ * resolution of the final graph finds most artifacts already present. Artifacts that lose a version conflict or are
+ * excluded by the dependency filter may hence be downloaded needlessly. Errors are ignored as they will be reported by
+ * the actual resolution.
+ */
+final class SpeculativeArtifactResolver
+{
+
+    /**
+     * The number of threads used to resolve artifacts during dependency collection, defaults to {@code 0} which
+     * disables the speculative resolution.
+     */
+    static final String CONFIG_PROP_THREADS = "aether.dependencyResolver.speculativeThreads";
+
+    private final RepositorySystemSession session;
+
+    private final ArtifactResolver artifactResolver;
+
+    private final ExecutorService executor;
+
+    private final Set<Artifact> scheduled = new HashSet<Artifact>( 256 );
+
+    private final List<Future<?>> futures = new ArrayList<Future<?>>( 256 );
+
+    public static SpeculativeArtifactResolver newInstance( RepositorySystemSession session,
+                                                           ArtifactResolver artifactResolver )
+    {
+        int threads = ConfigurationProperties.get( session, CONFIG_PROP_THREADS, 0 );
+        if ( threads <= 0 )
+        {
+            return null;
+        }
+        return new SpeculativeArtifactResolver( session, artifactResolver, threads );
+    }
+
+    private SpeculativeArtifactResolver( RepositorySystemSession session, ArtifactResolver artifactResolver,
+                                         int threads )
+    {
+        this.session = session;
+        this.artifactResolver = artifactResolver;
+        this.executor =
+            new ThreadPoolExecutor( threads, threads, 3, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                                    new DependencyPrefetcher.WorkerThreadFactory( "aether-resolver" ) );
+    }
+
+    /**
+     * Schedules the resolution of the specified artifact unless it has already been scheduled.
+     */
+    public void resolve( Artifact artifact, List<RemoteRepository> repositories, String context )
+    {
+        if ( !scheduled.add( artifact ) )
+        {
+            return;
+        }
+
+        final ArtifactRequest request = new ArtifactRequest( artifact, repositories, context );
+
+        futures.add( executor.submit( new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    artifactResolver.resolveArtifact( session, request );
+                }
+                catch ( ArtifactResolutionException e )
+                {
+                    // will be reported by the actual resolution
+                }
+            }
+        } ) );
+    }
+
+    /**
+     * Cancels the resolutions that have not been started yet and waits for the running ones to complete, such that
+     * the actual resolution does not compete with them for the same files.
+     */
+    public void finish()
+    {
+        for ( Future<?> future : futures )
+        {
+            future.cancel( false );
+        }
+
+        executor.shutdown();
+
+        try
+        {
+            executor.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
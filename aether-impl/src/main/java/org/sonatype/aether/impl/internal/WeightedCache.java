@@ -0,0 +1,231 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe cache with a bounded memory footprint. The footprint of a value is estimated by its weight as given by
+ * a {@link Weigher}. The cache is split into segments that each guard their entries with their own lock and evict
+ * their least recently used entries once their share of the total weight is exceeded.
+ */
+final class WeightedCache<V>
+{
+
+    /**
+     * Estimates the memory footprint of the values of a cache.
+     */
+    interface Weigher<V>
+    {
+
+        /**
+         * Gets the weight of the specified value.
+         * 
+         * @param value The value to weigh, must not be {@code null}.
+         * @return The weight of the value, must be positive.
+         */
+        int weigh( V value );
+
+    }
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment<V>[] segments;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    @SuppressWarnings( "unchecked" )
+    public WeightedCache( int maxWeight, Weigher<V> weigher )
+    {
+        int segmentWeight = Math.max( 1, maxWeight / SEGMENTS );
+        segments = new Segment[SEGMENTS];
+        for ( int i = 0; i < segments.length; i++ )
+        {
+            segments[i] = new Segment<V>( segmentWeight, weigher );
+        }
+    }
+
+    private Segment<V> segmentFor( Object key )
+    {
+        int hash = key.hashCode();
+        hash ^= ( hash >>> 20 ) ^ ( hash >>> 12 );
+        hash ^= ( hash >>> 7 ) ^ ( hash >>> 4 );
+        return segments[hash & ( SEGMENTS - 1 )];
+    }
+
+    public V get( Object key )
+    {
+        V value = segmentFor( key ).get( key );
+        if ( value != null )
+        {
+            hits.incrementAndGet();
+        }
+        else
+        {
+            misses.incrementAndGet();
+        }
+        return value;
+    }
+
+    public void put( Object key, V value )
+    {
+        evictions.addAndGet( segmentFor( key ).put( key, value ) );
+    }
+
+    /**
+     * Removes the entry for the specified key if it is still mapped to the specified value.
+     */
+    public void remove( Object key, V value )
+    {
+        segmentFor( key ).remove( key, value );
+    }
+
+    /**
+     * Gets the number of lookups that found a value.
+     */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that found no value.
+     */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of values that were evicted to stay within the weight limit.
+     */
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    /**
+     * Gets the number of currently cached values.
+     */
+    public int getSize()
+    {
+        int size = 0;
+        for ( Segment<V> segment : segments )
+        {
+            size += segment.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the total weight of the currently cached values.
+     */
+    public long getWeight()
+    {
+        long weight = 0;
+        for ( Segment<V> segment : segments )
+        {
+            weight += segment.getWeight();
+        }
+        return weight;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "WeightedCache[size=" + getSize() + ", weight=" + getWeight() + ", hits=" + getHits() + ", misses="
+            + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
+
+    static final class Segment<V>
+    {
+
+        private final Map<Object, V> entries = new LinkedHashMap<Object, V>( 64, 0.75f, true );
+
+        private final int maxWeight;
+
+        private final Weigher<V> weigher;
+
+        private int weight;
+
+        public Segment( int maxWeight, Weigher<V> weigher )
+        {
+            this.maxWeight = maxWeight;
+            this.weigher = weigher;
+        }
+
+        public synchronized V get( Object key )
+        {
+            return entries.get( key );
+        }
+
+        /**
+         * Adds the specified value and evicts the least recently used values as needed, except for the one just added.
+         * 
+         * @return The number of evicted values.
+         */
+        public synchronized int put( Object key, V value )
+        {
+            V previous = entries.put( key, value );
+            if ( previous != null )
+            {
+                weight -= weigher.weigh( previous );
+            }
+            weight += weigher.weigh( value );
+
+            int evicted = 0;
+            for ( Iterator<V> it = entries.values().iterator(); weight > maxWeight && it.hasNext(); )
+            {
+                V eldest = it.next();
+                if ( eldest == value )
+                {
+                    break;
+                }
+                it.remove();
+                weight -= weigher.weigh( eldest );
+                evicted++;
+            }
+            return evicted;
+        }
+
+        public synchronized void remove( Object key, V value )
+        {
+            V current = entries.get( key );
+            if ( current != null && current == value )
+            {
+                entries.remove( key );
+                weight -= weigher.weigh( current );
+            }
+        }
+
+        public synchronized int getSize()
+        {
+            return entries.size();
+        }
+
+        public synchronized int getWeight()
+        {
+            return weight;
+        }
+
+    }
+
+}
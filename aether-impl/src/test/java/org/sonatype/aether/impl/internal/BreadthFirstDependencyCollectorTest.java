@@ -0,0 +1,191 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.collection.CollectRequest;
+import org.sonatype.aether.collection.CollectResult;
+import org.sonatype.aether.collection.DependencyCollectionException;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.DependencyNode;
+import org.sonatype.aether.impl.ArtifactDescriptorReader;
+import org.sonatype.aether.impl.VersionRangeResolver;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.resolution.VersionRangeRequest;
+import org.sonatype.aether.resolution.VersionRangeResolutionException;
+import org.sonatype.aether.resolution.VersionRangeResult;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.sonatype.aether.util.graph.manager.ClassicDependencyManager;
+import org.sonatype.aether.util.graph.selector.StaticDependencySelector;
+import org.sonatype.aether.util.graph.transformer.NearestVersionConflictResolver;
+import org.sonatype.aether.util.graph.traverser.StaticDependencyTraverser;
+import org.sonatype.aether.util.version.GenericVersionScheme;
+import org.sonatype.aether.version.InvalidVersionSpecificationException;
+import org.sonatype.aether.version.VersionConstraint;
+import org.sonatype.aether.version.VersionScheme;
+
+/**
+ * Runs the collector tests against the breadth-first collector.
+ */
+public class BreadthFirstDependencyCollectorTest
+    extends DefaultDependencyCollectorTest
+{
+
+    @Override
+    protected DefaultDependencyCollector newCollector()
+    {
+        return new BreadthFirstDependencyCollector();
+    }
+
+    private static final VersionScheme SCHEME = new GenericVersionScheme();
+
+    private DefaultDependencyCollector newCollector( final Map<String, String[]> descriptors, final List<String> reads )
+    {
+        DefaultDependencyCollector collector = newCollector();
+        collector.setRemoteRepositoryManager( new StubRemoteRepositoryManager() );
+        collector.setArtifactDescriptorReader( new ArtifactDescriptorReader()
+        {
+            public ArtifactDescriptorResult readArtifactDescriptor( RepositorySystemSession session,
+                                                                    ArtifactDescriptorRequest request )
+            {
+                Artifact artifact = request.getArtifact();
+                String id = artifact.getArtifactId() + ':' + artifact.getVersion();
+                reads.add( id );
+                ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+                result.setArtifact( artifact );
+                String[] deps = descriptors.get( id );
+                for ( int i = 0; deps != null && i < deps.length; i++ )
+                {
+                    result.addDependency( new Dependency( new DefaultArtifact( deps[i] ), "compile" ) );
+                }
+                return result;
+            }
+        } );
+        collector.setVersionRangeResolver( new VersionRangeResolver()
+        {
+            public VersionRangeResult resolveVersionRange( RepositorySystemSession session, VersionRangeRequest request )
+                throws VersionRangeResolutionException
+            {
+                VersionRangeResult result = new VersionRangeResult( request );
+                try
+                {
+                    VersionConstraint constraint = SCHEME.parseVersionConstraint( request.getArtifact().getVersion() );
+                    result.setVersionConstraint( constraint );
+                    if ( constraint.getRanges().isEmpty() )
+                    {
+                        result.addVersion( constraint.getVersion() );
+                    }
+                    else
+                    {
+                        for ( String version : new String[] { "1", "2", "3" } )
+                        {
+                            if ( constraint.containsVersion( SCHEME.parseVersion( version ) ) )
+                            {
+                                result.addVersion( SCHEME.parseVersion( version ) );
+                            }
+                        }
+                    }
+                }
+                catch ( InvalidVersionSpecificationException e )
+                {
+                    throw new VersionRangeResolutionException( result );
+                }
+                return result;
+            }
+        } );
+        return collector;
+    }
+
+    private String collect( Map<String, String[]> descriptors, boolean pruning, List<String> reads )
+        throws DependencyCollectionException
+    {
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession( new TestRepositorySystemSession() );
+        session.setDependencySelector( new StaticDependencySelector( true ) );
+        session.setDependencyManager( new ClassicDependencyManager() );
+        session.setDependencyTraverser( new StaticDependencyTraverser( true ) );
+        session.setDependencyGraphTransformer( new NearestVersionConflictResolver() );
+        session.setConfigProps( Collections.singletonMap( BreadthFirstDependencyCollector.CONFIG_PROP_CONFLICT_PRUNING,
+                                                          Boolean.valueOf( pruning ) ) );
+
+        CollectRequest request = new CollectRequest();
+        for ( String dependency : descriptors.get( "root" ) )
+        {
+            request.addDependency( new Dependency( new DefaultArtifact( dependency ), "compile" ) );
+        }
+
+        CollectResult result = newCollector( descriptors, reads ).collectDependencies( session, request );
+        return toString( result.getRoot(), new StringBuilder() ).toString();
+    }
+
+    private static StringBuilder toString( DependencyNode node, StringBuilder buffer )
+    {
+        buffer.append( node.getDependency() ).append( " (" );
+        for ( DependencyNode child : node.getChildren() )
+        {
+            toString( child, buffer );
+        }
+        return buffer.append( ')' );
+    }
+
+    @Test
+    public void testConflictPruning()
+        throws DependencyCollectionException
+    {
+        Map<String, String[]> descriptors = new HashMap<String, String[]>();
+        descriptors.put( "root", new String[] { "gid:a:1", "gid:b:1" } );
+        descriptors.put( "b:1", new String[] { "gid:x:1" } );
+        descriptors.put( "x:1", new String[] { "gid:a:2" } );
+        descriptors.put( "a:2", new String[] { "gid:d:1" } );
+
+        List<String> fullReads = new ArrayList<String>();
+        String full = collect( descriptors, false, fullReads );
+        List<String> prunedReads = new ArrayList<String>();
+        String pruned = collect( descriptors, true, prunedReads );
+
+        assertEquals( full, pruned );
+        assertTrue( fullReads.contains( "d:1" ) );
+        assertFalse( prunedReads.contains( "d:1" ) );
+        assertEquals( fullReads.size() - 1, prunedReads.size() );
+    }
+
+    @Test
+    public void testConflictPruningFallsBackIfPrunedDependencyWins()
+        throws DependencyCollectionException
+    {
+        Map<String, String[]> descriptors = new HashMap<String, String[]>();
+        descriptors.put( "root", new String[] { "gid:a:1", "gid:b:1" } );
+        descriptors.put( "b:1", new String[] { "gid:a:[2,3)" } );
+        descriptors.put( "a:2", new String[] { "gid:d:1" } );
+
+        String full = collect( descriptors, false, new ArrayList<String>() );
+        String pruned = collect( descriptors, true, new ArrayList<String>() );
+
+        assertEquals( full, pruned );
+        assertTrue( pruned, pruned.contains( "gid:d:jar:1" ) );
+    }
+
+}
@@ -0,0 +1,164 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.sonatype.aether.collection.DependencyCollectionContext;
+import org.sonatype.aether.collection.DependencySelector;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.Exclusion;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.repository.RepositoryPolicy;
+import org.sonatype.aether.resolution.VersionRangeRequest;
+import org.sonatype.aether.resolution.VersionRangeResult;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+import org.sonatype.aether.util.DefaultRepositoryCache;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.sonatype.aether.util.graph.manager.ClassicDependencyManager;
+import org.sonatype.aether.util.graph.selector.AndDependencySelector;
+import org.sonatype.aether.util.graph.selector.ExclusionDependencySelector;
+import org.sonatype.aether.util.graph.selector.OptionalDependencySelector;
+import org.sonatype.aether.util.version.GenericVersionScheme;
+
+public class DataPoolTest
+{
+
+    private DependencySelector newSelector( String... artifactIds )
+    {
+        Set<Exclusion> exclusions = new LinkedHashSet<Exclusion>();
+        for ( String artifactId : artifactIds )
+        {
+            exclusions.add( new Exclusion( "gid", artifactId, "*", "*" ) );
+        }
+        return new AndDependencySelector( new OptionalDependencySelector(),
+                                          new ExclusionDependencySelector( exclusions ) );
+    }
+
+    @Test
+    public void testInternDerivations()
+    {
+        DataPool pool = new DataPool( new TestRepositorySystemSession() );
+
+        DependencySelector selector = newSelector( "a", "b" );
+        assertSame( selector, pool.intern( selector ) );
+        assertSame( selector, pool.intern( newSelector( "a", "b" ) ) );
+        assertNotSame( selector, pool.intern( newSelector( "a" ) ) );
+
+        ClassicDependencyManager manager = new ClassicDependencyManager();
+        assertSame( manager, pool.intern( manager ) );
+        assertSame( manager, pool.intern( new ClassicDependencyManager() ) );
+    }
+
+    @Test
+    public void testDerivationsSharedViaSessionCache()
+    {
+        DefaultRepositorySystemSession session =
+            new DefaultRepositorySystemSession( new TestRepositorySystemSession() );
+        session.setCache( new DefaultRepositoryCache() );
+
+        DependencySelector selector = newSelector( "a" );
+        assertSame( selector, new DataPool( session ).intern( selector ) );
+        assertSame( selector, new DataPool( session ).intern( newSelector( "a" ) ) );
+
+        DataPool pool = new DataPool( new TestRepositorySystemSession() );
+        DependencySelector other = newSelector( "a" );
+        assertSame( other, pool.intern( other ) );
+    }
+
+    @Test
+    public void testExclusionSelectorReusedForKnownExclusions()
+    {
+        Exclusion exclusion = new Exclusion( "gid", "a", "*", "*" );
+        DependencySelector selector = new ExclusionDependencySelector( Collections.singleton( exclusion ) );
+
+        Dependency dependency =
+            new Dependency( new DefaultArtifact( "gid:b:1" ), "compile", false, Collections.singleton( exclusion ) );
+        DependencyCollectionContext context =
+            new DefaultDependencyCollectionContext( new TestRepositorySystemSession(), dependency,
+                                                    Collections.<Dependency> emptyList() );
+        assertSame( selector, selector.deriveChildSelector( context ) );
+    }
+
+    @Test
+    public void testIntervalMinutes()
+    {
+        assertEquals( 30, DataPool.getIntervalMinutes( "interval:30" ) );
+        assertEquals( 0, DataPool.getIntervalMinutes( "interval:0" ) );
+        assertEquals( -1, DataPool.getIntervalMinutes( "interval:" ) );
+        assertEquals( -1, DataPool.getIntervalMinutes( "interval" ) );
+        assertEquals( -1, DataPool.getIntervalMinutes( "interval:abc" ) );
+        assertEquals( -1, DataPool.getIntervalMinutes( "interval:99999999999" ) );
+        assertEquals( -1, DataPool.getIntervalMinutes( "interval:-5" ) );
+    }
+
+    @Test
+    public void testMalformedIntervalFallsBackToDefaultPolicy()
+        throws Exception
+    {
+        DefaultRepositorySystemSession session =
+            new DefaultRepositorySystemSession( new TestRepositorySystemSession() );
+        session.setCache( new DefaultRepositoryCache() );
+        session.setUpdatePolicy( "interval:abc" );
+
+        RemoteRepository repository = new RemoteRepository( "id", "default", "file:///" );
+        VersionRangeRequest request =
+            new VersionRangeRequest( new DefaultArtifact( "gid:a:[1,2)" ), Collections.singletonList( repository ),
+                                     null );
+        VersionRangeResult result = new VersionRangeResult( request );
+        result.addVersion( new GenericVersionScheme().parseVersion( "1.5" ) );
+
+        DataPool pool = new DataPool( session );
+        Object key = pool.toKey( request );
+        pool.putConstraint( key, result );
+
+        assertNotNull( new DataPool( session ).getConstraint( key, request ) );
+    }
+
+    @Test
+    public void testSharedConstraintsBounded()
+        throws Exception
+    {
+        DefaultRepositorySystemSession session =
+            new DefaultRepositorySystemSession( new TestRepositorySystemSession() );
+        session.setCache( new DefaultRepositoryCache() );
+        session.setUpdatePolicy( RepositoryPolicy.UPDATE_POLICY_NEVER );
+        session.setConfigProps( Collections.singletonMap( DataPool.CONFIG_PROP_CONSTRAINT_MAX_WEIGHT, 32 ) );
+
+        RemoteRepository repository = new RemoteRepository( "id", "default", "file:///" );
+        VersionRangeRequest[] requests = new VersionRangeRequest[1000];
+        for ( int i = 0; i < requests.length; i++ )
+        {
+            requests[i] =
+                new VersionRangeRequest( new DefaultArtifact( "gid:a" + i + ":[1,2)" ),
+                                         Collections.singletonList( repository ), null );
+            VersionRangeResult result = new VersionRangeResult( requests[i] );
+            result.addVersion( new GenericVersionScheme().parseVersion( "1.5" ) );
+
+            DataPool pool = new DataPool( session );
+            pool.putConstraint( pool.toKey( requests[i] ), result );
+        }
+
+        DataPool pool = new DataPool( session );
+        assertNull( pool.getConstraint( pool.toKey( requests[0] ), requests[0] ) );
+        assertNotNull( pool.getConstraint( pool.toKey( requests[999] ), requests[999] ) );
+    }
+
+}
@@ -14,28 +14,57 @@ package org.sonatype.aether.impl.internal;
  */
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
 import org.sonatype.aether.collection.CollectRequest;
 import org.sonatype.aether.collection.CollectResult;
+import org.sonatype.aether.collection.CollectStatistics;
+import org.sonatype.aether.collection.CollectionLimitException;
 import org.sonatype.aether.collection.DependencyCollectionException;
 import org.sonatype.aether.graph.Dependency;
 import org.sonatype.aether.graph.DependencyNode;
 import org.sonatype.aether.impl.ArtifactDescriptorReader;
+import org.sonatype.aether.impl.ArtifactResolver;
+import org.sonatype.aether.impl.VersionRangeResolver;
 import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.repository.RepositoryPolicy;
 import org.sonatype.aether.resolution.ArtifactDescriptorException;
 import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
 import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.resolution.ArtifactRequest;
+import org.sonatype.aether.resolution.ArtifactResult;
+import org.sonatype.aether.resolution.VersionRangeRequest;
+import org.sonatype.aether.resolution.VersionRangeResolutionException;
+import org.sonatype.aether.resolution.VersionRangeResult;
 import org.sonatype.aether.test.impl.TestRepositorySystemSession;
 import org.sonatype.aether.test.util.DependencyGraphParser;
 import org.sonatype.aether.test.util.IniArtifactDescriptorReader;
+import org.sonatype.aether.test.util.impl.StubVersion;
+import org.sonatype.aether.util.DefaultRepositoryCache;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.sonatype.aether.util.graph.manager.ClassicDependencyManager;
+import org.sonatype.aether.util.graph.selector.StaticDependencySelector;
+import org.sonatype.aether.util.graph.traverser.StaticDependencyTraverser;
 
 /**
  * @author Benjamin Hanzelmann
@@ -58,7 +87,7 @@ public class DefaultDependencyCollectorTest
     {
         session = new TestRepositorySystemSession();
 
-        collector = new DefaultDependencyCollector();
+        collector = newCollector();
         collector.setArtifactDescriptorReader( new ArtifactDescriptorReader()
         {
             IniArtifactDescriptorReader reader = new IniArtifactDescriptorReader( "artifact-descriptions/" );
@@ -83,6 +112,11 @@ public class DefaultDependencyCollectorTest
         repository = new RemoteRepository( "id", "default", "file:///" );
     }
 
+    protected DefaultDependencyCollector newCollector()
+    {
+        return new DefaultDependencyCollector();
+    }
+
     @Test
     public void testSimpleCollection()
         throws IOException, DependencyCollectionException
@@ -173,6 +207,489 @@ public class DefaultDependencyCollectorTest
 
     }
 
+    @Test
+    public void testParallelCollection()
+        throws IOException, DependencyCollectionException
+    {
+        DependencyNode root = parser.parse( "expectedSubtreeComparisonResult.txt" );
+        Dependency dependency = root.getDependency();
+        CollectRequest request = new CollectRequest( dependency, Arrays.asList( repository ) );
+
+        RepositorySystemSession parallelSession = newSession( DefaultDependencyCollector.CONFIG_PROP_THREADS, 4 );
+
+        CollectResult serial = collector.collectDependencies( session, request );
+        CollectResult parallel = collector.collectDependencies( parallelSession, request );
+        assertEqualSubtree( serial.getRoot(), parallel.getRoot() );
+        assertEqualSubtree( root, parallel.getRoot() );
+    }
+
+    @Test
+    public void testParallelPartialResultOnError()
+        throws IOException
+    {
+        DependencyNode root = parser.parse( "expectedPartialSubtreeOnError.txt" );
+        CollectRequest request = new CollectRequest( root.getDependency(), Arrays.asList( repository ) );
+
+        RepositorySystemSession parallelSession = newSession( DefaultDependencyCollector.CONFIG_PROP_THREADS, 4 );
+
+        try
+        {
+            collector.collectDependencies( parallelSession, request );
+            fail( "expected exception " );
+        }
+        catch ( DependencyCollectionException e )
+        {
+            CollectResult result = e.getResult();
+            assertEquals( 1, result.getExceptions().size() );
+            assertTrue( result.getExceptions().get( 0 ) instanceof ArtifactDescriptorException );
+            assertEqualSubtree( root, result.getRoot() );
+        }
+    }
+
+    @Test
+    public void testSuspendAndResume()
+        throws IOException, DependencyCollectionException
+    {
+        assumeTrue( DefaultDependencyCollector.class.equals( collector.getClass() ) );
+
+        DependencyNode root = parser.parse( "expectedSubtreeComparisonResult.txt" );
+        List<Dependency> dependencies = new ArrayList<Dependency>();
+        for ( DependencyNode child : root.getChildren() )
+        {
+            dependencies.add( child.getDependency() );
+        }
+        CollectRequest request = new CollectRequest( dependencies, null, Arrays.asList( repository ) );
+
+        DefaultDependencyCollector.Args args =
+            new DefaultDependencyCollector.Args( session, new CollectResult( request ), new DataPool( session ), null );
+        GraphEdge edge = new GraphEdge( null, new GraphNode() );
+        EdgeStack edges = new EdgeStack();
+        collector.processChildren( args, edges, edge, dependencies, request.getRepositories(),
+                                   session.getDependencySelector(), session.getDependencyManager(),
+                                   session.getDependencyTraverser() );
+
+        int suspensions = 0;
+        while ( !collector.process( args, edges, 1 ) )
+        {
+            suspensions++;
+        }
+
+        assertTrue( suspensions > 1 );
+        assertEquals( 0, edges.size() );
+        assertEqualSubtree( collector.collectDependencies( session, request ).getRoot(), edge );
+    }
+
+    @Test
+    public void testDeepGraph()
+        throws DependencyCollectionException
+    {
+        final int depth = 2000;
+
+        collector.setArtifactDescriptorReader( new ArtifactDescriptorReader()
+        {
+            public ArtifactDescriptorResult readArtifactDescriptor( RepositorySystemSession session,
+                                                                    ArtifactDescriptorRequest request )
+            {
+                ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+                result.setArtifact( request.getArtifact() );
+                int index = Integer.parseInt( request.getArtifact().getArtifactId().substring( 1 ) );
+                if ( index < depth )
+                {
+                    Artifact child = new DefaultArtifact( "gid", "a" + ( index + 1 ), "jar", "ver" );
+                    result.addDependency( new Dependency( child, "compile" ) );
+                }
+                return result;
+            }
+        } );
+
+        Dependency dependency = new Dependency( new DefaultArtifact( "gid", "a0", "jar", "ver" ), "compile" );
+        CollectRequest request = new CollectRequest( dependency, Arrays.asList( repository ) );
+        CollectResult result = collector.collectDependencies( session, request );
+
+        assertEquals( 0, result.getExceptions().size() );
+
+        int nodes = 0;
+        for ( DependencyNode node = result.getRoot(); !node.getChildren().isEmpty(); node = node.getChildren().get( 0 ) )
+        {
+            assertEquals( 1, node.getChildren().size() );
+            nodes++;
+        }
+        assertEquals( depth, nodes );
+    }
+
+    @Test
+    public void testIncrementalCollection()
+        throws IOException, DependencyCollectionException
+    {
+        final IniArtifactDescriptorReader reader = new IniArtifactDescriptorReader( "artifact-descriptions/" );
+        final List<Artifact> reads = new ArrayList<Artifact>();
+        collector.setArtifactDescriptorReader( new ArtifactDescriptorReader()
+        {
+            public ArtifactDescriptorResult readArtifactDescriptor( RepositorySystemSession session,
+                                                                    ArtifactDescriptorRequest request )
+                throws ArtifactDescriptorException
+            {
+                reads.add( request.getArtifact() );
+                return reader.readArtifactDescriptor( session, request );
+            }
+        } );
+
+        Dependency dependency1 = parser.parseLiteral( "duplicate:transitive:ext:dependency:compile" ).getDependency();
+        Dependency dependency2 = parser.parseLiteral( "gid:aid2:ext:ver:compile" ).getDependency();
+
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession( this.session );
+        session.setDependencySelector( new StaticDependencySelector( true ) );
+        session.setDependencyManager( new ClassicDependencyManager() );
+        session.setDependencyTraverser( new StaticDependencyTraverser( true ) );
+
+        CollectRequest request = new CollectRequest( Arrays.asList( dependency1 ), null, Arrays.asList( repository ) );
+        CollectResult previous = collector.collectDependencies( session, request, null );
+        assertEquals( 3, reads.size() );
+
+        reads.clear();
+        request = new CollectRequest( Arrays.asList( dependency1, dependency2 ), null, Arrays.asList( repository ) );
+        CollectResult result = collector.collectDependencies( session, request, previous );
+        assertEquals( 2, reads.size() );
+
+        assertEqualSubtree( collector.collectDependencies( session, request ).getRoot(), result.getRoot() );
+        assertEquals( 1, previous.getRoot().getChildren().size() );
+    }
+
+    @Test
+    public void testIncrementalCollectionLeavesPreviousGraphUnchanged()
+        throws DependencyCollectionException
+    {
+        final RemoteRepository other = new RemoteRepository( "other", "default", "file:///other" );
+
+        collector.setArtifactDescriptorReader( new ArtifactDescriptorReader()
+        {
+            public ArtifactDescriptorResult readArtifactDescriptor( RepositorySystemSession session,
+                                                                    ArtifactDescriptorRequest request )
+            {
+                ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+                result.setArtifact( request.getArtifact() );
+                return result;
+            }
+        } );
+        collector.setVersionRangeResolver( new VersionRangeResolver()
+        {
+            public VersionRangeResult resolveVersionRange( RepositorySystemSession session,
+                                                           VersionRangeRequest request )
+            {
+                VersionRangeResult result = new VersionRangeResult( request );
+                result.addVersion( new StubVersion( "1" ) );
+                if ( request.getArtifact().getVersion().startsWith( "[" ) )
+                {
+                    // the range was resolved from a single repository
+                    result.setRepository( result.getVersions().get( 0 ), repository );
+                }
+                return result;
+            }
+        } );
+
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession( this.session );
+        session.setDependencySelector( new StaticDependencySelector( true ) );
+        session.setDependencyManager( new ClassicDependencyManager() );
+        session.setDependencyTraverser( new StaticDependencyTraverser( true ) );
+
+        List<RemoteRepository> repositories = Arrays.asList( repository, other );
+        Dependency dependency = new Dependency( new DefaultArtifact( "gid:aid:1" ), "compile" );
+        CollectRequest request = new CollectRequest( Arrays.asList( dependency ), null, repositories );
+        CollectResult previous = collector.collectDependencies( session, request, null );
+        assertEquals( 2, previous.getRoot().getChildren().get( 0 ).getRepositories().size() );
+
+        Dependency range = new Dependency( new DefaultArtifact( "gid:aid:[1,2)" ), "compile" );
+        CollectRequest rangeRequest = new CollectRequest( Arrays.asList( range ), null, repositories );
+        CollectResult result = collector.collectDependencies( session, rangeRequest, previous );
+        assertEquals( 1, result.getRoot().getChildren().get( 0 ).getRepositories().size() );
+
+        // the reused node of the previous collection must not have been narrowed to the single repository
+        result = collector.collectDependencies( session, request, previous );
+        assertEquals( 2, result.getRoot().getChildren().get( 0 ).getRepositories().size() );
+        assertEquals( 2, previous.getRoot().getChildren().get( 0 ).getRepositories().size() );
+    }
+
+    @Test
+    public void testNodeRepositoriesModifiable()
+        throws IOException, DependencyCollectionException
+    {
+        DependencyNode root = parser.parseLiteral( "gid:aid:ext:ver" );
+        CollectRequest request = new CollectRequest( root.getDependency(), Arrays.asList( repository ) );
+        CollectResult result = collector.collectDependencies( session, request );
+
+        DependencyNode node = result.getRoot().getChildren().get( 0 );
+        RemoteRepository repo = node.getRepositories().get( 0 );
+        assertFalse( repo.isFrozen() );
+        repo.setUrl( "file:///other" );
+        assertSame( repo, node.getRepositories().get( 0 ) );
+
+        result = collector.collectDependencies( session, request );
+        node = result.getRoot().getChildren().get( 0 );
+        assertEquals( repository.getUrl(), node.getRepositories().get( 0 ).getUrl() );
+    }
+
+    @Test
+    public void testSpeculativeArtifactResolution()
+        throws Exception
+    {
+        DependencyNode root = parser.parse( "expectedSubtreeComparisonResult.txt" );
+        CollectRequest request = new CollectRequest( root.getDependency(), Arrays.asList( repository ) );
+
+        final Set<Artifact> resolved = Collections.synchronizedSet( new HashSet<Artifact>() );
+        final CountDownLatch latch = new CountDownLatch( 3 );
+        ArtifactResolver artifactResolver = new ArtifactResolver()
+        {
+            public ArtifactResult resolveArtifact( RepositorySystemSession session, ArtifactRequest request )
+            {
+                resolved.add( request.getArtifact() );
+                latch.countDown();
+                return new ArtifactResult( request );
+            }
+
+            public List<ArtifactResult> resolveArtifacts( RepositorySystemSession session,
+                                                          Collection<? extends ArtifactRequest> requests )
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        RepositorySystemSession session = newSession( SpeculativeArtifactResolver.CONFIG_PROP_THREADS, 2 );
+        SpeculativeArtifactResolver speculativeResolver =
+            SpeculativeArtifactResolver.newInstance( session, artifactResolver );
+        CollectResult result;
+        try
+        {
+            result = collector.collectAndResolveDependencies( session, request, speculativeResolver );
+            assertTrue( latch.await( 10, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            speculativeResolver.finish();
+        }
+
+        assertEqualSubtree( root, result.getRoot() );
+        assertEquals( 3, resolved.size() );
+        for ( DependencyNode child : result.getRoot().getChildren() )
+        {
+            assertTrue( resolved.contains( child.getDependency().getArtifact() ) );
+        }
+    }
+
+    @Test
+    public void testSpeculativeArtifactResolutionDisabledByDefault()
+    {
+        assertNull( SpeculativeArtifactResolver.newInstance( session, null ) );
+    }
+
+    @Test
+    public void testStatistics()
+        throws IOException, DependencyCollectionException
+    {
+        DependencyNode root = parser.parse( "expectedSubtreeComparisonResult.txt" );
+        CollectRequest request = new CollectRequest( root.getDependency(), Arrays.asList( repository ) );
+
+        assertNull( collector.collectDependencies( session, request ).getStatistics() );
+
+        RepositorySystemSession session = newSession( DefaultDependencyCollector.CONFIG_PROP_STATISTICS, true );
+        CollectResult result = collector.collectDependencies( session, request );
+        assertEqualSubtree( root, result.getRoot() );
+
+        CollectStatistics stats = result.getStatistics();
+        assertNotNull( stats );
+        assertEquals( 3, stats.getDescriptorMisses() );
+        assertEquals( 2, stats.getDescriptorHits() );
+        assertEquals( 5, stats.getConstraintHits() + stats.getConstraintMisses() );
+        assertEquals( 5, stats.getNodeHits() + stats.getNodeMisses() );
+        assertTrue( stats.getDescriptorReadingTime() > 0 );
+        assertTrue( stats.toString(), stats.toString().contains( "descriptorHits=2/3" ) );
+        assertEquals( 0, stats.getDescriptorEvictions() );
+        assertEquals( 3, stats.getDescriptorCacheSize() );
+        assertTrue( stats.getDescriptorCacheWeight() >= 3 );
+    }
+
+    private int collectAndCountRangeResolutions( RepositorySystemSession session )
+        throws IOException, DependencyCollectionException
+    {
+        final AtomicInteger resolutions = new AtomicInteger();
+        collector.setVersionRangeResolver( new StubVersionRangeResolver()
+        {
+            @Override
+            public VersionRangeResult resolveVersionRange( RepositorySystemSession session, VersionRangeRequest request )
+                throws VersionRangeResolutionException
+            {
+                resolutions.incrementAndGet();
+                return super.resolveVersionRange( session, request );
+            }
+        } );
+
+        DependencyNode root = parser.parse( "expectedSubtreeComparisonResult.txt" );
+        CollectRequest request = new CollectRequest( root.getDependency(), Arrays.asList( repository ) );
+        CollectResult result = collector.collectDependencies( session, request );
+        assertEqualSubtree( root, result.getRoot() );
+        return resolutions.get();
+    }
+
+    @Test
+    public void testVersionRangesSharedBySession()
+        throws IOException, DependencyCollectionException
+    {
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession( this.session );
+        session.setCache( new DefaultRepositoryCache() );
+        session.setUpdatePolicy( null );
+
+        // the range of the root dependency is always resolved
+        assertTrue( collectAndCountRangeResolutions( session ) > 1 );
+        assertEquals( 1, collectAndCountRangeResolutions( session ) );
+
+        assertTrue( collectAndCountRangeResolutions( this.session ) > 1 );
+    }
+
+    @Test
+    public void testVersionRangesNotSharedWithUpdatePolicyAlways()
+        throws IOException, DependencyCollectionException
+    {
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession( this.session );
+        session.setCache( new DefaultRepositoryCache() );
+        session.setUpdatePolicy( RepositoryPolicy.UPDATE_POLICY_ALWAYS );
+
+        int resolutions = collectAndCountRangeResolutions( session );
+        assertEquals( resolutions, collectAndCountRangeResolutions( session ) );
+
+        session.setUpdatePolicy( null );
+        session.setConfigProps( Collections.singletonMap( DataPool.CONFIG_PROP_CONSTRAINT_TTL, 0 ) );
+        assertEquals( resolutions, collectAndCountRangeResolutions( session ) );
+    }
+
+    private ArtifactDescriptorReader setTreeReader( final int size, final int fanOut )
+    {
+        ArtifactDescriptorReader reader = new ArtifactDescriptorReader()
+        {
+            public ArtifactDescriptorResult readArtifactDescriptor( RepositorySystemSession session,
+                                                                    ArtifactDescriptorRequest request )
+            {
+                ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+                result.setArtifact( request.getArtifact() );
+                int index = Integer.parseInt( request.getArtifact().getArtifactId().substring( 1 ) );
+                if ( index < size )
+                {
+                    for ( int i = 0; i < fanOut; i++ )
+                    {
+                        Artifact child = new DefaultArtifact( "gid", "a" + ( index * fanOut + i + 1 ), "jar", "ver" );
+                        result.addDependency( new Dependency( child, "compile" ) );
+                    }
+                }
+                return result;
+            }
+        };
+        collector.setArtifactDescriptorReader( reader );
+        return reader;
+    }
+
+    private CollectResult collectWithLimit( String limit, int value )
+    {
+        return collectWithLimit( newSession( limit, value ), limit, value );
+    }
+
+    private CollectResult collectWithLimit( RepositorySystemSession session, String limit, int value )
+    {
+        Dependency dependency = new Dependency( new DefaultArtifact( "gid", "a0", "jar", "ver" ), "compile" );
+        CollectRequest request = new CollectRequest( dependency, Arrays.asList( repository ) );
+        try
+        {
+            collector.collectDependencies( session, request );
+            fail( "expected exception" );
+            return null;
+        }
+        catch ( DependencyCollectionException e )
+        {
+            CollectResult result = e.getResult();
+            assertEquals( 1, result.getExceptions().size() );
+            CollectionLimitException cle = (CollectionLimitException) result.getExceptions().get( 0 );
+            assertEquals( limit, cle.getLimit() );
+            assertEquals( value, cle.getValue() );
+            return result;
+        }
+    }
+
+    private int countNodes( DependencyNode node )
+    {
+        int count = 0;
+        for ( DependencyNode child : node.getChildren() )
+        {
+            count += 1 + countNodes( child );
+        }
+        return count;
+    }
+
+    @Test
+    public void testMaxDepth()
+    {
+        setTreeReader( 100, 1 );
+        CollectResult result = collectWithLimit( CollectLimits.CONFIG_PROP_MAX_DEPTH, 10 );
+        assertEquals( 10, countNodes( result.getRoot() ) );
+    }
+
+    @Test
+    public void testMaxNodes()
+    {
+        setTreeReader( 1000, 3 );
+        CollectResult result = collectWithLimit( CollectLimits.CONFIG_PROP_MAX_NODES, 50 );
+        assertEquals( 50, countNodes( result.getRoot() ) );
+    }
+
+    @Test
+    public void testMaxNodesAbortsEntireCollection()
+    {
+        final ArtifactDescriptorReader reader = setTreeReader( 1000, 20 );
+        final AtomicInteger reads = new AtomicInteger();
+        collector.setArtifactDescriptorReader( new ArtifactDescriptorReader()
+        {
+            public ArtifactDescriptorResult readArtifactDescriptor( RepositorySystemSession session,
+                                                                    ArtifactDescriptorRequest request )
+                throws ArtifactDescriptorException
+            {
+                reads.incrementAndGet();
+                return reader.readArtifactDescriptor( session, request );
+            }
+        } );
+        Map<String, Object> configProps = new HashMap<String, Object>();
+        configProps.put( CollectLimits.CONFIG_PROP_MAX_NODES, Integer.valueOf( 10 ) );
+        configProps.put( DefaultDependencyCollector.CONFIG_PROP_THREADS, Integer.valueOf( 1 ) );
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession( this.session );
+        session.setConfigProps( configProps );
+        collectWithLimit( session, CollectLimits.CONFIG_PROP_MAX_NODES, 10 );
+        // the root, the ten nodes and the dependency exceeding the limit, but none of the pending siblings
+        assertEquals( 12, reads.get() );
+    }
+
+    @Test
+    public void testMaxVersions()
+    {
+        setTreeReader( 1, 1 );
+        collector.setVersionRangeResolver( new VersionRangeResolver()
+        {
+            public VersionRangeResult resolveVersionRange( RepositorySystemSession session, VersionRangeRequest request )
+            {
+                VersionRangeResult result = new VersionRangeResult( request );
+                for ( int i = 1; i <= 20; i++ )
+                {
+                    result.addVersion( new StubVersion( String.valueOf( i ) ) );
+                }
+                return result;
+            }
+        } );
+        CollectResult result = collectWithLimit( CollectLimits.CONFIG_PROP_MAX_VERSIONS, 3 );
+        assertEquals( 3, result.getRoot().getChildren().size() );
+        assertEquals( "20", result.getRoot().getChildren().get( 2 ).getVersion().toString() );
+    }
+
+    private RepositorySystemSession newSession( String configKey, Object configValue )
+    {
+        DefaultRepositorySystemSession s = new DefaultRepositorySystemSession( session );
+        s.setConfigProps( Collections.singletonMap( configKey, configValue ) );
+        return s;
+    }
+
     private void assertEqualSubtree( DependencyNode root1, DependencyNode root2 )
     {
         assertEquals( root1.getDependency(), root2.getDependency() );
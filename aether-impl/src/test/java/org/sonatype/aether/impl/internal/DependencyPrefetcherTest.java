@@ -0,0 +1,152 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.impl.VersionRangeResolver;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.resolution.VersionRangeRequest;
+import org.sonatype.aether.resolution.VersionRangeResolutionException;
+import org.sonatype.aether.resolution.VersionRangeResult;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.sonatype.aether.util.graph.manager.ClassicDependencyManager;
+import org.sonatype.aether.util.graph.selector.StaticDependencySelector;
+
+public class DependencyPrefetcherTest
+{
+
+    @Test
+    public void testShutdownCancelsPendingResolutions()
+        throws Exception
+    {
+        final CountDownLatch started = new CountDownLatch( 2 );
+        final CountDownLatch interrupted = new CountDownLatch( 2 );
+        final AtomicInteger calls = new AtomicInteger();
+
+        VersionRangeResolver resolver = new VersionRangeResolver()
+        {
+            public VersionRangeResult resolveVersionRange( RepositorySystemSession session,
+                                                           VersionRangeRequest request )
+                throws VersionRangeResolutionException
+            {
+                calls.incrementAndGet();
+                started.countDown();
+                try
+                {
+                    Thread.sleep( 60 * 1000 );
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted.countDown();
+                }
+                return new VersionRangeResult( request );
+            }
+        };
+
+        RepositorySystemSession session = new TestRepositorySystemSession();
+        DependencyPrefetcher prefetcher =
+            new DependencyPrefetcher( session, resolver, null, new DataPool( session ), "", 2 );
+
+        List<Dependency> dependencies = new ArrayList<Dependency>();
+        for ( int i = 0; i < 6; i++ )
+        {
+            dependencies.add( new Dependency( new DefaultArtifact( "gid:aid" + i + ":1" ), "compile" ) );
+        }
+        prefetcher.prefetch( dependencies, Collections.<RemoteRepository> emptyList(),
+                             new StaticDependencySelector( true ), new ClassicDependencyManager() );
+
+        assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+
+        prefetcher.shutdown();
+
+        assertTrue( interrupted.await( 10, TimeUnit.SECONDS ) );
+        Thread.sleep( 100 );
+        assertEquals( 2, calls.get() );
+    }
+
+    @Test
+    public void testInterruptionReportedInsteadOfResolvingDirectly()
+        throws Exception
+    {
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final AtomicInteger calls = new AtomicInteger();
+
+        VersionRangeResolver resolver = new VersionRangeResolver()
+        {
+            public VersionRangeResult resolveVersionRange( RepositorySystemSession session,
+                                                           VersionRangeRequest request )
+                throws VersionRangeResolutionException
+            {
+                calls.incrementAndGet();
+                started.countDown();
+                try
+                {
+                    Thread.sleep( 60 * 1000 );
+                }
+                catch ( InterruptedException e )
+                {
+                    // shutdown
+                }
+                return new VersionRangeResult( request );
+            }
+        };
+
+        RepositorySystemSession session = new TestRepositorySystemSession();
+        DataPool pool = new DataPool( session );
+        DependencyPrefetcher prefetcher = new DependencyPrefetcher( session, resolver, null, pool, "", 1 );
+
+        Dependency dependency = new Dependency( new DefaultArtifact( "gid:aid:1" ), "compile" );
+        prefetcher.prefetch( Collections.singletonList( dependency ), Collections.<RemoteRepository> emptyList(),
+                             new StaticDependencySelector( true ), new ClassicDependencyManager() );
+
+        assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+
+        VersionRangeRequest request = new VersionRangeRequest();
+        request.setArtifact( dependency.getArtifact() );
+        request.setRepositories( Collections.<RemoteRepository> emptyList() );
+        request.setRequestContext( "" );
+
+        Thread.currentThread().interrupt();
+        try
+        {
+            prefetcher.resolveVersionRange( pool.toKey( request ), request );
+            fail( "interruption not reported" );
+        }
+        catch ( VersionRangeResolutionException e )
+        {
+            assertTrue( e.getCause() instanceof InterruptedException );
+            assertTrue( Thread.interrupted() );
+        }
+        finally
+        {
+            Thread.interrupted();
+            prefetcher.shutdown();
+        }
+
+        assertEquals( 1, calls.get() );
+    }
+
+}
@@ -0,0 +1,344 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.Exclusion;
+import org.sonatype.aether.repository.LocalArtifactRegistration;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+import org.sonatype.aether.test.util.TestFileUtils;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+public class DescriptorStoreTest
+{
+
+    private File basedir;
+
+    private DefaultRepositorySystemSession session;
+
+    private RemoteRepository repository;
+
+    private Artifact artifact;
+
+    private File pom;
+
+    @Before
+    public void setup()
+        throws IOException
+    {
+        basedir = new File( "target/descriptor-store-repo" );
+        session = new DefaultRepositorySystemSession( new TestRepositorySystemSession() );
+        session.setLocalRepositoryManager( new SimpleLocalRepositoryManager( basedir ) );
+        session.setConfigProps( Collections.singletonMap( DescriptorStore.CONFIG_PROP_ENABLED, Boolean.TRUE ) );
+
+        repository = new RemoteRepository( "central", "default", "http://localhost/repo" );
+
+        artifact = new DefaultArtifact( "gid:aid:jar:1" );
+        pom = new File( basedir, "gid/aid/1/aid-1.pom" );
+        write( pom, "<project/>" );
+    }
+
+    @After
+    public void tearDown()
+    {
+        TestFileUtils.deleteDir( basedir );
+    }
+
+    private static void write( File file, String content )
+        throws IOException
+    {
+        file.getParentFile().mkdirs();
+        FileOutputStream os = new FileOutputStream( file );
+        try
+        {
+            os.write( content.getBytes( "UTF-8" ) );
+        }
+        finally
+        {
+            os.close();
+        }
+    }
+
+    private ArtifactDescriptorRequest newRequest()
+    {
+        return new ArtifactDescriptorRequest( artifact, Arrays.asList( repository ), "project" );
+    }
+
+    private ArtifactDescriptorResult newResult( ArtifactDescriptorRequest request )
+    {
+        ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+        result.setArtifact( artifact );
+        result.setRepository( repository );
+        result.addRelocation( new DefaultArtifact( "gid:old:jar:1" ) );
+        result.addAlias( new DefaultArtifact( "gid:alias:jar:1" ) );
+        result.addDependency( new Dependency( new DefaultArtifact( "gid:dep:jar:2" ), "compile", true,
+                                              Arrays.asList( new Exclusion( "x", "y", "*", "*" ) ) ) );
+        result.addManagedDependency( new Dependency( new DefaultArtifact( "gid:managed:jar:3" ), "test" ) );
+        result.addRepository( new RemoteRepository( "other", "default", "http://localhost/other" ) );
+        result.setProperties( Collections.<String, Object> singletonMap( "key", "value" ) );
+        return result;
+    }
+
+    @Test
+    public void testDisabledByDefault()
+    {
+        session.setConfigProps( Collections.<String, Object> emptyMap() );
+        assertNull( DescriptorStore.newInstance( session ) );
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        ArtifactDescriptorRequest request = newRequest();
+        ArtifactDescriptorResult expected = newResult( request );
+
+        DescriptorStore.newInstance( session ).put( expected );
+
+        ArtifactDescriptorResult actual = DescriptorStore.newInstance( session ).get( request );
+        assertNotNull( actual );
+        assertSame( request, actual.getRequest() );
+        assertEquals( expected.getArtifact(), actual.getArtifact() );
+        assertEquals( repository.getId(), actual.getRepository().getId() );
+        assertEquals( expected.getRelocations(), actual.getRelocations() );
+        assertEquals( expected.getAliases().toString(), actual.getAliases().toString() );
+        assertEquals( expected.getDependencies(), actual.getDependencies() );
+        assertEquals( expected.getManagedDependencies(), actual.getManagedDependencies() );
+        assertEquals( expected.getRepositories().toString(), actual.getRepositories().toString() );
+        assertEquals( expected.getProperties(), actual.getProperties() );
+    }
+
+    @Test
+    public void testInvalidatedByDescriptorChange()
+        throws IOException
+    {
+        ArtifactDescriptorRequest request = newRequest();
+        DescriptorStore.newInstance( session ).put( newResult( request ) );
+
+        write( pom, "<project></project>" );
+
+        assertNull( DescriptorStore.newInstance( session ).get( request ) );
+    }
+
+    @Test
+    public void testIgnoredForOtherRepository()
+    {
+        DescriptorStore.newInstance( session ).put( newResult( newRequest() ) );
+
+        repository = new RemoteRepository( "central", "default", "http://localhost/mirror" );
+
+        assertNull( DescriptorStore.newInstance( session ).get( newRequest() ) );
+    }
+
+    @Test
+    public void testMissingDescriptorFile()
+    {
+        ArtifactDescriptorRequest request = newRequest();
+        DescriptorStore.newInstance( session ).put( newResult( request ) );
+
+        pom.delete();
+
+        assertNull( DescriptorStore.newInstance( session ).get( request ) );
+    }
+
+    @Test
+    public void testInvalidatedBySessionProperties()
+    {
+        ArtifactDescriptorRequest request = newRequest();
+        DescriptorStore.newInstance( session ).put( newResult( request ) );
+
+        session.setUserProperties( Collections.singletonMap( "profile.enabled", "true" ) );
+        assertNull( DescriptorStore.newInstance( session ).get( request ) );
+
+        session.setUserProperties( null );
+        session.setSystemProperties( Collections.singletonMap( "java.version", "1.4" ) );
+        assertNull( DescriptorStore.newInstance( session ).get( request ) );
+    }
+
+    @Test
+    public void testSnapshotsNotStored()
+        throws IOException
+    {
+        artifact = new DefaultArtifact( "gid:aid:jar:1-SNAPSHOT" );
+        write( new File( basedir, "gid/aid/1-SNAPSHOT/aid-1-SNAPSHOT.pom" ), "<project/>" );
+
+        ArtifactDescriptorRequest request = newRequest();
+        DescriptorStore.newInstance( session ).put( newResult( request ) );
+
+        assertNull( DescriptorStore.newInstance( session ).get( request ) );
+    }
+
+    @Test
+    public void testLocallyInstalledNotStored()
+    {
+        ArtifactDescriptorRequest request = newRequest();
+        ArtifactDescriptorResult result = newResult( request );
+        result.setRepository( session.getLocalRepository() );
+        DescriptorStore.newInstance( session ).put( result );
+
+        assertNull( DescriptorStore.newInstance( session ).get( request ) );
+    }
+
+    @Test
+    public void testDownloadedDescriptorFromWarmLocalRepository()
+    {
+        session.setLocalRepositoryManager( new EnhancedLocalRepositoryManager( basedir ) );
+        session.getLocalRepositoryManager().add( session, newRegistration( repository ) );
+
+        ArtifactDescriptorRequest request = newRequest();
+        ArtifactDescriptorResult result = newResult( request );
+        result.setRepository( session.getLocalRepository() );
+        DescriptorStore.newInstance( session ).put( result );
+
+        DefaultRepositorySystemSession next = new DefaultRepositorySystemSession( session );
+        next.setLocalRepositoryManager( new EnhancedLocalRepositoryManager( basedir ) );
+        DataPool pool = new DataPool( next );
+        ArtifactDescriptorResult actual = pool.getDescriptor( pool.toKey( request ), request );
+        assertNotNull( actual );
+        assertEquals( session.getLocalRepository(), actual.getRepository() );
+        assertEquals( result.getDependencies(), actual.getDependencies() );
+
+        repository = new RemoteRepository( "other", "default", "http://localhost/other" );
+        assertNull( DescriptorStore.newInstance( next ).get( newRequest() ) );
+    }
+
+    @Test
+    public void testInstalledDescriptorFromWarmLocalRepositoryNotStored()
+    {
+        session.setLocalRepositoryManager( new EnhancedLocalRepositoryManager( basedir ) );
+        session.getLocalRepositoryManager().add( session, newRegistration( null ) );
+
+        ArtifactDescriptorRequest request = newRequest();
+        ArtifactDescriptorResult result = newResult( request );
+        result.setRepository( session.getLocalRepository() );
+        DescriptorStore.newInstance( session ).put( result );
+
+        assertNull( DescriptorStore.newInstance( session ).get( request ) );
+    }
+
+    private LocalArtifactRegistration newRegistration( RemoteRepository repository )
+    {
+        Artifact descriptor = new DefaultArtifact( "gid:aid:pom:1" );
+        return new LocalArtifactRegistration( descriptor, repository, Collections.singleton( "project" ) );
+    }
+
+    @Test
+    public void testCorruptEntriesIgnored()
+        throws IOException
+    {
+        ArtifactDescriptorRequest request = newRequest();
+        DescriptorStore.newInstance( session ).put( newResult( request ) );
+
+        File[] entries = pom.getParentFile().listFiles();
+        File entry = null;
+        for ( File file : entries )
+        {
+            if ( file.getName().endsWith( ".bin" ) )
+            {
+                entry = file;
+            }
+        }
+        assertNotNull( entry );
+
+        byte[] bytes = read( entry );
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            for ( int value : new int[] { 0x00, 0x7F, 0xFF } )
+            {
+                if ( bytes[i] == (byte) value )
+                {
+                    continue;
+                }
+                byte[] corrupt = bytes.clone();
+                corrupt[i] = (byte) value;
+                write( entry, corrupt );
+                assertNull( "byte " + i, DescriptorStore.newInstance( session ).get( request ) );
+                assertFalse( "byte " + i, entry.exists() );
+            }
+
+            byte[] truncated = new byte[i];
+            System.arraycopy( bytes, 0, truncated, 0, i );
+            write( entry, truncated );
+            assertNull( "length " + i, DescriptorStore.newInstance( session ).get( request ) );
+            assertFalse( "length " + i, entry.exists() );
+        }
+
+        write( entry, bytes );
+        assertNotNull( DescriptorStore.newInstance( session ).get( request ) );
+    }
+
+    private static byte[] read( File file )
+        throws IOException
+    {
+        byte[] bytes = new byte[(int) file.length()];
+        DataInputStream is = new DataInputStream( new FileInputStream( file ) );
+        try
+        {
+            is.readFully( bytes );
+        }
+        finally
+        {
+            is.close();
+        }
+        return bytes;
+    }
+
+    private static void write( File file, byte[] bytes )
+        throws IOException
+    {
+        FileOutputStream os = new FileOutputStream( file );
+        try
+        {
+            os.write( bytes );
+        }
+        finally
+        {
+            os.close();
+        }
+    }
+
+    @Test
+    public void testDataPoolConsultsStore()
+    {
+        ArtifactDescriptorRequest request = newRequest();
+
+        DataPool pool = new DataPool( session );
+        pool.putDescriptor( pool.toKey( request ), newResult( request ) );
+
+        pool = new DataPool( session );
+        ArtifactDescriptorResult result = pool.getDescriptor( pool.toKey( request ), request );
+        assertNotNull( result );
+        assertEquals( 1, result.getDependencies().size() );
+        assertEquals( 1, result.getManagedDependencies().size() );
+        assertEquals( "gid:managed:jar:3", result.getManagedDependencies().get( 0 ).getArtifact().toString() );
+    }
+
+}
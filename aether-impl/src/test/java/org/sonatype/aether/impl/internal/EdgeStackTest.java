@@ -0,0 +1,240 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+public class EdgeStackTest
+{
+
+    private static GraphEdge newEdge( String coords )
+    {
+        GraphEdge edge = new GraphEdge( null, new GraphNode() );
+        edge.setDependency( new Dependency( new DefaultArtifact( coords ), "compile" ) );
+        return edge;
+    }
+
+    @Test
+    public void testPushPop()
+    {
+        EdgeStack stack = new EdgeStack();
+        GraphEdge root = new GraphEdge( null, new GraphNode() );
+        GraphEdge a = newEdge( "gid:a:1" );
+        GraphEdge b = newEdge( "gid:b:1" );
+
+        stack.push( root );
+        stack.push( a );
+        stack.push( b );
+        assertEquals( 3, stack.size() );
+        assertSame( b, stack.top() );
+
+        assertSame( b, stack.pop() );
+        assertSame( a, stack.top() );
+        assertSame( a, stack.pop() );
+        assertSame( root, stack.pop() );
+        assertEquals( 0, stack.size() );
+    }
+
+    @Test
+    public void testContains()
+    {
+        EdgeStack stack = new EdgeStack();
+        stack.push( new GraphEdge( null, new GraphNode() ) );
+        stack.push( newEdge( "gid:a:1" ) );
+
+        assertTrue( stack.contains( new DefaultArtifact( "gid:a:1" ) ) );
+        assertFalse( stack.contains( new DefaultArtifact( "gid:a:2" ) ) );
+        assertFalse( stack.contains( new DefaultArtifact( "gid:a:jar:tests:1" ) ) );
+        assertFalse( stack.contains( new DefaultArtifact( "gid:a:pom:1" ) ) );
+        assertFalse( stack.contains( new DefaultArtifact( "gid:b:1" ) ) );
+
+        stack.pop();
+        assertFalse( stack.contains( new DefaultArtifact( "gid:a:1" ) ) );
+    }
+
+    @Test
+    public void testContainsIgnoresTimestampOfSnapshots()
+    {
+        EdgeStack stack = new EdgeStack();
+        stack.push( newEdge( "gid:a:1.0-20101010.101010-1" ) );
+
+        assertTrue( stack.contains( new DefaultArtifact( "gid:a:1.0-SNAPSHOT" ) ) );
+    }
+
+    @Test
+    public void testContainsWithDuplicateEntries()
+    {
+        EdgeStack stack = new EdgeStack();
+        stack.push( newEdge( "gid:a:1" ) );
+        stack.push( newEdge( "gid:a:1" ) );
+
+        stack.pop();
+        assertTrue( stack.contains( new DefaultArtifact( "gid:a:1" ) ) );
+        stack.pop();
+        assertFalse( stack.contains( new DefaultArtifact( "gid:a:1" ) ) );
+    }
+
+    @Test
+    public void testPathSnapshot()
+    {
+        EdgeStack stack = new EdgeStack();
+        assertNull( stack.getPath() );
+
+        GraphEdge a = newEdge( "gid:a:1" );
+        stack.push( a );
+        EdgeStack.Path path = stack.getPath();
+        assertSame( path, stack.getPath() );
+        assertSame( a, path.edge );
+
+        GraphEdge b = newEdge( "gid:b:1" );
+        stack.push( b );
+        EdgeStack.Path child = stack.getPath();
+        assertSame( path, child.parent );
+        assertEquals( 2, child.size );
+
+        stack.pop();
+        stack.pop();
+        assertNull( stack.getPath() );
+        assertEquals( 2, child.size );
+    }
+
+    @Test
+    public void testSetPath()
+    {
+        EdgeStack stack = new EdgeStack();
+        stack.push( newEdge( "gid:a:1" ) );
+        stack.push( newEdge( "gid:b:1" ) );
+        EdgeStack.Path ab = stack.getPath();
+        stack.pop();
+        stack.push( newEdge( "gid:c:1" ) );
+        stack.push( newEdge( "gid:d:1" ) );
+        EdgeStack.Path acd = stack.getPath();
+
+        stack.setPath( ab );
+        assertEquals( 2, stack.size() );
+        assertSame( ab.edge, stack.top() );
+        assertTrue( stack.contains( new DefaultArtifact( "gid:a:1" ) ) );
+        assertTrue( stack.contains( new DefaultArtifact( "gid:b:1" ) ) );
+        assertFalse( stack.contains( new DefaultArtifact( "gid:c:1" ) ) );
+        assertFalse( stack.contains( new DefaultArtifact( "gid:d:1" ) ) );
+        assertSame( ab, stack.getPath() );
+
+        stack.setPath( acd );
+        assertEquals( 3, stack.size() );
+        assertSame( acd.edge, stack.top() );
+        assertFalse( stack.contains( new DefaultArtifact( "gid:b:1" ) ) );
+        assertTrue( stack.contains( new DefaultArtifact( "gid:c:1" ) ) );
+        assertTrue( stack.contains( new DefaultArtifact( "gid:d:1" ) ) );
+        assertSame( acd, stack.getPath() );
+
+        EdgeStack other = new EdgeStack();
+        other.setPath( acd );
+        assertEquals( 3, other.size() );
+        assertTrue( other.contains( new DefaultArtifact( "gid:a:1" ) ) );
+        assertSame( acd, other.getPath() );
+
+        other.setPath( null );
+        assertEquals( 0, other.size() );
+        assertFalse( other.contains( new DefaultArtifact( "gid:a:1" ) ) );
+    }
+
+    @Test
+    public void testGrowth()
+    {
+        EdgeStack stack = new EdgeStack();
+        for ( int i = 0; i < 200; i++ )
+        {
+            stack.push( newEdge( "gid:a" + i + ":1" ) );
+        }
+        assertEquals( 200, stack.size() );
+        assertTrue( stack.contains( new DefaultArtifact( "gid:a0:1" ) ) );
+        assertTrue( stack.contains( new DefaultArtifact( "gid:a199:1" ) ) );
+    }
+
+    /**
+     * Checks the cycle detection against the linear scan over the ancestor path used formerly, using a deep path where
+     * (like in real graphs) most candidates are not part of the path.
+     */
+    @Test
+    public void testContainsMatchesLinearScanOnDeepPath()
+    {
+        final int depth = 200;
+
+        EdgeStack stack = new EdgeStack();
+        LinkedList<GraphEdge> path = new LinkedList<GraphEdge>();
+        for ( int i = 0; i < depth; i++ )
+        {
+            GraphEdge edge = newEdge( "org.example.group" + i + ":artifact" + i + ":1.0" );
+            stack.push( edge );
+            path.addFirst( edge );
+        }
+
+        for ( int i = 0; i < depth * 2; i++ )
+        {
+            for ( String version : new String[] { "1.0", "2.0" } )
+            {
+                Artifact candidate = new DefaultArtifact( "org.example.group" + i + ":artifact" + i + ":" + version );
+                assertEquals( candidate.toString(), findDuplicate( path, candidate ) != null,
+                              stack.contains( candidate ) );
+            }
+        }
+    }
+
+    private static GraphEdge findDuplicate( List<GraphEdge> edges, Artifact artifact )
+    {
+        for ( GraphEdge edge : edges )
+        {
+            Dependency dependency = edge.getDependency();
+            if ( dependency == null )
+            {
+                break;
+            }
+
+            Artifact a = dependency.getArtifact();
+            if ( !a.getArtifactId().equals( artifact.getArtifactId() ) )
+            {
+                continue;
+            }
+            if ( !a.getGroupId().equals( artifact.getGroupId() ) )
+            {
+                continue;
+            }
+            if ( !a.getBaseVersion().equals( artifact.getBaseVersion() ) )
+            {
+                continue;
+            }
+            if ( !a.getExtension().equals( artifact.getExtension() ) )
+            {
+                continue;
+            }
+            if ( !a.getClassifier().equals( artifact.getClassifier() ) )
+            {
+                continue;
+            }
+
+            return edge;
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,197 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class ObjectPoolTest
+{
+
+    @Test
+    public void testIntern()
+    {
+        ObjectPool<String> pool = new ObjectPool<String>();
+        String a = new String( "a" );
+        String b = new String( "a" );
+        assertSame( a, pool.intern( a ) );
+        assertSame( a, pool.intern( b ) );
+        assertSame( a, pool.intern( a ) );
+        String c = new String( "c" );
+        assertSame( c, pool.intern( c ) );
+    }
+
+    @Test
+    public void testFind()
+    {
+        ObjectPool<String> pool = new ObjectPool<String>();
+        assertNull( pool.find( "a" ) );
+        String a = new String( "a" );
+        pool.intern( a );
+        assertSame( a, pool.find( new String( "a" ) ) );
+        assertNull( pool.find( "b" ) );
+        assertNull( pool.find( "b" ) );
+    }
+
+    @Test
+    public void testPooledObjectsAreWeaklyReferenced()
+        throws Exception
+    {
+        ObjectPool<String> pool = new ObjectPool<String>();
+        WeakReference<String> ref = new WeakReference<String>( pool.intern( new String( "a" ) ) );
+        for ( int i = 0; i < 20 && ref.get() != null; i++ )
+        {
+            System.gc();
+            Thread.sleep( 10 );
+        }
+        assertNull( ref.get() );
+
+        String b = new String( "a" );
+        assertSame( b, pool.intern( b ) );
+    }
+
+    @Test
+    public void testConcurrentIntern()
+        throws Exception
+    {
+        final ObjectPool<String> pool = new ObjectPool<String>();
+        final int threads = 8;
+        final int keys = 1000;
+        final String[][] interned = new String[threads][keys];
+
+        runConcurrently( threads, new Task()
+        {
+            public void run( int thread )
+            {
+                for ( int i = 0; i < keys; i++ )
+                {
+                    interned[thread][i] = pool.intern( new String( "key" + i ) );
+                }
+            }
+        } );
+
+        for ( int i = 0; i < keys; i++ )
+        {
+            for ( int t = 1; t < threads; t++ )
+            {
+                assertSame( interned[0][i], interned[t][i] );
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentInternOfOverlappingObjects()
+        throws Exception
+    {
+        final ObjectPool<String> pool = new ObjectPool<String>();
+        final int threads = 8;
+        final String[] objects = new String[500];
+        for ( int i = 0; i < objects.length; i++ )
+        {
+            objects[i] = "org.example.group" + ( i % 50 ) + ":artifact" + i + ":1.0";
+        }
+        final String[] canonical = new String[objects.length];
+        for ( int i = 0; i < objects.length; i++ )
+        {
+            canonical[i] = pool.intern( new String( objects[i] ) );
+        }
+
+        runConcurrently( threads, new Task()
+        {
+            public void run( int thread )
+            {
+                for ( int r = 0; r < 20; r++ )
+                {
+                    for ( int i = 0; i < objects.length; i++ )
+                    {
+                        int index = ( i + thread * 37 ) % objects.length;
+                        String interned = pool.intern( new String( objects[index] ) );
+                        if ( interned != canonical[index] )
+                        {
+                            throw new AssertionError( "not canonical: " + interned );
+                        }
+                    }
+                }
+            }
+        } );
+    }
+
+    @Test
+    public void testClearedEntryOnlyEqualsItself()
+    {
+        ObjectPool.Entry<String> entry = new ObjectPool.Entry<String>( "a", null );
+        ObjectPool.Entry<String> other = new ObjectPool.Entry<String>( new String( "a" ), null );
+        assertEquals( entry, other );
+        assertEquals( new ObjectPool.Key( "a" ), entry );
+
+        entry.clear();
+        assertEquals( entry, entry );
+        assertFalse( entry.equals( other ) );
+        assertFalse( new ObjectPool.Key( "a" ).equals( entry ) );
+        assertEquals( other.hashCode(), entry.hashCode() );
+    }
+
+    private interface Task
+    {
+
+        void run( int thread );
+
+    }
+
+    private static void runConcurrently( int threads, final Task task )
+        throws Exception
+    {
+        final CountDownLatch startSignal = new CountDownLatch( 1 );
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        List<Thread> workers = new ArrayList<Thread>();
+        for ( int t = 0; t < threads; t++ )
+        {
+            final int thread = t;
+            Thread worker = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        startSignal.await();
+                        task.run( thread );
+                    }
+                    catch ( Throwable e )
+                    {
+                        synchronized ( errors )
+                        {
+                            errors.add( e );
+                        }
+                    }
+                }
+            };
+            worker.start();
+            workers.add( worker );
+        }
+        startSignal.countDown();
+        for ( Thread worker : workers )
+        {
+            worker.join();
+        }
+        assertEquals( "" + errors, 0, errors.size() );
+    }
+
+}
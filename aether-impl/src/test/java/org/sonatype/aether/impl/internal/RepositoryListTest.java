@@ -0,0 +1,109 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.sonatype.aether.repository.RemoteRepository;
+
+public class RepositoryListTest
+{
+
+    private List<RemoteRepository> newRepositories( String id )
+    {
+        List<RemoteRepository> repositories = new ArrayList<RemoteRepository>();
+        repositories.add( new RemoteRepository( id, "default", "http://localhost/central" ) );
+        repositories.add( new RemoteRepository( "snapshots", "default", "http://localhost/snapshots" ) );
+        return repositories;
+    }
+
+    @Test
+    public void testIntern()
+    {
+        RepositoryList.Pool pool = new RepositoryList.Pool();
+        List<RemoteRepository> repositories = newRepositories( "central" );
+
+        RepositoryList list = pool.intern( repositories );
+        assertSame( list, pool.intern( newRepositories( "central" ) ) );
+        assertSame( list, pool.intern( list ) );
+        assertNotSame( list, pool.intern( newRepositories( "other" ) ) );
+
+        assertEquals( repositories, list );
+        assertEquals( list, repositories );
+        assertEquals( repositories.hashCode(), list.hashCode() );
+        assertTrue( list.get( 0 ).isFrozen() );
+    }
+
+    @Test
+    public void testListsAreWeaklyReferenced()
+        throws Exception
+    {
+        RepositoryList.Pool pool = new RepositoryList.Pool();
+        WeakReference<RepositoryList> ref = new WeakReference<RepositoryList>( pool.intern( newRepositories( "a" ) ) );
+        WeakReference<Object> keyRef = new WeakReference<Object>( RepositoryList.toContentKey( ref.get() ) );
+        for ( int i = 0; i < 20 && ( ref.get() != null || keyRef.get() != null ); i++ )
+        {
+            System.gc();
+            Thread.sleep( 10 );
+        }
+        assertNull( ref.get() );
+        assertNull( keyRef.get() );
+
+        RepositoryList list = pool.intern( newRepositories( "a" ) );
+        assertEquals( newRepositories( "a" ), list );
+        assertSame( list, pool.intern( newRepositories( "a" ) ) );
+    }
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void testUnmodifiable()
+    {
+        new RepositoryList.Pool().intern( newRepositories( "central" ) ).clear();
+    }
+
+    @Test
+    public void testContentKey()
+    {
+        RepositoryList.Pool pool = new RepositoryList.Pool();
+        RepositoryList list1 = pool.intern( newRepositories( "central" ) );
+        RepositoryList list2 = pool.intern( newRepositories( "other" ) );
+
+        assertSame( RepositoryList.toContentKey( list1 ), RepositoryList.toContentKey( list2 ) );
+        assertEquals( RepositoryList.toContentKey( list1 ), RepositoryList.toContentKey( newRepositories( "x" ) ) );
+
+        List<RemoteRepository> disabled = newRepositories( "central" );
+        disabled.get( 1 ).setPolicy( true, disabled.get( 1 ).getPolicy( true ).setEnabled( false ) );
+        assertFalse( RepositoryList.toContentKey( list1 ).equals( RepositoryList.toContentKey( disabled ) ) );
+    }
+
+    @Test
+    public void testContentKeyOfRepositoryManager()
+    {
+        RemoteRepository mirror1 = new RemoteRepository( "mirror1", "default", "http://localhost/mirror1" );
+        mirror1.setRepositoryManager( true );
+        mirror1.setMirroredRepositories( newRepositories( "central" ) );
+        RemoteRepository mirror2 = new RemoteRepository( "mirror2", "default", "http://localhost/mirror2" );
+        mirror2.setRepositoryManager( true );
+        mirror2.setMirroredRepositories( newRepositories( "central" ) );
+
+        assertEquals( RepositoryList.toContentKey( Arrays.asList( mirror1 ) ),
+                      RepositoryList.toContentKey( Arrays.asList( mirror2 ) ) );
+    }
+
+}
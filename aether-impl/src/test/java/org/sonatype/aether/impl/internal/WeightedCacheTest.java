@@ -0,0 +1,138 @@
+package org.sonatype.aether.impl.internal;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+public class WeightedCacheTest
+{
+
+    private DataPool.Descriptor newDescriptor( String id, int dependencies )
+    {
+        Artifact artifact = new DefaultArtifact( "gid", id, "jar", "1" );
+        ArtifactDescriptorResult result = new ArtifactDescriptorResult( new ArtifactDescriptorRequest() );
+        result.setArtifact( artifact );
+        for ( int i = 0; i < dependencies; i++ )
+        {
+            result.addDependency( new Dependency( new DefaultArtifact( "gid", id + "-" + i, "jar", "1" ), "compile" ) );
+        }
+        return new DataPool.Descriptor( result );
+    }
+
+    private static WeightedCache.Segment<DataPool.Descriptor> newSegment( int maxWeight )
+    {
+        return new WeightedCache.Segment<DataPool.Descriptor>( maxWeight, DataPool.DESCRIPTOR_WEIGHER );
+    }
+
+    private static WeightedCache<DataPool.Descriptor> newCache( int maxWeight )
+    {
+        return new WeightedCache<DataPool.Descriptor>( maxWeight, DataPool.DESCRIPTOR_WEIGHER );
+    }
+
+    @Test
+    public void testWeight()
+    {
+        assertEquals( 1, DataPool.DESCRIPTOR_WEIGHER.weigh( newDescriptor( "a", 0 ) ) );
+        assertEquals( 4, DataPool.DESCRIPTOR_WEIGHER.weigh( newDescriptor( "a", 3 ) ) );
+    }
+
+    @Test
+    public void testSegmentEvictsLeastRecentlyUsed()
+    {
+        WeightedCache.Segment<DataPool.Descriptor> segment = newSegment( 6 );
+        assertEquals( 0, segment.put( "a", newDescriptor( "a", 1 ) ) );
+        assertEquals( 0, segment.put( "b", newDescriptor( "b", 1 ) ) );
+        assertEquals( 0, segment.put( "c", newDescriptor( "c", 1 ) ) );
+        assertEquals( 6, segment.getWeight() );
+
+        assertNotNull( segment.get( "a" ) );
+
+        assertEquals( 1, segment.put( "d", newDescriptor( "d", 1 ) ) );
+        assertNotNull( segment.get( "a" ) );
+        assertNull( segment.get( "b" ) );
+        assertNotNull( segment.get( "c" ) );
+        assertNotNull( segment.get( "d" ) );
+        assertEquals( 6, segment.getWeight() );
+    }
+
+    @Test
+    public void testSegmentKeepsOverweightEntry()
+    {
+        WeightedCache.Segment<DataPool.Descriptor> segment = newSegment( 6 );
+        segment.put( "a", newDescriptor( "a", 1 ) );
+        assertEquals( 1, segment.put( "b", newDescriptor( "b", 9 ) ) );
+        assertEquals( 1, segment.getSize() );
+        assertNotNull( segment.get( "b" ) );
+        assertEquals( 10, segment.getWeight() );
+    }
+
+    @Test
+    public void testSegmentReplacesEntry()
+    {
+        WeightedCache.Segment<DataPool.Descriptor> segment = newSegment( 100 );
+        segment.put( "a", newDescriptor( "a", 5 ) );
+        segment.put( "a", newDescriptor( "a", 1 ) );
+        assertEquals( 1, segment.getSize() );
+        assertEquals( 2, segment.getWeight() );
+    }
+
+    @Test
+    public void testSegmentRemovesOnlyCurrentEntry()
+    {
+        WeightedCache.Segment<DataPool.Descriptor> segment = newSegment( 100 );
+        DataPool.Descriptor a = newDescriptor( "a", 1 );
+        segment.put( "a", a );
+        segment.remove( "a", newDescriptor( "a", 1 ) );
+        assertSame( a, segment.get( "a" ) );
+        segment.remove( "a", a );
+        assertNull( segment.get( "a" ) );
+        assertEquals( 0, segment.getWeight() );
+    }
+
+    @Test
+    public void testMetrics()
+    {
+        WeightedCache<DataPool.Descriptor> cache = newCache( 1000 );
+        assertNull( cache.get( "a" ) );
+        cache.put( "a", newDescriptor( "a", 2 ) );
+        assertNotNull( cache.get( "a" ) );
+        assertNotNull( cache.get( "a" ) );
+
+        assertEquals( 2, cache.getHits() );
+        assertEquals( 1, cache.getMisses() );
+        assertEquals( 0, cache.getEvictions() );
+        assertEquals( 1, cache.getSize() );
+        assertEquals( 3, cache.getWeight() );
+    }
+
+    @Test
+    public void testBoundedWeight()
+    {
+        WeightedCache<DataPool.Descriptor> cache = newCache( 160 );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            cache.put( "a" + i, newDescriptor( "a" + i, 1 ) );
+        }
+        assertTrue( cache.getWeight() <= 160 );
+        assertEquals( 1000 - cache.getSize(), cache.getEvictions() );
+    }
+
+}
@@ -14,7 +14,6 @@ package org.sonatype.aether.util.graph.manager;
  */
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -29,7 +28,8 @@ import org.sonatype.aether.util.artifact.ArtifactProperties;
 import org.sonatype.aether.util.artifact.JavaScopes;
 
 /**
- * A dependency manager that mimics the way Maven 2.x works.
+ * A dependency manager that mimics the way Maven 2.x works. The management information is kept in persistent maps, so
+ * a derived manager shares the entries of its parent and only allocates for the entries it adds.
  * 
  * @author Benjamin Bentmann
  */
@@ -39,32 +39,42 @@ public class ClassicDependencyManager
 
     private final int depth;
 
-    private final Map<Object, String> managedVersions;
+    private final PersistentHashMap<Object, String> managedVersions;
 
-    private final Map<Object, String> managedScopes;
+    private final PersistentHashMap<Object, String> managedScopes;
 
-    private final Map<Object, String> managedLocalPaths;
+    private final PersistentHashMap<Object, String> managedLocalPaths;
 
-    private final Map<Object, Collection<Exclusion>> managedExclusions;
+    private final PersistentHashMap<Object, Collection<Exclusion>> managedExclusions;
+
+    private final int hashCode;
 
     /**
      * Creates a new dependency manager without any management information.
      */
     public ClassicDependencyManager()
     {
-        this( 0, Collections.<Object, String> emptyMap(), Collections.<Object, String> emptyMap(),
-              Collections.<Object, String> emptyMap(), Collections.<Object, Collection<Exclusion>> emptyMap() );
+        this( 0, PersistentHashMap.<Object, String> empty(), PersistentHashMap.<Object, String> empty(),
+              PersistentHashMap.<Object, String> empty(), PersistentHashMap.<Object, Collection<Exclusion>> empty() );
     }
 
-    private ClassicDependencyManager( int depth, Map<Object, String> managedVersions,
-                                      Map<Object, String> managedScopes, Map<Object, String> managedLocalPaths,
-                                      Map<Object, Collection<Exclusion>> managedExclusions )
+    private ClassicDependencyManager( int depth, PersistentHashMap<Object, String> managedVersions,
+                                      PersistentHashMap<Object, String> managedScopes,
+                                      PersistentHashMap<Object, String> managedLocalPaths,
+                                      PersistentHashMap<Object, Collection<Exclusion>> managedExclusions )
     {
         this.depth = depth;
         this.managedVersions = managedVersions;
         this.managedScopes = managedScopes;
         this.managedLocalPaths = managedLocalPaths;
         this.managedExclusions = managedExclusions;
+
+        int hash = 17;
+        hash = hash * 31 + depth;
+        hash = hash * 31 + managedVersions.hashCode();
+        hash = hash * 31 + managedScopes.hashCode();
+        hash = hash * 31 + managedExclusions.hashCode();
+        hashCode = hash;
     }
 
     public DependencyManager deriveChildManager( DependencyCollectionContext context )
@@ -79,10 +89,10 @@ public class ClassicDependencyManager
                                                  managedExclusions );
         }
 
-        Map<Object, String> managedVersions = this.managedVersions;
-        Map<Object, String> managedScopes = this.managedScopes;
-        Map<Object, String> managedLocalPaths = this.managedLocalPaths;
-        Map<Object, Collection<Exclusion>> managedExclusions = this.managedExclusions;
+        PersistentHashMap<Object, String> managedVersions = this.managedVersions;
+        PersistentHashMap<Object, String> managedScopes = this.managedScopes;
+        PersistentHashMap<Object, String> managedLocalPaths = this.managedLocalPaths;
+        PersistentHashMap<Object, Collection<Exclusion>> managedExclusions = this.managedExclusions;
 
         for ( Dependency managedDependency : context.getManagedDependencies() )
         {
@@ -92,47 +102,36 @@ public class ClassicDependencyManager
             String version = artifact.getVersion();
             if ( version.length() > 0 && !managedVersions.containsKey( key ) )
             {
-                if ( managedVersions == this.managedVersions )
-                {
-                    managedVersions = new HashMap<Object, String>( this.managedVersions );
-                }
-                managedVersions.put( key, version );
+                managedVersions = managedVersions.plus( key, version );
             }
 
             String scope = managedDependency.getScope();
             if ( scope.length() > 0 && !managedScopes.containsKey( key ) )
             {
-                if ( managedScopes == this.managedScopes )
-                {
-                    managedScopes = new HashMap<Object, String>( this.managedScopes );
-                }
-                managedScopes.put( key, scope );
+                managedScopes = managedScopes.plus( key, scope );
             }
 
             String localPath = managedDependency.getArtifact().getProperty( ArtifactProperties.LOCAL_PATH, null );
             if ( localPath != null && !managedLocalPaths.containsKey( key ) )
             {
-                if ( managedLocalPaths == this.managedLocalPaths )
-                {
-                    managedLocalPaths = new HashMap<Object, String>( this.managedLocalPaths );
-                }
-                managedLocalPaths.put( key, localPath );
+                managedLocalPaths = managedLocalPaths.plus( key, localPath );
             }
 
             Collection<Exclusion> exclusions = managedDependency.getExclusions();
             if ( !exclusions.isEmpty() )
             {
-                if ( managedExclusions == this.managedExclusions )
-                {
-                    managedExclusions = new HashMap<Object, Collection<Exclusion>>( this.managedExclusions );
-                }
                 Collection<Exclusion> managed = managedExclusions.get( key );
-                if ( managed == null )
+                if ( managed == null || !managed.containsAll( exclusions ) )
                 {
-                    managed = new LinkedHashSet<Exclusion>();
-                    managedExclusions.put( key, managed );
+                    // the sets are shared with the parent manager, hence copy on write
+                    Collection<Exclusion> merged = new LinkedHashSet<Exclusion>();
+                    if ( managed != null )
+                    {
+                        merged.addAll( managed );
+                    }
+                    merged.addAll( exclusions );
+                    managedExclusions = managedExclusions.plus( key, merged );
                 }
-                managed.addAll( exclusions );
             }
         }
 
@@ -228,19 +227,14 @@ public class ClassicDependencyManager
         }
 
         ClassicDependencyManager that = (ClassicDependencyManager) obj;
-        return depth == that.depth && managedVersions.equals( that.managedVersions )
+        return depth == that.depth && hashCode == that.hashCode && managedVersions.equals( that.managedVersions )
             && managedScopes.equals( that.managedScopes ) && managedExclusions.equals( that.managedExclusions );
     }
 
     @Override
     public int hashCode()
     {
-        int hash = 17;
-        hash = hash * 31 + depth;
-        hash = hash * 31 + managedVersions.hashCode();
-        hash = hash * 31 + managedScopes.hashCode();
-        hash = hash * 31 + managedExclusions.hashCode();
-        return hash;
+        return hashCode;
     }
 
     static class Key
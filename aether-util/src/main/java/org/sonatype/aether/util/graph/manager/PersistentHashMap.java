@@ -0,0 +1,462 @@
+package org.sonatype.aether.util.graph.manager;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable hash map that shares its structure with the map it was derived from. The entries are stored in a hash
+ * array mapped trie, so adding an entry via {@link #plus(Object, Object)} copies only the path from the root to the
+ * affected leaf, i.e. at most seven small arrays, instead of the entire map. The hash code of the map is maintained
+ * along with its entries. Keys and values must not be {@code null}.
+ */
+final class PersistentHashMap<K, V>
+    extends AbstractMap<K, V>
+{
+
+    private static final PersistentHashMap<Object, Object> EMPTY = new PersistentHashMap<Object, Object>( null, 0, 0 );
+
+    private static final Object NOT_FOUND = new Object();
+
+    private final Node root;
+
+    private final int size;
+
+    private final int hashCode;
+
+    private PersistentHashMap( Node root, int size, int hashCode )
+    {
+        this.root = root;
+        this.size = size;
+        this.hashCode = hashCode;
+    }
+
+    /**
+     * Gets the empty map.
+     * 
+     * @return The empty map, never {@code null}.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static <K, V> PersistentHashMap<K, V> empty()
+    {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    private static int hash( Object key )
+    {
+        int h = key.hashCode();
+        return h ^ ( h >>> 16 );
+    }
+
+    /**
+     * Derives a map that holds the specified entry in addition to the entries of this map.
+     * 
+     * @param key The key of the entry, must not be {@code null}.
+     * @param value The value of the entry, must not be {@code null}.
+     * @return The derived map or this map if it already holds the entry, never {@code null}.
+     */
+    public PersistentHashMap<K, V> plus( K key, V value )
+    {
+        if ( key == null || value == null )
+        {
+            throw new IllegalArgumentException( "keys and values must not be null" );
+        }
+
+        Change change = new Change();
+        Node node = ( root != null ) ? root : BitmapNode.EMPTY;
+        node = node.put( 0, hash( key ), key, value, change );
+        if ( node == root )
+        {
+            return this;
+        }
+
+        int newSize = size;
+        int newHashCode = hashCode + ( key.hashCode() ^ value.hashCode() );
+        if ( change.replaced == null )
+        {
+            newSize++;
+        }
+        else
+        {
+            newHashCode -= key.hashCode() ^ change.replaced.hashCode();
+        }
+        return new PersistentHashMap<K, V>( node, newSize, newHashCode );
+    }
+
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public V get( Object key )
+    {
+        if ( root == null || key == null )
+        {
+            return null;
+        }
+        Object value = root.find( 0, hash( key ), key );
+        return ( value != NOT_FOUND ) ? (V) value : null;
+    }
+
+    @Override
+    public boolean containsKey( Object key )
+    {
+        return root != null && key != null && root.find( 0, hash( key ), key ) != NOT_FOUND;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<K, V>>()
+        {
+
+            @Override
+            @SuppressWarnings( "unchecked" )
+            public Iterator<Map.Entry<K, V>> iterator()
+            {
+                List<Map.Entry<K, V>> entries = new ArrayList<Map.Entry<K, V>>( size );
+                if ( root != null )
+                {
+                    root.collect( (List<Object>) (List<?>) entries );
+                }
+                return entries.iterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return size;
+            }
+
+        };
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( this == obj )
+        {
+            return true;
+        }
+        else if ( obj instanceof PersistentHashMap<?, ?> )
+        {
+            PersistentHashMap<?, ?> that = (PersistentHashMap<?, ?>) obj;
+            if ( size != that.size || hashCode != that.hashCode )
+            {
+                return false;
+            }
+            else if ( root == that.root )
+            {
+                return true;
+            }
+        }
+        return super.equals( obj );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+
+    /**
+     * Records the effect of adding an entry.
+     */
+    static final class Change
+    {
+
+        Object replaced;
+
+    }
+
+    abstract static class Node
+    {
+
+        /**
+         * Looks up the value of the specified key, returning {@link PersistentHashMap#NOT_FOUND} if there is none.
+         */
+        abstract Object find( int shift, int hash, Object key );
+
+        /**
+         * Returns a node that holds the specified entry in addition to the entries of this node, or this node if it
+         * already holds the entry.
+         */
+        abstract Node put( int shift, int hash, Object key, Object value, Change change );
+
+        abstract void collect( List<Object> entries );
+
+    }
+
+    /**
+     * A node of the trie. For each bit set in the bitmap, the array holds either a key and its value or {@code null}
+     * and a sub node.
+     */
+    static final class BitmapNode
+        extends Node
+    {
+
+        static final BitmapNode EMPTY = new BitmapNode( 0, new Object[0] );
+
+        private final int bitmap;
+
+        private final Object[] array;
+
+        BitmapNode( int bitmap, Object[] array )
+        {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        @Override
+        Object find( int shift, int hash, Object key )
+        {
+            int bit = 1 << ( ( hash >>> shift ) & 31 );
+            if ( ( bitmap & bit ) == 0 )
+            {
+                return NOT_FOUND;
+            }
+            int index = 2 * Integer.bitCount( bitmap & ( bit - 1 ) );
+            Object k = array[index];
+            if ( k == null )
+            {
+                return ( (Node) array[index + 1] ).find( shift + 5, hash, key );
+            }
+            return key.equals( k ) ? array[index + 1] : NOT_FOUND;
+        }
+
+        @Override
+        Node put( int shift, int hash, Object key, Object value, Change change )
+        {
+            int bit = 1 << ( ( hash >>> shift ) & 31 );
+            int index = 2 * Integer.bitCount( bitmap & ( bit - 1 ) );
+
+            if ( ( bitmap & bit ) == 0 )
+            {
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy( array, 0, newArray, 0, index );
+                newArray[index] = key;
+                newArray[index + 1] = value;
+                System.arraycopy( array, index, newArray, index + 2, array.length - index );
+                return new BitmapNode( bitmap | bit, newArray );
+            }
+
+            Object k = array[index];
+            Object v = array[index + 1];
+            Object newKey;
+            Object newValue;
+            if ( k == null )
+            {
+                Node node = ( (Node) v ).put( shift + 5, hash, key, value, change );
+                if ( node == v )
+                {
+                    return this;
+                }
+                newKey = null;
+                newValue = node;
+            }
+            else if ( key.equals( k ) )
+            {
+                if ( value.equals( v ) )
+                {
+                    return this;
+                }
+                change.replaced = v;
+                newKey = k;
+                newValue = value;
+            }
+            else
+            {
+                newKey = null;
+                newValue = newNode( shift + 5, hash( k ), k, v, hash, key, value );
+            }
+
+            Object[] newArray = array.clone();
+            newArray[index] = newKey;
+            newArray[index + 1] = newValue;
+            return new BitmapNode( bitmap, newArray );
+        }
+
+        private static Node newNode( int shift, int hash1, Object key1, Object value1, int hash2, Object key2,
+                                     Object value2 )
+        {
+            if ( hash1 == hash2 )
+            {
+                return new CollisionNode( hash1, new Object[] { key1, value1, key2, value2 } );
+            }
+            Change change = new Change();
+            return EMPTY.put( shift, hash1, key1, value1, change ).put( shift, hash2, key2, value2, change );
+        }
+
+        @Override
+        void collect( List<Object> entries )
+        {
+            for ( int i = 0; i < array.length; i += 2 )
+            {
+                if ( array[i] == null )
+                {
+                    ( (Node) array[i + 1] ).collect( entries );
+                }
+                else
+                {
+                    entries.add( new SimpleEntry( array[i], array[i + 1] ) );
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A leaf of the trie for keys whose hashes are identical.
+     */
+    static final class CollisionNode
+        extends Node
+    {
+
+        private final int hash;
+
+        private final Object[] array;
+
+        CollisionNode( int hash, Object[] array )
+        {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @Override
+        Object find( int shift, int hash, Object key )
+        {
+            if ( hash == this.hash )
+            {
+                for ( int i = 0; i < array.length; i += 2 )
+                {
+                    if ( key.equals( array[i] ) )
+                    {
+                        return array[i + 1];
+                    }
+                }
+            }
+            return NOT_FOUND;
+        }
+
+        @Override
+        Node put( int shift, int hash, Object key, Object value, Change change )
+        {
+            if ( hash != this.hash )
+            {
+                int bit = 1 << ( ( this.hash >>> shift ) & 31 );
+                return new BitmapNode( bit, new Object[] { null, this } ).put( shift, hash, key, value, change );
+            }
+            for ( int i = 0; i < array.length; i += 2 )
+            {
+                if ( key.equals( array[i] ) )
+                {
+                    if ( value.equals( array[i + 1] ) )
+                    {
+                        return this;
+                    }
+                    change.replaced = array[i + 1];
+                    Object[] newArray = array.clone();
+                    newArray[i + 1] = value;
+                    return new CollisionNode( hash, newArray );
+                }
+            }
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy( array, 0, newArray, 0, array.length );
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            return new CollisionNode( hash, newArray );
+        }
+
+        @Override
+        void collect( List<Object> entries )
+        {
+            for ( int i = 0; i < array.length; i += 2 )
+            {
+                entries.add( new SimpleEntry( array[i], array[i + 1] ) );
+            }
+        }
+
+    }
+
+    /**
+     * An immutable entry of the map.
+     */
+    static final class SimpleEntry
+        implements Map.Entry<Object, Object>
+    {
+
+        private final Object key;
+
+        private final Object value;
+
+        SimpleEntry( Object key, Object value )
+        {
+            this.key = key;
+            this.value = value;
+        }
+
+        public Object getKey()
+        {
+            return key;
+        }
+
+        public Object getValue()
+        {
+            return value;
+        }
+
+        public Object setValue( Object value )
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            else if ( !( obj instanceof Map.Entry<?, ?> ) )
+            {
+                return false;
+            }
+            Map.Entry<?, ?> that = (Map.Entry<?, ?>) obj;
+            return key.equals( that.getKey() ) && value.equals( that.getValue() );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString()
+        {
+            return key + "=" + value;
+        }
+
+    }
+
+}
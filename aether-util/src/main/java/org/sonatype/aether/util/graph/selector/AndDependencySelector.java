@@ -33,6 +33,8 @@ public class AndDependencySelector
 
     private final Collection<DependencySelector> selectors;
 
+    private final int hashCode;
+
     /**
      * Creates a new selector from the specified selectors.
      * 
@@ -49,12 +51,13 @@ public class AndDependencySelector
         {
             this.selectors = Collections.emptySet();
         }
+        this.hashCode = hash( this.selectors );
     }
 
     /**
      * Creates a new selector from the specified selectors.
      * 
-     * @param selectors The selectors to combine, may be {@code null}.
+     * @param selectors The selectors to combine, may be {@code null}. The set must not be modified afterwards.
      */
     public AndDependencySelector( Set<DependencySelector> selectors )
     {
@@ -66,6 +69,14 @@ public class AndDependencySelector
         {
             this.selectors = Collections.emptySet();
         }
+        this.hashCode = hash( this.selectors );
+    }
+
+    private int hash( Collection<DependencySelector> selectors )
+    {
+        int hash = getClass().hashCode();
+        hash = hash * 31 + selectors.hashCode();
+        return hash;
     }
 
     /**
@@ -150,15 +161,13 @@ public class AndDependencySelector
         }
 
         AndDependencySelector that = (AndDependencySelector) obj;
-        return selectors.equals( that.selectors );
+        return hashCode == that.hashCode && selectors.equals( that.selectors );
     }
 
     @Override
     public int hashCode()
     {
-        int hash = getClass().hashCode();
-        hash = hash * 31 + selectors.hashCode();
-        return hash;
+        return hashCode;
     }
 
 }
@@ -14,6 +14,7 @@ package org.sonatype.aether.util.graph.transformer;
  */
 
 import org.sonatype.aether.RepositoryException;
+import org.sonatype.aether.collection.CollectStatistics;
 import org.sonatype.aether.collection.DependencyGraphTransformationContext;
 import org.sonatype.aether.collection.DependencyGraphTransformer;
 import org.sonatype.aether.graph.DependencyNode;
@@ -71,9 +72,23 @@ public class ChainedDependencyGraphTransformer
     public DependencyNode transformGraph( DependencyNode node, DependencyGraphTransformationContext context )
         throws RepositoryException
     {
+        CollectStatistics stats = (CollectStatistics) context.get( TransformationContextKeys.STATISTICS );
+
         for ( DependencyGraphTransformer transformer : transformers )
         {
+            long start = ( stats != null ) ? System.nanoTime() : 0;
+
+            int stamp = CompactDependencyGraph.startTransformer( context );
+
             node = transformer.transformGraph( node, context );
+
+            // drop the shared snapshot if the transformer modified the graph without updating the snapshot
+            CompactDependencyGraph.endTransformer( node, context, stamp );
+
+            if ( stats != null )
+            {
+                stats.addTransformerTime( transformer, System.nanoTime() - start );
+            }
         }
         return node;
     }
@@ -0,0 +1,1239 @@
+package org.sonatype.aether.util.graph.transformer;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.sonatype.aether.collection.DependencyGraphTransformationContext;
+import org.sonatype.aether.graph.DependencyNode;
+
+/**
+ * A compact, array-based snapshot of a dependency graph for use by graph transformers. The distinct nodes of the graph
+ * are numbered from {@code 0} to {@code N - 1} in depth-first preorder, with the root node being number {@code 0}. The
+ * children of node {@code i} are the nodes {@code getChild(k)} for {@code getChildStart(i) <= k < getChildEnd(i)}, in
+ * the order of {@link DependencyNode#getChildren()}. Nodes whose children are held by the very same list instance, as is
+ * the case for nodes that share a subgraph, also share their child positions, i.e. removing a child from that list
+ * affects all of them. The number of such a child list is given by {@link #getChildList(int)}.
+ * <p>
+ * Besides the children, the snapshot serves as an index of the graph: It provides the parents of each node, the minimum
+ * depth of each node and the members of each conflict group. These are computed on first use only. For transformers
+ * outside of this package, the index is also published in the transformation context as standard collections under
+ * the keys {@link TransformationContextKeys#NODE_PREORDER}, {@link TransformationContextKeys#NODE_PARENTS},
+ * {@link TransformationContextKeys#NODE_DEPTHS} and {@link TransformationContextKeys#CONFLICT_GROUPS}.
+ * <p>
+ * The snapshot is shared by the transformers of a transformation context via {@link #get(DependencyNode,
+ * DependencyGraphTransformationContext)}. It does not reflect later modifications of the graph but it remembers the
+ * child lists it was taken from, so {@link #isCurrent()} can tell whether the graph has changed since. A snapshot
+ * found in the context is only reused if it is still current, hence transformers that are unaware of the snapshot need
+ * not do anything about it. Within a {@link ChainedDependencyGraphTransformer}, the snapshot carries the modification
+ * stamp of the transformer that last obtained or verified it. A transformer that obtains the snapshot from the context
+ * is trusted to keep it current, i.e. if it modifies the children of the graph afterwards, it either publishes an
+ * updated snapshot via {@link #set(DependencyGraphTransformationContext, CompactDependencyGraph)} or discards it via
+ * {@link #invalidate(DependencyGraphTransformationContext)}. Hence the chain only checks the snapshot after
+ * transformers that did not use it and the next transformer then gets the snapshot without any check. The views
+ * published in the context are discarded by the chain after any transformer that left them stale. A transformer that
+ * removes children can publish an updated snapshot derived via {@link #removeChildren(boolean[])} to spare the next
+ * transformer the creation of a new one.
+ * 
+ * @see TransformationContextKeys#COMPACT_GRAPH
+ */
+public final class CompactDependencyGraph
+{
+
+    private static final Object STAMP = "compactGraphStamp";
+
+    private final DependencyNode[] nodes;
+
+    private final Object[] lists;
+
+    private final int[] childLists;
+
+    private final int[] listOffsets;
+
+    private final int[] children;
+
+    private Map<DependencyNode, Integer> indices;
+
+    private int[] positionLists;
+
+    private int[] ownerOffsets;
+
+    private int[] owners;
+
+    private int[] referenceOffsets;
+
+    private int[] references;
+
+    private int[] depths;
+
+    private int[] groupOffsets;
+
+    private int[] groupMembers;
+
+    private Map<?, ?> conflictIdMap;
+
+    private int[] conflictIds;
+
+    private List<Object> conflictKeys;
+
+    private Map<Object, Integer> conflictKeyIds;
+
+    private int stamp = -1;
+
+    /**
+     * Gets the compact form of the specified graph from the transformation context, creating it if the context holds
+     * none for this graph yet.
+     * 
+     * @param root The root node of the dependency graph, must not be {@code null}.
+     * @param context The graph transformation context, must not be {@code null}.
+     * @return The compact graph, never {@code null}.
+     */
+    public static CompactDependencyGraph get( DependencyNode root, DependencyGraphTransformationContext context )
+    {
+        CompactDependencyGraph graph = find( root, context );
+        if ( graph == null )
+        {
+            graph = new CompactDependencyGraph( root );
+            set( context, graph );
+        }
+        return graph;
+    }
+
+    /**
+     * Gets the compact form of the specified graph from the transformation context if the context holds a snapshot that
+     * is still {@link #isCurrent() current}. A stale snapshot is discarded along with the views of its index. Within a
+     * {@link ChainedDependencyGraphTransformer}, a snapshot that the previous transformer left current is returned
+     * without checking it again.
+     * 
+     * @param root The root node of the dependency graph, must not be {@code null}.
+     * @param context The graph transformation context, must not be {@code null}.
+     * @return The compact graph or {@code null} if the context holds no current snapshot of the graph.
+     */
+    public static CompactDependencyGraph find( DependencyNode root, DependencyGraphTransformationContext context )
+    {
+        CompactDependencyGraph graph = (CompactDependencyGraph) context.get( TransformationContextKeys.COMPACT_GRAPH );
+        if ( graph != null )
+        {
+            Integer stamp = (Integer) context.get( STAMP );
+            if ( graph.getRoot() != root )
+            {
+                invalidate( context );
+                graph = null;
+            }
+            else if ( stamp != null && graph.stamp >= stamp.intValue() - 1 )
+            {
+                graph.stamp = stamp.intValue();
+            }
+            else if ( graph.isCurrent() )
+            {
+                if ( stamp != null )
+                {
+                    graph.stamp = stamp.intValue();
+                }
+            }
+            else
+            {
+                invalidate( context );
+                graph = null;
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Stores the specified compact graph in the transformation context, along with the views of its index.
+     * 
+     * @param context The graph transformation context, must not be {@code null}.
+     * @param graph The compact graph to store, must not be {@code null}.
+     */
+    public static void set( DependencyGraphTransformationContext context, CompactDependencyGraph graph )
+    {
+        Integer stamp = (Integer) context.get( STAMP );
+        if ( stamp != null )
+        {
+            graph.stamp = stamp.intValue();
+        }
+        context.put( TransformationContextKeys.COMPACT_GRAPH, graph );
+        context.put( TransformationContextKeys.NODE_PREORDER, graph.new Preorder() );
+        context.put( TransformationContextKeys.NODE_PARENTS, graph.new Parents() );
+        context.put( TransformationContextKeys.NODE_DEPTHS, graph.new Depths() );
+        context.put( TransformationContextKeys.CONFLICT_GROUPS, graph.new ConflictGroups( context ) );
+    }
+
+    /**
+     * Discards the compact graph stored in the transformation context, if any, along with the views of its index.
+     * 
+     * @param context The graph transformation context, must not be {@code null}.
+     */
+    public static void invalidate( DependencyGraphTransformationContext context )
+    {
+        context.put( TransformationContextKeys.COMPACT_GRAPH, null );
+        context.put( TransformationContextKeys.NODE_PREORDER, null );
+        context.put( TransformationContextKeys.NODE_PARENTS, null );
+        context.put( TransformationContextKeys.NODE_DEPTHS, null );
+        context.put( TransformationContextKeys.CONFLICT_GROUPS, null );
+    }
+
+    /**
+     * Advances the modification stamp of the transformation context before a transformer of a chain runs.
+     * 
+     * @param context The graph transformation context, must not be {@code null}.
+     * @return The stamp of the transformer about to run.
+     */
+    static int startTransformer( DependencyGraphTransformationContext context )
+    {
+        Integer stamp = (Integer) context.get( STAMP );
+        int next = ( stamp != null ) ? stamp.intValue() + 1 : 1;
+        context.put( STAMP, Integer.valueOf( next ) );
+        return next;
+    }
+
+    /**
+     * Advances the modification stamp of the transformation context after a transformer of a chain has run. The
+     * snapshot stored in the context is kept without a check if the transformer obtained it, otherwise it is checked
+     * and discarded if the transformer modified the graph.
+     * 
+     * @param root The root node of the dependency graph as returned by the transformer, must not be {@code null}.
+     * @param context The graph transformation context, must not be {@code null}.
+     * @param start The stamp returned by {@link #startTransformer(DependencyGraphTransformationContext)}.
+     */
+    static void endTransformer( DependencyNode root, DependencyGraphTransformationContext context, int start )
+    {
+        int next = startTransformer( context );
+        CompactDependencyGraph graph = (CompactDependencyGraph) context.get( TransformationContextKeys.COMPACT_GRAPH );
+        if ( graph != null )
+        {
+            if ( graph.getRoot() == root && ( graph.stamp >= start || graph.isCurrent() ) )
+            {
+                graph.stamp = next;
+            }
+            else
+            {
+                invalidate( context );
+            }
+        }
+    }
+
+    /**
+     * Creates a compact snapshot of the specified dependency graph.
+     * 
+     * @param root The root node of the dependency graph, must not be {@code null}.
+     */
+    public CompactDependencyGraph( DependencyNode root )
+    {
+        Map<DependencyNode, Integer> indices = new IdentityHashMap<DependencyNode, Integer>( 1024 );
+        Map<List<DependencyNode>, Integer> lists = new IdentityHashMap<List<DependencyNode>, Integer>( 1024 );
+        List<DependencyNode> preorder = new ArrayList<DependencyNode>( 1024 );
+        List<List<DependencyNode>> distinctLists = new ArrayList<List<DependencyNode>>( 1024 );
+
+        List<Iterator<DependencyNode>> stack = new ArrayList<Iterator<DependencyNode>>( 64 );
+        indices.put( root, Integer.valueOf( 0 ) );
+        preorder.add( root );
+        stack.add( root.getChildren().iterator() );
+
+        while ( !stack.isEmpty() )
+        {
+            Iterator<DependencyNode> it = stack.get( stack.size() - 1 );
+            if ( !it.hasNext() )
+            {
+                stack.remove( stack.size() - 1 );
+                continue;
+            }
+            DependencyNode child = it.next();
+            if ( !indices.containsKey( child ) )
+            {
+                indices.put( child, Integer.valueOf( preorder.size() ) );
+                preorder.add( child );
+                stack.add( child.getChildren().iterator() );
+            }
+        }
+
+        nodes = preorder.toArray( new DependencyNode[preorder.size()] );
+        childLists = new int[nodes.length];
+
+        // list 0 is the empty list shared by all leaves
+        distinctLists.add( null );
+        int edges = 0;
+        for ( int i = 0; i < nodes.length; i++ )
+        {
+            List<DependencyNode> list = nodes[i].getChildren();
+            if ( list.isEmpty() )
+            {
+                continue;
+            }
+            Integer id = lists.get( list );
+            if ( id == null )
+            {
+                id = Integer.valueOf( distinctLists.size() );
+                lists.put( list, id );
+                distinctLists.add( list );
+                edges += list.size();
+            }
+            childLists[i] = id.intValue();
+        }
+
+        listOffsets = new int[distinctLists.size() + 1];
+        children = new int[edges];
+
+        int k = 0;
+        for ( int l = 1; l < distinctLists.size(); l++ )
+        {
+            listOffsets[l] = k;
+            for ( DependencyNode child : distinctLists.get( l ) )
+            {
+                children[k++] = indices.get( child ).intValue();
+            }
+        }
+        listOffsets[distinctLists.size()] = k;
+
+        this.lists = distinctLists.toArray();
+        this.indices = indices;
+    }
+
+    private CompactDependencyGraph( CompactDependencyGraph graph, boolean[] removed )
+    {
+        int[] numbers = new int[graph.nodes.length];
+        Arrays.fill( numbers, -1 );
+        int[] preorder = new int[graph.nodes.length];
+        int count = 0;
+
+        // same depth-first traversal as for the actual nodes, with positions standing in for list iterators
+        int[] nodeStack = new int[64];
+        int[] positionStack = new int[64];
+        int top = 0;
+        numbers[0] = count;
+        preorder[count++] = 0;
+        nodeStack[0] = 0;
+        positionStack[0] = graph.getChildStart( 0 );
+        while ( top >= 0 )
+        {
+            int node = nodeStack[top];
+            int k = positionStack[top];
+            if ( k >= graph.getChildEnd( node ) )
+            {
+                top--;
+                continue;
+            }
+            positionStack[top]++;
+            if ( removed[k] )
+            {
+                continue;
+            }
+            int child = graph.children[k];
+            if ( numbers[child] < 0 )
+            {
+                numbers[child] = count;
+                preorder[count++] = child;
+                if ( ++top >= nodeStack.length )
+                {
+                    nodeStack = grow( nodeStack );
+                    positionStack = grow( positionStack );
+                }
+                nodeStack[top] = child;
+                positionStack[top] = graph.getChildStart( child );
+            }
+        }
+
+        nodes = new DependencyNode[count];
+        childLists = new int[count];
+
+        int[] lists = new int[graph.listOffsets.length - 1];
+        int listCount = 1;
+        int edges = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            int old = preorder[i];
+            nodes[i] = graph.nodes[old];
+            int list = graph.childLists[old];
+            if ( lists[list] == 0 )
+            {
+                int size = 0;
+                for ( int k = graph.listOffsets[list], end = graph.listOffsets[list + 1]; k < end; k++ )
+                {
+                    if ( !removed[k] )
+                    {
+                        size++;
+                    }
+                }
+                lists[list] = ( size > 0 ) ? listCount++ : -1;
+                edges += size;
+            }
+            childLists[i] = Math.max( lists[list], 0 );
+        }
+
+        listOffsets = new int[listCount + 1];
+        children = new int[edges];
+        this.lists = new Object[listCount];
+        int k = 0;
+        int[] oldLists = new int[listCount];
+        for ( int i = 0; i < count; i++ )
+        {
+            if ( childLists[i] > 0 )
+            {
+                oldLists[childLists[i]] = graph.childLists[preorder[i]];
+            }
+        }
+        for ( int number = 1; number < listCount; number++ )
+        {
+            listOffsets[number] = k;
+            int list = oldLists[number];
+            this.lists[number] = graph.lists[list];
+            for ( int j = graph.listOffsets[list], end = graph.listOffsets[list + 1]; j < end; j++ )
+            {
+                if ( !removed[j] )
+                {
+                    children[k++] = numbers[graph.children[j]];
+                }
+            }
+        }
+        listOffsets[listCount] = k;
+
+        if ( graph.conflictIds != null )
+        {
+            int[] ids = new int[count];
+            for ( int i = 0; i < count; i++ )
+            {
+                ids[i] = graph.conflictIds[preorder[i]];
+            }
+            conflictIdMap = graph.conflictIdMap;
+            conflictIds = ids;
+            conflictKeys = graph.conflictKeys;
+            conflictKeyIds = graph.conflictKeyIds;
+        }
+    }
+
+    private static int[] grow( int[] array )
+    {
+        int[] tmp = new int[array.length * 2];
+        System.arraycopy( array, 0, tmp, 0, array.length );
+        return tmp;
+    }
+
+    /**
+     * Derives the snapshot of the graph that results from removing the specified children. The caller is responsible
+     * to remove the same children from the actual dependency nodes. Nodes that are no longer reachable from the root
+     * are dropped and the remaining nodes are renumbered in depth-first preorder, just like a new snapshot of the
+     * modified graph would number them. Conflict ids determined for this snapshot are retained.
+     * 
+     * @param removed The flags indicating which child positions are removed, must not be {@code null}.
+     * @return The snapshot of the modified graph, never {@code null}.
+     */
+    public CompactDependencyGraph removeChildren( boolean[] removed )
+    {
+        return new CompactDependencyGraph( this, removed );
+    }
+
+    /**
+     * Determines whether this snapshot still matches the dependency graph, i.e. whether each node still holds the same
+     * child list with the same children as when the snapshot was taken. This takes time linear in the size of the
+     * graph but, unlike taking a new snapshot, involves no hashing and, as the child lists are accessed by index, no
+     * allocations.
+     * 
+     * @return {@code true} if the snapshot matches the graph, {@code false} if the graph has been modified.
+     */
+    public boolean isCurrent()
+    {
+        for ( int i = 0; i < nodes.length; i++ )
+        {
+            List<DependencyNode> list = nodes[i].getChildren();
+            int id = childLists[i];
+            if ( ( id == 0 ) ? !list.isEmpty() : list != lists[id] )
+            {
+                return false;
+            }
+        }
+        for ( int l = 1; l < lists.length; l++ )
+        {
+            List<?> list = (List<?>) lists[l];
+            int k = listOffsets[l];
+            int n = listOffsets[l + 1] - k;
+            if ( list.size() != n )
+            {
+                return false;
+            }
+            for ( int j = 0; j < n; j++ )
+            {
+                if ( list.get( j ) != nodes[children[k + j]] )
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the root node of the graph, i.e. node {@code 0}.
+     * 
+     * @return The root node, never {@code null}.
+     */
+    public DependencyNode getRoot()
+    {
+        return nodes[0];
+    }
+
+    /**
+     * Gets the number of distinct nodes in the graph.
+     * 
+     * @return The number of nodes.
+     */
+    public int getNodeCount()
+    {
+        return nodes.length;
+    }
+
+    /**
+     * Gets the node with the specified number.
+     * 
+     * @param node The number of the node.
+     * @return The dependency node, never {@code null}.
+     */
+    public DependencyNode getNode( int node )
+    {
+        return nodes[node];
+    }
+
+    /**
+     * Gets the number of child positions in the graph. Child positions of shared child lists are counted only once.
+     * 
+     * @return The number of child positions.
+     */
+    public int getEdgeCount()
+    {
+        return children.length;
+    }
+
+    /**
+     * Gets the position of the first child of the specified node.
+     * 
+     * @param node The number of the parent node.
+     * @return The position of the first child, to be used with {@link #getChild(int)}.
+     */
+    public int getChildStart( int node )
+    {
+        return listOffsets[childLists[node]];
+    }
+
+    /**
+     * Gets the position after the last child of the specified node.
+     * 
+     * @param node The number of the parent node.
+     * @return The position after the last child.
+     */
+    public int getChildEnd( int node )
+    {
+        return listOffsets[childLists[node] + 1];
+    }
+
+    /**
+     * Gets the number of the child list of the specified node. Nodes with the same child list number share the
+     * identical list instance and hence the same child positions. All nodes without children share list {@code 0}.
+     * 
+     * @param node The number of the node.
+     * @return The number of the child list.
+     */
+    public int getChildList( int node )
+    {
+        return childLists[node];
+    }
+
+    /**
+     * Gets the number of distinct child lists in the graph, including the empty list {@code 0}.
+     * 
+     * @return The number of child lists.
+     */
+    public int getChildListCount()
+    {
+        return listOffsets.length - 1;
+    }
+
+    /**
+     * Gets the number of the child at the specified position.
+     * 
+     * @param position The position of the child as determined by {@link #getChildStart(int)}.
+     * @return The number of the child node.
+     */
+    public int getChild( int position )
+    {
+        return children[position];
+    }
+
+    /**
+     * Gets the conflict ids of the nodes as numbers. Conflict ids are numbered from {@code 0} to
+     * {@link #getConflictIdCount()}{@code - 1} in the order of the first node that carries them.
+     * 
+     * @param conflictIds The mapping from dependency nodes to conflict ids as stored under the key
+     *            {@link TransformationContextKeys#CONFLICT_IDS}, must not be {@code null}.
+     * @return The conflict id number of each node or {@code -1} for nodes without a conflict id, never {@code null}.
+     */
+    public int[] getConflictIds( Map<?, ?> conflictIds )
+    {
+        if ( this.conflictIds == null || conflictIdMap != conflictIds )
+        {
+            int[] ids = new int[nodes.length];
+            List<Object> keys = new ArrayList<Object>();
+            Map<Object, Integer> keyIds = new HashMap<Object, Integer>();
+            for ( int i = 0; i < nodes.length; i++ )
+            {
+                Object key = conflictIds.get( nodes[i] );
+                if ( key == null )
+                {
+                    ids[i] = -1;
+                    continue;
+                }
+                Integer id = keyIds.get( key );
+                if ( id == null )
+                {
+                    id = Integer.valueOf( keys.size() );
+                    keyIds.put( key, id );
+                    keys.add( key );
+                }
+                ids[i] = id.intValue();
+            }
+            this.conflictIdMap = conflictIds;
+            this.conflictIds = ids;
+            this.conflictKeys = keys;
+            this.conflictKeyIds = keyIds;
+            this.groupOffsets = null;
+            this.groupMembers = null;
+        }
+        return this.conflictIds;
+    }
+
+    /**
+     * Records conflict ids that have already been computed as numbers, e.g. by the {@link ConflictMarker}, so that
+     * {@link #getConflictIds(Map)} does not need to derive them again from the mapping.
+     * 
+     * @param conflictIds The mapping from dependency nodes to conflict ids, must not be {@code null}.
+     * @param ids The conflict id number of each node or {@code -1}, numbered in the order of the first node carrying
+     *            them, must not be {@code null}.
+     * @param keys The conflict ids indexed by their numbers, must not be {@code null}.
+     */
+    void setConflictIds( Map<?, ?> conflictIds, int[] ids, List<Object> keys )
+    {
+        Map<Object, Integer> keyIds = new HashMap<Object, Integer>( keys.size() * 2 );
+        for ( int i = 0; i < keys.size(); i++ )
+        {
+            keyIds.put( keys.get( i ), Integer.valueOf( i ) );
+        }
+        this.conflictIdMap = conflictIds;
+        this.conflictIds = ids;
+        this.conflictKeys = keys;
+        this.conflictKeyIds = keyIds;
+        this.groupOffsets = null;
+        this.groupMembers = null;
+    }
+
+    /**
+     * Gets the number of distinct conflict ids as determined by the last call to {@link #getConflictIds(Map)}.
+     * 
+     * @return The number of conflict ids.
+     */
+    public int getConflictIdCount()
+    {
+        return conflictKeys.size();
+    }
+
+    /**
+     * Gets the conflict id with the specified number as determined by the last call to {@link #getConflictIds(Map)}.
+     * 
+     * @param id The number of the conflict id.
+     * @return The conflict id, never {@code null}.
+     */
+    public Object getConflictKey( int id )
+    {
+        return conflictKeys.get( id );
+    }
+
+    /**
+     * Gets the number of the specified conflict id as determined by the last call to {@link #getConflictIds(Map)}.
+     * 
+     * @param key The conflict id.
+     * @return The number of the conflict id or {@code -1} if no node carries it.
+     */
+    public int getConflictId( Object key )
+    {
+        Integer id = conflictKeyIds.get( key );
+        return ( id != null ) ? id.intValue() : -1;
+    }
+
+    /**
+     * Gets the number of the specified node.
+     * 
+     * @param node The dependency node, may be {@code null}.
+     * @return The number of the node or {@code -1} if the node is not part of the graph.
+     */
+    public int getIndex( DependencyNode node )
+    {
+        if ( indices == null )
+        {
+            Map<DependencyNode, Integer> map = new IdentityHashMap<DependencyNode, Integer>( nodes.length * 2 );
+            for ( int i = 0; i < nodes.length; i++ )
+            {
+                map.put( nodes[i], Integer.valueOf( i ) );
+            }
+            indices = map;
+        }
+        Integer index = indices.get( node );
+        return ( index != null ) ? index.intValue() : -1;
+    }
+
+    /**
+     * Gets the number of the child list that holds the specified child position.
+     * 
+     * @param position The child position.
+     * @return The number of the child list.
+     */
+    public int getPositionList( int position )
+    {
+        buildReferences();
+        return positionLists[position];
+    }
+
+    /**
+     * Gets the start of the nodes owning the specified child list, to be used with {@link #getListOwner(int)}.
+     * 
+     * @param list The number of the child list.
+     * @return The start of the owners.
+     */
+    public int getListOwnerStart( int list )
+    {
+        buildReferences();
+        return ownerOffsets[list];
+    }
+
+    /**
+     * Gets the end of the nodes owning the specified child list.
+     * 
+     * @param list The number of the child list.
+     * @return The end of the owners.
+     */
+    public int getListOwnerEnd( int list )
+    {
+        buildReferences();
+        return ownerOffsets[list + 1];
+    }
+
+    /**
+     * Gets the owner of a child list, i.e. a node whose children are held by that list.
+     * 
+     * @param k The position of the owner as determined by {@link #getListOwnerStart(int)}.
+     * @return The number of the owning node.
+     */
+    public int getListOwner( int k )
+    {
+        buildReferences();
+        return owners[k];
+    }
+
+    /**
+     * Gets the start of the child positions referring to the specified node, to be used with
+     * {@link #getReference(int)}.
+     * 
+     * @param node The number of the child node.
+     * @return The start of the references.
+     */
+    public int getReferenceStart( int node )
+    {
+        buildReferences();
+        return referenceOffsets[node];
+    }
+
+    /**
+     * Gets the end of the child positions referring to the specified node.
+     * 
+     * @param node The number of the child node.
+     * @return The end of the references.
+     */
+    public int getReferenceEnd( int node )
+    {
+        buildReferences();
+        return referenceOffsets[node + 1];
+    }
+
+    /**
+     * Gets a child position referring to some node.
+     * 
+     * @param k The position of the reference as determined by {@link #getReferenceStart(int)}.
+     * @return The child position, to be used with {@link #getChild(int)} and {@link #getPositionList(int)}.
+     */
+    public int getReference( int k )
+    {
+        buildReferences();
+        return references[k];
+    }
+
+    /**
+     * Gets the parents of the specified node. A parent is listed once per child position that refers to the node.
+     * 
+     * @param node The number of the node.
+     * @return The numbers of the parent nodes in the order of their child positions, never {@code null}.
+     */
+    public int[] getParents( int node )
+    {
+        buildReferences();
+        int count = 0;
+        for ( int r = referenceOffsets[node], rEnd = referenceOffsets[node + 1]; r < rEnd; r++ )
+        {
+            int list = positionLists[references[r]];
+            count += ownerOffsets[list + 1] - ownerOffsets[list];
+        }
+        int[] parents = new int[count];
+        count = 0;
+        for ( int r = referenceOffsets[node], rEnd = referenceOffsets[node + 1]; r < rEnd; r++ )
+        {
+            int list = positionLists[references[r]];
+            for ( int o = ownerOffsets[list], oEnd = ownerOffsets[list + 1]; o < oEnd; o++ )
+            {
+                parents[count++] = owners[o];
+            }
+        }
+        return parents;
+    }
+
+    private void buildReferences()
+    {
+        if ( references != null )
+        {
+            return;
+        }
+
+        int lists = listOffsets.length - 1;
+        int[] positionLists = new int[children.length];
+        int[] ownerOffsets = new int[lists + 1];
+        int[] owners = new int[nodes.length];
+        int[] referenceOffsets = new int[nodes.length + 1];
+        int[] references = new int[children.length];
+
+        for ( int list = 1; list < lists; list++ )
+        {
+            for ( int k = listOffsets[list], end = listOffsets[list + 1]; k < end; k++ )
+            {
+                positionLists[k] = list;
+            }
+        }
+        for ( int i = 0; i < nodes.length; i++ )
+        {
+            ownerOffsets[childLists[i] + 1]++;
+        }
+        for ( int k = 0; k < children.length; k++ )
+        {
+            referenceOffsets[children[k] + 1]++;
+        }
+        toOffsets( ownerOffsets );
+        toOffsets( referenceOffsets );
+
+        int[] fill = ownerOffsets.clone();
+        for ( int i = 0; i < nodes.length; i++ )
+        {
+            owners[fill[childLists[i]]++] = i;
+        }
+        fill = referenceOffsets.clone();
+        for ( int k = 0; k < children.length; k++ )
+        {
+            references[fill[children[k]]++] = k;
+        }
+
+        this.positionLists = positionLists;
+        this.ownerOffsets = ownerOffsets;
+        this.owners = owners;
+        this.referenceOffsets = referenceOffsets;
+        this.references = references;
+    }
+
+    private static void toOffsets( int[] counts )
+    {
+        for ( int i = 1; i < counts.length; i++ )
+        {
+            counts[i] += counts[i - 1];
+        }
+    }
+
+    /**
+     * Gets the minimum depth of the specified node, i.e. the length of the shortest path from the root to the node.
+     * 
+     * @param node The number of the node.
+     * @return The minimum depth of the node, {@code 0} for the root.
+     */
+    public int getDepth( int node )
+    {
+        if ( depths == null )
+        {
+            int[] depths = new int[nodes.length];
+            Arrays.fill( depths, -1 );
+            int[] queue = new int[nodes.length];
+            int head = 0;
+            int tail = 0;
+            depths[0] = 0;
+            queue[tail++] = 0;
+            while ( head < tail )
+            {
+                int parent = queue[head++];
+                for ( int k = getChildStart( parent ), end = getChildEnd( parent ); k < end; k++ )
+                {
+                    int child = children[k];
+                    if ( depths[child] < 0 )
+                    {
+                        depths[child] = depths[parent] + 1;
+                        queue[tail++] = child;
+                    }
+                }
+            }
+            this.depths = depths;
+        }
+        return depths[node];
+    }
+
+    /**
+     * Gets the start of the members of the specified conflict group, to be used with
+     * {@link #getConflictGroupMember(int)}. The conflict ids must have been determined via
+     * {@link #getConflictIds(Map)}.
+     * 
+     * @param id The number of the conflict id.
+     * @return The start of the group members.
+     */
+    public int getConflictGroupStart( int id )
+    {
+        buildConflictGroups();
+        return groupOffsets[id];
+    }
+
+    /**
+     * Gets the end of the members of the specified conflict group.
+     * 
+     * @param id The number of the conflict id.
+     * @return The end of the group members.
+     */
+    public int getConflictGroupEnd( int id )
+    {
+        buildConflictGroups();
+        return groupOffsets[id + 1];
+    }
+
+    /**
+     * Gets a member of a conflict group.
+     * 
+     * @param k The position of the member as determined by {@link #getConflictGroupStart(int)}.
+     * @return The number of the member node.
+     */
+    public int getConflictGroupMember( int k )
+    {
+        buildConflictGroups();
+        return groupMembers[k];
+    }
+
+    private void buildConflictGroups()
+    {
+        if ( groupMembers != null )
+        {
+            return;
+        }
+
+        int[] groupOffsets = new int[conflictKeys.size() + 1];
+        int members = 0;
+        for ( int i = 0; i < nodes.length; i++ )
+        {
+            if ( conflictIds[i] >= 0 )
+            {
+                groupOffsets[conflictIds[i] + 1]++;
+                members++;
+            }
+        }
+        toOffsets( groupOffsets );
+
+        int[] groupMembers = new int[members];
+        int[] fill = groupOffsets.clone();
+        for ( int i = 0; i < nodes.length; i++ )
+        {
+            if ( conflictIds[i] >= 0 )
+            {
+                groupMembers[fill[conflictIds[i]]++] = i;
+            }
+        }
+
+        this.groupOffsets = groupOffsets;
+        this.groupMembers = groupMembers;
+    }
+
+    private List<DependencyNode> toNodes( int[] numbers )
+    {
+        DependencyNode[] result = new DependencyNode[numbers.length];
+        for ( int i = 0; i < numbers.length; i++ )
+        {
+            result[i] = nodes[numbers[i]];
+        }
+        return Collections.unmodifiableList( Arrays.asList( result ) );
+    }
+
+    /**
+     * The nodes in preorder, as published under {@link TransformationContextKeys#NODE_PREORDER}.
+     */
+    final class Preorder
+        extends AbstractList<DependencyNode>
+    {
+
+        @Override
+        public DependencyNode get( int index )
+        {
+            return nodes[index];
+        }
+
+        @Override
+        public int size()
+        {
+            return nodes.length;
+        }
+
+    }
+
+    /**
+     * A read-only map from the nodes of the graph to some property, looking up nodes by reference.
+     */
+    abstract class NodeMap<V>
+        extends AbstractMap<DependencyNode, V>
+    {
+
+        abstract V getValue( int node );
+
+        @Override
+        public V get( Object key )
+        {
+            int index = ( key instanceof DependencyNode ) ? getIndex( (DependencyNode) key ) : -1;
+            return ( index >= 0 ) ? getValue( index ) : null;
+        }
+
+        @Override
+        public boolean containsKey( Object key )
+        {
+            return key instanceof DependencyNode && getIndex( (DependencyNode) key ) >= 0;
+        }
+
+        @Override
+        public int size()
+        {
+            return nodes.length;
+        }
+
+        @Override
+        public Set<Map.Entry<DependencyNode, V>> entrySet()
+        {
+            return new AbstractSet<Map.Entry<DependencyNode, V>>()
+            {
+
+                @Override
+                public Iterator<Map.Entry<DependencyNode, V>> iterator()
+                {
+                    return new Iterator<Map.Entry<DependencyNode, V>>()
+                    {
+
+                        private int index;
+
+                        public boolean hasNext()
+                        {
+                            return index < nodes.length;
+                        }
+
+                        public Map.Entry<DependencyNode, V> next()
+                        {
+                            if ( index >= nodes.length )
+                            {
+                                throw new NoSuchElementException();
+                            }
+                            int node = index++;
+                            return new NodeEntry<V>( nodes[node], getValue( node ) );
+                        }
+
+                        public void remove()
+                        {
+                            throw new UnsupportedOperationException();
+                        }
+
+                    };
+                }
+
+                @Override
+                public int size()
+                {
+                    return nodes.length;
+                }
+
+            };
+        }
+
+    }
+
+    static final class NodeEntry<V>
+        implements Map.Entry<DependencyNode, V>
+    {
+
+        private final DependencyNode key;
+
+        private final V value;
+
+        NodeEntry( DependencyNode key, V value )
+        {
+            this.key = key;
+            this.value = value;
+        }
+
+        public DependencyNode getKey()
+        {
+            return key;
+        }
+
+        public V getValue()
+        {
+            return value;
+        }
+
+        public V setValue( V value )
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            if ( !( obj instanceof Map.Entry<?, ?> ) )
+            {
+                return false;
+            }
+            Map.Entry<?, ?> that = (Map.Entry<?, ?>) obj;
+            if ( key != that.getKey() )
+            {
+                return false;
+            }
+            return ( value == null ) ? that.getValue() == null : value.equals( that.getValue() );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return System.identityHashCode( key ) ^ ( value == null ? 0 : value.hashCode() );
+        }
+
+        @Override
+        public String toString()
+        {
+            return key + "=" + value;
+        }
+
+    }
+
+    /**
+     * The parents of the nodes, as published under {@link TransformationContextKeys#NODE_PARENTS}.
+     */
+    final class Parents
+        extends NodeMap<List<DependencyNode>>
+    {
+
+        @Override
+        List<DependencyNode> getValue( int node )
+        {
+            return toNodes( getParents( node ) );
+        }
+
+    }
+
+    /**
+     * The minimum depths of the nodes, as published under {@link TransformationContextKeys#NODE_DEPTHS}.
+     */
+    final class Depths
+        extends NodeMap<Integer>
+    {
+
+        @Override
+        Integer getValue( int node )
+        {
+            return Integer.valueOf( getDepth( node ) );
+        }
+
+    }
+
+    /**
+     * The members of the conflict groups, as published under {@link TransformationContextKeys#CONFLICT_GROUPS}. The
+     * groups are determined from the conflict ids present in the transformation context at the time of the access.
+     */
+    final class ConflictGroups
+        extends AbstractMap<Object, List<DependencyNode>>
+    {
+
+        private final DependencyGraphTransformationContext context;
+
+        private Map<?, ?> conflictIdMap;
+
+        private Map<Object, List<DependencyNode>> groups = Collections.emptyMap();
+
+        ConflictGroups( DependencyGraphTransformationContext context )
+        {
+            this.context = context;
+        }
+
+        private Map<Object, List<DependencyNode>> getGroups()
+        {
+            Map<?, ?> ids = (Map<?, ?>) context.get( TransformationContextKeys.CONFLICT_IDS );
+            if ( ids == null )
+            {
+                return Collections.emptyMap();
+            }
+            if ( ids != conflictIdMap )
+            {
+                getConflictIds( ids );
+                Map<Object, List<DependencyNode>> map =
+                    new LinkedHashMap<Object, List<DependencyNode>>( conflictKeys.size() * 2 );
+                for ( int id = 0; id < conflictKeys.size(); id++ )
+                {
+                    int start = getConflictGroupStart( id );
+                    int[] members = new int[getConflictGroupEnd( id ) - start];
+                    System.arraycopy( groupMembers, start, members, 0, members.length );
+                    map.put( conflictKeys.get( id ), toNodes( members ) );
+                }
+                groups = Collections.unmodifiableMap( map );
+                conflictIdMap = ids;
+            }
+            return groups;
+        }
+
+        @Override
+        public List<DependencyNode> get( Object key )
+        {
+            return getGroups().get( key );
+        }
+
+        @Override
+        public Set<Map.Entry<Object, List<DependencyNode>>> entrySet()
+        {
+            return getGroups().entrySet();
+        }
+
+    }
+
+}
@@ -14,11 +14,10 @@ package org.sonatype.aether.util.graph.transformer;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.IdentityHashMap;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -56,56 +55,37 @@ public class ConflictIdSorter
             conflictIds = (Map<?, ?>) context.get( TransformationContextKeys.CONFLICT_IDS );
         }
 
-        Map<Object, ConflictId> ids = new LinkedHashMap<Object, ConflictId>();
+        CompactDependencyGraph graph = CompactDependencyGraph.get( node, context );
+        int[] nodeIds = graph.getConflictIds( conflictIds );
 
+        ConflictId[] ids = new ConflictId[graph.getConflictIdCount()];
+        for ( int i = 0; i < ids.length; i++ )
         {
-            ConflictId id = null;
-            Object key = conflictIds.get( node );
-            if ( key != null )
-            {
-                id = new ConflictId( key );
-                ids.put( key, id );
-            }
-
-            Map<DependencyNode, Object> visited = new IdentityHashMap<DependencyNode, Object>( conflictIds.size() );
-
-            buildConflitIdDAG( ids, node, id, visited, conflictIds );
-        }
-
-        List<Object> sorted = topsortConflictIds( ids.values() );
-
-        context.put( TransformationContextKeys.SORTED_CONFLICT_IDS, sorted );
-
-        return node;
-    }
-
-    private void buildConflitIdDAG( Map<Object, ConflictId> ids, DependencyNode node, ConflictId id,
-                                    Map<DependencyNode, Object> visited, Map<?, ?> conflictIds )
-    {
-        if ( visited.put( node, Boolean.TRUE ) != null )
-        {
-            return;
+            ids[i] = new ConflictId( graph.getConflictKey( i ) );
         }
 
-        ConflictId parentId = id;
-
-        for ( DependencyNode child : node.getChildren() )
+        for ( int i = 0, n = graph.getNodeCount(); i < n; i++ )
         {
-            Object key = conflictIds.get( child );
-            ConflictId childId = ids.get( key );
-            if ( childId == null )
+            if ( nodeIds[i] < 0 )
             {
-                childId = new ConflictId( key );
-                ids.put( key, childId );
+                continue;
             }
-
-            if ( parentId != null )
+            ConflictId parentId = ids[nodeIds[i]];
+            for ( int k = graph.getChildStart( i ), end = graph.getChildEnd( i ); k < end; k++ )
             {
-                parentId.add( childId );
+                int childId = nodeIds[graph.getChild( k )];
+                if ( childId >= 0 )
+                {
+                    parentId.add( ids[childId] );
+                }
             }
-
-            buildConflitIdDAG( ids, child, childId, visited, conflictIds );
         }
+
+        List<Object> sorted = topsortConflictIds( Arrays.asList( ids ) );
+
+        context.put( TransformationContextKeys.SORTED_CONFLICT_IDS, sorted );
+
+        return node;
     }
 
     private List<Object> topsortConflictIds( Collection<ConflictId> conflictIds )
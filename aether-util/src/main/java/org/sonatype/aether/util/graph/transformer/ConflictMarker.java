@@ -13,10 +13,13 @@ package org.sonatype.aether.util.graph.transformer;
  * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
  */
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -32,6 +35,10 @@ import org.sonatype.aether.graph.DependencyNode;
  * transformation context holds a {@code Map<DependencyNode, Object>} where dependency nodes that belong to the same
  * conflict group will have an equal conflict identifier. This map is stored using the key
  * {@link TransformationContextKeys#CONFLICT_IDS}.
+ * <p>
+ * The artifact keys of a node, its relocations and its aliases are interned to numbers and merged using a disjoint-set
+ * forest, so merging groups costs nearly constant time regardless of the number of aliases. The resulting conflict id
+ * numbers are also recorded in the {@link CompactDependencyGraph} for use by subsequent transformers.
  * 
  * @author Benjamin Bentmann
  */
@@ -39,8 +46,6 @@ public class ConflictMarker
     implements DependencyGraphTransformer
 {
 
-    private final Object SEEN = Boolean.TRUE;
-
     /**
      * After the execution of this method, every DependencyNode with an attached dependency is member of one conflict
      * group.
@@ -50,174 +55,107 @@ public class ConflictMarker
     public DependencyNode transformGraph( DependencyNode node, DependencyGraphTransformationContext context )
         throws RepositoryException
     {
-        Map<DependencyNode, Object> nodes = new IdentityHashMap<DependencyNode, Object>();
-        Map<Object, ConflictGroup> groups = new HashMap<Object, ConflictGroup>( 1024 );
+        CompactDependencyGraph graph = CompactDependencyGraph.get( node, context );
 
-        analyze( node, nodes, groups );
+        KeySets sets = new KeySets( graph.getNodeCount() );
 
-        mark( nodes, groups );
+        int[] nodeKeys = new int[graph.getNodeCount()];
+        for ( int i = 0; i < nodeKeys.length; i++ )
+        {
+            nodeKeys[i] = analyze( graph.getNode( i ), sets );
+        }
 
-        context.put( TransformationContextKeys.CONFLICT_IDS, nodes );
+        mark( graph, nodeKeys, sets, context );
 
         return node;
     }
 
-    private void analyze( DependencyNode node, Map<DependencyNode, Object> nodes, Map<Object, ConflictGroup> groups )
+    /**
+     * Merges the keys of the specified node into one set.
+     * 
+     * @return The number of the node's primary key or {@code -1} if the node has no dependency.
+     */
+    private int analyze( DependencyNode node, KeySets sets )
     {
-        if ( nodes.put( node, SEEN ) != null )
+        Dependency dependency = node.getDependency();
+        if ( dependency == null )
         {
-            return;
+            return -1;
         }
 
-        Set<Object> keys = getKeys( node );
-        if ( !keys.isEmpty() )
-        {
-            ConflictGroup group = null;
-            boolean fixMappings = false;
-
-            for ( Object key : keys )
-            {
-                ConflictGroup g = groups.get( key );
-
-                if ( group != g )
-                {
-                    if ( group == null )
-                    {
-                        Set<Object> newKeys = merge( g.keys, keys );
-                        if ( newKeys == g.keys )
-                        {
-                            group = g;
-                            break;
-                        }
-                        else
-                        {
-                            group = new ConflictGroup( newKeys );
-                            fixMappings = true;
-                        }
-                    }
-                    else if ( g == null )
-                    {
-                        fixMappings = true;
-                    }
-                    else
-                    {
-                        Set<Object> newKeys = merge( g.keys, group.keys );
-                        if ( newKeys == g.keys )
-                        {
-                            group = g;
-                            fixMappings = false;
-                            break;
-                        }
-                        else if ( newKeys != group.keys )
-                        {
-                            group = new ConflictGroup( newKeys );
-                            fixMappings = true;
-                        }
-                    }
-                }
-            }
+        int key = sets.intern( toKey( dependency.getArtifact() ) );
 
-            if ( group == null )
-            {
-                group = new ConflictGroup( keys );
-                fixMappings = true;
-            }
-            if ( fixMappings )
-            {
-                for ( Object key : group.keys )
-                {
-                    groups.put( key, group );
-                }
-            }
+        for ( Artifact relocation : node.getRelocations() )
+        {
+            sets.union( key, sets.intern( toKey( relocation ) ) );
         }
 
-        for ( DependencyNode child : node.getChildren() )
+        for ( Artifact alias : node.getAliases() )
         {
-            analyze( child, nodes, groups );
+            sets.union( key, sets.intern( toKey( alias ) ) );
         }
+
+        return key;
     }
 
-    private Set<Object> merge( Set<Object> keys1, Set<Object> keys2 )
+    private void mark( CompactDependencyGraph graph, int[] nodeKeys, KeySets sets,
+                       DependencyGraphTransformationContext context )
     {
-        int size1 = keys1.size();
-        int size2 = keys2.size();
+        int keyCount = sets.size();
 
-        if ( size1 < size2 )
+        // the conflict id of a group is the set of its keys, gather them per set representative
+        List<List<Object>> members = new ArrayList<List<Object>>( keyCount );
+        for ( int k = 0; k < keyCount; k++ )
         {
-            if ( keys2.containsAll( keys1 ) )
-            {
-                return keys2;
-            }
+            members.add( null );
         }
-        else
+        for ( int k = 0; k < keyCount; k++ )
         {
-            if ( keys1.containsAll( keys2 ) )
+            int root = sets.find( k );
+            List<Object> keys = members.get( root );
+            if ( keys == null )
             {
-                return keys1;
+                keys = new ArrayList<Object>( 1 );
+                members.set( root, keys );
             }
+            keys.add( sets.get( k ) );
         }
 
-        Set<Object> keys = new HashSet<Object>();
-        keys.addAll( keys1 );
-        keys.addAll( keys2 );
-        return keys;
-    }
-
-    private Set<Object> getKeys( DependencyNode node )
-    {
-        Set<Object> keys;
-
-        Dependency dependency = node.getDependency();
+        int[] groupIds = new int[keyCount];
+        Arrays.fill( groupIds, -1 );
+        List<Object> groups = new ArrayList<Object>();
 
-        if ( dependency == null )
+        int[] ids = new int[nodeKeys.length];
+        Map<DependencyNode, Object> nodes = new IdentityHashMap<DependencyNode, Object>( nodeKeys.length * 2 );
+        for ( int i = 0; i < nodeKeys.length; i++ )
         {
-            keys = Collections.emptySet();
-        }
-        else
-        {
-            Object key = toKey( dependency.getArtifact() );
-
-            if ( node.getRelocations().isEmpty() && node.getAliases().isEmpty() )
+            if ( nodeKeys[i] < 0 )
             {
-                keys = Collections.singleton( key );
+                ids[i] = -1;
+                nodes.put( graph.getNode( i ), null );
+                continue;
             }
-            else
-            {
-                keys = new HashSet<Object>();
-                keys.add( key );
 
-                for ( Artifact relocation : node.getRelocations() )
+            int root = sets.find( nodeKeys[i] );
+            if ( groupIds[root] < 0 )
+            {
+                groupIds[root] = groups.size();
+                List<Object> keys = members.get( root );
+                if ( keys.size() == 1 )
                 {
-                    key = toKey( relocation );
-                    keys.add( key );
+                    groups.add( Collections.singleton( keys.get( 0 ) ) );
                 }
-
-                for ( Artifact alias : node.getAliases() )
+                else
                 {
-                    key = toKey( alias );
-                    keys.add( key );
+                    groups.add( new HashSet<Object>( keys ) );
                 }
             }
+            ids[i] = groupIds[root];
+            nodes.put( graph.getNode( i ), groups.get( ids[i] ) );
         }
 
-        return keys;
-    }
-
-    private void mark( Map<DependencyNode, Object> nodes, Map<Object, ConflictGroup> groups )
-    {
-        for ( Map.Entry<DependencyNode, Object> entry : nodes.entrySet() )
-        {
-            Dependency dependency = entry.getKey().getDependency();
-            if ( dependency != null )
-            {
-                Object key = toKey( dependency.getArtifact() );
-                entry.setValue( groups.get( key ).keys );
-            }
-            else
-            {
-                entry.setValue( null );
-            }
-        }
+        context.put( TransformationContextKeys.CONFLICT_IDS, nodes );
+        graph.setConflictIds( nodes, ids, groups );
     }
 
     private static Object toKey( Artifact artifact )
@@ -225,20 +163,96 @@ public class ConflictMarker
         return new Key( artifact );
     }
 
-    static class ConflictGroup
+    /**
+     * A disjoint-set forest over interned keys, using union by size and path compression.
+     */
+    static final class KeySets
     {
 
-        final Set<Object> keys;
+        private final Map<Object, Integer> indices;
 
-        public ConflictGroup( Set<Object> keys )
+        private final List<Object> keys;
+
+        private int[] parents;
+
+        private int[] sizes;
+
+        public KeySets( int capacity )
         {
-            this.keys = keys;
+            capacity = Math.max( capacity, 16 );
+            indices = new HashMap<Object, Integer>( capacity * 2 );
+            keys = new ArrayList<Object>( capacity );
+            parents = new int[capacity];
+            sizes = new int[capacity];
         }
 
-        @Override
-        public String toString()
+        public int size()
+        {
+            return keys.size();
+        }
+
+        public Object get( int key )
+        {
+            return keys.get( key );
+        }
+
+        public int intern( Object key )
+        {
+            Integer index = indices.get( key );
+            if ( index != null )
+            {
+                return index.intValue();
+            }
+
+            int i = keys.size();
+            if ( i >= parents.length )
+            {
+                int[] tmp = new int[i * 2];
+                System.arraycopy( parents, 0, tmp, 0, i );
+                parents = tmp;
+                tmp = new int[i * 2];
+                System.arraycopy( sizes, 0, tmp, 0, i );
+                sizes = tmp;
+            }
+            parents[i] = i;
+            sizes[i] = 1;
+            keys.add( key );
+            indices.put( key, Integer.valueOf( i ) );
+            return i;
+        }
+
+        public int find( int key )
+        {
+            int root = key;
+            while ( parents[root] != root )
+            {
+                root = parents[root];
+            }
+            while ( parents[key] != root )
+            {
+                int next = parents[key];
+                parents[key] = root;
+                key = next;
+            }
+            return root;
+        }
+
+        public void union( int key1, int key2 )
         {
-            return String.valueOf( keys );
+            int root1 = find( key1 );
+            int root2 = find( key2 );
+            if ( root1 == root2 )
+            {
+                return;
+            }
+            if ( sizes[root1] < sizes[root2] )
+            {
+                int tmp = root1;
+                root1 = root2;
+                root2 = tmp;
+            }
+            parents[root2] = root1;
+            sizes[root1] += sizes[root2];
         }
 
     }
@@ -28,6 +28,28 @@ public class JavaDependencyContextRefiner
 
     public DependencyNode transformGraph( DependencyNode node, DependencyGraphTransformationContext context )
         throws RepositoryException
+    {
+        CompactDependencyGraph graph = CompactDependencyGraph.find( node, context );
+        if ( graph != null )
+        {
+            for ( int i = 0, n = graph.getNodeCount(); i < n; i++ )
+            {
+                refine( graph.getNode( i ), context );
+            }
+        }
+        else
+        {
+            refine( node, context );
+            for ( DependencyNode child : node.getChildren() )
+            {
+                transformGraph( child, context );
+            }
+        }
+
+        return node;
+    }
+
+    private void refine( DependencyNode node, DependencyGraphTransformationContext context )
     {
         String ctx = node.getRequestContext();
         if ( "project".equals( context ) )
@@ -39,13 +61,6 @@ public class JavaDependencyContextRefiner
                 node.setRequestContext( ctx );
             }
         }
-
-        for ( DependencyNode child : node.getChildren() )
-        {
-            transformGraph( child, context );
-        }
-
-        return node;
     }
 
     private String getClasspathScope( DependencyNode node )
@@ -13,10 +13,7 @@ package org.sonatype.aether.util.graph.transformer;
  * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
  */
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -58,109 +55,94 @@ public class JavaEffectiveScopeCalculator
             throw new RepositoryException( "conflict groups have not been identified" );
         }
 
-        Map<Object, ConflictGroup> groups = new HashMap<Object, ConflictGroup>();
+        CompactDependencyGraph graph = CompactDependencyGraph.get( node, context );
+        int[] nodeIds = graph.getConflictIds( conflictIds );
 
-        buildConflictGroups( groups, node, null, conflictIds );
+        ConflictGroup[] groups = buildConflictGroups( graph );
 
         String rootScope = "";
         if ( node.getDependency() != null )
         {
-            Object key = conflictIds.get( node );
-            groups.get( key ).scope = rootScope = node.getDependency().getScope();
+            groups[nodeIds[0]].scope = rootScope = node.getDependency().getScope();
         }
-        for ( DependencyNode child : node.getChildren() )
+        for ( int k = graph.getChildStart( 0 ), end = graph.getChildEnd( 0 ); k < end; k++ )
         {
-            Object key = conflictIds.get( child );
-            groups.get( key ).scope = getInheritedScope( rootScope, child.getDependency().getScope() );
+            int child = graph.getChild( k );
+            groups[nodeIds[child]].scope =
+                getInheritedScope( rootScope, graph.getNode( child ).getDependency().getScope() );
         }
 
         for ( Object key : sortedConflictIds )
         {
-            ConflictGroup group = groups.get( key );
-            resolve( group );
+            int id = graph.getConflictId( key );
+            if ( id >= 0 )
+            {
+                resolve( graph, groups[id] );
+            }
         }
 
         return node;
     }
 
-    private void buildConflictGroups( Map<Object, ConflictGroup> groups, DependencyNode node, DependencyNode parent,
-                                      Map<?, ?> conflictIds )
+    private ConflictGroup[] buildConflictGroups( CompactDependencyGraph graph )
     {
-        Object key = conflictIds.get( node );
-
-        ConflictGroup group = groups.get( key );
-        if ( group == null )
+        ConflictGroup[] groups = new ConflictGroup[graph.getConflictIdCount()];
+        for ( int id = 0; id < groups.length; id++ )
         {
-            group = new ConflictGroup( key );
-            groups.put( key, group );
-        }
-
-        List<DependencyNode> parents = group.parents.get( node );
-        boolean visited = parents != null;
-
-        if ( parents == null )
-        {
-            parents = new ArrayList<DependencyNode>( 4 );
-            group.parents.put( node, parents );
-        }
-
-        if ( parent != null )
-        {
-            parents.add( parent );
-        }
-
-        if ( !visited )
-        {
-            parent = ( node.getDependency() != null ) ? node : null;
-            for ( DependencyNode child : node.getChildren() )
-            {
-                buildConflictGroups( groups, child, parent, conflictIds );
-            }
+            groups[id] = new ConflictGroup( graph.getConflictKey( id ), id );
         }
+        return groups;
     }
 
-    private void resolve( ConflictGroup group )
+    private void resolve( CompactDependencyGraph graph, ConflictGroup group )
     {
         if ( group.scope == null )
         {
-            Set<String> inheritedScopes = getInheritedScopes( group );
+            Set<String> inheritedScopes = getInheritedScopes( graph, group );
             group.scope = chooseEffectiveScope( inheritedScopes );
         }
 
-        for ( DependencyNode node : group.parents.keySet() )
+        int end = graph.getConflictGroupEnd( group.id );
+        for ( int m = graph.getConflictGroupStart( group.id ); m < end; m++ )
         {
-            if ( node.getPremanagedScope() == null )
+            DependencyNode dependencyNode = graph.getNode( graph.getConflictGroupMember( m ) );
+            if ( dependencyNode.getPremanagedScope() == null )
             {
-                String scope = node.getDependency().getScope();
+                String scope = dependencyNode.getDependency().getScope();
                 if ( !group.scope.equals( scope ) && !JavaScopes.SYSTEM.equals( scope ) )
                 {
-                    node.setScope( group.scope );
+                    dependencyNode.setScope( group.scope );
                 }
             }
         }
     }
 
-    private Set<String> getInheritedScopes( ConflictGroup group )
+    private Set<String> getInheritedScopes( CompactDependencyGraph graph, ConflictGroup group )
     {
         Set<String> inheritedScopes = new HashSet<String>();
 
-        for ( Map.Entry<DependencyNode, List<DependencyNode>> entry : group.parents.entrySet() )
+        int end = graph.getConflictGroupEnd( group.id );
+        for ( int m = graph.getConflictGroupStart( group.id ); m < end; m++ )
         {
-            String childScope = entry.getKey().getDependency().getScope();
+            int node = graph.getConflictGroupMember( m );
+            String childScope = graph.getNode( node ).getDependency().getScope();
 
-            if ( entry.getValue().isEmpty() )
-            {
-                inheritedScopes.add( childScope );
-            }
-            else
+            boolean inherited = false;
+            for ( int parent : graph.getParents( node ) )
             {
-                for ( DependencyNode parent : entry.getValue() )
+                DependencyNode parentNode = graph.getNode( parent );
+                if ( parentNode.getDependency() != null )
                 {
-                    String parentScope = parent.getDependency().getScope();
+                    String parentScope = parentNode.getDependency().getScope();
                     String inheritedScope = getInheritedScope( parentScope, childScope );
                     inheritedScopes.add( inheritedScope );
+                    inherited = true;
                 }
             }
+            if ( !inherited )
+            {
+                inheritedScopes.add( childScope );
+            }
         }
 
         return inheritedScopes;
@@ -232,14 +214,14 @@ public class JavaEffectiveScopeCalculator
 
         final Object key;
 
-        final Map<DependencyNode, List<DependencyNode>> parents;
+        final int id;
 
         String scope;
 
-        public ConflictGroup( Object key )
+        public ConflictGroup( Object key, int id )
         {
             this.key = key;
-            this.parents = new IdentityHashMap<DependencyNode, List<DependencyNode>>();
+            this.id = id;
         }
 
         @Override
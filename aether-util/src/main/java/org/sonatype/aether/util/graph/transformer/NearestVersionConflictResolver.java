@@ -13,7 +13,9 @@ package org.sonatype.aether.util.graph.transformer;
  * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
  */
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
@@ -26,6 +28,7 @@ import org.sonatype.aether.collection.DependencyGraphTransformationContext;
 import org.sonatype.aether.collection.DependencyGraphTransformer;
 import org.sonatype.aether.collection.UnsolvableVersionConflictException;
 import org.sonatype.aether.graph.DependencyNode;
+import org.sonatype.aether.util.version.VersionRangeUtils;
 import org.sonatype.aether.version.Version;
 import org.sonatype.aether.version.VersionConstraint;
 
@@ -35,6 +38,11 @@ import org.sonatype.aether.version.VersionConstraint;
  * This transformer will query the keys {@link TransformationContextKeys#CONFLICT_IDS} and
  * {@link TransformationContextKeys#SORTED_CONFLICT_IDS} for existing information about conflict ids. In absence of this
  * information, it will automatically invoke the {@link ConflictIdSorter} to calculate it.
+ * <p>
+ * The conflict groups are resolved in topological order on the {@link CompactDependencyGraph}. Once the conflicts of
+ * its ancestors are resolved, a node is usually reachable via a single path only, so the nodes of a group are visited
+ * by sorting the paths to their parents instead of traversing the whole graph again. Only groups whose parents are
+ * still reachable via several paths fall back to a full depth-first traversal.
  * 
  * @author Benjamin Bentmann
  */
@@ -42,6 +50,8 @@ public class NearestVersionConflictResolver
     implements DependencyGraphTransformer
 {
 
+    private static final int[] NO_PATH = {};
+
     public DependencyNode transformGraph( DependencyNode node, DependencyGraphTransformationContext context )
         throws RepositoryException
     {
@@ -60,98 +70,249 @@ public class NearestVersionConflictResolver
             throw new RepositoryException( "conflict groups have not been identified" );
         }
 
-        Map<DependencyNode, Integer> depths = new IdentityHashMap<DependencyNode, Integer>( conflictIds.size() );
-        for ( Object key : sortedConflictIds )
+        CompactDependencyGraph graph = CompactDependencyGraph.get( node, context );
+        GraphState state = new GraphState( graph, graph.getConflictIds( conflictIds ) );
+
+        try
         {
-            ConflictGroup group = new ConflictGroup( key );
-            depths.clear();
-            selectVersion( node, null, 0, depths, group, conflictIds );
-            pruneNonSelectedVersions( group, conflictIds );
+            for ( Object key : sortedConflictIds )
+            {
+                int id = graph.getConflictId( key );
+                if ( id < 0 )
+                {
+                    continue;
+                }
+
+                ConflictGroup group = new ConflictGroup( key );
+                if ( !selectVersionAlongPaths( state, group, id ) )
+                {
+                    state.stamp++;
+                    selectVersion( state, group, id, 0, -1, 0 );
+                }
+                pruneNonSelectedVersions( state, group, id );
+            }
+        }
+        finally
+        {
+            state.apply();
+            CompactDependencyGraph.set( context, graph.removeChildren( state.removed ) );
         }
 
         return node;
     }
 
-    private void selectVersion( DependencyNode node, DependencyNode parent, int depth,
-                                Map<DependencyNode, Integer> depths, ConflictGroup group, Map<?, ?> conflictIds )
+    /**
+     * Visits the nodes of the group in the order of a depth-first traversal without actually traversing the graph. This
+     * requires the parents of the group members to be reachable via a single path that does not pass through a group
+     * member itself, the order of the visits is then given by the lexicographic order of these paths.
+     * 
+     * @return {@code true} if the group has been processed, {@code false} if the graph needs to be traversed.
+     */
+    private boolean selectVersionAlongPaths( GraphState state, ConflictGroup group, int id )
         throws RepositoryException
     {
-        Integer smallestDepth = depths.get( node );
-        if ( smallestDepth == null || smallestDepth.intValue() > depth )
+        CompactDependencyGraph graph = state.graph;
+
+        if ( state.conflictIds[0] == id )
         {
-            depths.put( node, Integer.valueOf( depth ) );
+            return false;
         }
-        else
+
+        state.stamp++;
+
+        List<Occurrence> occurrences = new ArrayList<Occurrence>();
+
+        for ( int m = graph.getConflictGroupStart( id ), mEnd = graph.getConflictGroupEnd( id ); m < mEnd; m++ )
         {
-            return;
+            int member = graph.getConflictGroupMember( m );
+            for ( int p = graph.getReferenceStart( member ), pEnd = graph.getReferenceEnd( member ); p < pEnd; p++ )
+            {
+                int slot = graph.getReference( p );
+                int list = graph.getPositionList( slot );
+                if ( state.removed[slot] || state.reachableOwners[list] <= 0 )
+                {
+                    continue;
+                }
+                for ( int o = graph.getListOwnerStart( list ), oEnd = graph.getListOwnerEnd( list ); o < oEnd; o++ )
+                {
+                    int parent = graph.getListOwner( o );
+                    if ( state.unreachable[parent] )
+                    {
+                        continue;
+                    }
+                    int[] path = getPath( state, parent, id );
+                    if ( path == null )
+                    {
+                        return false;
+                    }
+                    occurrences.add( new Occurrence( parent, path, slot ) );
+                }
+            }
         }
 
-        Object key = conflictIds.get( node );
-        if ( group.key.equals( key ) )
+        Collections.sort( occurrences );
+
+        state.stamp++;
+
+        for ( Occurrence occurrence : occurrences )
         {
-            Position pos = new Position( parent, depth );
-            if ( parent != null )
+            int child = graph.getChild( occurrence.slot );
+            int depth = occurrence.path.length + 1;
+            if ( state.depthStamps[child] == state.stamp && state.depths[child] <= depth )
             {
-                group.positions.add( pos );
+                continue;
             }
+            state.depthStamps[child] = state.stamp;
+            state.depths[child] = depth;
+
+            selectVersion( group, graph.getNode( child ), graph.getNode( occurrence.parent ), occurrence.parent,
+                           depth );
+        }
+
+        return true;
+    }
 
-            if ( !group.isAcceptable( node.getVersion() ) )
+    /**
+     * Gets the child positions leading from the root to the specified node, provided the node is reachable via a single
+     * path that does not pass through a member of the given group.
+     * 
+     * @return The path or {@code null} if the node has no unique path.
+     */
+    private int[] getPath( GraphState state, int node, int id )
+    {
+        if ( state.pathStamps[node] == state.stamp )
+        {
+            return state.paths[node];
+        }
+
+        int depth = 0;
+        int n = node;
+        for ( ; n != 0 && state.pathStamps[n] != state.stamp; n = state.parentNodes[n] )
+        {
+            if ( state.conflictIds[n] == id || !state.findParent( n ) || depth >= state.paths.length )
             {
-                return;
+                // ambiguous path or a cycle detached from the root
+                return null;
             }
+            depth++;
+        }
+
+        int[] prefix = ( n != 0 ) ? state.paths[n] : NO_PATH;
+        int[] path = new int[prefix.length + depth];
+        System.arraycopy( prefix, 0, path, 0, prefix.length );
+        n = node;
+        for ( int i = path.length - 1; i >= prefix.length; i-- )
+        {
+            path[i] = state.parentSlots[n];
+            n = state.parentNodes[n];
+        }
+
+        state.pathStamps[node] = state.stamp;
+        state.paths[node] = path;
+
+        return path;
+    }
+
+    private void selectVersion( GraphState state, ConflictGroup group, int id, int node, int parent, int depth )
+        throws RepositoryException
+    {
+        if ( state.depthStamps[node] == state.stamp && state.depths[node] <= depth )
+        {
+            return;
+        }
+        state.depthStamps[node] = state.stamp;
+        state.depths[node] = depth;
 
-            group.candidates.put( node, pos );
+        CompactDependencyGraph graph = state.graph;
 
-            if ( !node.getVersionConstraint().getRanges().isEmpty() )
+        if ( state.conflictIds[node] == id )
+        {
+            DependencyNode parentNode = ( parent >= 0 ) ? graph.getNode( parent ) : null;
+            if ( !selectVersion( group, graph.getNode( node ), parentNode, parent, depth ) )
             {
-                group.constraints.add( node.getVersionConstraint() );
+                return;
             }
+        }
 
-            if ( group.version == null || isNearer( pos, node.getVersion(), group.position, group.version ) )
+        depth++;
+
+        for ( int slot = graph.getChildStart( node ), end = graph.getChildEnd( node ); slot < end; slot++ )
+        {
+            if ( !state.removed[slot] )
             {
-                group.version = node.getVersion();
-                group.position = pos;
+                selectVersion( state, group, id, graph.getChild( slot ), node, depth );
             }
+        }
+    }
+
+    /**
+     * Processes the visit of a group member.
+     * 
+     * @return {@code true} if the version of the member is acceptable, {@code false} otherwise.
+     */
+    private boolean selectVersion( ConflictGroup group, DependencyNode node, DependencyNode parent, int parentIndex,
+                                   int depth )
+        throws RepositoryException
+    {
+        Position pos = new Position( parent, parentIndex, depth );
+        if ( parent != null )
+        {
+            group.positions.add( pos );
+        }
+
+        if ( !group.isAcceptable( node.getVersion() ) )
+        {
+            return false;
+        }
+
+        group.candidates.put( node, pos );
+
+        if ( !node.getVersionConstraint().getRanges().isEmpty() )
+        {
+            group.constraints.add( node.getVersionConstraint() );
+        }
+
+        if ( group.version == null || isNearer( pos, node.getVersion(), group.position, group.version ) )
+        {
+            group.version = node.getVersion();
+            group.position = pos;
+        }
+
+        if ( !group.isAcceptable( group.version ) )
+        {
+            group.version = null;
+
+            Map<Version, Version> acceptable = group.getAcceptableVersions();
 
-            if ( !group.isAcceptable( group.version ) )
+            for ( Iterator<Map.Entry<DependencyNode, Position>> it = group.candidates.entrySet().iterator(); it.hasNext(); )
             {
-                group.version = null;
+                Map.Entry<DependencyNode, Position> entry = it.next();
+                Version version = entry.getKey().getVersion();
+                pos = entry.getValue();
 
-                for ( Iterator<Map.Entry<DependencyNode, Position>> it = group.candidates.entrySet().iterator(); it.hasNext(); )
+                if ( acceptable != null ? !acceptable.containsKey( version ) : !group.isAcceptable( version ) )
                 {
-                    Map.Entry<DependencyNode, Position> entry = it.next();
-                    Version version = entry.getKey().getVersion();
-                    pos = entry.getValue();
-
-                    if ( !group.isAcceptable( version ) )
-                    {
-                        it.remove();
-                    }
-                    else if ( group.version == null || isNearer( pos, version, group.position, group.version ) )
-                    {
-                        group.version = version;
-                        group.position = pos;
-                    }
+                    it.remove();
+                }
+                else if ( group.version == null || isNearer( pos, version, group.position, group.version ) )
+                {
+                    group.version = version;
+                    group.position = pos;
                 }
+            }
 
-                if ( group.version == null )
+            if ( group.version == null )
+            {
+                Collection<String> versions = new LinkedHashSet<String>();
+                for ( VersionConstraint constraint : group.constraints )
                 {
-                    Collection<String> versions = new LinkedHashSet<String>();
-                    for ( VersionConstraint constraint : group.constraints )
-                    {
-                        versions.add( constraint.toString() );
-                    }
-                    throw new UnsolvableVersionConflictException( group.key, versions );
+                    versions.add( constraint.toString() );
                 }
+                throw new UnsolvableVersionConflictException( group.key, versions );
             }
         }
 
-        depth++;
-
-        for ( DependencyNode child : node.getChildren() )
-        {
-            selectVersion( child, node, depth, depths, group, conflictIds );
-        }
+        return true;
     }
 
     private boolean isNearer( Position pos1, Version ver1, Position pos2, Version ver2 )
@@ -167,26 +328,31 @@ public class NearestVersionConflictResolver
         return false;
     }
 
-    private void pruneNonSelectedVersions( ConflictGroup group, Map<?, ?> conflictIds )
+    private void pruneNonSelectedVersions( GraphState state, ConflictGroup group, int id )
     {
+        CompactDependencyGraph graph = state.graph;
+
         for ( Position pos : group.positions )
         {
-            for ( Iterator<DependencyNode> it = pos.parent.getChildren().iterator(); it.hasNext(); )
+            for ( int slot = graph.getChildStart( pos.index ), end = graph.getChildEnd( pos.index ); slot < end; slot++ )
             {
-                DependencyNode child = it.next();
+                if ( state.removed[slot] )
+                {
+                    continue;
+                }
 
-                Object key = conflictIds.get( child );
+                int child = graph.getChild( slot );
 
-                if ( group.key.equals( key ) )
+                if ( state.conflictIds[child] == id )
                 {
                     if ( !group.pruned && group.position.depth == pos.depth
-                        && group.version.equals( child.getVersion() ) )
+                        && group.version.equals( graph.getNode( child ).getVersion() ) )
                     {
                         group.pruned = true;
                     }
                     else
                     {
-                        it.remove();
+                        state.remove( slot );
                     }
                 }
             }
@@ -196,6 +362,11 @@ public class NearestVersionConflictResolver
     static final class ConflictGroup
     {
 
+        /**
+         * The number of candidates from which on their acceptability is determined by filtering their sorted versions.
+         */
+        private static final int SORTED_FILTER_THRESHOLD = 16;
+
         final Object key;
 
         final Collection<VersionConstraint> constraints = new HashSet<VersionConstraint>();
@@ -213,7 +384,7 @@ public class NearestVersionConflictResolver
         public ConflictGroup( Object key )
         {
             this.key = key;
-            this.position = new Position( null, Integer.MAX_VALUE );
+            this.position = new Position( null, -1, Integer.MAX_VALUE );
         }
 
         boolean isAcceptable( Version version )
@@ -228,6 +399,39 @@ public class NearestVersionConflictResolver
             return true;
         }
 
+        /**
+         * Gets the versions of the candidates that are acceptable. For many candidates, sorting their versions once and
+         * filtering them by each constraint is cheaper than checking each version against each constraint.
+         * 
+         * @return The acceptable versions, keyed by identity, or {@code null} if there are only few candidates.
+         */
+        Map<Version, Version> getAcceptableVersions()
+        {
+            if ( candidates.size() < SORTED_FILTER_THRESHOLD )
+            {
+                return null;
+            }
+
+            List<Version> versions = new ArrayList<Version>( candidates.size() );
+            for ( DependencyNode candidate : candidates.keySet() )
+            {
+                versions.add( candidate.getVersion() );
+            }
+            Collections.sort( versions );
+
+            for ( VersionConstraint constraint : constraints )
+            {
+                versions = VersionRangeUtils.filterVersions( versions, constraint );
+            }
+
+            Map<Version, Version> acceptable = new IdentityHashMap<Version, Version>( versions.size() * 2 );
+            for ( Version version : versions )
+            {
+                acceptable.put( version, version );
+            }
+            return acceptable;
+        }
+
         @Override
         public String toString()
         {
@@ -241,13 +445,16 @@ public class NearestVersionConflictResolver
 
         final DependencyNode parent;
 
+        final int index;
+
         final int depth;
 
         final int hash;
 
-        public Position( DependencyNode parent, int depth )
+        public Position( DependencyNode parent, int index, int depth )
         {
             this.parent = parent;
+            this.index = index;
             this.depth = depth;
             hash = 31 * System.identityHashCode( parent ) + depth;
         }
@@ -281,4 +488,204 @@ public class NearestVersionConflictResolver
 
     }
 
+    /**
+     * The visit of a group member from one of its parents, ordered like a depth-first traversal would encounter it.
+     */
+    static final class Occurrence
+        implements Comparable<Occurrence>
+    {
+
+        final int parent;
+
+        final int[] path;
+
+        final int slot;
+
+        public Occurrence( int parent, int[] path, int slot )
+        {
+            this.parent = parent;
+            this.path = path;
+            this.slot = slot;
+        }
+
+        public int compareTo( Occurrence that )
+        {
+            int n = Math.min( this.path.length, that.path.length );
+            for ( int i = 0; i < n; i++ )
+            {
+                if ( this.path[i] != that.path[i] )
+                {
+                    return ( this.path[i] < that.path[i] ) ? -1 : 1;
+                }
+            }
+            int slot1 = ( n < this.path.length ) ? this.path[n] : this.slot;
+            int slot2 = ( n < that.path.length ) ? that.path[n] : that.slot;
+            return ( slot1 < slot2 ) ? -1 : ( ( slot1 == slot2 ) ? 0 : 1 );
+        }
+
+    }
+
+    /**
+     * The working state of the conflict resolution on top of the compact graph. Removed children are only recorded
+     * here and applied to the actual dependency nodes at the end. For each node, the number of references from
+     * reachable parents is maintained so that nodes reachable via a single path can be recognized.
+     */
+    static final class GraphState
+    {
+
+        final CompactDependencyGraph graph;
+
+        final int[] conflictIds;
+
+        final boolean[] removed;
+
+        final boolean[] modifiedLists;
+
+        final boolean[] unreachable;
+
+        final int[] reachableOwners;
+
+        final int[] references;
+
+        final int[] parentNodes;
+
+        final int[] parentSlots;
+
+        final int[] depths;
+
+        final int[] depthStamps;
+
+        final int[][] paths;
+
+        final int[] pathStamps;
+
+        int stamp;
+
+        public GraphState( CompactDependencyGraph graph, int[] conflictIds )
+        {
+            this.graph = graph;
+            this.conflictIds = conflictIds;
+
+            int nodes = graph.getNodeCount();
+            int slots = graph.getEdgeCount();
+            int lists = graph.getChildListCount();
+
+            removed = new boolean[slots];
+            modifiedLists = new boolean[lists];
+            unreachable = new boolean[nodes];
+            reachableOwners = new int[lists];
+            references = new int[nodes];
+            parentNodes = new int[nodes];
+            parentSlots = new int[nodes];
+            depths = new int[nodes];
+            depthStamps = new int[nodes];
+            paths = new int[nodes][];
+            pathStamps = new int[nodes];
+
+            for ( int i = 0; i < nodes; i++ )
+            {
+                reachableOwners[graph.getChildList( i )]++;
+                for ( int slot = graph.getChildStart( i ), end = graph.getChildEnd( i ); slot < end; slot++ )
+                {
+                    references[graph.getChild( slot )]++;
+                }
+            }
+        }
+
+        /**
+         * Determines the only reachable parent of the specified node.
+         * 
+         * @return {@code true} if the node has exactly one reachable parent, {@code false} otherwise.
+         */
+        boolean findParent( int node )
+        {
+            if ( references[node] != 1 )
+            {
+                return false;
+            }
+            for ( int p = graph.getReferenceStart( node ), pEnd = graph.getReferenceEnd( node ); p < pEnd; p++ )
+            {
+                int slot = graph.getReference( p );
+                int list = graph.getPositionList( slot );
+                if ( removed[slot] || reachableOwners[list] <= 0 )
+                {
+                    continue;
+                }
+                for ( int o = graph.getListOwnerStart( list ), oEnd = graph.getListOwnerEnd( list ); o < oEnd; o++ )
+                {
+                    int owner = graph.getListOwner( o );
+                    if ( !unreachable[owner] )
+                    {
+                        parentNodes[node] = owner;
+                        parentSlots[node] = slot;
+                        return true;
+                    }
+                }
+            }
+            throw new IllegalStateException( "inconsistent parent references for " + graph.getNode( node ) );
+        }
+
+        void remove( int slot )
+        {
+            removed[slot] = true;
+            int list = graph.getPositionList( slot );
+            modifiedLists[list] = true;
+
+            int child = graph.getChild( slot );
+            references[child] -= reachableOwners[list];
+            if ( references[child] > 0 || child == 0 || unreachable[child] )
+            {
+                return;
+            }
+
+            List<Integer> pending = new ArrayList<Integer>();
+            pending.add( Integer.valueOf( child ) );
+            unreachable[child] = true;
+            while ( !pending.isEmpty() )
+            {
+                int node = pending.remove( pending.size() - 1 ).intValue();
+                reachableOwners[graph.getChildList( node )]--;
+                for ( int s = graph.getChildStart( node ), end = graph.getChildEnd( node ); s < end; s++ )
+                {
+                    if ( removed[s] )
+                    {
+                        continue;
+                    }
+                    int c = graph.getChild( s );
+                    references[c]--;
+                    if ( references[c] <= 0 && c != 0 && !unreachable[c] )
+                    {
+                        unreachable[c] = true;
+                        pending.add( Integer.valueOf( c ) );
+                    }
+                }
+            }
+        }
+
+        /**
+         * Removes the children recorded as removed from the actual dependency nodes.
+         */
+        void apply()
+        {
+            for ( int list = 0; list < modifiedLists.length; list++ )
+            {
+                if ( !modifiedLists[list] )
+                {
+                    continue;
+                }
+                int owner = graph.getListOwner( graph.getListOwnerStart( list ) );
+                int slot = graph.getChildStart( owner );
+                for ( Iterator<DependencyNode> it = graph.getNode( owner ).getChildren().iterator(); it.hasNext(); slot++ )
+                {
+                    it.next();
+                    if ( removed[slot] )
+                    {
+                        it.remove();
+                    }
+                }
+            }
+        }
+
+    }
+
 }
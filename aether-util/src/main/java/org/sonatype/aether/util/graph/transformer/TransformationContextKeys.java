@@ -40,6 +40,63 @@ public final class TransformationContextKeys
      */
     public static final Object SORTED_CONFLICT_IDS = "sortedConflictIds";
 
+    /**
+     * The key in the graph transformation context where a {@link CompactDependencyGraph} is stored, i.e. an array-based
+     * snapshot of the dependency graph that transformers share instead of traversing the graph individually. The
+     * snapshot is only reused while it still matches the graph, see {@link CompactDependencyGraph#isCurrent()}.
+     * 
+     * @see CompactDependencyGraph
+     */
+    public static final Object COMPACT_GRAPH = "compactGraph";
+
+    /**
+     * The key in the graph transformation context where a {@code List<DependencyNode>} is stored which holds the
+     * distinct nodes of the dependency graph in preorder, starting with the root node. It is published along with the
+     * {@link #COMPACT_GRAPH} and removed together with it. A transformer that modifies the graph without updating the
+     * snapshot leaves this list stale until the snapshot is discarded, which the
+     * {@link ChainedDependencyGraphTransformer} does after each transformer. Transformers that run outside of a chain
+     * should rather use {@link CompactDependencyGraph#find(org.sonatype.aether.graph.DependencyNode,
+     * org.sonatype.aether.collection.DependencyGraphTransformationContext)}.
+     * 
+     * @see CompactDependencyGraph
+     */
+    public static final Object NODE_PREORDER = "nodePreorder";
+
+    /**
+     * The key in the graph transformation context where a {@code Map<DependencyNode, List<DependencyNode>>} is stored
+     * which maps dependency nodes to their parents. A parent is listed once for each time it refers to the node. Note
+     * that the map keys use reference equality.
+     * 
+     * @see CompactDependencyGraph
+     */
+    public static final Object NODE_PARENTS = "nodeParents";
+
+    /**
+     * The key in the graph transformation context where a {@code Map<DependencyNode, Integer>} is stored which maps
+     * dependency nodes to their minimum depth, i.e. the length of the shortest path from the root node. Note that the
+     * map keys use reference equality.
+     * 
+     * @see CompactDependencyGraph
+     */
+    public static final Object NODE_DEPTHS = "nodeDepths";
+
+    /**
+     * The key in the graph transformation context where a {@code Map<Object, List<DependencyNode>>} is stored which
+     * maps the conflict ids from {@link #CONFLICT_IDS} to the nodes in the respective conflict group, in preorder.
+     * 
+     * @see CompactDependencyGraph
+     */
+    public static final Object CONFLICT_GROUPS = "conflictGroups";
+
+    /**
+     * The key in the graph transformation context where a {@link org.sonatype.aether.collection.CollectStatistics} is
+     * stored if the dependency collector gathers statistics. Transformers that delegate to other transformers use it
+     * to record the time spent in each of them.
+     * 
+     * @see ChainedDependencyGraphTransformer
+     */
+    public static final Object STATISTICS = "statistics";
+
     private TransformationContextKeys()
     {
         // hide constructor
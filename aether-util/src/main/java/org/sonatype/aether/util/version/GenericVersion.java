@@ -14,13 +14,9 @@ package org.sonatype.aether.util.version;
  */
 
 import java.math.BigInteger;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.ListIterator;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Stack;
 
 import org.sonatype.aether.version.Version;
 
@@ -55,401 +51,471 @@ final class GenericVersion
     implements Version
 {
 
-    private final String value;
+    /**
+     * The item kinds, ordered such that items of different kinds compare like their kind: a number is greater than a
+     * sub-list which in turn is greater than a qualifier.
+     */
+    private static final int QUALIFIER = 0;
 
-    private final String canonical;
+    private static final int LIST = 1;
+
+    private static final int NUMBER = 2;
 
-    private final ListItem items;
+    private static final String[] QUALIFIERS = { "alpha", "beta", "milestone", "rc", "snapshot", "", "sp" };
 
-    private interface Item
+    private static final Map<String, Integer> QUALIFIER_INDICES = new HashMap<String, Integer>();
+
+    static
     {
-        public static final int INTEGER_ITEM = 0;
+        for ( int i = 0; i < QUALIFIERS.length; i++ )
+        {
+            QUALIFIER_INDICES.put( QUALIFIERS[i], Integer.valueOf( i ) );
+        }
 
-        public static final int STRING_ITEM = 1;
+        QUALIFIER_INDICES.put( "ga", QUALIFIER_INDICES.get( "" ) );
+        QUALIFIER_INDICES.put( "final", QUALIFIER_INDICES.get( "" ) );
+        QUALIFIER_INDICES.put( "cr", QUALIFIER_INDICES.get( "rc" ) );
+    }
 
-        public static final int LIST_ITEM = 2;
+    /**
+     * The index of the empty qualifier, i.e. the one of a release version.
+     */
+    private static final int RELEASE_QUALIFIER = QUALIFIER_INDICES.get( "" ).intValue();
 
-        public int compareTo( Item item );
+    /**
+     * The index shared by all unknown qualifiers, these order after all well-known qualifiers and lexically among
+     * themselves.
+     */
+    private static final int UNKNOWN_QUALIFIER = QUALIFIERS.length;
 
-        public int getType();
+    private final String value;
 
-        public boolean isNull();
-    }
+    private final String canonical;
 
     /**
-     * Represents a numeric item in the version item list.
+     * The kind of each item. A sub-list (which starts with '-(number)' in the version specification) is always the
+     * last item of its enclosing list, so the item tree is flattened into a sequence where a {@link #LIST} marker
+     * denotes that all following items belong to a nested list.
      */
-    private static class IntegerItem
-        implements Item
-    {
+    private final int[] kinds;
 
-        private final BigInteger value;
+    /**
+     * The numeric value of each {@link #NUMBER} item or the qualifier index of each {@link #QUALIFIER} item.
+     */
+    private final long[] values;
 
-        public static final IntegerItem ZERO = new IntegerItem();
+    /**
+     * The {@link BigInteger} of numbers exceeding a {@code long} and the string of unknown qualifiers, {@code null} if
+     * no item needs one.
+     */
+    private final Object[] extras;
 
-        private IntegerItem()
-        {
-            this.value = BigInteger.ZERO;
-        }
+    /**
+     * Creates a Maven version from the specified string.
+     * 
+     * @param version The version string to parse, must not be {@code null}.
+     */
+    public GenericVersion( String version )
+    {
+        this.value = version;
 
-        public IntegerItem( String str )
-        {
-            this.value = new BigInteger( str );
-        }
+        Items items = new Items();
 
-        public int getType()
-        {
-            return INTEGER_ITEM;
-        }
+        version = version.toLowerCase( Locale.ENGLISH );
 
-        public boolean isNull()
-        {
-            return BigInteger.ZERO.equals( value );
-        }
+        boolean isDigit = false;
+
+        int startIndex = 0;
 
-        public int compareTo( Item item )
+        for ( int i = 0; i < version.length(); i++ )
         {
-            if ( item == null )
+            char c = version.charAt( i );
+
+            if ( c == '.' )
             {
-                return BigInteger.ZERO.equals( value ) ? 0 : 1; // 1.0 == 1, 1.1 > 1
+                if ( i == startIndex )
+                {
+                    items.addZero();
+                }
+                else
+                {
+                    items.add( isDigit, version, startIndex, i );
+                }
+                startIndex = i + 1;
             }
-
-            switch ( item.getType() )
+            else if ( c == '-' )
             {
-                case INTEGER_ITEM:
-                    return value.compareTo( ( (IntegerItem) item ).value );
+                if ( i == startIndex )
+                {
+                    items.addZero();
+                }
+                else
+                {
+                    items.add( isDigit, version, startIndex, i );
+                }
+                startIndex = i + 1;
 
-                case STRING_ITEM:
-                    return 1; // 1.1 > 1-sp
+                if ( isDigit )
+                {
+                    items.normalize( false ); // 1.0-* = 1-*
+
+                    if ( ( i + 1 < version.length() ) && Character.isDigit( version.charAt( i + 1 ) ) )
+                    {
+                        // new list only if previous were digits and new char is a digit,
+                        // ie need to differentiate only 1.1 from 1-1
+                        items.addList();
+                    }
+                }
+            }
+            else if ( Character.isDigit( c ) )
+            {
+                if ( !isDigit && i > startIndex )
+                {
+                    items.addQualifier( version.substring( startIndex, i ), true );
+                    startIndex = i;
+                }
 
-                case LIST_ITEM:
-                    return 1; // 1.1 > 1-1
+                isDigit = true;
+            }
+            else
+            {
+                if ( isDigit && i > startIndex )
+                {
+                    items.addNumber( version, startIndex, i );
+                    startIndex = i;
+                }
 
-                default:
-                    throw new RuntimeException( "invalid item: " + item.getClass() );
+                isDigit = false;
             }
         }
 
-        public String toString()
+        if ( version.length() > startIndex )
+        {
+            items.add( isDigit, version, startIndex, version.length() );
+        }
+
+        items.normalize( true );
+
+        kinds = new int[items.size];
+        System.arraycopy( items.kinds, 0, kinds, 0, items.size );
+        values = new long[items.size];
+        System.arraycopy( items.values, 0, values, 0, items.size );
+        if ( items.extras != null )
+        {
+            extras = new Object[items.size];
+            System.arraycopy( items.extras, 0, extras, 0, items.size );
+        }
+        else
         {
-            return value.toString();
+            extras = null;
         }
+
+        canonical = toCanonical();
     }
 
     /**
-     * Represents a string in the version item list, usually a qualifier.
+     * Collects the flattened items while parsing.
      */
-    private static class StringItem
-        implements Item
+    private static class Items
     {
-        private final static Map<String, String> QUALIFIERS = new HashMap<String, String>();
 
-        private final static Map<String, String> ALIASES = new HashMap<String, String>();
+        int[] kinds = new int[8];
 
-        static
-        {
-            String[] qualifiers = { "alpha", "beta", "milestone", "rc", "snapshot", "", "sp" };
-            for ( int i = 0; i < qualifiers.length; i++ )
-            {
-                QUALIFIERS.put( qualifiers[i], String.valueOf( i ) );
-            }
+        long[] values = new long[8];
 
-            ALIASES.put( "ga", "" );
-            ALIASES.put( "final", "" );
-            ALIASES.put( "cr", "rc" );
-        }
+        Object[] extras;
+
+        int size;
 
         /**
-         * A comparable value for the empty-string qualifier. This one is used to determine if a given qualifier makes
-         * the version older than one without a qualifier, or more recent.
+         * The index of the first item in the innermost list.
          */
-        private static final String RELEASE_VERSION_INDEX = QUALIFIERS.get( "" );
+        int listStart;
+
+        void add( boolean isDigit, String version, int start, int end )
+        {
+            if ( isDigit )
+            {
+                addNumber( version, start, end );
+            }
+            else
+            {
+                addQualifier( version.substring( start, end ), false );
+            }
+        }
 
-        private static final String LEXICAL_PREFIX = String.valueOf( QUALIFIERS.size() );
+        void addZero()
+        {
+            add( NUMBER, 0, null );
+        }
 
-        private final String value;
+        void addNumber( String version, int start, int end )
+        {
+            if ( end - start <= 18 )
+            {
+                long number = 0;
+                for ( int i = start; i < end; i++ )
+                {
+                    number = number * 10 + Character.digit( version.charAt( i ), 10 );
+                }
+                add( NUMBER, number, null );
+            }
+            else
+            {
+                BigInteger number = new BigInteger( version.substring( start, end ) );
+                if ( number.bitLength() < 64 )
+                {
+                    add( NUMBER, number.longValue(), null );
+                }
+                else
+                {
+                    add( NUMBER, 0, number );
+                }
+            }
+        }
 
-        public StringItem( String value, boolean followedByDigit )
+        void addQualifier( String qualifier, boolean followedByDigit )
         {
-            if ( followedByDigit && value.length() == 1 )
+            if ( followedByDigit && qualifier.length() == 1 )
             {
                 // a1 = alpha-1, b1 = beta-1, m1 = milestone-1
-                switch ( value.charAt( 0 ) )
+                switch ( qualifier.charAt( 0 ) )
                 {
                     case 'a':
-                        value = "alpha";
+                        qualifier = "alpha";
                         break;
                     case 'b':
-                        value = "beta";
+                        qualifier = "beta";
                         break;
                     case 'm':
-                        value = "milestone";
+                        qualifier = "milestone";
                         break;
                 }
             }
-            String alias = ALIASES.get( value );
-            this.value = ( alias != null ) ? alias : value;
+            Integer index = QUALIFIER_INDICES.get( qualifier );
+            if ( index != null )
+            {
+                add( QUALIFIER, index.intValue(), null );
+            }
+            else
+            {
+                add( QUALIFIER, UNKNOWN_QUALIFIER, qualifier );
+            }
         }
 
-        public int getType()
+        void addList()
         {
-            return STRING_ITEM;
+            add( LIST, 0, null );
+            listStart = size;
         }
 
-        public boolean isNull()
+        private void add( int kind, long value, Object extra )
         {
-            return value.length() <= 0;
+            if ( size >= kinds.length )
+            {
+                int[] k = new int[size * 2];
+                System.arraycopy( kinds, 0, k, 0, size );
+                kinds = k;
+                long[] v = new long[size * 2];
+                System.arraycopy( values, 0, v, 0, size );
+                values = v;
+                if ( extras != null )
+                {
+                    Object[] e = new Object[size * 2];
+                    System.arraycopy( extras, 0, e, 0, size );
+                    extras = e;
+                }
+            }
+            if ( extra != null && extras == null )
+            {
+                extras = new Object[kinds.length];
+            }
+            kinds[size] = kind;
+            values[size] = value;
+            if ( extras != null )
+            {
+                extras[size] = extra;
+            }
+            size++;
         }
 
         /**
-         * Returns a comparable value for a qualifier. This method both takes into account the ordering of known
-         * qualifiers as well as lexical ordering for unknown qualifiers. just returning an Integer with the index here
-         * is faster, but requires a lot of if/then/else to check for -1 or QUALIFIERS.size and then resort to lexical
-         * ordering. Most comparisons are decided by the first character, so this is still fast. If more characters are
-         * needed then it requires a lexical sort anyway.
-         * 
-         * @param qualifier
-         * @return an equivalent value that can be used with lexical comparison
+         * Removes trailing null items: 0, "" and, if {@code all} lists are normalized, empty lists. Otherwise only the
+         * innermost list is normalized.
          */
-        private static String comparableQualifier( String qualifier )
+        void normalize( boolean all )
         {
-            String i = QUALIFIERS.get( qualifier );
-
-            return i != null ? i : LEXICAL_PREFIX + qualifier;
+            while ( size > ( all ? 0 : listStart ) && isNull( size - 1 ) )
+            {
+                size--;
+            }
         }
 
-        public int compareTo( Item item )
+        private boolean isNull( int index )
         {
-            if ( item == null )
+            if ( kinds[index] == LIST )
             {
-                // 1-rc < 1, 1-ga > 1
-                return comparableQualifier( value ).compareTo( RELEASE_VERSION_INDEX );
+                return true; // a trailing list marker denotes an empty list
             }
-            switch ( item.getType() )
+            else if ( extras != null && extras[index] != null )
             {
-                case INTEGER_ITEM:
-                    return -1; // 1.any < 1.1 ?
-
-                case STRING_ITEM:
-                    return comparableQualifier( value ).compareTo( comparableQualifier( ( (StringItem) item ).value ) );
-
-                case LIST_ITEM:
-                    return -1; // 1.any < 1-1
-
-                default:
-                    throw new IllegalStateException( "invalid item: " + item.getClass() );
+                return false;
             }
+            return values[index] == ( ( kinds[index] == NUMBER ) ? 0 : RELEASE_QUALIFIER );
         }
 
-        public String toString()
-        {
-            return value;
-        }
     }
 
-    /**
-     * Represents a version list item. This class is used both for the global item list and for sub-lists (which start
-     * with '-(number)' in the version specification).
-     */
-    private static class ListItem
-        extends ArrayList<Item>
-        implements Item
+    private String toCanonical()
     {
-        public int getType()
-        {
-            return LIST_ITEM;
-        }
-
-        public boolean isNull()
+        StringBuilder buffer = new StringBuilder( 128 );
+        buffer.append( '(' );
+        int depth = 1;
+        boolean first = true;
+        for ( int i = 0; i < kinds.length; i++ )
         {
-            return ( size() == 0 );
-        }
-
-        void normalize()
-        {
-            for ( ListIterator<Item> iterator = listIterator( size() ); iterator.hasPrevious(); )
+            if ( !first )
             {
-                Item item = iterator.previous();
-                if ( item.isNull() )
-                {
-                    iterator.remove(); // remove null trailing items: 0, "", empty list
-                }
-                else
-                {
-                    break;
-                }
+                buffer.append( ',' );
             }
-        }
-
-        public int compareTo( Item item )
-        {
-            if ( item == null )
+            first = false;
+            switch ( kinds[i] )
             {
-                if ( size() == 0 )
-                {
-                    return 0; // 1-0 = 1- (normalize) = 1
-                }
-                Item first = (Item) get( 0 );
-                return first.compareTo( null );
-            }
-            switch ( item.getType() )
-            {
-                case INTEGER_ITEM:
-                    return -1; // 1-1 < 1.0.x
-
-                case STRING_ITEM:
-                    return 1; // 1-1 > 1-sp
-
-                case LIST_ITEM:
-                    Iterator<Item> left = iterator();
-                    Iterator<Item> right = ( (ListItem) item ).iterator();
-
-                    while ( left.hasNext() || right.hasNext() )
-                    {
-                        Item l = left.hasNext() ? left.next() : null;
-                        Item r = right.hasNext() ? right.next() : null;
-
-                        // if this is shorter, then invert the compare and mul with -1
-                        int result = l == null ? -r.compareTo( l ) : l.compareTo( r );
-
-                        if ( result != 0 )
-                        {
-                            return result;
-                        }
-                    }
-
-                    return 0;
-
+                case NUMBER:
+                    buffer.append( hasExtra( i ) ? extras[i] : Long.valueOf( values[i] ) );
+                    break;
+                case QUALIFIER:
+                    buffer.append( hasExtra( i ) ? extras[i] : QUALIFIERS[(int) values[i]] );
+                    break;
                 default:
-                    throw new RuntimeException( "invalid item: " + item.getClass() );
+                    buffer.append( '(' );
+                    depth++;
+                    first = true;
             }
         }
-
-        public String toString()
+        for ( ; depth > 0; depth-- )
         {
-            StringBuilder buffer = new StringBuilder( 128 );
-            buffer.append( '(' );
-            for ( Iterator<Item> iter = iterator(); iter.hasNext(); )
-            {
-                buffer.append( iter.next() );
-                if ( iter.hasNext() )
-                {
-                    buffer.append( ',' );
-                }
-            }
             buffer.append( ')' );
-            return buffer.toString();
         }
+        return buffer.toString();
     }
 
-    /**
-     * Creates a Maven version from the specified string.
-     * 
-     * @param version The version string to parse, must not be {@code null}.
-     */
-    public GenericVersion( String version )
+    private boolean hasExtra( int index )
     {
-        this.value = version;
-
-        items = new ListItem();
-
-        version = version.toLowerCase( Locale.ENGLISH );
-
-        ListItem list = items;
-
-        Stack<Item> stack = new Stack<Item>();
-        stack.push( list );
+        return extras != null && extras[index] != null;
+    }
 
-        boolean isDigit = false;
+    public int compareTo( Version o )
+    {
+        GenericVersion that = (GenericVersion) o;
 
-        int startIndex = 0;
+        int i = 0;
+        int j = 0;
 
-        for ( int i = 0; i < version.length(); i++ )
+        while ( i < kinds.length || j < that.kinds.length )
         {
-            char c = version.charAt( i );
+            int result;
 
-            if ( c == '.' )
+            if ( j >= that.kinds.length )
             {
-                if ( i == startIndex )
-                {
-                    list.add( IntegerItem.ZERO );
-                }
-                else
+                result = compareToNull( i );
+                if ( result != 0 || kinds[i] == LIST )
                 {
-                    list.add( parseItem( isDigit, version.substring( startIndex, i ) ) );
+                    return result;
                 }
-                startIndex = i + 1;
+                i++;
             }
-            else if ( c == '-' )
+            else if ( i >= kinds.length )
             {
-                if ( i == startIndex )
-                {
-                    list.add( IntegerItem.ZERO );
-                }
-                else
-                {
-                    list.add( parseItem( isDigit, version.substring( startIndex, i ) ) );
-                }
-                startIndex = i + 1;
-
-                if ( isDigit )
+                result = -that.compareToNull( j );
+                if ( result != 0 || that.kinds[j] == LIST )
                 {
-                    list.normalize(); // 1.0-* = 1-*
-
-                    if ( ( i + 1 < version.length() ) && Character.isDigit( version.charAt( i + 1 ) ) )
-                    {
-                        // new ListItem only if previous were digits and new char is a digit,
-                        // ie need to differentiate only 1.1 from 1-1
-                        list.add( list = new ListItem() );
-
-                        stack.push( list );
-                    }
+                    return result;
                 }
+                j++;
             }
-            else if ( Character.isDigit( c ) )
+            else
             {
-                if ( !isDigit && i > startIndex )
+                int kind = kinds[i];
+                if ( kind != that.kinds[j] )
                 {
-                    list.add( new StringItem( version.substring( startIndex, i ), true ) );
-                    startIndex = i;
+                    return ( kind > that.kinds[j] ) ? 1 : -1; // 1.1 > 1-1 > 1-sp
                 }
 
-                isDigit = true;
-            }
-            else
-            {
-                if ( isDigit && i > startIndex )
+                switch ( kind )
                 {
-                    list.add( parseItem( true, version.substring( startIndex, i ) ) );
-                    startIndex = i;
+                    case NUMBER:
+                        result = compareNumbers( i, that, j );
+                        break;
+                    case QUALIFIER:
+                        result = compareQualifiers( i, that, j );
+                        break;
+                    default:
+                        result = 0; // continue with the items of both sub-lists
                 }
 
-                isDigit = false;
+                if ( result != 0 )
+                {
+                    return result;
+                }
+                i++;
+                j++;
             }
         }
 
-        if ( version.length() > startIndex )
-        {
-            list.add( parseItem( isDigit, version.substring( startIndex ) ) );
-        }
+        return 0;
+    }
 
-        while ( !stack.isEmpty() )
+    /**
+     * Compares the item at the specified index with a missing item. For a sub-list, only its first item is considered.
+     */
+    private int compareToNull( int index )
+    {
+        switch ( kinds[index] )
         {
-            list = (ListItem) stack.pop();
-            list.normalize();
-        }
+            case NUMBER:
+                return ( values[index] == 0 && !hasExtra( index ) ) ? 0 : 1; // 1.0 == 1, 1.1 > 1
 
-        canonical = items.toString();
+            case QUALIFIER:
+                // 1-rc < 1, 1-ga > 1
+                int qualifier = (int) values[index];
+                return ( qualifier < RELEASE_QUALIFIER ) ? -1 : ( qualifier == RELEASE_QUALIFIER ? 0 : 1 );
+
+            default:
+                return ( index + 1 < kinds.length ) ? compareToNull( index + 1 ) : 0; // 1-0 = 1- (normalize) = 1
+        }
     }
 
-    private static Item parseItem( boolean isDigit, String buf )
+    private int compareNumbers( int index, GenericVersion that, int thatIndex )
     {
-        return isDigit ? new IntegerItem( buf ) : new StringItem( buf, false );
+        boolean big = hasExtra( index );
+        if ( big != that.hasExtra( thatIndex ) )
+        {
+            return big ? 1 : -1;
+        }
+        else if ( big )
+        {
+            return ( (BigInteger) extras[index] ).compareTo( (BigInteger) that.extras[thatIndex] );
+        }
+        long l = values[index];
+        long r = that.values[thatIndex];
+        return ( l < r ) ? -1 : ( l == r ? 0 : 1 );
     }
 
-    public int compareTo( Version o )
+    private int compareQualifiers( int index, GenericVersion that, int thatIndex )
     {
-        return items.compareTo( ( (GenericVersion) o ).items );
+        long l = values[index];
+        long r = that.values[thatIndex];
+        if ( l != r )
+        {
+            return ( l < r ) ? -1 : 1;
+        }
+        else if ( l == UNKNOWN_QUALIFIER )
+        {
+            int result = ( (String) extras[index] ).compareTo( (String) that.extras[thatIndex] );
+            return ( result < 0 ) ? -1 : ( result == 0 ? 0 : 1 );
+        }
+        return 0;
     }
 
     public boolean equals( Object o )
@@ -14,6 +14,7 @@ package org.sonatype.aether.util.version;
  */
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 
 import org.sonatype.aether.version.Version;
@@ -21,7 +22,7 @@ import org.sonatype.aether.version.VersionConstraint;
 import org.sonatype.aether.version.VersionRange;
 
 /**
- * A constraint on versions for a dependency.
+ * A constraint on versions for a dependency. Instances are immutable.
  * 
  * @author Benjamin Bentmann
  */
@@ -29,24 +30,35 @@ final class GenericVersionConstraint
     implements VersionConstraint
 {
 
-    private Collection<VersionRange> ranges = new HashSet<VersionRange>();
+    private final Collection<VersionRange> ranges;
 
-    private Version version;
+    private final Version version;
+
+    private final int hashCode;
 
     /**
-     * Adds the specified version range to this constraint. All versions matched by the given range satisfy this
-     * constraint.
+     * Creates a constraint from the specified version ranges or the recommended version.
      * 
-     * @param range The version range to add, may be {@code null}.
-     * @return This constraint for chaining, never {@code null}.
+     * @param ranges The version ranges of the constraint, may be {@code null} or empty if none. All versions matched
+     *            by the given ranges satisfy this constraint.
+     * @param version The recommended version for this constraint, may be {@code null} if none.
      */
-    public GenericVersionConstraint addRange( VersionRange range )
+    public GenericVersionConstraint( Collection<VersionRange> ranges, Version version )
     {
-        if ( range != null )
+        if ( ranges == null || ranges.isEmpty() )
+        {
+            this.ranges = Collections.emptySet();
+        }
+        else
         {
-            ranges.add( range );
+            this.ranges = Collections.unmodifiableSet( new HashSet<VersionRange>( ranges ) );
         }
-        return this;
+        this.version = version;
+
+        int hash = 17;
+        hash = hash * 31 + hash( this.ranges );
+        hash = hash * 31 + hash( this.version );
+        hashCode = hash;
     }
 
     public Collection<VersionRange> getRanges()
@@ -54,18 +66,6 @@ final class GenericVersionConstraint
         return ranges;
     }
 
-    /**
-     * Sets the recommended version to satisfy this constraint.
-     * 
-     * @param version The recommended version for this constraint, may be {@code null} if none.
-     * @return This constraint for chaining, never {@code null}.
-     */
-    public GenericVersionConstraint setVersion( Version version )
-    {
-        this.version = version;
-        return this;
-    }
-
     public Version getVersion()
     {
         return version;
@@ -126,7 +126,7 @@ final class GenericVersionConstraint
 
         GenericVersionConstraint that = (GenericVersionConstraint) obj;
 
-        return ranges.equals( that.getRanges() ) && eq( version, that.getVersion() );
+        return hashCode == that.hashCode && ranges.equals( that.getRanges() ) && eq( version, that.getVersion() );
     }
 
     private static <T> boolean eq( T s1, T s2 )
@@ -137,10 +137,7 @@ final class GenericVersionConstraint
     @Override
     public int hashCode()
     {
-        int hash = 17;
-        hash = hash * 31 + hash( getRanges() );
-        hash = hash * 31 + hash( getVersion() );
-        return hash;
+        return hashCode;
     }
 
     private static int hash( Object obj )
@@ -13,6 +13,11 @@ package org.sonatype.aether.util.version;
  * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
  */
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.sonatype.aether.version.InvalidVersionSpecificationException;
 import org.sonatype.aether.version.Version;
 import org.sonatype.aether.version.VersionConstraint;
@@ -20,7 +25,8 @@ import org.sonatype.aether.version.VersionRange;
 import org.sonatype.aether.version.VersionScheme;
 
 /**
- * A version scheme using a generic version syntax.
+ * A version scheme using a generic version syntax. Parsed versions, ranges and constraints are immutable and cached
+ * across all instances of this scheme, such that repeated parsing of the same specification yields the same instance.
  * 
  * @author Benjamin Bentmann
  * @author Alin Dreghiciu
@@ -29,22 +35,54 @@ public class GenericVersionScheme
     implements VersionScheme
 {
 
+    /**
+     * The maximum number of entries in each of the parse caches.
+     */
+    private static final int CACHE_SIZE = 1024 * 8;
+
+    private static final ParseCache<Version> VERSIONS = new ParseCache<Version>( CACHE_SIZE );
+
+    private static final ParseCache<VersionRange> RANGES = new ParseCache<VersionRange>( CACHE_SIZE );
+
+    private static final ParseCache<VersionConstraint> CONSTRAINTS = new ParseCache<VersionConstraint>( CACHE_SIZE );
+
     public Version parseVersion( final String version )
         throws InvalidVersionSpecificationException
     {
-        return new GenericVersion( version );
+        Version result = VERSIONS.get( version );
+        if ( result == null )
+        {
+            result = VERSIONS.put( version, new GenericVersion( version ) );
+        }
+        return result;
     }
 
     public VersionRange parseVersionRange( final String range )
         throws InvalidVersionSpecificationException
     {
-        return new GenericVersionRange( range );
+        VersionRange result = RANGES.get( range );
+        if ( result == null )
+        {
+            result = RANGES.put( range, new GenericVersionRange( range ) );
+        }
+        return result;
     }
 
     public VersionConstraint parseVersionConstraint( final String constraint )
         throws InvalidVersionSpecificationException
     {
-        GenericVersionConstraint result = new GenericVersionConstraint();
+        VersionConstraint result = CONSTRAINTS.get( constraint );
+        if ( result == null )
+        {
+            result = CONSTRAINTS.put( constraint, newVersionConstraint( constraint ) );
+        }
+        return result;
+    }
+
+    private VersionConstraint newVersionConstraint( final String constraint )
+        throws InvalidVersionSpecificationException
+    {
+        Collection<VersionRange> ranges = new ArrayList<VersionRange>();
 
         String process = constraint;
 
@@ -65,7 +103,7 @@ public class GenericVersionScheme
             }
 
             VersionRange range = parseVersionRange( process.substring( 0, index + 1 ) );
-            result.addRange( range );
+            ranges.add( range );
 
             process = process.substring( index + 1 ).trim();
 
@@ -75,18 +113,18 @@ public class GenericVersionScheme
             }
         }
 
-        if ( process.length() > 0 && !result.getRanges().isEmpty() )
+        if ( process.length() > 0 && !ranges.isEmpty() )
         {
             throw new InvalidVersionSpecificationException( constraint, "Invalid version range " + constraint
                 + ", expected [ or ( but got " + process );
         }
 
-        if ( result.getRanges().isEmpty() )
+        if ( ranges.isEmpty() )
         {
-            result.setVersion( parseVersion( constraint ) );
+            return new GenericVersionConstraint( null, parseVersion( constraint ) );
         }
 
-        return result;
+        return new GenericVersionConstraint( ranges, null );
     }
 
     @Override
@@ -106,4 +144,42 @@ public class GenericVersionScheme
         return getClass().hashCode();
     }
 
+    /**
+     * A bounded cache of parse results that is safe for concurrent use. Once full, the cache is simply cleared, which
+     * is cheap and good enough given that the same few specifications tend to be parsed over and over again.
+     */
+    private static final class ParseCache<T>
+    {
+
+        private final ConcurrentMap<String, T> entries = new ConcurrentHashMap<String, T>();
+
+        private final int maxSize;
+
+        public ParseCache( int maxSize )
+        {
+            this.maxSize = maxSize;
+        }
+
+        public T get( String key )
+        {
+            return entries.get( key );
+        }
+
+        /**
+         * Caches the specified value unless another thread did so first.
+         * 
+         * @return The cached value for the key, never {@code null}.
+         */
+        public T put( String key, T value )
+        {
+            if ( entries.size() >= maxSize )
+            {
+                entries.clear();
+            }
+            T existing = entries.putIfAbsent( key, value );
+            return ( existing != null ) ? existing : value;
+        }
+
+    }
+
 }
@@ -0,0 +1,198 @@
+package org.sonatype.aether.util.version;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.sonatype.aether.version.Version;
+import org.sonatype.aether.version.VersionConstraint;
+import org.sonatype.aether.version.VersionRange;
+
+/**
+ * A utility class to filter lists of versions by ranges and constraints. The versions to filter must be sorted in
+ * ascending order. Ranges of the {@link GenericVersionScheme} are then matched by a binary search for their bounds,
+ * such that filtering costs {@code O(log n + k)} for {@code k} matching versions, other ranges are checked version by
+ * version.
+ */
+public class VersionRangeUtils
+{
+
+    private VersionRangeUtils()
+    {
+        // hide constructor
+    }
+
+    /**
+     * Gets the versions that are contained within the specified range.
+     * 
+     * @param versions The versions to filter, sorted in ascending order, must not be {@code null}.
+     * @param range The range to match, must not be {@code null}.
+     * @return The matching versions in ascending order, never {@code null}. This may be a view of the input list.
+     */
+    public static <V extends Version> List<V> filterVersions( List<V> versions, VersionRange range )
+    {
+        if ( !( range instanceof GenericVersionRange ) )
+        {
+            List<V> result = new ArrayList<V>();
+            for ( V version : versions )
+            {
+                if ( range.containsVersion( version ) )
+                {
+                    result.add( version );
+                }
+            }
+            return result;
+        }
+
+        versions = toRandomAccess( versions );
+        int[] bounds = indexOf( versions, (GenericVersionRange) range );
+        return versions.subList( bounds[0], bounds[1] );
+    }
+
+    /**
+     * Gets the versions that satisfy the specified constraint.
+     * 
+     * @param versions The versions to filter, sorted in ascending order, must not be {@code null}.
+     * @param constraint The constraint to satisfy, must not be {@code null}.
+     * @return The matching versions in ascending order, never {@code null}. This may be a view of the input list.
+     */
+    public static <V extends Version> List<V> filterVersions( List<V> versions, VersionConstraint constraint )
+    {
+        Collection<VersionRange> ranges = constraint.getRanges();
+
+        if ( ranges.isEmpty() )
+        {
+            Version recommended = constraint.getVersion();
+            List<V> result = new ArrayList<V>();
+            if ( recommended == null )
+            {
+                return result;
+            }
+            VersionRange range = new GenericVersionRange( recommended, true, recommended, true );
+            for ( V version : filterVersions( versions, range ) )
+            {
+                if ( version.equals( recommended ) )
+                {
+                    result.add( version );
+                }
+            }
+            return result;
+        }
+        else if ( ranges.size() == 1 )
+        {
+            return filterVersions( versions, ranges.iterator().next() );
+        }
+
+        for ( VersionRange range : ranges )
+        {
+            if ( !( range instanceof GenericVersionRange ) )
+            {
+                List<V> result = new ArrayList<V>();
+                for ( V version : versions )
+                {
+                    if ( constraint.containsVersion( version ) )
+                    {
+                        result.add( version );
+                    }
+                }
+                return result;
+            }
+        }
+
+        versions = toRandomAccess( versions );
+
+        // the ranges may overlap and are unordered, so merge their index intervals to retain order without duplicates
+        long[] intervals = new long[ranges.size()];
+        int count = 0;
+        for ( VersionRange range : ranges )
+        {
+            int[] bounds = indexOf( versions, (GenericVersionRange) range );
+            if ( bounds[0] < bounds[1] )
+            {
+                intervals[count++] = ( (long) bounds[0] << 32 ) | bounds[1];
+            }
+        }
+        Arrays.sort( intervals, 0, count );
+
+        List<V> result = new ArrayList<V>();
+        int end = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            int from = Math.max( (int) ( intervals[i] >>> 32 ), end );
+            int to = (int) intervals[i];
+            if ( from < to )
+            {
+                result.addAll( versions.subList( from, to ) );
+                end = to;
+            }
+        }
+        return result;
+    }
+
+    private static <V extends Version> List<V> toRandomAccess( List<V> versions )
+    {
+        return ( versions instanceof RandomAccess ) ? versions : new ArrayList<V>( versions );
+    }
+
+    /**
+     * Determines the index interval of the versions contained within the specified range.
+     * 
+     * @return The start (inclusive) and end (exclusive) index, never {@code null}.
+     */
+    private static int[] indexOf( List<? extends Version> versions, GenericVersionRange range )
+    {
+        int from = 0;
+        if ( range.getLowerBound() != null )
+        {
+            from = indexAbove( versions, range.getLowerBound(), !range.isLowerBoundInclusive() );
+        }
+
+        int to = versions.size();
+        if ( range.getUpperBound() != null )
+        {
+            to = indexAbove( versions, range.getUpperBound(), range.isUpperBoundInclusive() );
+        }
+
+        return new int[] { from, Math.max( from, to ) };
+    }
+
+    /**
+     * Finds the index of the first version that is greater than (or, if not {@code strict}, equal to) the specified
+     * bound.
+     */
+    private static int indexAbove( List<? extends Version> versions, Version bound, boolean strict )
+    {
+        int low = 0;
+        int high = versions.size();
+        while ( low < high )
+        {
+            int mid = ( low + high ) >>> 1;
+            int comparison = bound.compareTo( versions.get( mid ) );
+            if ( comparison < 0 || ( comparison == 0 && !strict ) )
+            {
+                high = mid;
+            }
+            else
+            {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+}
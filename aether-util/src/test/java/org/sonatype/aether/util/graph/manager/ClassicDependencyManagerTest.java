@@ -0,0 +1,122 @@
+package org.sonatype.aether.util.graph.manager;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.collection.DependencyCollectionContext;
+import org.sonatype.aether.collection.DependencyManagement;
+import org.sonatype.aether.collection.DependencyManager;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.Exclusion;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+public class ClassicDependencyManagerTest
+{
+
+    private static DependencyCollectionContext newContext( final Dependency... managedDependencies )
+    {
+        return new DependencyCollectionContext()
+        {
+
+            public RepositorySystemSession getSession()
+            {
+                return null;
+            }
+
+            public Dependency getDependency()
+            {
+                return null;
+            }
+
+            public List<Dependency> getManagedDependencies()
+            {
+                return Arrays.asList( managedDependencies );
+            }
+
+        };
+    }
+
+    private static Dependency newDependency( String coords, String scope, Exclusion... exclusions )
+    {
+        return new Dependency( new DefaultArtifact( coords ), scope, false, Arrays.asList( exclusions ) );
+    }
+
+    @Test
+    public void testManagementAppliesFromDepthTwo()
+    {
+        DependencyManager manager = new ClassicDependencyManager();
+        manager = manager.deriveChildManager( newContext( newDependency( "g:a:2", "runtime" ) ) );
+
+        Dependency dependency = newDependency( "g:a:1", "compile" );
+        assertNull( manager.manageDependency( dependency ) );
+
+        manager = manager.deriveChildManager( newContext() );
+        DependencyManagement management = manager.manageDependency( dependency );
+        assertEquals( "2", management.getVersion() );
+        assertEquals( "runtime", management.getScope() );
+
+        assertSame( manager, manager.deriveChildManager( newContext( newDependency( "g:a:3", "test" ) ) ) );
+    }
+
+    @Test
+    public void testFirstManagedVersionWins()
+    {
+        DependencyManager manager = new ClassicDependencyManager();
+        manager =
+            manager.deriveChildManager( newContext( newDependency( "g:a:2", "" ), newDependency( "g:a:3", "" ) ) );
+        manager = manager.deriveChildManager( newContext() );
+
+        assertEquals( "2", manager.manageDependency( newDependency( "g:a:1", "" ) ).getVersion() );
+    }
+
+    @Test
+    public void testExclusionsAreMergedWithoutAffectingOtherManagers()
+    {
+        Exclusion x = new Exclusion( "x", "x", "*", "*" );
+        Exclusion y = new Exclusion( "y", "y", "*", "*" );
+
+        DependencyManager root = new ClassicDependencyManager();
+        DependencyManager manager1 = root.deriveChildManager( newContext( newDependency( "g:a:1", "", x ) ) );
+        DependencyManager manager2 =
+            root.deriveChildManager( newContext( newDependency( "g:a:1", "", x ), newDependency( "g:a:1", "", y ) ) );
+
+        Dependency dependency = newDependency( "g:a:1", "" );
+        assertEquals( Collections.singleton( x ), manager1.manageDependency( dependency ).getExclusions() );
+        assertEquals( 2, manager2.manageDependency( dependency ).getExclusions().size() );
+    }
+
+    @Test
+    public void testEqualManagementYieldsEqualManagers()
+    {
+        DependencyManager root = new ClassicDependencyManager();
+        DependencyManager manager1 =
+            root.deriveChildManager( newContext( newDependency( "g:a:1", "test" ), newDependency( "g:b:1", "" ) ) );
+        DependencyManager manager2 =
+            root.deriveChildManager( newContext( newDependency( "g:b:1", "" ), newDependency( "g:a:1", "test" ) ) );
+        DependencyManager manager3 = root.deriveChildManager( newContext( newDependency( "g:a:2", "test" ) ) );
+
+        assertEquals( manager1, manager2 );
+        assertEquals( manager1.hashCode(), manager2.hashCode() );
+        assertFalse( manager1.equals( manager3 ) );
+        assertFalse( manager1.equals( root ) );
+    }
+
+}
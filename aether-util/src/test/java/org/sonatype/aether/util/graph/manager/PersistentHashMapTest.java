@@ -0,0 +1,165 @@
+package org.sonatype.aether.util.graph.manager;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PersistentHashMapTest
+{
+
+    /**
+     * A key with a poor hash code to provoke collisions and deep tries.
+     */
+    static final class Key
+    {
+
+        final int id;
+
+        final int hash;
+
+        Key( int id, int hash )
+        {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            return obj instanceof Key && ( (Key) obj ).id == id;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "k" + id;
+        }
+
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        PersistentHashMap<String, String> map = PersistentHashMap.empty();
+        assertEquals( 0, map.size() );
+        assertTrue( map.isEmpty() );
+        assertNull( map.get( "a" ) );
+        assertFalse( map.containsKey( "a" ) );
+        assertEquals( new HashMap<String, String>(), map );
+        assertEquals( new HashMap<String, String>().hashCode(), map.hashCode() );
+    }
+
+    @Test
+    public void testPlusLeavesOriginalUnchanged()
+    {
+        PersistentHashMap<String, String> map1 = PersistentHashMap.<String, String> empty().plus( "a", "1" );
+        PersistentHashMap<String, String> map2 = map1.plus( "b", "2" );
+        PersistentHashMap<String, String> map3 = map2.plus( "a", "3" );
+
+        assertEquals( 1, map1.size() );
+        assertEquals( "1", map1.get( "a" ) );
+        assertNull( map1.get( "b" ) );
+        assertEquals( 2, map2.size() );
+        assertEquals( "1", map2.get( "a" ) );
+        assertEquals( "2", map2.get( "b" ) );
+        assertEquals( 2, map3.size() );
+        assertEquals( "3", map3.get( "a" ) );
+
+        assertSame( map2, map2.plus( "b", "2" ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testNullValue()
+    {
+        PersistentHashMap.<String, String> empty().plus( "a", null );
+    }
+
+    @Test
+    public void testSameContentAsHashMap()
+    {
+        for ( int seed = 0; seed < 50; seed++ )
+        {
+            Random random = new Random( seed );
+            int range = 1 + random.nextInt( 1000 );
+            int hashes = 1 + random.nextInt( 2000 );
+
+            Map<Key, Integer> expected = new HashMap<Key, Integer>();
+            PersistentHashMap<Key, Integer> actual = PersistentHashMap.empty();
+            List<PersistentHashMap<Key, Integer>> versions = new ArrayList<PersistentHashMap<Key, Integer>>();
+            List<Map<Key, Integer>> snapshots = new ArrayList<Map<Key, Integer>>();
+
+            for ( int i = 0; i < 500; i++ )
+            {
+                int id = random.nextInt( range );
+                Key key = new Key( id, ( id * 7919 ) % hashes );
+                Integer value = Integer.valueOf( random.nextInt( 5 ) );
+                expected.put( key, value );
+                actual = actual.plus( key, value );
+
+                if ( i % 50 == 0 )
+                {
+                    versions.add( actual );
+                    snapshots.add( new HashMap<Key, Integer>( expected ) );
+                }
+            }
+            versions.add( actual );
+            snapshots.add( expected );
+
+            for ( int i = 0; i < versions.size(); i++ )
+            {
+                PersistentHashMap<Key, Integer> map = versions.get( i );
+                Map<Key, Integer> snapshot = snapshots.get( i );
+                assertEquals( "seed " + seed, snapshot.size(), map.size() );
+                assertEquals( "seed " + seed, snapshot.hashCode(), map.hashCode() );
+                assertEquals( "seed " + seed, snapshot, map );
+                assertEquals( "seed " + seed, map, snapshot );
+                for ( Map.Entry<Key, Integer> entry : snapshot.entrySet() )
+                {
+                    assertEquals( entry.getValue(), map.get( entry.getKey() ) );
+                }
+                assertFalse( map.containsKey( new Key( -1, 0 ) ) );
+            }
+        }
+    }
+
+    @Test
+    public void testEqualMapsBuiltInDifferentOrder()
+    {
+        PersistentHashMap<Key, String> map1 = PersistentHashMap.empty();
+        PersistentHashMap<Key, String> map2 = PersistentHashMap.empty();
+        for ( int i = 0; i < 100; i++ )
+        {
+            map1 = map1.plus( new Key( i, i % 3 ), "v" + i );
+            map2 = map2.plus( new Key( 99 - i, ( 99 - i ) % 3 ), "v" + ( 99 - i ) );
+        }
+        assertEquals( map1, map2 );
+        assertEquals( map1.hashCode(), map2.hashCode() );
+        assertFalse( map1.equals( map2.plus( new Key( 0, 0 ), "x" ) ) );
+    }
+
+}
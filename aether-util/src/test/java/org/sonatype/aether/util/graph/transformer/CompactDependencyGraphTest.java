@@ -0,0 +1,477 @@
+package org.sonatype.aether.util.graph.transformer;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.sonatype.aether.collection.DependencyGraphTransformationContext;
+import org.sonatype.aether.collection.DependencyGraphTransformer;
+import org.sonatype.aether.graph.DependencyNode;
+import org.sonatype.aether.test.util.NodeBuilder;
+
+public class CompactDependencyGraphTest
+{
+
+    @Test
+    public void testPreorderAndChildren()
+    {
+        NodeBuilder builder = new NodeBuilder();
+
+        DependencyNode root = builder.build();
+        DependencyNode a = builder.artifactId( "a" ).build();
+        DependencyNode b = builder.artifactId( "b" ).build();
+        DependencyNode c = builder.artifactId( "c" ).build();
+        root.getChildren().add( a );
+        root.getChildren().add( b );
+        a.getChildren().add( c );
+        b.getChildren().add( c );
+        b.getChildren().add( a );
+
+        CompactDependencyGraph graph = new CompactDependencyGraph( root );
+
+        assertEquals( 4, graph.getNodeCount() );
+        assertEquals( 5, graph.getEdgeCount() );
+        assertSame( root, graph.getRoot() );
+        assertSame( root, graph.getNode( 0 ) );
+        assertSame( a, graph.getNode( 1 ) );
+        assertSame( c, graph.getNode( 2 ) );
+        assertSame( b, graph.getNode( 3 ) );
+
+        assertChildren( graph, 0, 1, 3 );
+        assertChildren( graph, 1, 2 );
+        assertChildren( graph, 2 );
+        assertChildren( graph, 3, 2, 1 );
+    }
+
+    private void assertChildren( CompactDependencyGraph graph, int node, int... children )
+    {
+        assertEquals( children.length, graph.getChildEnd( node ) - graph.getChildStart( node ) );
+        for ( int i = 0; i < children.length; i++ )
+        {
+            assertEquals( children[i], graph.getChild( graph.getChildStart( node ) + i ) );
+        }
+    }
+
+    @Test
+    public void testSharedChildLists()
+    {
+        NodeBuilder builder = new NodeBuilder();
+
+        DependencyNode root = builder.build();
+        DependencyNode c = builder.artifactId( "c" ).build();
+        DependencyNode a1 = builder.artifactId( "a" ).build();
+        a1.getChildren().add( c );
+        DependencyNode a2 = new NearestVersionConflictResolverTest.SharedChildrenNode( a1, a1.getChildren() );
+        root.getChildren().add( a1 );
+        root.getChildren().add( a2 );
+
+        CompactDependencyGraph graph = new CompactDependencyGraph( root );
+
+        assertEquals( 4, graph.getNodeCount() );
+        assertEquals( 3, graph.getEdgeCount() );
+        assertEquals( 3, graph.getChildListCount() );
+        assertEquals( graph.getChildList( 1 ), graph.getChildList( 3 ) );
+        assertEquals( 0, graph.getChildList( 2 ) );
+        assertEquals( graph.getChildStart( 1 ), graph.getChildStart( 3 ) );
+        assertChildren( graph, 3, 2 );
+    }
+
+    @Test
+    public void testConflictIds()
+    {
+        NodeBuilder builder = new NodeBuilder();
+
+        DependencyNode root = builder.build();
+        DependencyNode a1 = builder.artifactId( "a" ).version( "1" ).build();
+        DependencyNode b = builder.artifactId( "b" ).build();
+        DependencyNode a2 = builder.artifactId( "a" ).version( "2" ).build();
+        root.getChildren().add( a1 );
+        root.getChildren().add( b );
+        b.getChildren().add( a2 );
+
+        Map<DependencyNode, Object> conflictIds = new IdentityHashMap<DependencyNode, Object>();
+        conflictIds.put( a1, "a" );
+        conflictIds.put( b, "b" );
+        conflictIds.put( a2, "a" );
+
+        CompactDependencyGraph graph = new CompactDependencyGraph( root );
+        int[] ids = graph.getConflictIds( conflictIds );
+
+        assertEquals( 2, graph.getConflictIdCount() );
+        assertEquals( -1, ids[0] );
+        assertEquals( 0, ids[1] );
+        assertEquals( 1, ids[2] );
+        assertEquals( 0, ids[3] );
+        assertEquals( "a", graph.getConflictKey( 0 ) );
+        assertEquals( 1, graph.getConflictId( "b" ) );
+        assertEquals( -1, graph.getConflictId( "x" ) );
+        assertSame( ids, graph.getConflictIds( conflictIds ) );
+    }
+
+    @Test
+    public void testSharedViaContext()
+    {
+        NodeBuilder builder = new NodeBuilder();
+        DependencyNode root = builder.build();
+        root.getChildren().add( builder.artifactId( "a" ).build() );
+
+        DependencyGraphTransformationContext context = new SimpleDependencyGraphTransformationContext();
+        CompactDependencyGraph graph = CompactDependencyGraph.get( root, context );
+        assertSame( graph, CompactDependencyGraph.get( root, context ) );
+        assertSame( graph, context.get( TransformationContextKeys.COMPACT_GRAPH ) );
+
+        CompactDependencyGraph.invalidate( context );
+        assertNull( context.get( TransformationContextKeys.COMPACT_GRAPH ) );
+        assertNotSame( graph, CompactDependencyGraph.get( root, context ) );
+
+        DependencyNode other = builder.build();
+        assertSame( other, CompactDependencyGraph.get( other, context ).getRoot() );
+    }
+
+    @Test
+    public void testParentsAndDepths()
+    {
+        NodeBuilder builder = new NodeBuilder();
+
+        DependencyNode root = builder.build();
+        DependencyNode a = builder.artifactId( "a" ).build();
+        DependencyNode b = builder.artifactId( "b" ).build();
+        DependencyNode c = builder.artifactId( "c" ).build();
+        root.getChildren().add( a );
+        root.getChildren().add( b );
+        a.getChildren().add( c );
+        b.getChildren().add( c );
+        b.getChildren().add( a );
+
+        CompactDependencyGraph graph = new CompactDependencyGraph( root );
+
+        assertEquals( 0, graph.getParents( 0 ).length );
+        assertParents( graph, 1, 0, 3 );
+        assertParents( graph, 2, 1, 3 );
+        assertParents( graph, 3, 0 );
+
+        assertEquals( 0, graph.getDepth( 0 ) );
+        assertEquals( 1, graph.getDepth( 1 ) );
+        assertEquals( 2, graph.getDepth( 2 ) );
+        assertEquals( 1, graph.getDepth( 3 ) );
+
+        assertEquals( 2, graph.getIndex( c ) );
+        assertEquals( -1, graph.getIndex( builder.build() ) );
+    }
+
+    @Test
+    public void testParentsOfSharedChildLists()
+    {
+        NodeBuilder builder = new NodeBuilder();
+
+        DependencyNode root = builder.build();
+        DependencyNode c = builder.artifactId( "c" ).build();
+        DependencyNode a1 = builder.artifactId( "a" ).build();
+        a1.getChildren().add( c );
+        DependencyNode a2 = new NearestVersionConflictResolverTest.SharedChildrenNode( a1, a1.getChildren() );
+        root.getChildren().add( a1 );
+        root.getChildren().add( a2 );
+
+        CompactDependencyGraph graph = new CompactDependencyGraph( root );
+
+        assertParents( graph, 2, 1, 3 );
+        int position = graph.getReference( graph.getReferenceStart( 2 ) );
+        assertEquals( graph.getChildList( 1 ), graph.getPositionList( position ) );
+        int list = graph.getChildList( 1 );
+        assertEquals( 2, graph.getListOwnerEnd( list ) - graph.getListOwnerStart( list ) );
+    }
+
+    private void assertParents( CompactDependencyGraph graph, int node, int... parents )
+    {
+        int[] actual = graph.getParents( node );
+        Arrays.sort( actual );
+        assertEquals( Arrays.toString( parents ), Arrays.toString( actual ) );
+    }
+
+    @Test
+    public void testConflictGroups()
+    {
+        NodeBuilder builder = new NodeBuilder();
+
+        DependencyNode root = builder.build();
+        DependencyNode a1 = builder.artifactId( "a" ).version( "1" ).build();
+        DependencyNode b = builder.artifactId( "b" ).build();
+        DependencyNode a2 = builder.artifactId( "a" ).version( "2" ).build();
+        root.getChildren().add( a1 );
+        root.getChildren().add( b );
+        b.getChildren().add( a2 );
+
+        Map<DependencyNode, Object> conflictIds = new IdentityHashMap<DependencyNode, Object>();
+        conflictIds.put( a1, "a" );
+        conflictIds.put( b, "b" );
+        conflictIds.put( a2, "a" );
+
+        CompactDependencyGraph graph = new CompactDependencyGraph( root );
+        graph.getConflictIds( conflictIds );
+
+        assertEquals( 2, graph.getConflictGroupEnd( 0 ) - graph.getConflictGroupStart( 0 ) );
+        assertEquals( 1, graph.getConflictGroupMember( graph.getConflictGroupStart( 0 ) ) );
+        assertEquals( 3, graph.getConflictGroupMember( graph.getConflictGroupStart( 0 ) + 1 ) );
+        assertEquals( 1, graph.getConflictGroupEnd( 1 ) - graph.getConflictGroupStart( 1 ) );
+    }
+
+    @Test
+    public void testIndexViaContext()
+    {
+        NodeBuilder builder = new NodeBuilder();
+
+        DependencyNode root = builder.build();
+        DependencyNode a1 = builder.artifactId( "a" ).version( "1" ).build();
+        DependencyNode b = builder.artifactId( "b" ).build();
+        DependencyNode a2 = builder.artifactId( "a" ).version( "2" ).build();
+        root.getChildren().add( a1 );
+        root.getChildren().add( b );
+        b.getChildren().add( a2 );
+
+        DependencyGraphTransformationContext context = new SimpleDependencyGraphTransformationContext();
+        CompactDependencyGraph.get( root, context );
+
+        List<?> preorder = (List<?>) context.get( TransformationContextKeys.NODE_PREORDER );
+        assertEquals( Arrays.asList( root, a1, b, a2 ), preorder );
+
+        Map<?, ?> parents = (Map<?, ?>) context.get( TransformationContextKeys.NODE_PARENTS );
+        assertEquals( Arrays.asList( b ), parents.get( a2 ) );
+        assertEquals( 0, ( (List<?>) parents.get( root ) ).size() );
+        assertNull( parents.get( builder.build() ) );
+        assertEquals( 4, parents.entrySet().size() );
+
+        Map<?, ?> depths = (Map<?, ?>) context.get( TransformationContextKeys.NODE_DEPTHS );
+        assertEquals( Integer.valueOf( 2 ), depths.get( a2 ) );
+
+        Map<?, ?> groups = (Map<?, ?>) context.get( TransformationContextKeys.CONFLICT_GROUPS );
+        assertTrue( groups.isEmpty() );
+
+        Map<DependencyNode, Object> conflictIds = new IdentityHashMap<DependencyNode, Object>();
+        conflictIds.put( a1, "a" );
+        conflictIds.put( b, "b" );
+        conflictIds.put( a2, "a" );
+        context.put( TransformationContextKeys.CONFLICT_IDS, conflictIds );
+        assertEquals( Arrays.asList( a1, a2 ), groups.get( "a" ) );
+        assertEquals( Arrays.asList( b ), groups.get( "b" ) );
+        assertEquals( 2, groups.size() );
+
+        CompactDependencyGraph.invalidate( context );
+        assertNull( context.get( TransformationContextKeys.NODE_PREORDER ) );
+        assertNull( context.get( TransformationContextKeys.CONFLICT_GROUPS ) );
+    }
+
+    @Test
+    public void testRemoveChildren()
+    {
+        NodeBuilder builder = new NodeBuilder();
+
+        DependencyNode root = builder.build();
+        DependencyNode a = builder.artifactId( "a" ).build();
+        DependencyNode b = builder.artifactId( "b" ).build();
+        DependencyNode c = builder.artifactId( "c" ).build();
+        DependencyNode d = builder.artifactId( "d" ).build();
+        root.getChildren().add( a );
+        root.getChildren().add( b );
+        a.getChildren().add( c );
+        c.getChildren().add( d );
+        b.getChildren().add( d );
+
+        Map<DependencyNode, Object> conflictIds = new IdentityHashMap<DependencyNode, Object>();
+        conflictIds.put( c, "c" );
+        conflictIds.put( d, "d" );
+
+        CompactDependencyGraph graph = new CompactDependencyGraph( root );
+        graph.getConflictIds( conflictIds );
+
+        // remove a -> c, which makes c unreachable and d reachable only via b
+        boolean[] removed = new boolean[graph.getEdgeCount()];
+        removed[graph.getChildStart( 1 )] = true;
+        a.getChildren().clear();
+
+        CompactDependencyGraph pruned = graph.removeChildren( removed );
+        assertSameGraph( new CompactDependencyGraph( root ), pruned, conflictIds );
+        assertEquals( 4, pruned.getNodeCount() );
+        assertEquals( 2, pruned.getDepth( pruned.getIndex( d ) ) );
+        assertEquals( -1, pruned.getIndex( c ) );
+        assertTrue( pruned.isCurrent() );
+        assertFalse( graph.isCurrent() );
+    }
+
+    @Test
+    public void testIsCurrent()
+    {
+        NodeBuilder builder = new NodeBuilder();
+        DependencyNode root = builder.build();
+        DependencyNode a = builder.artifactId( "a" ).build();
+        DependencyNode b = builder.artifactId( "b" ).build();
+        root.getChildren().add( a );
+        root.getChildren().add( b );
+
+        CompactDependencyGraph graph = new CompactDependencyGraph( root );
+        assertTrue( graph.isCurrent() );
+
+        DependencyNode c = builder.artifactId( "c" ).build();
+        a.getChildren().add( c );
+        assertFalse( graph.isCurrent() );
+        a.getChildren().clear();
+        assertTrue( graph.isCurrent() );
+
+        root.getChildren().set( 1, c );
+        assertFalse( graph.isCurrent() );
+        root.getChildren().set( 1, b );
+        assertTrue( graph.isCurrent() );
+
+        root.getChildren().remove( b );
+        assertFalse( graph.isCurrent() );
+    }
+
+    @Test
+    public void testStaleSnapshotNotReused()
+    {
+        NodeBuilder builder = new NodeBuilder();
+        DependencyNode root = builder.build();
+        DependencyNode a = builder.artifactId( "a" ).build();
+        root.getChildren().add( a );
+
+        DependencyGraphTransformationContext context = new SimpleDependencyGraphTransformationContext();
+        CompactDependencyGraph graph = CompactDependencyGraph.get( root, context );
+        assertSame( graph, CompactDependencyGraph.find( root, context ) );
+
+        // a transformer unaware of the snapshot modifies the graph
+        DependencyNode b = builder.artifactId( "b" ).build();
+        a.getChildren().add( b );
+
+        assertNull( CompactDependencyGraph.find( root, context ) );
+        assertNull( context.get( TransformationContextKeys.NODE_PREORDER ) );
+        CompactDependencyGraph current = CompactDependencyGraph.get( root, context );
+        assertNotSame( graph, current );
+        assertEquals( Arrays.asList( root, a, b ), context.get( TransformationContextKeys.NODE_PREORDER ) );
+    }
+
+    @Test
+    public void testChainDiscardsStaleViews()
+        throws Exception
+    {
+        NodeBuilder builder = new NodeBuilder();
+        final DependencyNode root = builder.build();
+        final DependencyNode a = builder.artifactId( "a" ).build();
+        final DependencyNode b = builder.artifactId( "b" ).build();
+        root.getChildren().add( a );
+
+        DependencyGraphTransformer indexer = new DependencyGraphTransformer()
+        {
+            public DependencyNode transformGraph( DependencyNode node, DependencyGraphTransformationContext context )
+            {
+                CompactDependencyGraph.get( node, context );
+                return node;
+            }
+        };
+        DependencyGraphTransformer modifier = new DependencyGraphTransformer()
+        {
+            public DependencyNode transformGraph( DependencyNode node, DependencyGraphTransformationContext context )
+            {
+                a.getChildren().add( b );
+                return node;
+            }
+        };
+
+        DependencyGraphTransformationContext context = new SimpleDependencyGraphTransformationContext();
+        new ChainedDependencyGraphTransformer( indexer, modifier ).transformGraph( root, context );
+        assertNull( context.get( TransformationContextKeys.NODE_PREORDER ) );
+        assertNull( context.get( TransformationContextKeys.COMPACT_GRAPH ) );
+
+        context = new SimpleDependencyGraphTransformationContext();
+        new ChainedDependencyGraphTransformer( modifier, indexer ).transformGraph( root, context );
+        assertEquals( Arrays.asList( root, a, b ), context.get( TransformationContextKeys.NODE_PREORDER ) );
+    }
+
+    @Test
+    public void testChainPassesSnapshotWithoutCheck()
+        throws Exception
+    {
+        NodeBuilder builder = new NodeBuilder();
+        final DependencyNode root = builder.build();
+        final DependencyNode a = builder.artifactId( "a" ).build();
+        final DependencyNode b = builder.artifactId( "b" ).build();
+        root.getChildren().add( a );
+
+        final CompactDependencyGraph[] graphs = new CompactDependencyGraph[2];
+        DependencyGraphTransformer indexer = new DependencyGraphTransformer()
+        {
+            public DependencyNode transformGraph( DependencyNode node, DependencyGraphTransformationContext context )
+            {
+                graphs[0] = CompactDependencyGraph.get( node, context );
+                // violates the contract to show that the next transformer gets the snapshot without a check
+                a.getChildren().add( b );
+                return node;
+            }
+        };
+        DependencyGraphTransformer reader = new DependencyGraphTransformer()
+        {
+            public DependencyNode transformGraph( DependencyNode node, DependencyGraphTransformationContext context )
+            {
+                graphs[1] = CompactDependencyGraph.find( node, context );
+                return node;
+            }
+        };
+
+        DependencyGraphTransformationContext context = new SimpleDependencyGraphTransformationContext();
+        new ChainedDependencyGraphTransformer( indexer, reader ).transformGraph( root, context );
+        assertNotNull( graphs[0] );
+        assertSame( graphs[0], graphs[1] );
+
+        // a stale snapshot that was stored before the chain ran is still checked
+        a.getChildren().clear();
+        context = new SimpleDependencyGraphTransformationContext();
+        CompactDependencyGraph.get( root, context );
+        a.getChildren().add( b );
+        new ChainedDependencyGraphTransformer( reader ).transformGraph( root, context );
+        assertNull( graphs[1] );
+        assertNull( context.get( TransformationContextKeys.COMPACT_GRAPH ) );
+    }
+
+    static void assertSameGraph( CompactDependencyGraph expected, CompactDependencyGraph actual,
+                                 Map<?, ?> conflictIds )
+    {
+        assertEquals( expected.getNodeCount(), actual.getNodeCount() );
+        assertEquals( expected.getEdgeCount(), actual.getEdgeCount() );
+        assertEquals( expected.getChildListCount(), actual.getChildListCount() );
+        int[] expectedIds = expected.getConflictIds( conflictIds );
+        int[] actualIds = actual.getConflictIds( conflictIds );
+        for ( int i = 0; i < expected.getNodeCount(); i++ )
+        {
+            assertSame( expected.getNode( i ), actual.getNode( i ) );
+            assertEquals( expected.getChildList( i ), actual.getChildList( i ) );
+            assertEquals( expected.getChildStart( i ), actual.getChildStart( i ) );
+            assertEquals( expected.getChildEnd( i ), actual.getChildEnd( i ) );
+            assertEquals( expected.getDepth( i ), actual.getDepth( i ) );
+            assertEquals( expectedIds[i] < 0, actualIds[i] < 0 );
+            if ( expectedIds[i] >= 0 )
+            {
+                assertEquals( expected.getConflictKey( expectedIds[i] ), actual.getConflictKey( actualIds[i] ) );
+            }
+        }
+        for ( int k = 0; k < expected.getEdgeCount(); k++ )
+        {
+            assertEquals( expected.getChild( k ), actual.getChild( k ) );
+        }
+    }
+
+}
@@ -15,12 +15,23 @@ package org.sonatype.aether.util.graph.transformer;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.junit.Test;
+import org.sonatype.aether.artifact.Artifact;
 import org.sonatype.aether.collection.DependencyGraphTransformationContext;
+import org.sonatype.aether.collection.DependencyGraphTransformer;
 import org.sonatype.aether.graph.DependencyNode;
 import org.sonatype.aether.test.util.NodeBuilder;
+import org.sonatype.aether.test.util.impl.StubArtifact;
+import org.sonatype.aether.test.util.impl.TestDependencyNode;
 import org.sonatype.aether.util.graph.transformer.ConflictMarker;
 
 /**
@@ -130,4 +141,134 @@ public class ConflictMarkerTest
         assertSame( ids.get( root.getChildren().get( 1 ) ), ids.get( root.getChildren().get( 2 ) ) );
     }
 
+    @Test
+    public void testNumericConflictIdsRecordedInCompactGraph()
+        throws Exception
+    {
+        NodeBuilder builder = new NodeBuilder();
+
+        DependencyNode root = builder.build();
+        root.getChildren().add( builder.artifactId( "a" ).build() );
+        root.getChildren().add( builder.artifactId( "b" ).build() );
+        root.getChildren().add( builder.artifactId( "a" ).version( "2" ).build() );
+
+        DependencyGraphTransformationContext context = newContext();
+        new ConflictMarker().transformGraph( root, context );
+
+        Map<?, ?> ids = (Map<?, ?>) context.get( TransformationContextKeys.CONFLICT_IDS );
+        CompactDependencyGraph graph = CompactDependencyGraph.get( root, context );
+        int[] numbers = graph.getConflictIds( ids );
+
+        assertEquals( 2, graph.getConflictIdCount() );
+        assertEquals( -1, numbers[0] );
+        assertEquals( 0, numbers[1] );
+        assertEquals( 1, numbers[2] );
+        assertEquals( 0, numbers[3] );
+        assertSame( ids.get( root.getChildren().get( 0 ) ), graph.getConflictKey( 0 ) );
+    }
+
+    @Test
+    public void testSameGroupsAsSetMerging()
+        throws Exception
+    {
+        for ( int seed = 0; seed < 200; seed++ )
+        {
+            DependencyNode root = newAliasGraph( new Random( seed ), 60, 20, 3 );
+            assertSameGroups( root, mark( new SetMergingConflictMarker(), root ), mark( new ConflictMarker(), root ) );
+        }
+    }
+
+    /**
+     * Checks the union-find based marking against the former merging of key sets on a graph where many nodes carry
+     * relocations or aliases that chain up large conflict groups.
+     */
+    @Test
+    public void testSameGroupsAsSetMergingOnAliasHeavyGraph()
+        throws Exception
+    {
+        DependencyNode root = newAliasGraph( new Random( 4711 ), 4000, 3000, 4 );
+        Map<?, ?> actual = mark( new ConflictMarker(), root );
+        assertSameGroups( root, mark( new SetMergingConflictMarker(), root ), actual );
+
+        // the aliases chain up most artifacts into few groups
+        Map<Object, Object> groups = new IdentityHashMap<Object, Object>();
+        for ( Object id : actual.values() )
+        {
+            groups.put( id, id );
+        }
+        assertTrue( String.valueOf( groups.size() ), groups.size() < root.getChildren().size() / 2 );
+    }
+
+    private Map<?, ?> mark( DependencyGraphTransformer marker, DependencyNode root )
+        throws Exception
+    {
+        DependencyGraphTransformationContext context = newContext();
+        marker.transformGraph( root, context );
+        return (Map<?, ?>) context.get( TransformationContextKeys.CONFLICT_IDS );
+    }
+
+    /**
+     * Creates a flat graph whose nodes get relocations and aliases to randomly chosen other artifacts.
+     */
+    private DependencyNode newAliasGraph( Random random, int size, int artifacts, int maxAliases )
+    {
+        NodeBuilder builder = new NodeBuilder();
+        DependencyNode root = builder.build();
+        for ( int i = 0; i < size; i++ )
+        {
+            TestDependencyNode node =
+                new TestDependencyNode( builder.artifactId( "a" + random.nextInt( artifacts ) ).build() );
+
+            List<Artifact> relocations = new ArrayList<Artifact>();
+            List<Artifact> aliases = new ArrayList<Artifact>();
+            for ( int j = random.nextInt( maxAliases + 1 ); j > 0; j-- )
+            {
+                Artifact artifact = new StubArtifact( "test", "a" + random.nextInt( artifacts ), "", "jar", "1" );
+                if ( random.nextBoolean() )
+                {
+                    relocations.add( artifact );
+                }
+                else
+                {
+                    aliases.add( artifact );
+                }
+            }
+            node.setRelocations( relocations );
+            node.setAliases( aliases );
+
+            root.getChildren().add( node );
+        }
+        return root;
+    }
+
+    private Set<String> toStrings( Object keys )
+    {
+        Set<String> strings = new TreeSet<String>();
+        for ( Object key : (Collection<?>) keys )
+        {
+            strings.add( key.toString() );
+        }
+        return strings;
+    }
+
+    /**
+     * Asserts that both mappings partition the nodes of the (flat) graph into the same conflict groups. The keys of
+     * the two implementations are different classes and hence only compared by their string form.
+     */
+    private void assertSameGroups( DependencyNode root, Map<?, ?> expected, Map<?, ?> actual )
+    {
+        Map<Object, Object> mapping = new IdentityHashMap<Object, Object>();
+        Map<Object, Object> reverse = new IdentityHashMap<Object, Object>();
+        for ( DependencyNode node : root.getChildren() )
+        {
+            Object e = expected.get( node );
+            Object a = actual.get( node );
+            assertEquals( toStrings( e ), toStrings( a ) );
+            Object m = mapping.put( e, a );
+            assertTrue( m == null || m == a );
+            Object r = reverse.put( a, e );
+            assertTrue( r == null || r == e );
+        }
+    }
+
 }
@@ -15,12 +15,18 @@ package org.sonatype.aether.util.graph.transformer;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.junit.Test;
+import org.sonatype.aether.RepositoryException;
+import org.sonatype.aether.collection.DependencyGraphTransformationContext;
+import org.sonatype.aether.collection.DependencyGraphTransformer;
 import org.sonatype.aether.graph.DependencyNode;
+import org.sonatype.aether.test.util.impl.TestDependencyNode;
 
 /**
  * @author Benjamin Bentmann
@@ -265,4 +271,166 @@ public class NearestVersionConflictResolverTest
         assertTrue( b2.getChildren().isEmpty() );
     }
 
+    @Test
+    public void testSameResultAsPerGroupTraversal()
+        throws Exception
+    {
+        for ( int seed = 0; seed < 500; seed++ )
+        {
+            String expected = resolve( new PerGroupNearestVersionConflictResolver(), seed );
+            String actual = resolve( new NearestVersionConflictResolver(), seed );
+            assertEquals( "seed " + seed, expected, actual );
+        }
+    }
+
+    /**
+     * Resolves the conflicts of a small random graph and returns a dump of the resulting graph or the error message.
+     */
+    private String resolve( DependencyGraphTransformer transformer, long seed )
+        throws Exception
+    {
+        Random random = new Random( seed );
+        Map<DependencyNode, Object> conflictIds = new IdentityHashMap<DependencyNode, Object>();
+        DependencyNode root = newRandomGraph( random, 40, 2 + random.nextInt( 11 ), seed % 2 == 0, conflictIds );
+
+        DependencyGraphTransformationContext context = newContext();
+        context.put( TransformationContextKeys.CONFLICT_IDS, conflictIds );
+
+        try
+        {
+            root = transformer.transformGraph( root, context );
+        }
+        catch ( RepositoryException e )
+        {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+
+        if ( transformer instanceof NearestVersionConflictResolver )
+        {
+            // the snapshot left behind must match the pruned graph
+            CompactDependencyGraph graph =
+                (CompactDependencyGraph) context.get( TransformationContextKeys.COMPACT_GRAPH );
+            CompactDependencyGraphTest.assertSameGraph( new CompactDependencyGraph( root ), graph, conflictIds );
+        }
+
+        StringBuilder buffer = new StringBuilder( 1024 );
+        dump( buffer, root, new IdentityHashMap<DependencyNode, Integer>() );
+        return buffer.toString();
+    }
+
+    /**
+     * Creates a random graph the way the collector builds it: Each artifact version has a single list of children that
+     * is shared by all nodes for that version. Artifacts mostly depend on artifacts with higher numbers, so there are
+     * only a few cycles among the conflict ids. An irregular graph has more cycles and additionally reuses some nodes at
+     * several places.
+     */
+    private DependencyNode newRandomGraph( Random random, int size, int artifacts, boolean irregular,
+                                           Map<DependencyNode, Object> conflictIds )
+    {
+        int versions = size / artifacts;
+
+        String[] coordinates = new String[size];
+        List<List<DependencyNode>> children = new ArrayList<List<DependencyNode>>();
+        List<DependencyNode> nodes = new ArrayList<DependencyNode>();
+        for ( int i = 0; i < size; i++ )
+        {
+            children.add( new ArrayList<DependencyNode>() );
+        }
+        for ( int i = size - 1; i >= 0; i-- )
+        {
+            int version = 1 + random.nextInt( 4 );
+            String range = "";
+            if ( random.nextInt( 10 ) == 0 )
+            {
+                range = "[" + ( 1 + random.nextInt( version ) ) + ",4]";
+            }
+            int artifact = (int) ( (long) i * artifacts / size );
+            if ( random.nextInt( irregular ? 10 : 200 ) == 0 )
+            {
+                artifact = random.nextInt( artifacts );
+            }
+            coordinates[i] = "a" + artifact + ':' + version + ':' + range;
+
+            int from = i + versions;
+            for ( int j = random.nextInt( 5 ); j > 0 && from < size; j-- )
+            {
+                DependencyNode child;
+                if ( irregular && !nodes.isEmpty() && random.nextInt( 8 ) == 0 )
+                {
+                    child = nodes.get( random.nextInt( nodes.size() ) );
+                }
+                else
+                {
+                    int target = from + random.nextInt( Math.min( size - from, 4 * versions + 10 ) );
+                    child = newNode( coordinates[target], children.get( target ), conflictIds );
+                    nodes.add( child );
+                }
+                children.get( i ).add( child );
+            }
+        }
+
+        DependencyNode root = builder.artifactId( null ).range( null ).build();
+        for ( int i = 0; i < size; i += 1 + random.nextInt( 8 ) )
+        {
+            root.getChildren().add( newNode( coordinates[i], children.get( i ), conflictIds ) );
+        }
+        return root;
+    }
+
+    private DependencyNode newNode( String coordinates, List<DependencyNode> children,
+                                    Map<DependencyNode, Object> conflictIds )
+    {
+        String[] tokens = coordinates.split( ":", -1 );
+        builder.artifactId( tokens[0] ).version( tokens[1] ).range( tokens[2].length() > 0 ? tokens[2] : null );
+        DependencyNode node = new SharedChildrenNode( builder.build(), children );
+        conflictIds.put( node, tokens[0] );
+        return node;
+    }
+
+    private void dump( StringBuilder buffer, DependencyNode node, Map<DependencyNode, Integer> ids )
+    {
+        Integer id = ids.get( node );
+        if ( id != null )
+        {
+            buffer.append( '#' ).append( id );
+            return;
+        }
+        ids.put( node, Integer.valueOf( ids.size() ) );
+
+        if ( node.getDependency() != null )
+        {
+            buffer.append( node.getDependency().getArtifact().getArtifactId() ).append( ':' ).append( node.getVersion() );
+        }
+        buffer.append( '(' );
+        for ( DependencyNode child : node.getChildren() )
+        {
+            dump( buffer, child, ids );
+            buffer.append( ' ' );
+        }
+        buffer.append( ')' );
+    }
+
+    /**
+     * A node whose children list is shared with other nodes, like the nodes of a subgraph reused by the collector.
+     */
+    static class SharedChildrenNode
+        extends TestDependencyNode
+    {
+
+        private final List<DependencyNode> children;
+
+        public SharedChildrenNode( DependencyNode node, List<DependencyNode> children )
+        {
+            super( node );
+            this.children = children;
+        }
+
+        @Override
+        public List<DependencyNode> getChildren()
+        {
+            return children;
+        }
+
+    }
+
 }
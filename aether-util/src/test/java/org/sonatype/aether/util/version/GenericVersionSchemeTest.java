@@ -0,0 +1,137 @@
+package org.sonatype.aether.util.version;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.sonatype.aether.version.InvalidVersionSpecificationException;
+import org.sonatype.aether.version.Version;
+import org.sonatype.aether.version.VersionConstraint;
+import org.sonatype.aether.version.VersionRange;
+
+public class GenericVersionSchemeTest
+{
+
+    private GenericVersionScheme scheme = new GenericVersionScheme();
+
+    @Test
+    public void testParseVersionYieldsSameInstance()
+        throws Exception
+    {
+        Version version = scheme.parseVersion( "1.2.3" );
+        assertSame( version, scheme.parseVersion( "1.2.3" ) );
+        assertSame( version, new GenericVersionScheme().parseVersion( "1.2.3" ) );
+        assertEquals( version, scheme.parseVersion( "1.2.3.0" ) );
+    }
+
+    @Test
+    public void testParseVersionRangeYieldsSameInstance()
+        throws Exception
+    {
+        VersionRange range = scheme.parseVersionRange( "[1.0,2.0)" );
+        assertSame( range, scheme.parseVersionRange( "[1.0,2.0)" ) );
+        assertEquals( new GenericVersionRange( "[1.0,2.0)" ), range );
+    }
+
+    @Test
+    public void testParseVersionConstraintYieldsSameInstance()
+        throws Exception
+    {
+        VersionConstraint constraint = scheme.parseVersionConstraint( "[1.0,2.0),[3.0,)" );
+        assertSame( constraint, scheme.parseVersionConstraint( "[1.0,2.0),[3.0,)" ) );
+        assertEquals( 2, constraint.getRanges().size() );
+        assertNull( constraint.getVersion() );
+
+        constraint = scheme.parseVersionConstraint( "1.0" );
+        assertSame( constraint, scheme.parseVersionConstraint( "1.0" ) );
+        assertTrue( constraint.getRanges().isEmpty() );
+        assertSame( scheme.parseVersion( "1.0" ), constraint.getVersion() );
+    }
+
+    @Test
+    public void testVersionConstraintIsImmutable()
+        throws Exception
+    {
+        VersionConstraint constraint = scheme.parseVersionConstraint( "[1.0,2.0)" );
+        try
+        {
+            constraint.getRanges().clear();
+            fail( "ranges of constraint should be unmodifiable" );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            assertEquals( 1, constraint.getRanges().size() );
+        }
+    }
+
+    @Test
+    public void testInvalidSpecificationIsNotCached()
+    {
+        for ( int i = 0; i < 2; i++ )
+        {
+            try
+            {
+                scheme.parseVersionConstraint( "[1.0,2.0" );
+                fail( "unbounded range should be invalid" );
+            }
+            catch ( InvalidVersionSpecificationException e )
+            {
+                assertTrue( true );
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentParsingYieldsSameInstance()
+        throws Exception
+    {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            Collection<Callable<VersionConstraint>> tasks = new ArrayList<Callable<VersionConstraint>>();
+            for ( int i = 0; i < threads; i++ )
+            {
+                tasks.add( new Callable<VersionConstraint>()
+                {
+                    public VersionConstraint call()
+                        throws Exception
+                    {
+                        return scheme.parseVersionConstraint( "[4.7,4.8-SNAPSHOT)" );
+                    }
+                } );
+            }
+            List<Future<VersionConstraint>> results = executor.invokeAll( tasks );
+            VersionConstraint constraint = scheme.parseVersionConstraint( "[4.7,4.8-SNAPSHOT)" );
+            for ( Future<VersionConstraint> result : results )
+            {
+                assertSame( constraint, result.get() );
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -20,6 +20,7 @@ package org.sonatype.aether.util.version;
  */
 
 import java.util.Locale;
+import java.util.Random;
 
 import org.sonatype.aether.util.version.GenericVersion;
 
@@ -179,6 +180,80 @@ public class GenericVersionTest
         checkVersionsOrder( "2.0.1-xyz", "2.0.1-123" );
     }
 
+    private static final String[] COMPONENTS =
+        { "0", "00", "1", "2", "10", "123", "0123", "999999999999999999", "9223372036854775807", "9223372036854775808",
+            "123456789012345678901234567890", "a", "b", "m", "alpha", "beta", "milestone", "rc",
+            "cr", "snapshot", "ga", "final", "sp", "abc", "xyz", "A", "Final", "SNAPSHOT" };
+
+    private static final String[] SEPARATORS = { ".", "-", "", "..", "--", ".-" };
+
+    private static String newRandomVersion( Random random )
+    {
+        StringBuilder buffer = new StringBuilder();
+        int components = random.nextInt( 7 );
+        for ( int i = 0; i < components; i++ )
+        {
+            if ( i > 0 || random.nextInt( 8 ) == 0 )
+            {
+                buffer.append( SEPARATORS[random.nextInt( SEPARATORS.length )] );
+            }
+            buffer.append( COMPONENTS[random.nextInt( COMPONENTS.length )] );
+        }
+        if ( random.nextInt( 8 ) == 0 )
+        {
+            buffer.append( SEPARATORS[random.nextInt( SEPARATORS.length )] );
+        }
+        return buffer.toString();
+    }
+
+    private static String[] newRandomVersions( int count )
+    {
+        Random random = new Random( 4711 );
+        String[] versions = new String[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            versions[i] = newRandomVersion( random );
+        }
+        return versions;
+    }
+
+    public void testSameOrderAsTreeImplementation()
+    {
+        String[] versions = newRandomVersions( 1500 );
+
+        GenericVersion[] actual = new GenericVersion[versions.length];
+        TreeGenericVersion[] expected = new TreeGenericVersion[versions.length];
+        for ( int i = 0; i < versions.length; i++ )
+        {
+            actual[i] = new GenericVersion( versions[i] );
+            expected[i] = new TreeGenericVersion( versions[i] );
+            assertEquals( versions[i], versions[i], actual[i].toString() );
+        }
+
+        for ( int i = 0; i < versions.length; i++ )
+        {
+            for ( int j = 0; j < versions.length; j++ )
+            {
+                String msg = versions[i] + " vs " + versions[j];
+                assertEquals( msg, Integer.signum( expected[i].compareTo( expected[j] ) ),
+                              Integer.signum( actual[i].compareTo( actual[j] ) ) );
+                assertEquals( msg, expected[i].equals( expected[j] ), actual[i].equals( actual[j] ) );
+            }
+            assertEquals( versions[i], expected[i].hashCode(), actual[i].hashCode() );
+        }
+    }
+
+    public void testVersionsWithSubList()
+    {
+        // only the first item of a sub-list counts against a missing item
+        assertEquals( 0, newComparable( "1" ).compareTo( newComparable( "1-0.1" ) ) );
+        assertEquals( 0, newComparable( "1-0.1" ).compareTo( newComparable( "1" ) ) );
+        checkVersionsOrder( "1-0-1", "1-1" );
+        checkVersionsOrder( "1-0-sp", "1-1" );
+        checkVersionsEqual( "9223372036854775808", "09223372036854775808" );
+        checkVersionsOrder( "9223372036854775807", "9223372036854775808" );
+    }
+
     public void testLocaleIndependent()
     {
         Locale orig = Locale.getDefault();
@@ -0,0 +1,145 @@
+package org.sonatype.aether.util.version;
+
+/*
+ * Copyright (c) 2010 Sonatype, Inc. All rights reserved.
+ *
+ * This program is licensed to you under the Apache License Version 2.0, 
+ * and you may not use this file except in compliance with the Apache License Version 2.0. 
+ * You may obtain a copy of the Apache License Version 2.0 at http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, 
+ * software distributed under the Apache License Version 2.0 is distributed on an 
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the Apache License Version 2.0 for the specific language governing permissions and limitations there under.
+ */
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.sonatype.aether.version.Version;
+import org.sonatype.aether.version.VersionConstraint;
+import org.sonatype.aether.version.VersionRange;
+
+public class VersionRangeUtilsTest
+{
+
+    private GenericVersionScheme scheme = new GenericVersionScheme();
+
+    private List<Version> newVersions( String... versions )
+        throws Exception
+    {
+        List<Version> result = new ArrayList<Version>();
+        for ( String version : versions )
+        {
+            result.add( scheme.parseVersion( version ) );
+        }
+        Collections.sort( result );
+        return result;
+    }
+
+    private static <V extends Version> List<V> filterOneByOne( List<V> versions, VersionConstraint constraint )
+    {
+        List<V> result = new ArrayList<V>();
+        for ( V version : versions )
+        {
+            if ( constraint.containsVersion( version ) )
+            {
+                result.add( version );
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testFilterByRange()
+        throws Exception
+    {
+        List<Version> versions = newVersions( "1.0", "1.1", "1.2", "2.0-SNAPSHOT", "2.0", "2.1", "3.0" );
+
+        assertEquals( versions.subList( 0, 4 ),
+                      VersionRangeUtils.filterVersions( versions, scheme.parseVersionRange( "[1.0,2.0)" ) ) );
+        assertEquals( versions.subList( 1, 5 ),
+                      VersionRangeUtils.filterVersions( versions, scheme.parseVersionRange( "(1.0,2.0]" ) ) );
+        assertEquals( versions.subList( 4, 7 ),
+                      VersionRangeUtils.filterVersions( versions, scheme.parseVersionRange( "[2.0,)" ) ) );
+        assertEquals( versions.subList( 0, 2 ),
+                      VersionRangeUtils.filterVersions( versions, scheme.parseVersionRange( "(,1.1]" ) ) );
+        assertEquals( versions.subList( 2, 3 ),
+                      VersionRangeUtils.filterVersions( versions, scheme.parseVersionRange( "[1.2]" ) ) );
+        assertEquals( Collections.emptyList(),
+                      VersionRangeUtils.filterVersions( versions, scheme.parseVersionRange( "(1.2,1.3)" ) ) );
+        assertEquals( Collections.emptyList(),
+                      VersionRangeUtils.filterVersions( versions, scheme.parseVersionRange( "[4,5]" ) ) );
+    }
+
+    @Test
+    public void testFilterByConstraint()
+        throws Exception
+    {
+        List<Version> versions = newVersions( "1.0", "1.1", "1.2", "2.0", "2.1", "3.0" );
+
+        VersionConstraint constraint = scheme.parseVersionConstraint( "[2.0,3.0),(,1.1],[1.0,1.2)" );
+        assertEquals( newVersions( "1.0", "1.1", "2.0", "2.1" ),
+                      VersionRangeUtils.filterVersions( versions, constraint ) );
+
+        constraint = scheme.parseVersionConstraint( "1.2" );
+        assertEquals( newVersions( "1.2" ), VersionRangeUtils.filterVersions( versions, constraint ) );
+
+        constraint = scheme.parseVersionConstraint( "1.3" );
+        assertEquals( Collections.emptyList(), VersionRangeUtils.filterVersions( versions, constraint ) );
+    }
+
+    @Test
+    public void testFilterLinkedList()
+        throws Exception
+    {
+        List<Version> versions = new LinkedList<Version>( newVersions( "1", "2", "3", "4" ) );
+        VersionRange range = scheme.parseVersionRange( "[2,3]" );
+        assertEquals( newVersions( "2", "3" ), VersionRangeUtils.filterVersions( versions, range ) );
+    }
+
+    @Test
+    public void testSameResultAsContainsVersion()
+        throws Exception
+    {
+        Random random = new Random( 4711 );
+
+        List<Version> versions = new ArrayList<Version>();
+        for ( int i = 0; i < 300; i++ )
+        {
+            versions.add( scheme.parseVersion( random.nextInt( 5 ) + "." + random.nextInt( 5 )
+                + ( random.nextInt( 4 ) == 0 ? "-SNAPSHOT" : "" ) ) );
+        }
+        Collections.sort( versions );
+
+        for ( int i = 0; i < 500; i++ )
+        {
+            StringBuilder buffer = new StringBuilder();
+            for ( int ranges = 1 + random.nextInt( 3 ); ranges > 0; ranges-- )
+            {
+                if ( buffer.length() > 0 )
+                {
+                    buffer.append( ',' );
+                }
+                int lower = random.nextInt( 30 );
+                int upper = lower + random.nextInt( 20 );
+                buffer.append( random.nextBoolean() ? '[' : '(' );
+                buffer.append( random.nextInt( 6 ) == 0 ? "" : ( lower / 6 ) + "." + ( lower % 6 ) );
+                buffer.append( ',' );
+                buffer.append( random.nextInt( 6 ) == 0 ? "" : ( upper / 6 ) + "." + ( upper % 6 ) );
+                buffer.append( random.nextBoolean() ? ']' : ')' );
+            }
+
+            VersionConstraint constraint = scheme.parseVersionConstraint( buffer.toString() );
+            assertEquals( buffer.toString(), filterOneByOne( versions, constraint ),
+                          VersionRangeUtils.filterVersions( versions, constraint ) );
+        }
+    }
+
+}